@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns;
+
+/**
+ * Service event published while browsing a service type. Unlike a {@link ServiceListener}, which learns the nature of an event from the method called, a subscriber reads it from the event.
+ *
+ * @see JmDNS#browse(String)
+ */
+public class BrowseEvent extends ServiceEvent {
+
+    private static final long serialVersionUID = 2683934427347524541L;
+
+    /**
+     * Nature of a browse event, matching the {@link ServiceListener} methods.
+     */
+    public enum Kind {
+        /**
+         * The service has been added, see {@link ServiceListener#serviceAdded(ServiceEvent)}.
+         */
+        ADDED,
+        /**
+         * The service has been removed, see {@link ServiceListener#serviceRemoved(ServiceEvent)}.
+         */
+        REMOVED,
+        /**
+         * The service has been resolved, or its details changed, see {@link ServiceListener#serviceResolved(ServiceEvent)}.
+         */
+        RESOLVED
+    }
+
+    private final Kind         _kind;
+
+    private final ServiceEvent _event;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param kind
+     *            nature of the event
+     * @param event
+     *            the service event
+     */
+    public BrowseEvent(Kind kind, ServiceEvent event) {
+        super(event.getSource());
+        _kind = kind;
+        _event = event;
+    }
+
+    /**
+     * Returns the nature of the event.
+     *
+     * @return event kind
+     */
+    public Kind getKind() {
+        return _kind;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceEvent#getDNS()
+     */
+    @Override
+    public JmDNS getDNS() {
+        return _event.getDNS();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceEvent#getType()
+     */
+    @Override
+    public String getType() {
+        return _event.getType();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceEvent#getName()
+     */
+    @Override
+    public String getName() {
+        return _event.getName();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceEvent#getInfo()
+     */
+    @Override
+    public ServiceInfo getInfo() {
+        return _event.getInfo();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceEvent#clone()
+     */
+    @Override
+    public BrowseEvent clone() {
+        return new BrowseEvent(_kind, _event.clone());
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.EventObject#toString()
+     */
+    @Override
+    public String toString() {
+        return "[" + this.getClass().getSimpleName() + " " + _kind + " " + _event + "]";
+    }
+
+}
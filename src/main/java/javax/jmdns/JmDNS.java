@@ -20,7 +20,10 @@ import java.net.InetAddress;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArraySet;
 
+import javax.jmdns.impl.BrowsePublisher;
 import javax.jmdns.impl.JmDNSImpl;
 
 /**
@@ -354,6 +357,22 @@ public abstract class JmDNS implements Closeable {
      */
     public abstract void removeServiceListener(String type, ServiceListener listener);
 
+    /**
+     * Browse for services of a given type as a stream honouring the demand of its subscribers. Each subscriber first receives the services already in the cache, then the changes as they happen. Subscribing starts the resolution of the
+     * type, canceling the subscription stops listening. The subscriptions complete when this instance is closed.
+     * <p>
+     * This implementation registers a {@link ServiceListener} per subscription with {@link #addServiceListener(String, ServiceListener)}. It does not know when the instance is closed, implementations completing the subscriptions
+     * on close override it.
+     * </p>
+     *
+     * @param type
+     *            full qualified service type, such as <code>_http._tcp.local.</code>.
+     * @return publisher of the service events of the type
+     */
+    public ServiceFlow.Publisher<BrowseEvent> browse(String type) {
+        return new BrowsePublisher(type, this::addServiceListener, this::removeServiceListener, new CopyOnWriteArraySet<>());
+    }
+
     /**
      * Register a service. The service is registered for access by other jmdns clients. The name of the service may be changed to make it unique.<br>
      * Note that the given {@code ServiceInfo} is bound to this {@code JmDNS} instance, and should not be reused for any other service.
@@ -365,6 +384,27 @@ public abstract class JmDNS implements Closeable {
      */
     public abstract void registerService(ServiceInfo info) throws IOException;
 
+    /**
+     * Register several services at once. The services share the same probe and announce cycle, their records are packed together in the outgoing messages. The names of the services may be changed to make them unique.<br>
+     * Note that the given {@code ServiceInfo}s are bound to this {@code JmDNS} instance, and should not be reused for any other service.
+     * <p>
+     * This implementation registers the services one after the other with {@link #registerService(ServiceInfo)} and returns a completed future.
+     * </p>
+     *
+     * @param infos
+     *            service infos to register
+     * @return a future completed when all the services have been announced
+     * @exception IOException
+     *                if there is an error in the underlying protocol, such as a TCP error.
+     * @see #registerService(ServiceInfo)
+     */
+    public CompletableFuture<Void> registerServices(Collection<? extends ServiceInfo> infos) throws IOException {
+        for (ServiceInfo info : infos) {
+            this.registerService(info);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
     /**
      * Unregister a service. The service should have been registered.
      * <p>
@@ -380,6 +420,24 @@ public abstract class JmDNS implements Closeable {
      */
     public abstract void unregisterService(ServiceInfo info);
 
+    /**
+     * Unregister several services at once without blocking. The goodbye packets of all the services are sent together.
+     * <p>
+     * This implementation unregisters the services one after the other with {@link #unregisterService(ServiceInfo)} and returns a completed future.
+     * </p>
+     *
+     * @param infos
+     *            service infos to remove
+     * @return a future completed when all the services have been canceled and removed
+     * @see #unregisterService(ServiceInfo)
+     */
+    public CompletableFuture<Void> unregisterServices(Collection<? extends ServiceInfo> infos) {
+        for (ServiceInfo info : infos) {
+            this.unregisterService(info);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
     /**
      * Unregister all services.
      */
@@ -425,6 +483,28 @@ public abstract class JmDNS implements Closeable {
      */
     public abstract ServiceInfo[] list(String type, long timeout);
 
+    /**
+     * Returns a list of service infos of the specified type.
+     * <p>
+     * The list is returned as soon as the services found are resolved and no new service has been seen for the settle time. Once services of the type have been listed or resolved, a settle time of 0 returns the known services
+     * without waiting.
+     * </p>
+     * <p>
+     * This implementation ignores the settle time and lists with {@link #list(String, long)}.
+     * </p>
+     *
+     * @param type
+     *            Service type name, such as <code>_http._tcp.local.</code>.
+     * @param timeout
+     *            timeout in milliseconds. Typical timeout should be 6s.
+     * @param settle
+     *            time in milliseconds without new answers after which the list is complete. Typical settle time is 200ms.
+     * @return An array of service instance.
+     */
+    public ServiceInfo[] list(String type, long timeout, long settle) {
+        return this.list(type, timeout);
+    }
+
     /**
      * Returns a list of service infos of the specified type sorted by subtype. Any service that do not register a subtype is listed in the empty subtype section.
      *
@@ -17,8 +17,11 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.atomic.AtomicReference;
 
+import javax.jmdns.impl.BrowsePublisher;
 import javax.jmdns.impl.JmmDNSImpl;
 
 /**
@@ -238,6 +241,27 @@ public interface JmmDNS extends Closeable {
      */
     ServiceInfo[] getServiceInfos(String type, String name, boolean persistent, long timeout);
 
+    /**
+     * Get service information without blocking. The information is requested from all DNS at once.
+     * <p>
+     * This implementation calls {@link #getServiceInfos(String, String, boolean, long)} on the common fork join pool.
+     * </p>
+     *
+     * @param type
+     *            full qualified service type, such as <code>_http._tcp.local.</code> .
+     * @param name
+     *            unqualified service name, such as <code>foobar</code> .
+     * @param persistent
+     *            if <code>true</code> ServiceListener.resolveService will be called whenever new information is received.
+     * @param timeout
+     *            timeout in milliseconds for each DNS. Typical timeout should be 5s.
+     * @return future completed with the service info found on all DNS. If no service info is found the list is empty.
+     * @see #getServiceInfos(String, String, boolean, long)
+     */
+    default CompletableFuture<ServiceInfo[]> getServiceInfosAsync(String type, String name, boolean persistent, long timeout) {
+        return CompletableFuture.supplyAsync(() -> this.getServiceInfos(type, name, persistent, timeout));
+    }
+
     /**
      * Request service information. The information about the service is requested and the ServiceListener.resolveService method is called as soon as it is available.
      *
@@ -331,6 +355,23 @@ public interface JmmDNS extends Closeable {
      */
     void removeServiceListener(String type, ServiceListener listener);
 
+    /**
+     * Browse for services of a given type on all the interfaces as a single stream honouring the demand of its subscribers. Interfaces appearing later are browsed too, {@link ServiceEvent#getDNS()} tells on which one a service was
+     * seen.
+     * <p>
+     * This implementation registers a {@link ServiceListener} per subscription with {@link #addServiceListener(String, ServiceListener)}. It does not know when the instance is closed, implementations completing the subscriptions
+     * on close override it.
+     * </p>
+     *
+     * @param type
+     *            full qualified service type, such as <code>_http._tcp.local.</code>.
+     * @return publisher of the service events of the type
+     * @see javax.jmdns.JmDNS#browse(java.lang.String)
+     */
+    default ServiceFlow.Publisher<BrowseEvent> browse(String type) {
+        return new BrowsePublisher(type, this::addServiceListener, this::removeServiceListener, new CopyOnWriteArraySet<>());
+    }
+
     /**
      * Register a service. The service is registered for access by other jmdns clients. The name of the service may be changed to make it unique.<br>
      * <b>Note</b> the Service info is cloned for each network interface.
@@ -389,6 +430,42 @@ public interface JmmDNS extends Closeable {
      */
     ServiceInfo[] list(String type, long timeout);
 
+    /**
+     * Returns a list of service infos of the specified type.
+     * <p>
+     * This implementation ignores the settle time and lists with {@link #list(String, long)}.
+     * </p>
+     *
+     * @param type
+     *            Service type name, such as <code>_http._tcp.local.</code>.
+     * @param timeout
+     *            timeout in milliseconds. Typical timeout should be 6s.
+     * @param settle
+     *            time in milliseconds without new answers after which the list is complete. Typical settle time is 200ms.
+     * @return An array of service instance.
+     * @see javax.jmdns.JmDNS#list(java.lang.String, long, long)
+     */
+    default ServiceInfo[] list(String type, long timeout, long settle) {
+        return this.list(type, timeout);
+    }
+
+    /**
+     * Returns a list of service infos of the specified type without blocking. The services are listed on all DNS at once.
+     * <p>
+     * This implementation calls {@link #list(String, long)} on the common fork join pool.
+     * </p>
+     *
+     * @param type
+     *            Service type name, such as <code>_http._tcp.local.</code>.
+     * @param timeout
+     *            timeout in milliseconds for each DNS. Typical timeout should be 6s.
+     * @return future completed with the service infos found on all DNS.
+     * @see #list(String, long)
+     */
+    default CompletableFuture<ServiceInfo[]> listAsync(String type, long timeout) {
+        return CompletableFuture.supplyAsync(() -> this.list(type, timeout));
+    }
+
     /**
      * Returns a list of service infos of the specified type sorted by subtype. Any service that do not register a subtype is listed in the empty subtype section.
      *
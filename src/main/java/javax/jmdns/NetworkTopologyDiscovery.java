@@ -15,6 +15,7 @@ package javax.jmdns;
 
 import java.net.InetAddress;
 import java.net.NetworkInterface;
+import java.net.SocketException;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.jmdns.impl.NetworkTopologyDiscoveryImpl;
@@ -149,6 +150,26 @@ public interface NetworkTopologyDiscovery {
      */
     InetAddress[] getInetAddresses();
 
+    /**
+     * Get the name of the network interface an address returned by {@link #getInetAddresses()} belongs to. The multihomed mDNS keeps one instance per interface, so that an address changing on an interface moves its instance
+     * rather than replacing it.
+     * <p>
+     * This implementation returns the name of the local interface holding the address, as found by {@link NetworkInterface#getByInetAddress(InetAddress)}, or <code>null</code> if no local interface holds it or the lookup
+     * fails. An address without an interface name is given an instance of its own.
+     * </p>
+     *
+     * @param interfaceAddress the interface IP address
+     * @return the interface name, or <code>null</code> if unknown
+     */
+    default String getInterfaceName(InetAddress interfaceAddress) {
+        try {
+            final NetworkInterface networkInterface = NetworkInterface.getByInetAddress(interfaceAddress);
+            return (networkInterface != null ? networkInterface.getName() : null);
+        } catch (SocketException exception) {
+            return null;
+        }
+    }
+
     /**
      * Check if a given InetAddress should be used for mDNS
      *
@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns;
+
+/**
+ * Demand driven streams of service events.
+ * <p>
+ * These interfaces have the same shape and contract as <code>java.util.concurrent.Flow</code> and the Reactive Streams specification, which are not available on every platform JmDNS runs on. Adapting them to either is a matter of
+ * forwarding each method.
+ * </p>
+ *
+ * @see JmDNS#browse(String)
+ * @see JmmDNS#browse(String)
+ */
+public final class ServiceFlow {
+
+    private ServiceFlow() {
+        // hide implicit public constructor
+    }
+
+    /**
+     * Producer of items received by subscribers, each subscriber gets items only as long as it has outstanding demand.
+     *
+     * @param <T>
+     *            published item type
+     */
+    public interface Publisher<T> {
+
+        /**
+         * Adds the given subscriber. The subscriber is first handed its {@link Subscription} through {@link Subscriber#onSubscribe(Subscription)}.
+         *
+         * @param subscriber
+         *            the subscriber
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * Receiver of items. The methods are called in sequence, never concurrently.
+     *
+     * @param <T>
+     *            subscribed item type
+     */
+    public interface Subscriber<T> {
+
+        /**
+         * Called before any other method of the subscriber.
+         *
+         * @param subscription
+         *            the subscription, used to request items and to cancel
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called with the next item, never more often than requested.
+         *
+         * @param item
+         *            the item
+         */
+        void onNext(T item);
+
+        /**
+         * Called when the subscription failed, no other method is called afterwards.
+         *
+         * @param throwable
+         *            the failure
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Called when no more item will be sent, no other method is called afterwards.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Link between a publisher and one of its subscribers.
+     */
+    public interface Subscription {
+
+        /**
+         * Adds the given number of items to the outstanding demand. A non positive number fails the subscription.
+         *
+         * @param n
+         *            number of additional items, {@link Long#MAX_VALUE} for unbounded
+         */
+        void request(long n);
+
+        /**
+         * Stops the flow of items, items may still arrive until the cancellation is noticed.
+         */
+        void cancel();
+    }
+
+}
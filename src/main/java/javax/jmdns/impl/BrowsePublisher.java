@@ -0,0 +1,323 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import javax.jmdns.BrowseEvent;
+import javax.jmdns.BrowseEvent.Kind;
+import javax.jmdns.ServiceEvent;
+import javax.jmdns.ServiceFlow;
+import javax.jmdns.ServiceInfo;
+import javax.jmdns.ServiceListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes the services of a type, as seen by one or more JmDNS instances.
+ * <p>
+ * Each subscription registers its own {@link ServiceListener}: registering replays the services already in the cache and starts resolving the type, then the live changes follow. Every service added is resolved as well. Events
+ * beyond the demand of the subscriber are buffered. Canceling the subscription removes the listener again, closing the JmDNS instance completes it.
+ * </p>
+ */
+public class BrowsePublisher implements ServiceFlow.Publisher<BrowseEvent> {
+
+    private final Logger                            logger = LoggerFactory.getLogger(BrowsePublisher.class);
+
+    private final String                            _type;
+
+    private final BiConsumer<String, ServiceListener> _addListener;
+
+    private final BiConsumer<String, ServiceListener> _removeListener;
+
+    private final Set<BrowseSubscription>           _subscriptions;
+
+    /**
+     * Create a publisher.
+     *
+     * @param type
+     *            fully qualified service type
+     * @param addListener
+     *            registers a service listener for the type
+     * @param removeListener
+     *            removes a service listener of the type
+     * @param subscriptions
+     *            set tracking the active subscriptions so that the owner can complete them on close
+     */
+    public BrowsePublisher(String type, BiConsumer<String, ServiceListener> addListener, BiConsumer<String, ServiceListener> removeListener, Set<BrowseSubscription> subscriptions) {
+        super();
+        _type = type;
+        _addListener = addListener;
+        _removeListener = removeListener;
+        _subscriptions = subscriptions;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceFlow.Publisher#subscribe(javax.jmdns.ServiceFlow.Subscriber)
+     */
+    @Override
+    public void subscribe(ServiceFlow.Subscriber<? super BrowseEvent> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        final BrowseSubscription subscription = new BrowseSubscription(subscriber);
+        _subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        if (!subscription.isCanceled()) {
+            _addListener.accept(_type, subscription);
+        }
+    }
+
+    /**
+     * @return the browsed service type
+     */
+    public String getType() {
+        return _type;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "BrowsePublisher(" + _type + ")";
+    }
+
+    /**
+     * One subscriber of a {@link BrowsePublisher}.
+     */
+    public final class BrowseSubscription implements ServiceFlow.Subscription, ServiceListener {
+
+        private final ServiceFlow.Subscriber<? super BrowseEvent> _subscriber;
+
+        private final Queue<BrowseEvent>                        _queue;
+
+        private final AtomicLong                                _requested;
+
+        private final AtomicInteger                             _wip;
+
+        private final AtomicBoolean                             _canceled;
+
+        /**
+         * Latest resolution delivered per instance, a resolution read from the cache and the same one arriving from the network are delivered once.
+         */
+        private final Map<String, ServiceInfoSnapshot>          _resolved;
+
+        private volatile boolean                                _done;
+
+        private volatile Throwable                              _error;
+
+        BrowseSubscription(ServiceFlow.Subscriber<? super BrowseEvent> subscriber) {
+            super();
+            _subscriber = subscriber;
+            _queue = new ConcurrentLinkedQueue<>();
+            _requested = new AtomicLong();
+            _wip = new AtomicInteger();
+            _canceled = new AtomicBoolean();
+            _resolved = new ConcurrentHashMap<>();
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.ServiceFlow.Subscription#request(long)
+         */
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                _error = new IllegalArgumentException("Non positive request: " + n);
+                this.release();
+            } else {
+                long current;
+                long next;
+                do {
+                    current = _requested.get();
+                    next = current + n;
+                    if (next < 0) {
+                        next = Long.MAX_VALUE;
+                    }
+                } while (!_requested.compareAndSet(current, next));
+            }
+            this.drain();
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.ServiceFlow.Subscription#cancel()
+         */
+        @Override
+        public void cancel() {
+            if (this.release()) {
+                _queue.clear();
+            }
+        }
+
+        /**
+         * Completes the subscription once the buffered events have been delivered.
+         */
+        public void complete() {
+            _done = true;
+            this.release();
+            this.drain();
+        }
+
+        boolean isCanceled() {
+            return _canceled.get();
+        }
+
+        /**
+         * @return the number of events waiting for demand
+         */
+        int getBufferedCount() {
+            return _queue.size();
+        }
+
+        private boolean release() {
+            if (_canceled.compareAndSet(false, true)) {
+                _subscriptions.remove(this);
+                _removeListener.accept(_type, this);
+                return true;
+            }
+            return false;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.ServiceListener#serviceAdded(javax.jmdns.ServiceEvent)
+         */
+        @Override
+        public void serviceAdded(ServiceEvent event) {
+            this.publish(new BrowseEvent(Kind.ADDED, event));
+            if (((event.getInfo() == null) || !event.getInfo().hasData()) && (event.getDNS() instanceof JmDNSImpl)) {
+                // Resolve on the executor of the instance, not on the thread delivering the events
+                final JmDNSImpl dns = (JmDNSImpl) event.getDNS();
+                try {
+                    dns.getExecutor().execute(() -> this.resolve(dns, event));
+                } catch (RejectedExecutionException exception) {
+                    logger.debug("Not resolving {}, the instance is closing", event.getName(), exception);
+                }
+            }
+        }
+
+        private void resolve(JmDNSImpl dns, ServiceEvent event) {
+            if (_canceled.get()) {
+                return;
+            }
+            // Resolve without waiting, the resolution and its later changes come back as resolved events.
+            // Replay what the cache already knows rather than waiting for the resolution.
+            final ServiceInfo cached = dns.resolveServiceInfo(event.getType(), event.getName(), "", false);
+            if (cached.hasData()) {
+                this.serviceResolved(new ServiceEventImpl(dns, event.getType(), event.getName(), ServiceInfoSnapshot.of(cached)));
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.ServiceListener#serviceRemoved(javax.jmdns.ServiceEvent)
+         */
+        @Override
+        public void serviceRemoved(ServiceEvent event) {
+            _resolved.remove(this.key(event));
+            this.publish(new BrowseEvent(Kind.REMOVED, event));
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.ServiceListener#serviceResolved(javax.jmdns.ServiceEvent)
+         */
+        @Override
+        public void serviceResolved(ServiceEvent event) {
+            final ServiceInfoSnapshot snapshot = ServiceInfoSnapshot.of(event.getInfo());
+            if (snapshot != null) {
+                final ServiceInfoSnapshot previous = _resolved.put(this.key(event), snapshot);
+                if (snapshot.sameContent(previous)) {
+                    return;
+                }
+            }
+            this.publish(new BrowseEvent(Kind.RESOLVED, event));
+        }
+
+        private String key(ServiceEvent event) {
+            // The same instance seen by two JmDNS instances is reported twice
+            return System.identityHashCode(event.getDNS()) + ":" + (event.getName() + "." + event.getType()).toLowerCase();
+        }
+
+        private void publish(BrowseEvent event) {
+            if (!_canceled.get()) {
+                _queue.offer(event);
+                this.drain();
+            }
+        }
+
+        private void drain() {
+            if (_wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (_error != null) {
+                    _queue.clear();
+                    final Throwable error = _error;
+                    _error = null;
+                    _done = false;
+                    _subscriber.onError(error);
+                    return;
+                }
+                final long requested = _requested.get();
+                long emitted = 0;
+                BrowseEvent event;
+                while ((emitted != requested) && ((event = _queue.poll()) != null)) {
+                    try {
+                        _subscriber.onNext(event);
+                    } catch (RuntimeException exception) {
+                        logger.warn("Subscriber of {} failed: {}", _type, _subscriber, exception);
+                        this.cancel();
+                        return;
+                    }
+                    emitted++;
+                }
+                if (_done && _queue.isEmpty()) {
+                    _done = false;
+                    _subscriber.onComplete();
+                    return;
+                }
+                if ((emitted != 0) && (requested != Long.MAX_VALUE)) {
+                    _requested.addAndGet(-emitted);
+                }
+                missed = _wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return "BrowseSubscription(" + _type + " requested: " + _requested + " buffered: " + _queue.size() + ")";
+        }
+    }
+
+}
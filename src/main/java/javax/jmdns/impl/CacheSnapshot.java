@@ -0,0 +1,353 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.jmdns.impl.constants.DNSConstants;
+import javax.jmdns.impl.constants.DNSRecordClass;
+import javax.jmdns.impl.constants.DNSRecordType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Warm-start snapshot of a {@link DNSCache}.
+ * <p>
+ * The records of the cache are written to a compact binary file when JmDNS is closed and periodically while it runs. When a new JmDNS instance starts with the same snapshot, the records that have not expired in the meantime are put back
+ * in the cache with their remaining TTL so browsing does not start from scratch. Restored records are not trusted blindly: they are due for a refresh straight away and are never offered as known answers until the network confirms them.
+ * </p>
+ * <p>
+ * The file starts with a header (magic, version, number of records) followed by the records, each one holding its type, class, unique flag, TTL, creation date, name and type specific data. The file is replaced atomically and memory
+ * mapped when read.
+ * </p>
+ */
+public class CacheSnapshot {
+    private final Logger        logger  = LoggerFactory.getLogger(CacheSnapshot.class);
+
+    static final int            MAGIC   = 0x4A4D4443;  // "JMDC"
+
+    static final int            VERSION = 1;
+
+    private final File          _file;
+
+    private final long          _interval;
+
+    private volatile long       _lastWrite;
+
+    /**
+     * Create a snapshot from the <code>net.mdns.cache.snapshot</code> system property.
+     *
+     * @param name
+     *            name of the JmDNS instance, each instance gets its own file
+     * @return new snapshot, or <code>null</code> if no snapshot directory is configured
+     */
+    public static CacheSnapshot newDefaultSnapshot(String name) {
+        if ((DNSConstants.CACHE_SNAPSHOT_DIRECTORY == null) || DNSConstants.CACHE_SNAPSHOT_DIRECTORY.isEmpty()) {
+            return null;
+        }
+        final String fileName = "jmdns-" + String.valueOf(name).replaceAll("[^A-Za-z0-9._-]", "_") + ".cache";
+        return new CacheSnapshot(new File(DNSConstants.CACHE_SNAPSHOT_DIRECTORY, fileName), DNSConstants.CACHE_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Create a snapshot written every {@link DNSConstants#CACHE_SNAPSHOT_INTERVAL} milliseconds.
+     *
+     * @param file
+     *            snapshot file
+     */
+    public CacheSnapshot(File file) {
+        this(file, DNSConstants.CACHE_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Create a snapshot.
+     *
+     * @param file
+     *            snapshot file
+     * @param interval
+     *            milliseconds between two periodic writes, 0 to only write on close
+     */
+    public CacheSnapshot(File file, long interval) {
+        super();
+        _file = file;
+        _interval = interval;
+        _lastWrite = DNSClock.Factory.getClock().currentTimeMillis();
+    }
+
+    /**
+     * @return the snapshot file
+     */
+    public File getFile() {
+        return _file;
+    }
+
+    /**
+     * Returns <code>true</code> if the periodic write is due.
+     *
+     * @param now
+     *            current time
+     * @return <code>true</code> if the snapshot should be written
+     */
+    boolean isDue(long now) {
+        return (_interval > 0) && (now - _lastWrite >= _interval);
+    }
+
+    /**
+     * Write the unexpired records of the cache of a JmDNS instance, replacing the previous snapshot. The records describing the instance itself are left out, they are announced again on the next start.
+     *
+     * @param dns
+     *            JmDNS instance
+     * @return the number of records written
+     * @exception IOException
+     *                if the snapshot cannot be written
+     */
+    public synchronized int write(JmDNSImpl dns) throws IOException {
+        final long now = DNSClock.Factory.getClock().currentTimeMillis();
+        _lastWrite = now;
+        final List<DNSRecord> records = new ArrayList<>();
+        for (DNSEntry entry : dns.getCache().allValues()) {
+            final DNSRecord record = (DNSRecord) entry;
+            if (!record.isExpired(now) && isSupported(record.getRecordType()) && !isOwnRecord(dns, record)) {
+                records.add(record);
+            }
+        }
+
+        final File directory = _file.getAbsoluteFile().getParentFile();
+        if ((directory != null) && !directory.isDirectory()) {
+            Files.createDirectories(directory.toPath());
+        }
+        final File temp = new File(directory, _file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(records.size());
+            for (DNSRecord record : records) {
+                writeRecord(out, record);
+            }
+        }
+        try {
+            Files.move(temp.toPath(), _file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException exception) {
+            Files.move(temp.toPath(), _file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        logger.debug("Wrote {} records to cache snapshot {}", records.size(), _file);
+        return records.size();
+    }
+
+    /**
+     * Read the records of the snapshot that have not expired yet. Each record gets its remaining TTL and is marked for verification.
+     *
+     * @return restored records, empty if there is no snapshot or it cannot be read
+     */
+    public List<DNSRecord> read() {
+        if (!_file.isFile()) {
+            return Collections.emptyList();
+        }
+        try (FileChannel channel = FileChannel.open(_file.toPath(), StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer, DNSClock.Factory.getClock().currentTimeMillis());
+        } catch (IOException | RuntimeException exception) {
+            // A damaged snapshot only costs us the warm start
+            logger.warn("Ignoring unreadable cache snapshot {}", _file, exception);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Restore the snapshot into the cache of a JmDNS instance. Records already in the cache are left untouched.
+     *
+     * @param dns
+     *            JmDNS instance
+     * @return the number of records restored
+     */
+    public int restore(JmDNSImpl dns) {
+        int restored = 0;
+        for (DNSRecord record : this.read()) {
+            if (dns.getCache().getDNSEntry(record) == null) {
+                dns.getCache().addDNSEntry(record);
+                restored++;
+            }
+        }
+        logger.debug("Restored {} records from cache snapshot {}", restored, _file);
+        return restored;
+    }
+
+    static List<DNSRecord> read(ByteBuffer buffer, long now) throws IOException {
+        try {
+            if ((buffer.getInt() != MAGIC) || (buffer.getShort() != VERSION)) {
+                throw new IOException("Not a cache snapshot");
+            }
+            final int count = buffer.getInt();
+            final List<DNSRecord> records = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                final DNSRecord record = readRecord(buffer, now);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+            return records;
+        } catch (BufferUnderflowException exception) {
+            throw new IOException("Truncated cache snapshot", exception);
+        }
+    }
+
+    private static boolean isOwnRecord(JmDNSImpl dns, DNSRecord record) {
+        switch (record.getRecordType()) {
+            case TYPE_A:
+            case TYPE_AAAA:
+                return record.getName().equalsIgnoreCase(dns.getLocalHost().getName());
+            case TYPE_PTR:
+                return dns.getServices().containsKey(((DNSRecord.Pointer) record).getAlias().toLowerCase());
+            default:
+                return dns.getServices().containsKey(record.getKey());
+        }
+    }
+
+    private static boolean isSupported(DNSRecordType type) {
+        switch (type) {
+            case TYPE_A:
+            case TYPE_AAAA:
+            case TYPE_PTR:
+            case TYPE_SRV:
+            case TYPE_TXT:
+            case TYPE_HINFO:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, DNSRecord record) throws IOException {
+        out.writeShort(record.getRecordType().indexValue());
+        out.writeShort(record.getRecordClass().indexValue());
+        out.writeBoolean(record.isUnique());
+        out.writeInt(record.getTTL());
+        out.writeLong(record.getCreated());
+        writeString(out, record.getName());
+        switch (record.getRecordType()) {
+            case TYPE_A:
+            case TYPE_AAAA:
+                writeBytes(out, ((DNSRecord.Address) record).getAddress().getAddress());
+                break;
+            case TYPE_PTR:
+                writeString(out, ((DNSRecord.Pointer) record).getAlias());
+                break;
+            case TYPE_SRV:
+                DNSRecord.Service service = (DNSRecord.Service) record;
+                out.writeShort(service.getPriority());
+                out.writeShort(service.getWeight());
+                out.writeShort(service.getPort());
+                writeString(out, service.getServer());
+                break;
+            case TYPE_TXT:
+                writeBytes(out, ((DNSRecord.Text) record).getText());
+                break;
+            case TYPE_HINFO:
+                DNSRecord.HostInformation hostInformation = (DNSRecord.HostInformation) record;
+                writeString(out, hostInformation._cpu);
+                writeString(out, hostInformation._os);
+                break;
+            default:
+                throw new IOException("Unsupported record type: " + record.getRecordType());
+        }
+    }
+
+    private static DNSRecord readRecord(ByteBuffer buffer, long now) throws IOException {
+        final DNSRecordType type = DNSRecordType.typeForIndex(buffer.getShort() & 0xFFFF);
+        final DNSRecordClass recordClass = DNSRecordClass.classForIndex(buffer.getShort() & 0xFFFF);
+        final boolean unique = buffer.get() != 0;
+        final int ttl = buffer.getInt();
+        final long created = buffer.getLong();
+        final String name = readString(buffer);
+        final DNSRecord record;
+        switch (type) {
+            case TYPE_A:
+                record = new DNSRecord.IPv4Address(name, recordClass, unique, ttl, readBytes(buffer));
+                break;
+            case TYPE_AAAA:
+                record = new DNSRecord.IPv6Address(name, recordClass, unique, ttl, readBytes(buffer));
+                break;
+            case TYPE_PTR:
+                record = new DNSRecord.Pointer(name, recordClass, unique, ttl, readString(buffer));
+                break;
+            case TYPE_SRV:
+                final int priority = buffer.getShort() & 0xFFFF;
+                final int weight = buffer.getShort() & 0xFFFF;
+                final int port = buffer.getShort() & 0xFFFF;
+                record = new DNSRecord.Service(name, recordClass, unique, ttl, priority, weight, port, readString(buffer));
+                break;
+            case TYPE_TXT:
+                record = new DNSRecord.Text(name, recordClass, unique, ttl, readBytes(buffer));
+                break;
+            case TYPE_HINFO:
+                final String cpu = readString(buffer);
+                record = new DNSRecord.HostInformation(name, recordClass, unique, ttl, cpu, readString(buffer));
+                break;
+            default:
+                throw new IOException("Unsupported record type: " + type);
+        }
+        final long remaining = created + ttl * 1000L - now;
+        if (remaining <= 0) {
+            return null;
+        }
+        record.restore(now, (int) ((remaining + 999) / 1000));
+        return record;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, (value != null ? value : "").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        return new String(readBytes(buffer), StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        out.writeShort(value.length);
+        out.write(value);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        final byte[] value = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(value);
+        return value;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "CacheSnapshot(" + _file + ")";
+    }
+
+}
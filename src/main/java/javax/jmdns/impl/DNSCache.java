@@ -16,11 +16,17 @@ package javax.jmdns.impl;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.jmdns.impl.constants.DNSConstants;
 import javax.jmdns.impl.constants.DNSRecordClass;
 import javax.jmdns.impl.constants.DNSRecordType;
 import javax.jmdns.impl.util.SimpleLockManager;
@@ -52,6 +58,10 @@ import org.slf4j.LoggerFactory;
  *           ...do something with entry...
  *       }
  * </pre>
+ * <p>
+ * The cache is bounded both in number of entries and in estimated memory. When a new entry pushes it over either limit, entries are evicted down to 90% of the limits: entries nobody is interested in go first, soonest to expire first. Entries for
+ * which the {@link EvictionGuard} claims an interest, and the address records of the hosts they point to, are never evicted.
+ * </p>
  *
  * @author Arthur van Hoff, Werner Randelshofer, Rick Blair, Pierre Frisch
  */
@@ -63,6 +73,35 @@ public class DNSCache extends ConcurrentHashMap<String, List<DNSEntry>> {
 
     private final transient SimpleLockManager _lm = new SimpleLockManager();
 
+    /**
+     * Decides which entries must survive an eviction.
+     */
+    public interface EvictionGuard {
+
+        /**
+         * Returns <code>true</code> if the entry is backing an active listener or resolver and must not be evicted.
+         *
+         * @param entry
+         *            cached entry
+         * @return <code>true</code> if the entry is protected
+         */
+        boolean isProtected(DNSEntry entry);
+    }
+
+    private transient volatile int            _maxEntries;
+
+    private transient volatile long           _maxBytes;
+
+    private transient volatile EvictionGuard  _guard;
+
+    private final transient AtomicInteger     _entryCount = new AtomicInteger();
+
+    private final transient AtomicLong        _byteCount  = new AtomicLong();
+
+    private final transient AtomicLong        _evictions  = new AtomicLong();
+
+    private final transient AtomicBoolean     _evicting   = new AtomicBoolean();
+
     /**
      *
      */
@@ -77,6 +116,12 @@ public class DNSCache extends ConcurrentHashMap<String, List<DNSEntry>> {
         this(map != null ? map.size() : 1024);
         if (map != null) {
             this.putAll(map);
+            _maxEntries = map._maxEntries;
+            _maxBytes = map._maxBytes;
+            _guard = map._guard;
+            for (DNSEntry entry : this.allValues()) {
+                this.count(entry, 1);
+            }
         }
     }
 
@@ -87,6 +132,58 @@ public class DNSCache extends ConcurrentHashMap<String, List<DNSEntry>> {
      */
     public DNSCache(int initialCapacity) {
         super(initialCapacity);
+        _maxEntries = DNSConstants.CACHE_MAX_ENTRIES;
+        _maxBytes = DNSConstants.CACHE_MAX_BYTES;
+    }
+
+    /**
+     * Sets the limits of the cache. Entries are not evicted before the next addition.
+     *
+     * @param maxEntries
+     *            maximum number of entries, 0 for no limit
+     * @param maxBytes
+     *            maximum estimated memory in bytes, 0 for no limit
+     */
+    public void setCapacity(int maxEntries, long maxBytes) {
+        _maxEntries = Math.max(0, maxEntries);
+        _maxBytes = Math.max(0, maxBytes);
+    }
+
+    /**
+     * Sets the guard protecting entries from eviction.
+     *
+     * @param guard
+     *            eviction guard, <code>null</code> to protect nothing
+     */
+    public void setEvictionGuard(EvictionGuard guard) {
+        _guard = guard;
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     *
+     * @return number of entries
+     */
+    public int getEntryCount() {
+        return _entryCount.get();
+    }
+
+    /**
+     * Returns the estimated memory used by the entries of the cache.
+     *
+     * @return estimated size in bytes
+     */
+    public long getEstimatedSize() {
+        return _byteCount.get();
+    }
+
+    /**
+     * Returns the number of entries evicted to keep the cache within its limits.
+     *
+     * @return number of evicted entries
+     */
+    public long getEvictionCount() {
+        return _evictions.get();
     }
 
     // ====================================================================
@@ -223,9 +320,11 @@ public class DNSCache extends ConcurrentHashMap<String, List<DNSEntry>> {
                 entryList = new ArrayList<>(3);
             }
             entryList.add(dnsEntry);
+            this.count(dnsEntry, 1);
             // re-add to the map to establish happens-before and aid visibility
             this.put(key, entryList);
         }
+        this.evictIfNeeded();
         return true;
     }
 
@@ -244,6 +343,9 @@ public class DNSCache extends ConcurrentHashMap<String, List<DNSEntry>> {
             if (entryList == null)
                 return false;
             boolean result = entryList.remove(dnsEntry);
+            if (result) {
+                this.count(dnsEntry, -1);
+            }
             /* Remove from DNS cache when no records remain with this key */
             if (entryList.isEmpty()) {
                 this.remove(key);
@@ -271,13 +373,107 @@ public class DNSCache extends ConcurrentHashMap<String, List<DNSEntry>> {
             List<DNSEntry> entryList = this.get(key);
             if (entryList == null) {
                 entryList = new ArrayList<>(3);
-            } else {
-                entryList.remove(existingDNSEntry);
+            } else if (entryList.remove(existingDNSEntry)) {
+                this.count(existingDNSEntry, -1);
             }
             entryList.add(newDNSEntry);
+            this.count(newDNSEntry, 1);
             // re-add to the map to establish happens-before and aid visibility
             this.put(key, entryList);
-            return true;
+        }
+        this.evictIfNeeded();
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.concurrent.ConcurrentHashMap#clear()
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        _entryCount.set(0);
+        _byteCount.set(0);
+    }
+
+    private void count(DNSEntry entry, int sign) {
+        _entryCount.addAndGet(sign);
+        _byteCount.addAndGet(sign * estimateSize(entry));
+    }
+
+    /**
+     * Rough estimate of the memory held by a cached entry, including the decoded name map.
+     *
+     * @param entry
+     *            cached entry
+     * @return estimated size in bytes
+     */
+    static int estimateSize(DNSEntry entry) {
+        int size = 256 + 4 * entry.getName().length();
+        if (entry instanceof DNSRecord.Pointer) {
+            size += 2 * ((DNSRecord.Pointer) entry).getAlias().length();
+        } else if (entry instanceof DNSRecord.Service) {
+            size += 2 * ((DNSRecord.Service) entry).getServer().length();
+        } else if (entry instanceof DNSRecord.Text) {
+            size += ((DNSRecord.Text) entry).getText().length;
+        } else if (entry instanceof DNSRecord.Address) {
+            size += 32;
+        } else if (entry instanceof DNSRecord.HostInformation) {
+            size += 64;
+        }
+        return size;
+    }
+
+    private boolean isOverCapacity(double ratio) {
+        final int maxEntries = _maxEntries;
+        final long maxBytes = _maxBytes;
+        return ((maxEntries > 0) && (_entryCount.get() > maxEntries * ratio)) || ((maxBytes > 0) && (_byteCount.get() > maxBytes * ratio));
+    }
+
+    private void evictIfNeeded() {
+        if (!this.isOverCapacity(1.0) || !_evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.evict(DNSClock.Factory.getClock().currentTimeMillis());
+        } finally {
+            _evicting.set(false);
+        }
+    }
+
+    private void evict(long now) {
+        final EvictionGuard guard = _guard;
+        final Collection<DNSEntry> entries = this.allValues();
+        final List<DNSRecord> candidates = new ArrayList<>(entries.size());
+        final Set<String> protectedHosts = new HashSet<>();
+        for (DNSEntry entry : entries) {
+            if ((guard != null) && guard.isProtected(entry)) {
+                if (entry instanceof DNSRecord.Service) {
+                    protectedHosts.add(((DNSRecord.Service) entry).getServer().toLowerCase());
+                }
+            } else if (entry instanceof DNSRecord) {
+                candidates.add((DNSRecord) entry);
+            }
+        }
+        // Expired entries sort first, then the ones closest to their expiration
+        candidates.sort(Comparator.comparingLong(record -> record.getExpirationTime(100)));
+        int evicted = 0;
+        for (DNSRecord record : candidates) {
+            if (!this.isOverCapacity(0.9)) {
+                break;
+            }
+            if ((record instanceof DNSRecord.Address) && protectedHosts.contains(record.getKey())) {
+                continue;
+            }
+            if (this.removeDNSEntry(record)) {
+                evicted++;
+            }
+        }
+        _evictions.addAndGet(evicted);
+        if (this.isOverCapacity(1.0)) {
+            logger.debug("Cache still over capacity after evicting {} entries, {} entries are protected", evicted, entries.size() - candidates.size());
+        } else {
+            logger.debug("Evicted {} entries from the cache, {} entries and {} bytes left", evicted, _entryCount.get(), _byteCount.get());
         }
     }
     
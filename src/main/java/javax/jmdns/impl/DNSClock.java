@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.util.Timer;
+
+import javax.jmdns.impl.DNSTaskStarter.DNSTaskStarterImpl.StarterTimer;
+
+/**
+ * This class is the single source of time for JmDNS. Record expiration, task scheduling and the various throttling sleeps all go through the current clock so that a {@link VirtualClock} can be substituted to run hours of protocol activity in
+ * seconds.
+ * <p>
+ * <b>Note: </b> This is not considered as part of the general public API of JmDNS.
+ * </p>
+ */
+public interface DNSClock {
+
+    /**
+     * DNSClock.Factory gives access to the clock shared by all JmDNS instances.
+     */
+    final class Factory {
+
+        private static final DNSClock   SYSTEM_CLOCK = new SystemClock();
+
+        private static volatile DNSClock _clock      = SYSTEM_CLOCK;
+
+        private Factory() {
+            super();
+        }
+
+        /**
+         * Sets the clock used by JmDNS. The clock should be set before creating any JmDNS instance as timers are created with the instance.
+         *
+         * @param clock
+         *            new clock, <code>null</code> restores the system clock
+         */
+        public static void setClock(DNSClock clock) {
+            _clock = (clock != null ? clock : SYSTEM_CLOCK);
+        }
+
+        /**
+         * Returns the clock used by JmDNS.
+         *
+         * @return current clock
+         */
+        public static DNSClock getClock() {
+            return _clock;
+        }
+
+    }
+
+    /**
+     * Default clock backed by the system time, sleeps and timers.
+     */
+    final class SystemClock implements DNSClock {
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.impl.DNSClock#currentTimeMillis()
+         */
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.impl.DNSClock#sleep(long)
+         */
+        @Override
+        public void sleep(long millis) throws InterruptedException {
+            Thread.sleep(millis);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.impl.DNSClock#waitOn(java.lang.Object, long)
+         */
+        @Override
+        public void waitOn(Object monitor, long millis) throws InterruptedException {
+            if (millis > 0) {
+                monitor.wait(millis);
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.impl.DNSClock#newTimer(java.lang.String, boolean)
+         */
+        @Override
+        public Timer newTimer(String name, boolean isDaemon) {
+            return new StarterTimer(name, isDaemon);
+        }
+
+    }
+
+    /**
+     * Returns the current time in milliseconds.
+     *
+     * @return current time
+     * @see System#currentTimeMillis()
+     */
+    long currentTimeMillis();
+
+    /**
+     * Causes the current thread to sleep for the given amount of time as measured by this clock.
+     *
+     * @param millis
+     *            time to sleep in milliseconds
+     * @exception InterruptedException
+     *                if the thread is interrupted while sleeping
+     * @see Thread#sleep(long)
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Causes the current thread to wait on the given monitor until it is notified or the given amount of time, as measured by this clock, has elapsed. The current thread must own the monitor. As with {@link Object#wait(long)} the
+     * thread may also wake up spuriously, callers check their condition in a loop.
+     *
+     * @param monitor
+     *            object whose monitor is owned by the current thread
+     * @param millis
+     *            maximum time to wait in milliseconds, nothing is done if not positive
+     * @exception InterruptedException
+     *                if the thread is interrupted while waiting
+     * @see Object#wait(long)
+     */
+    void waitOn(Object monitor, long millis) throws InterruptedException;
+
+    /**
+     * Creates a new timer running its tasks according to this clock.
+     *
+     * @param name
+     *            name of the timer
+     * @param isDaemon
+     *            <code>true</code> if the timer thread should be a daemon
+     * @return new timer
+     */
+    Timer newTimer(String name, boolean isDaemon);
+
+}
@@ -188,7 +188,7 @@ public final class DNSIncoming extends DNSMessage {
         super(0, 0, packet.getPort() == DNSConstants.MDNS_PORT);
         this._packet = packet;
         this._messageInputStream = new MessageInputStream(packet.getData(), packet.getLength(), this.logger);
-        this._receivedTime = System.currentTimeMillis();
+        this._receivedTime = DNSClock.Factory.getClock().currentTimeMillis();
         this._senderUDPPayload = DNSConstants.MAX_MSG_TYPICAL;
 
         try {
@@ -337,185 +337,123 @@ public final class DNSIncoming extends DNSMessage {
         int len = _messageInputStream.readUnsignedShort();
         DNSRecord rec = null;
 
-        switch (recordType) {
-            case TYPE_A: // IPv4
-                /*
-                 * 2019-04-04
-                 * This len check here is a workaround for a bug likely caused by the firmware in Grandstream doorbell camera.
-                 * More details here:
-                 * https://partnerconnect.grandstream.com/users/show_ticket/168746
-                 * https://github.com/jmdns/jmdns/issues/186
-                 * 
-                 * The problem was camera GDS3710 was responding with DNS message which had Type A but len 2 rather than 4
-                 * This caused CPU spinning and OOM issues.
-                 * Here we simply drop the answer if it has invalid length.
-                 */
-                if (len == 4)
-                    rec = new DNSRecord.IPv4Address(domain, recordClass, unique, ttl, _messageInputStream.readBytes(len));
-                else
-                    _messageInputStream.skip(len);
-                break;
-            case TYPE_AAAA: // IPv6
-                byte[] incomingBytes =  _messageInputStream.readBytes(len);
-                if (isIPv4MappedIPv6Address(incomingBytes)) {
-                    logger.warn("AAAA record with IPv4-mapped address for {}", domain);
+        final DNSRecordCodec codec = DNSRecordCodec.Factory.getCodec(recordType);
+        if (codec != null) {
+            rec = codec.read(_messageInputStream, domain, recordClass, unique, ttl, len);
+        } else if (recordType == DNSRecordType.TYPE_OPT) {
+            this.readOption(recordClassIndex, ttl);
+        } else {
+            if (logger.isDebugEnabled()) {
+                logger.debug("DNSIncoming() unhandled type. domain '{}', address: {}:{}, type: {} ({}), class: {} ({})",
+                        domain, getHostAddress(), _packet.getPort(), recordType, recordTypeIndex, recordClass, recordClassIndex);
+            }
+            _messageInputStream.skip(len);
+        }
+        if (rec != null) {
+            rec.setRecordSource(_packet.getAddress());
+        }
+        return rec;
+    }
+
+    /**
+     * Reads the OPT pseudo record [RFC 6891], its class holds the UDP payload size of the sender.
+     */
+    private void readOption(int recordClassIndex, int ttl) {
+        DNSResultCode extendedResultCode = DNSResultCode.resultCodeForFlags(this.getFlags(), ttl);
+        int version = (ttl & 0x00ff0000) >> 16;
+        if (version == 0) {
+            _senderUDPPayload = recordClassIndex;
+            while (_messageInputStream.available() > 0) {
+                // Read RDData
+                int optionCodeInt = 0;
+                DNSOptionCode optionCode = null;
+                if (_messageInputStream.available() >= 2) {
+                    optionCodeInt = _messageInputStream.readUnsignedShort();
+                    optionCode = DNSOptionCode.resultCodeForFlags(optionCodeInt);
                 } else {
-                    rec = new DNSRecord.IPv6Address(domain, recordClass, unique, ttl, incomingBytes);
+                    logger.warn("There was a problem reading the OPT record. Ignoring.");
+                    break;
                 }
-                break;
-            case TYPE_CNAME:
-            case TYPE_PTR:
-                String service;
-                service = _messageInputStream.readName();
-                if (!service.isEmpty()) {
-                    rec = new DNSRecord.Pointer(domain, recordClass, unique, ttl, service);
+                int optionLength = 0;
+                if (_messageInputStream.available() >= 2) {
+                    optionLength = _messageInputStream.readUnsignedShort();
                 } else {
-                    logger.warn("PTR record of class: {}, there was a problem reading the service name of the answer for domain: {}", recordClass, domain);
+                    logger.warn("There was a problem reading the OPT record. Ignoring.");
+                    break;
                 }
-                break;
-            case TYPE_TXT:
-                rec = new DNSRecord.Text(domain, recordClass, unique, ttl, _messageInputStream.readBytes(len));
-                break;
-            case TYPE_SRV:
-                int priority = _messageInputStream.readUnsignedShort();
-                int weight = _messageInputStream.readUnsignedShort();
-                int port = _messageInputStream.readUnsignedShort();
-                String target;
-                // This is a hack to handle a bug in the BonjourConformanceTest
-                // It is sending out target strings that don't follow the "domain name" format.
-                if (USE_DOMAIN_NAME_FORMAT_FOR_SRV_TARGET) {
-                    target = _messageInputStream.readName();
-                } else {
-                    // [PJYF Nov 13 2010] Do we still need this? This looks dreadful. All label are supposed to start by a length.
-                    target = _messageInputStream.readNonNameString();
+                byte[] optiondata = new byte[0];
+                if (_messageInputStream.available() >= optionLength) {
+                    optiondata = _messageInputStream.readBytes(optionLength);
                 }
-                rec = new DNSRecord.Service(domain, recordClass, unique, ttl, priority, weight, port, target);
-                break;
-            case TYPE_HINFO:
-                final StringBuilder sb = new StringBuilder();
-                sb.append(_messageInputStream.readUTF(len));
-                int index = sb.indexOf(" ");
-                String cpu = (index > 0 ? sb.substring(0, index) : sb.toString()).trim();
-                String os = (index > 0 ? sb.substring(index + 1) : "").trim();
-                rec = new DNSRecord.HostInformation(domain, recordClass, unique, ttl, cpu, os);
-                break;
-            case TYPE_OPT:
-                DNSResultCode extendedResultCode = DNSResultCode.resultCodeForFlags(this.getFlags(), ttl);
-                int version = (ttl & 0x00ff0000) >> 16;
-                if (version == 0) {
-                    _senderUDPPayload = recordClassIndex;
-                    while (_messageInputStream.available() > 0) {
-                        // Read RDData
-                        int optionCodeInt = 0;
-                        DNSOptionCode optionCode = null;
-                        if (_messageInputStream.available() >= 2) {
-                            optionCodeInt = _messageInputStream.readUnsignedShort();
-                            optionCode = DNSOptionCode.resultCodeForFlags(optionCodeInt);
-                        } else {
-                            logger.warn("There was a problem reading the OPT record. Ignoring.");
-                            break;
+                //
+                // We should really do something with those options.
+                switch (optionCode) {
+                    case Owner:
+                        // Valid length values are 8, 14, 18 and 20
+                        // +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+                        // |Opt|Len|V|S|Primary MAC|Wakeup MAC | Password |
+                        // +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+                        //
+                        int ownerVersion = 0;
+                        int ownerSequence = 0;
+                        byte[] ownerPrimaryMacAddress = null;
+                        byte[] ownerWakeupMacAddress = null;
+                        byte[] ownerPassword = null;
+                        try {
+                            ownerVersion = optiondata[0];
+                            ownerSequence = optiondata[1];
+                            ownerPrimaryMacAddress = new byte[] { optiondata[2], optiondata[3], optiondata[4], optiondata[5], optiondata[6], optiondata[7] };
+                            ownerWakeupMacAddress = ownerPrimaryMacAddress;
+                            if (optiondata.length > 8) {
+                                // We have a wakeupMacAddress.
+                                ownerWakeupMacAddress = new byte[] { optiondata[8], optiondata[9], optiondata[10], optiondata[11], optiondata[12], optiondata[13] };
+                            }
+                            if (optiondata.length == 18) {
+                                // We have a short password.
+                                ownerPassword = new byte[] { optiondata[14], optiondata[15], optiondata[16], optiondata[17] };
+                            }
+                            if (optiondata.length == 22) {
+                                // We have a long password.
+                                ownerPassword = new byte[] { optiondata[14], optiondata[15], optiondata[16], optiondata[17], optiondata[18], optiondata[19], optiondata[20], optiondata[21] };
+                            }
+                        } catch (Exception exception) {
+                            logger.warn("Malformed OPT answer. Option code: Owner data: {}", this._hexString(optiondata));
                         }
-                        int optionLength = 0;
-                        if (_messageInputStream.available() >= 2) {
-                            optionLength = _messageInputStream.readUnsignedShort();
-                        } else {
-                            logger.warn("There was a problem reading the OPT record. Ignoring.");
-                            break;
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("Unhandled Owner OPT version: {} sequence: {} MAC address: {} {}{} {}{}",
+                                    ownerVersion,
+                                    ownerSequence,
+                                    this._hexString(ownerPrimaryMacAddress),
+                                    (ownerWakeupMacAddress != ownerPrimaryMacAddress ? " wakeup MAC address: " : ""),
+                                    (ownerWakeupMacAddress != ownerPrimaryMacAddress ? this._hexString(ownerWakeupMacAddress) : ""),
+                                    (ownerPassword != null ? " password: ": ""),
+                                    (ownerPassword != null ? this._hexString(ownerPassword) : "")
+                            );
                         }
-                        byte[] optiondata = new byte[0];
-                        if (_messageInputStream.available() >= optionLength) {
-                            optiondata = _messageInputStream.readBytes(optionLength);
+                        break;
+                    case LLQ:
+                    case NSID:
+                    case UL:
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("There was an OPT answer. Option code: {} data: {}", optionCode, this._hexString(optiondata));
                         }
-                        //
-                        // We should really do something with those options.
-                        switch (optionCode) {
-                            case Owner:
-                                // Valid length values are 8, 14, 18 and 20
-                                // +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
-                                // |Opt|Len|V|S|Primary MAC|Wakeup MAC | Password |
-                                // +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
-                                //
-                                int ownerVersion = 0;
-                                int ownerSequence = 0;
-                                byte[] ownerPrimaryMacAddress = null;
-                                byte[] ownerWakeupMacAddress = null;
-                                byte[] ownerPassword = null;
-                                try {
-                                    ownerVersion = optiondata[0];
-                                    ownerSequence = optiondata[1];
-                                    ownerPrimaryMacAddress = new byte[] { optiondata[2], optiondata[3], optiondata[4], optiondata[5], optiondata[6], optiondata[7] };
-                                    ownerWakeupMacAddress = ownerPrimaryMacAddress;
-                                    if (optiondata.length > 8) {
-                                        // We have a wakeupMacAddress.
-                                        ownerWakeupMacAddress = new byte[] { optiondata[8], optiondata[9], optiondata[10], optiondata[11], optiondata[12], optiondata[13] };
-                                    }
-                                    if (optiondata.length == 18) {
-                                        // We have a short password.
-                                        ownerPassword = new byte[] { optiondata[14], optiondata[15], optiondata[16], optiondata[17] };
-                                    }
-                                    if (optiondata.length == 22) {
-                                        // We have a long password.
-                                        ownerPassword = new byte[] { optiondata[14], optiondata[15], optiondata[16], optiondata[17], optiondata[18], optiondata[19], optiondata[20], optiondata[21] };
-                                    }
-                                } catch (Exception exception) {
-                                    logger.warn("Malformed OPT answer. Option code: Owner data: {}", this._hexString(optiondata));
-                                }
-                                if (logger.isDebugEnabled()) {
-                                    logger.debug("Unhandled Owner OPT version: {} sequence: {} MAC address: {} {}{} {}{}",
-                                            ownerVersion,
-                                            ownerSequence,
-                                            this._hexString(ownerPrimaryMacAddress),
-                                            (ownerWakeupMacAddress != ownerPrimaryMacAddress ? " wakeup MAC address: " : ""),
-                                            (ownerWakeupMacAddress != ownerPrimaryMacAddress ? this._hexString(ownerWakeupMacAddress) : ""),
-                                            (ownerPassword != null ? " password: ": ""),
-                                            (ownerPassword != null ? this._hexString(ownerPassword) : "")
-                                    );
-                                }
-                                break;
-                            case LLQ:
-                            case NSID:
-                            case UL:
-                                if (logger.isDebugEnabled()) {
-                                    logger.debug("There was an OPT answer. Option code: {} data: {}", optionCode, this._hexString(optiondata));
-                                }
-                                break;
-                            case Unknown:
-                                if (optionCodeInt >= 65001 && optionCodeInt <= 65534) {
-                                     // RFC 6891 defines this range as used for experimental/local purposes.
-                                    logger.debug("There was an OPT answer using an experimental/local option code: {} data: {}", optionCodeInt, this._hexString(optiondata));
-                                } else {
-                                    logger.warn("There was an OPT answer. Not currently handled. Option code: {} data: {}", optionCodeInt, this._hexString(optiondata));
-                                }
-                                break;
-                            default:
-                                // This is to keep the compiler happy.
-                                break;
+                        break;
+                    case Unknown:
+                        if (optionCodeInt >= 65001 && optionCodeInt <= 65534) {
+                             // RFC 6891 defines this range as used for experimental/local purposes.
+                            logger.debug("There was an OPT answer using an experimental/local option code: {} data: {}", optionCodeInt, this._hexString(optiondata));
+                        } else {
+                            logger.warn("There was an OPT answer. Not currently handled. Option code: {} data: {}", optionCodeInt, this._hexString(optiondata));
                         }
-                    }
-                } else {
-                    logger.warn("There was an OPT answer. Wrong version number: {} result code: {}", version, extendedResultCode);
+                        break;
+                    default:
+                        // This is to keep the compiler happy.
+                        break;
                 }
-                break;
-            default:
-                logger.debug("DNSIncoming() unhandled type. domain '{}', address: {}:{}, type: {} ({}), class: {} ({})",
-                        domain, getHostAddress(), _packet.getPort(), recordType, recordTypeIndex, recordClass, recordClassIndex);
-                _messageInputStream.skip(len);
-                break;
-        }
-        if (rec != null) {
-            rec.setRecordSource(_packet.getAddress());
+            }
+        } else {
+            logger.warn("There was an OPT answer. Wrong version number: {} result code: {}", version, extendedResultCode);
         }
-        return rec;
-    }
-
-    private boolean isIPv4MappedIPv6Address(byte[] addr) {
-        return (addr[0] == 0x00) && (addr[1] == 0x00) &&
-                (addr[2] == 0x00) && (addr[3] == 0x00) &&
-                (addr[4] == 0x00) && (addr[5] == 0x00) &&
-                (addr[6] == 0x00) && (addr[7] == 0x00) &&
-                (addr[8] == 0x00) && (addr[9] == 0x00) &&
-                (addr[10] == (byte) 0xff) &&
-                (addr[11] == (byte) 0xff);
     }
 
     /**
@@ -588,7 +526,7 @@ public final class DNSIncoming extends DNSMessage {
     }
 
     public int elapseSinceArrival() {
-        return (int) (System.currentTimeMillis() - _receivedTime);
+        return (int) (DNSClock.Factory.getClock().currentTimeMillis() - _receivedTime);
     }
 
     /**
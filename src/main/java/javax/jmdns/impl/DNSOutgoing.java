@@ -21,6 +21,7 @@ import java.util.Map;
 
 import javax.jmdns.impl.constants.DNSConstants;
 import javax.jmdns.impl.constants.DNSRecordClass;
+import javax.jmdns.impl.constants.DNSRecordType;
 
 /**
  * An outgoing DNS message.
@@ -213,6 +214,13 @@ public final class DNSOutgoing extends DNSMessage {
 
     private final static int HEADER_SIZE = 12;
 
+    /**
+     * Size of an OPT pseudo record without option: root name, type, class, ttl and data length.
+     */
+    private final static int OPTION_SIZE = 11;
+
+    private int _advertisedUDPPayload;
+
     private InetSocketAddress _destination;
 
     /**
@@ -277,7 +285,24 @@ public final class DNSOutgoing extends DNSMessage {
      * @return available space
      */
     public int availableSpace() {
-        return _maxUDPPayload - HEADER_SIZE - _questionsBytes.size() - _answersBytes.size() - _authoritativeAnswersBytes.size() - _additionalsAnswersBytes.size();
+        return _maxUDPPayload - HEADER_SIZE - (_advertisedUDPPayload > 0 ? OPTION_SIZE : 0) - _questionsBytes.size() - _answersBytes.size() - _authoritativeAnswersBytes.size() - _additionalsAnswersBytes.size();
+    }
+
+    /**
+     * Advertise the UDP payload size this host can receive with an OPT pseudo record [RFC 6891], written after the additional answers.
+     *
+     * @param advertisedUDPPayload
+     *            payload size in bytes, 0 to send no OPT record
+     */
+    public void setAdvertisedUDPPayload(int advertisedUDPPayload) {
+        _advertisedUDPPayload = advertisedUDPPayload;
+    }
+
+    /**
+     * @return the UDP payload size advertised with an OPT pseudo record, 0 if none
+     */
+    public int getAdvertisedUDPPayload() {
+        return _advertisedUDPPayload;
     }
 
     /**
@@ -321,7 +346,8 @@ public final class DNSOutgoing extends DNSMessage {
      */
     public void addAnswer(DNSRecord rec, long now) throws IOException {
         if (rec != null) {
-            if ((now == 0) || !rec.isExpired(now)) {
+            // A record restored from a snapshot must not suppress the answer that would confirm it
+            if ((now == 0) || (!rec.isExpired(now) && !rec.isUnverified())) {
                 MessageOutputStream record = new MessageOutputStream(512, this);
                 record.writeRecord(rec, now);
                 byte[] byteArray = record.toByteArray();
@@ -381,7 +407,7 @@ public final class DNSOutgoing extends DNSMessage {
      * @return bytes to send.
      */
     public byte[] data() {
-        long now = System.currentTimeMillis(); // System.currentTimeMillis()
+        long now = DNSClock.Factory.getClock().currentTimeMillis();
         _names.clear();
 
         MessageOutputStream message = new MessageOutputStream(_maxUDPPayload, this);
@@ -390,7 +416,7 @@ public final class DNSOutgoing extends DNSMessage {
         message.writeShort(this.getNumberOfQuestions());
         message.writeShort(this.getNumberOfAnswers());
         message.writeShort(this.getNumberOfAuthorities());
-        message.writeShort(this.getNumberOfAdditionals());
+        message.writeShort(this.getNumberOfAdditionals() + (_advertisedUDPPayload > 0 ? 1 : 0));
         for (DNSQuestion question : _questions) {
             message.writeQuestion(question);
         }
@@ -403,6 +429,14 @@ public final class DNSOutgoing extends DNSMessage {
         for (DNSRecord record : _additionals) {
             message.writeRecord(record, now);
         }
+        if (_advertisedUDPPayload > 0) {
+            // Last, a receiver reads the options of the OPT record up to the end of the message
+            message.writeByte(0);
+            message.writeShort(DNSRecordType.TYPE_OPT.indexValue());
+            message.writeShort(_advertisedUDPPayload);
+            message.writeInt(0);
+            message.writeShort(0);
+        }
         byte[] result = message.toByteArray();
         try {
             message.close();
@@ -137,7 +137,8 @@ public class DNSQuestion extends DNSEntry {
                 if ((ipValue != null) && (!ipValue.isEmpty())) {
                     InetAddress address = jmDNSImpl.getLocalHost().getInetAddress();
                     String hostIPAddress = (address != null ? address.getHostAddress() : "");
-                    if (ipValue.equalsIgnoreCase(hostIPAddress)) {
+                    InetAddress alternateAddress = jmDNSImpl.getLocalHost().getAlternateAddress();
+                    if (ipValue.equalsIgnoreCase(hostIPAddress) || ((alternateAddress != null) && ipValue.equalsIgnoreCase(alternateAddress.getHostAddress()))) {
                         if (this.isV4ReverseLookup()) {
                             answers.add(jmDNSImpl.getLocalHost().getDNSReverseAddressRecord(DNSRecordType.TYPE_A, DNSRecordClass.NOT_UNIQUE, DNSConstants.DNS_TTL));
                         }
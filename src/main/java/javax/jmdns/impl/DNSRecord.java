@@ -51,6 +51,7 @@ public abstract class DNSRecord extends DNSEntry {
     private int           _ttl;
     private long          _created;
     private int           _isStaleAndShouldBeRefreshedPercentage;
+    private volatile boolean _unverified;
     private final int     _randomStaleRefreshOffset;
 
     /**
@@ -64,7 +65,7 @@ public abstract class DNSRecord extends DNSEntry {
     DNSRecord(String name, DNSRecordType type, DNSRecordClass recordClass, boolean unique, int ttl) {
         super(name, type, recordClass, unique);
         this._ttl = ttl;
-        this._created = System.currentTimeMillis();
+        this._created = DNSClock.Factory.getClock().currentTimeMillis();
         _randomStaleRefreshOffset = new Random().nextInt(3);
         _isStaleAndShouldBeRefreshedPercentage = DNSConstants.STALE_REFRESH_STARTING_PERCENTAGE + _randomStaleRefreshOffset;
     }
@@ -195,6 +196,38 @@ public abstract class DNSRecord extends DNSEntry {
         _created = other._created;
         _ttl = other._ttl;
         _isStaleAndShouldBeRefreshedPercentage = DNSConstants.STALE_REFRESH_STARTING_PERCENTAGE + _randomStaleRefreshOffset;
+        _unverified = false;
+    }
+
+    /**
+     * Restore the creation date and TTL of a record read back from a {@link CacheSnapshot}. The record is not trusted until the network confirms it: it is due for a refresh immediately and it is not offered as a known answer.
+     *
+     * @param created
+     *            creation date of the original record
+     * @param ttl
+     *            TTL of the original record
+     */
+    void restore(long created, int ttl) {
+        _created = created;
+        _ttl = ttl;
+        this.unverify();
+    }
+
+    /**
+     * Stop trusting a record until the network confirms it again, after the transport was reopened for instance. It is due for a refresh immediately and it is not offered as a known answer, its TTL is unchanged.
+     */
+    void unverify() {
+        _isStaleAndShouldBeRefreshedPercentage = 0;
+        _unverified = true;
+    }
+
+    /**
+     * Returns <code>true</code> if this record was restored from a snapshot, or kept over a reopening of the transport, and has not been confirmed by the network since.
+     *
+     * @return <code>true</code> if the record is waiting for verification
+     */
+    boolean isUnverified() {
+        return _unverified;
     }
 
     /**
@@ -1065,7 +1098,7 @@ public abstract class DNSRecord extends DNSEntry {
     @Override
     protected void toString(final StringBuilder sb) {
         super.toString(sb);
-        final int remainingTTL = getRemainingTTL(System.currentTimeMillis());
+        final int remainingTTL = getRemainingTTL(DNSClock.Factory.getClock().currentTimeMillis());
         sb.append(" ttl: '").append(remainingTTL).append('/').append(_ttl).append('\'');
     }
 
@@ -0,0 +1,172 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import javax.jmdns.impl.DNSIncoming.MessageInputStream;
+import javax.jmdns.impl.constants.DNSRecordClass;
+import javax.jmdns.impl.constants.DNSRecordType;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class reads the data of the resource records of one type from an incoming message. The codecs are looked up by record type in the {@link DNSRecordCodec.Factory}, which comes with the codecs of the records JmDNS handles.
+ * <p>
+ * The codecs build the {@link DNSRecord} subclasses of this package, the only ones JmDNS can write back and compare. Replacing the codec of a type only changes how its records are read, or whether they are read at all.
+ * </p>
+ */
+interface DNSRecordCodec {
+
+    /**
+     * DNSRecordCodec.Factory holds the codec of each record type.
+     */
+    final class Factory {
+
+        /**
+         * Skips the record data, for a type whose records should not be read.
+         */
+        static final DNSRecordCodec SKIP = (in, name, recordClass, unique, ttl, length) -> {
+            in.skip(length);
+            return null;
+        };
+
+        private static final DNSRecordCodec IPV4_ADDRESS = (in, name, recordClass, unique, ttl, length) -> {
+            // Some devices send A records with a wrong length (see https://github.com/jmdns/jmdns/issues/186), the record is dropped
+            if (length != 4) {
+                in.skip(length);
+                return null;
+            }
+            return new DNSRecord.IPv4Address(name, recordClass, unique, ttl, in.readBytes(length));
+        };
+
+        private static final DNSRecordCodec IPV6_ADDRESS = (in, name, recordClass, unique, ttl, length) -> {
+            final byte[] address = in.readBytes(length);
+            if (isIPv4MappedIPv6Address(address)) {
+                LoggerFactory.getLogger(DNSRecordCodec.class).warn("AAAA record with IPv4-mapped address for {}", name);
+                return null;
+            }
+            return new DNSRecord.IPv6Address(name, recordClass, unique, ttl, address);
+        };
+
+        private static final DNSRecordCodec POINTER = (in, name, recordClass, unique, ttl, length) -> {
+            final String alias = in.readName();
+            if (alias.isEmpty()) {
+                LoggerFactory.getLogger(DNSRecordCodec.class).warn("PTR record of class: {}, there was a problem reading the service name of the answer for domain: {}", recordClass, name);
+                return null;
+            }
+            return new DNSRecord.Pointer(name, recordClass, unique, ttl, alias);
+        };
+
+        private static final DNSRecordCodec TEXT = (in, name, recordClass, unique, ttl, length) -> new DNSRecord.Text(name, recordClass, unique, ttl, in.readBytes(length));
+
+        private static final DNSRecordCodec SERVICE = (in, name, recordClass, unique, ttl, length) -> {
+            final int priority = in.readUnsignedShort();
+            final int weight = in.readUnsignedShort();
+            final int port = in.readUnsignedShort();
+            // This is a hack to handle a bug in the BonjourConformanceTest
+            // It is sending out target strings that don't follow the "domain name" format.
+            final String target = (DNSIncoming.USE_DOMAIN_NAME_FORMAT_FOR_SRV_TARGET ? in.readName() : in.readNonNameString());
+            return new DNSRecord.Service(name, recordClass, unique, ttl, priority, weight, port, target);
+        };
+
+        private static final DNSRecordCodec HOST_INFORMATION = (in, name, recordClass, unique, ttl, length) -> {
+            final String text = in.readUTF(length);
+            final int index = text.indexOf(' ');
+            final String cpu = (index > 0 ? text.substring(0, index) : text).trim();
+            final String os = (index > 0 ? text.substring(index + 1) : "").trim();
+            return new DNSRecord.HostInformation(name, recordClass, unique, ttl, cpu, os);
+        };
+
+        /**
+         * Codecs by record type index, replaced as a whole on change.
+         */
+        private static volatile DNSRecordCodec[] _codecs = defaultCodecs();
+
+        private Factory() {
+            super();
+        }
+
+        private static DNSRecordCodec[] defaultCodecs() {
+            final DNSRecordCodec[] codecs = new DNSRecordCodec[256];
+            codecs[DNSRecordType.TYPE_A.indexValue()] = IPV4_ADDRESS;
+            codecs[DNSRecordType.TYPE_AAAA.indexValue()] = IPV6_ADDRESS;
+            codecs[DNSRecordType.TYPE_CNAME.indexValue()] = POINTER;
+            codecs[DNSRecordType.TYPE_PTR.indexValue()] = POINTER;
+            codecs[DNSRecordType.TYPE_TXT.indexValue()] = TEXT;
+            codecs[DNSRecordType.TYPE_SRV.indexValue()] = SERVICE;
+            codecs[DNSRecordType.TYPE_HINFO.indexValue()] = HOST_INFORMATION;
+            return codecs;
+        }
+
+        /**
+         * Returns the codec of a record type.
+         *
+         * @param type
+         *            record type
+         * @return codec, or <code>null</code> if the type is not handled
+         */
+        static DNSRecordCodec getCodec(DNSRecordType type) {
+            return _codecs[type.indexValue()];
+        }
+
+        /**
+         * Sets the codec of a record type. The {@link DNSRecordType#TYPE_OPT OPT} pseudo record is read by the message itself and cannot be changed.
+         *
+         * @param type
+         *            record type
+         * @param codec
+         *            new codec, <code>null</code> to leave the type unhandled
+         */
+        static synchronized void setCodec(DNSRecordType type, DNSRecordCodec codec) {
+            if ((type == DNSRecordType.TYPE_OPT) || (type == DNSRecordType.TYPE_IGNORE)) {
+                throw new IllegalArgumentException("The codec of " + type + " cannot be changed");
+            }
+            final DNSRecordCodec[] codecs = _codecs.clone();
+            codecs[type.indexValue()] = codec;
+            _codecs = codecs;
+        }
+
+        /**
+         * Restores the codecs JmDNS comes with.
+         */
+        static synchronized void resetCodecs() {
+            _codecs = defaultCodecs();
+        }
+
+        static boolean isIPv4MappedIPv6Address(byte[] addr) {
+            return (addr[0] == 0x00) && (addr[1] == 0x00) && (addr[2] == 0x00) && (addr[3] == 0x00) && (addr[4] == 0x00) && (addr[5] == 0x00) && (addr[6] == 0x00) && (addr[7] == 0x00) && (addr[8] == 0x00)
+                    && (addr[9] == 0x00) && (addr[10] == (byte) 0xff) && (addr[11] == (byte) 0xff);
+        }
+
+    }
+
+    /**
+     * Reads the data of a record. The codec consumes the whole data, <code>length</code> bytes, even when it returns no record.
+     *
+     * @param in
+     *            message stream positioned on the record data
+     * @param name
+     *            record name
+     * @param recordClass
+     *            record class
+     * @param unique
+     *            <code>true</code> if the cache flush bit is set
+     * @param ttl
+     *            record time to live in seconds
+     * @param length
+     *            length of the record data
+     * @return the record, or <code>null</code> to drop it
+     */
+    DNSRecord read(MessageInputStream in, String name, DNSRecordClass recordClass, boolean unique, int ttl, int length);
+
+}
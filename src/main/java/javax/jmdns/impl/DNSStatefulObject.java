@@ -16,7 +16,11 @@ package javax.jmdns.impl;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -130,6 +134,15 @@ public interface DNSStatefulObject {
 
         private final DNSStatefulObjectSemaphore _canceling;
 
+        private final Queue<CompletableFuture<Void>> _announcedFutures;
+
+        private final Queue<CompletableFuture<Void>> _canceledFutures;
+
+        /**
+         * Completions of the futures collected under the lock, run once it is released.
+         */
+        private final Queue<Runnable>            _completions;
+
         public DefaultImplementation() {
             super();
             _dns = null;
@@ -137,6 +150,25 @@ public interface DNSStatefulObject {
             _state = DNSState.PROBING_1;
             _announcing = new DNSStatefulObjectSemaphore("Announce");
             _canceling = new DNSStatefulObjectSemaphore("Cancel");
+            _announcedFutures = new ConcurrentLinkedQueue<>();
+            _canceledFutures = new ConcurrentLinkedQueue<>();
+            _completions = new ConcurrentLinkedQueue<>();
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.concurrent.locks.ReentrantLock#unlock()
+         */
+        @Override
+        public void unlock() {
+            super.unlock();
+            if (!this.isHeldByCurrentThread()) {
+                // The dependent actions of the futures must not run while we hold the lock
+                Runnable completion;
+                while ((completion = _completions.poll()) != null) {
+                    completion.run();
+                }
+            }
         }
 
         /**
@@ -218,9 +250,70 @@ public interface DNSStatefulObject {
                     // clear any waiting announcing
                     _announcing.signalEvent();
                 }
+                this.collectFutures();
+            } finally {
+                this.unlock();
+            }
+        }
+
+        /**
+         * Returns a future completed when this object is announced. The future fails with a {@link CancellationException} if the object is canceled or closed first.
+         *
+         * @return announce future
+         */
+        public CompletableFuture<Void> whenAnnounced() {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            _announcedFutures.add(future);
+            this.lock();
+            try {
+                this.collectFutures();
             } finally {
                 this.unlock();
             }
+            return future;
+        }
+
+        /**
+         * Returns a future completed when this object is canceled.
+         *
+         * @return cancel future
+         */
+        public CompletableFuture<Void> whenCanceled() {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            _canceledFutures.add(future);
+            this.lock();
+            try {
+                this.collectFutures();
+            } finally {
+                this.unlock();
+            }
+            return future;
+        }
+
+        /**
+         * Collects the futures the current state completes, called under the lock. They are completed by {@link #unlock()} once the lock is released.
+         */
+        private void collectFutures() {
+            CompletableFuture<Void> future;
+            if (this.isAnnounced()) {
+                while ((future = _announcedFutures.poll()) != null) {
+                    final CompletableFuture<Void> announced = future;
+                    _completions.add(() -> announced.complete(null));
+                }
+            }
+            if (this.isCanceled() || this.isClosing() || this.isClosed()) {
+                final String reason = (this.isCanceled() ? "Canceled" : "Closed") + " before being announced: " + this;
+                while ((future = _announcedFutures.poll()) != null) {
+                    final CompletableFuture<Void> announced = future;
+                    _completions.add(() -> announced.completeExceptionally(new CancellationException(reason)));
+                }
+            }
+            if (this.isCanceled()) {
+                while ((future = _canceledFutures.poll()) != null) {
+                    final CompletableFuture<Void> canceled = future;
+                    _completions.add(() -> canceled.complete(null));
+                }
+            }
         }
 
         /**
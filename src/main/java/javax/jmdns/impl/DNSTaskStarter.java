@@ -22,6 +22,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.jmdns.impl.tasks.RecordReaper;
+import javax.jmdns.impl.tasks.Recoverer;
 import javax.jmdns.impl.tasks.Responder;
 import javax.jmdns.impl.tasks.resolver.ServiceInfoResolver;
 import javax.jmdns.impl.tasks.resolver.ServiceResolver;
@@ -170,6 +171,11 @@ public interface DNSTaskStarter {
          */
         private final Timer     _stateTimer;
 
+        /**
+         * The renewer currently pacing the renewals of this instance.
+         */
+        private Renewer         _renewer;
+
         public static class StarterTimer extends Timer {
 
             // This is needed because in some case we cancel the timers before all the task have finished running and in some case they will try to reschedule
@@ -284,8 +290,8 @@ public interface DNSTaskStarter {
         public DNSTaskStarterImpl(JmDNSImpl jmDNSImpl) {
             super();
             _jmDNSImpl = jmDNSImpl;
-            _timer = new StarterTimer("JmDNS(" + _jmDNSImpl.getName() + ").Timer", true);
-            _stateTimer = new StarterTimer("JmDNS(" + _jmDNSImpl.getName() + ").State.Timer", false);
+            _timer = DNSClock.Factory.getClock().newTimer("JmDNS(" + _jmDNSImpl.getName() + ").Timer", true);
+            _stateTimer = DNSClock.Factory.getClock().newTimer("JmDNS(" + _jmDNSImpl.getName() + ").State.Timer", false);
         }
 
         /*
@@ -347,8 +353,12 @@ public interface DNSTaskStarter {
          * @see javax.jmdns.impl.DNSTaskStarter#startRenewer()
          */
         @Override
-        public void startRenewer() {
-            new Renewer(_jmDNSImpl).start(_stateTimer);
+        public synchronized void startRenewer() {
+            // A running renewer adopts the newly announced objects, keeping a single pace for the instance
+            if ((_renewer == null) || _renewer.isCancelled()) {
+                _renewer = new Renewer(_jmDNSImpl);
+                _renewer.start(_stateTimer);
+            }
         }
 
         /*
@@ -369,6 +379,15 @@ public interface DNSTaskStarter {
             new RecordReaper(_jmDNSImpl).start(_timer);
         }
 
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.impl.DNSTaskStarter#startRecoverer()
+         */
+        @Override
+        public void startRecoverer() {
+            new Recoverer(_jmDNSImpl).start(_timer);
+        }
+
         /*
          * (non-Javadoc)
          * @see javax.jmdns.impl.DNSTaskStarter#startServiceInfoResolver(javax.jmdns.impl.ServiceInfoImpl)
@@ -451,6 +470,11 @@ public interface DNSTaskStarter {
      */
     void startReaper();
 
+    /**
+     * Start a new recoverer task, reopening the transport after an IO error
+     */
+    void startRecoverer();
+
     /**
      * Start a new service info resolver task
      *
@@ -0,0 +1,313 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.jmdns.impl.constants.DNSConstants;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class abstracts the datagram transport used by JmDNS to send and receive mDNS messages. The default implementation is backed by a {@link MulticastSocket}, other implementations (like the {@link VirtualMulticastNetwork}) can be plugged in through
+ * the {@link DNSTransport.Factory.ClassDelegate}.
+ * <p>
+ * <b>Note: </b> This is not considered as part of the general public API of JmDNS.
+ * </p>
+ */
+public interface DNSTransport {
+
+    /**
+     * DNSTransport.Factory enable the creation of new instance of DNSTransport.
+     */
+    final class Factory {
+
+        /**
+         * This interface defines a delegate to the DNSTransport class to enable subclassing.
+         */
+        public interface ClassDelegate {
+
+            /**
+             * Allows the delegate the opportunity to construct and return a different DNSTransport.
+             *
+             * @param jmDNSImpl
+             *            jmDNS instance
+             * @param hostInfo
+             *            local host the transport is bound to
+             * @return Should return a new, open DNSTransport Object.
+             * @exception IOException
+             *                if the transport cannot be opened
+             * @see #classDelegate()
+             * @see #setClassDelegate(ClassDelegate anObject)
+             */
+            DNSTransport newDNSTransport(JmDNSImpl jmDNSImpl, HostInfo hostInfo) throws IOException;
+        }
+
+        private static final AtomicReference<Factory.ClassDelegate> _databaseClassDelegate = new AtomicReference<>();
+
+        private Factory() {
+            super();
+        }
+
+        /**
+         * Assigns <code>delegate</code> as DNSTransport's class delegate. The class delegate is optional.
+         *
+         * @param delegate
+         *            The object to set as DNSTransport's class delegate.
+         * @see #classDelegate()
+         * @see DNSTransport.Factory.ClassDelegate
+         */
+        public static void setClassDelegate(Factory.ClassDelegate delegate) {
+            _databaseClassDelegate.set(delegate);
+        }
+
+        /**
+         * Returns DNSTransport's class delegate.
+         *
+         * @return DNSTransport's class delegate.
+         * @see #setClassDelegate(ClassDelegate anObject)
+         * @see DNSTransport.Factory.ClassDelegate
+         */
+        public static Factory.ClassDelegate classDelegate() {
+            return _databaseClassDelegate.get();
+        }
+
+        /**
+         * Returns a new open instance of DNSTransport using the class delegate if it exists. When the host has an alternate address a {@link DualStackTransport} over a transport of each family is returned, or the transport of
+         * the host address alone if the other family cannot be joined.
+         *
+         * @param jmDNSImpl
+         *            jmDNS instance
+         * @param hostInfo
+         *            local host the transport is bound to
+         * @return new instance of DNSTransport
+         * @exception IOException
+         *                if the transport cannot be opened
+         */
+        public static DNSTransport newDNSTransport(JmDNSImpl jmDNSImpl, HostInfo hostInfo) throws IOException {
+            final DNSTransport primary = newFamilyTransport(jmDNSImpl, hostInfo);
+            final HostInfo alternateHostInfo = (hostInfo != null ? hostInfo.getAlternateHostInfo() : null);
+            if (alternateHostInfo != null) {
+                try {
+                    return new DualStackTransport(primary, newFamilyTransport(jmDNSImpl, alternateHostInfo));
+                } catch (final IOException exception) {
+                    LoggerFactory.getLogger(DNSTransport.class).warn("Could not join the group of {}, serving {} only", alternateHostInfo.getInetAddress(), primary.getGroup(), exception);
+                }
+            }
+            return primary;
+        }
+
+        private static DNSTransport newFamilyTransport(JmDNSImpl jmDNSImpl, HostInfo hostInfo) throws IOException {
+            DNSTransport instance = null;
+            Factory.ClassDelegate delegate = _databaseClassDelegate.get();
+            if (delegate != null) {
+                instance = delegate.newDNSTransport(jmDNSImpl, hostInfo);
+            }
+            return (instance != null ? instance : new MulticastSocketTransport(hostInfo));
+        }
+
+    }
+
+    /**
+     * Default transport joining the mDNS multicast group on a real {@link MulticastSocket}.
+     */
+    final class MulticastSocketTransport implements DNSTransport {
+        private final Logger logger = LoggerFactory.getLogger(MulticastSocketTransport.class);
+
+        private static final boolean IS_WINDOWS;
+
+        static {
+            final String osName = System.getProperty("os.name");
+            if (osName == null) {
+                IS_WINDOWS = false;
+            } else {
+                IS_WINDOWS = osName.startsWith("Windows");
+            }
+        }
+
+        private final InetAddress     _group;
+
+        private final MulticastSocket _socket;
+
+        /**
+         * Opens the multicast socket and joins the mDNS group matching the address family of the host.
+         *
+         * @param hostInfo
+         *            local host the socket is bound to
+         * @exception IOException
+         *                if the socket cannot be opened
+         */
+        public MulticastSocketTransport(HostInfo hostInfo) throws IOException {
+            super();
+            if ((hostInfo != null) && (hostInfo.getInetAddress() instanceof Inet6Address)) {
+                _group = InetAddress.getByName(DNSConstants.MDNS_GROUP_IPV6);
+            } else {
+                _group = InetAddress.getByName(DNSConstants.MDNS_GROUP);
+            }
+            _socket = new MulticastSocket(getMulticastBindAddress(hostInfo));
+            if ((hostInfo != null) && (hostInfo.getInterface() != null)) {
+                final SocketAddress multicastAddr = new InetSocketAddress(_group, DNSConstants.MDNS_PORT);
+                _socket.setNetworkInterface(hostInfo.getInterface());
+
+                logger.trace("Trying to joinGroup({}, {})", multicastAddr, hostInfo.getInterface());
+
+                // this joinGroup() might be less surprisingly so this is the default
+                _socket.joinGroup(multicastAddr, hostInfo.getInterface());
+            } else {
+                logger.trace("Trying to joinGroup({})", _group);
+                _socket.joinGroup(_group);
+            }
+
+            _socket.setTimeToLive(255);
+            if (DNSConstants.SOCKET_RECEIVE_BUFFER > 0) {
+                _socket.setReceiveBufferSize(DNSConstants.SOCKET_RECEIVE_BUFFER);
+            }
+            if (DNSConstants.SOCKET_SEND_BUFFER > 0) {
+                _socket.setSendBufferSize(DNSConstants.SOCKET_SEND_BUFFER);
+            }
+            // The system may round or cap the sizes asked for
+            logger.debug("{} receive buffer: {} send buffer: {}", this, _socket.getReceiveBufferSize(), _socket.getSendBufferSize());
+        }
+
+        private static InetSocketAddress getMulticastBindAddress(HostInfo hostInfo) {
+            if (IS_WINDOWS && (hostInfo != null)) {
+                return new InetSocketAddress(hostInfo.getInetAddress(), DNSConstants.MDNS_PORT);
+            } else {
+                return new InetSocketAddress(DNSConstants.MDNS_PORT);
+            }
+        }
+
+        /**
+         * Returns the underlying multicast socket.
+         *
+         * @return multicast socket
+         */
+        public MulticastSocket getSocket() {
+            return _socket;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.impl.DNSTransport#getGroup()
+         */
+        @Override
+        public InetAddress getGroup() {
+            return _group;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.impl.DNSTransport#send(java.net.DatagramPacket)
+         */
+        @Override
+        public void send(DatagramPacket packet) throws IOException {
+            if (!_socket.isClosed()) {
+                _socket.send(packet);
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.impl.DNSTransport#receive(java.net.DatagramPacket)
+         */
+        @Override
+        public void receive(DatagramPacket packet) throws IOException {
+            _socket.receive(packet);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.impl.DNSTransport#isClosed()
+         */
+        @Override
+        public boolean isClosed() {
+            return _socket.isClosed();
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.impl.DNSTransport#close()
+         */
+        @Override
+        public void close() {
+            try {
+                _socket.leaveGroup(_group);
+            } catch (SocketException exception) {
+                //
+            } catch (IOException exception) {
+                logger.debug("close() leave group exception ", exception);
+            }
+            _socket.close();
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return "MulticastSocketTransport(" + _group.getHostAddress() + " on " + _socket.getLocalSocketAddress() + ")";
+        }
+
+    }
+
+    /**
+     * Returns the multicast group this transport has joined.
+     *
+     * @return multicast group
+     */
+    InetAddress getGroup();
+
+    /**
+     * Send a datagram. The packet destination is either the multicast group or a unicast address.
+     *
+     * @param packet
+     *            datagram to send
+     * @exception IOException
+     *                if the datagram could not be sent
+     */
+    void send(DatagramPacket packet) throws IOException;
+
+    /**
+     * Receive a datagram. This call blocks until a datagram is available or the transport is closed.
+     *
+     * @param packet
+     *            datagram to fill, its length must be reset by the caller before each call
+     * @exception IOException
+     *                if the transport is closed or an I/O error occurs
+     */
+    void receive(DatagramPacket packet) throws IOException;
+
+    /**
+     * Returns <code>true</code> if this transport has been closed.
+     *
+     * @return <code>true</code> if closed, <code>false</code> otherwise
+     */
+    boolean isClosed();
+
+    /**
+     * Leave the multicast group and release the transport. Any thread blocked in {@link #receive(DatagramPacket)} will get an {@link IOException}.
+     */
+    void close();
+
+}
@@ -0,0 +1,255 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jmdns.impl.constants.DNSConstants;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transport joining both the IPv4 and the IPv6 mDNS group of an interface, so that a single JmDNS instance, with a single cache and service registry, serves both address families.
+ * <p>
+ * A datagram sent to the group is sent on both families, a unicast datagram on the family of its destination. Each family is read by a thread of its own into a common queue. A responder on a dual-stack host answers on both
+ * families, the copy of a datagram received on the other family shortly after the first one is dropped before parsing, the records it carries are already known.
+ * </p>
+ */
+public class DualStackTransport implements DNSTransport {
+    private final Logger                        logger = LoggerFactory.getLogger(DualStackTransport.class);
+
+    private static final int                    QUEUE_SIZE = 256;
+
+    private static final int                    RING_SIZE  = 64;
+
+    private final DatagramPacket                _closeMarker = new DatagramPacket(new byte[0], 0);
+
+    private final DNSTransport                  _primary;
+
+    private final DNSTransport                  _alternate;
+
+    private final BlockingQueue<DatagramPacket> _inbox;
+
+    private final long[]                        _fingerprints;
+
+    private final long[]                        _received;
+
+    private final DNSTransport[]                _receivedOn;
+
+    private int                                 _next;
+
+    private final AtomicLong                    _duplicates;
+
+    private volatile IOException                _failure;
+
+    private volatile boolean                    _closed;
+
+    /**
+     * Create a transport over the transports of the two families and start reading them.
+     *
+     * @param primary
+     *            transport of the family of the host address, its group is the group of this transport
+     * @param alternate
+     *            transport of the other family
+     */
+    public DualStackTransport(DNSTransport primary, DNSTransport alternate) {
+        super();
+        _primary = primary;
+        _alternate = alternate;
+        _inbox = new LinkedBlockingQueue<>(QUEUE_SIZE);
+        _fingerprints = new long[RING_SIZE];
+        _received = new long[RING_SIZE];
+        _receivedOn = new DNSTransport[RING_SIZE];
+        _duplicates = new AtomicLong();
+        this.startReader(primary);
+        this.startReader(alternate);
+    }
+
+    private void startReader(final DNSTransport transport) {
+        final Thread reader = new Thread(() -> this.read(transport), "DualStackTransport(" + transport.getGroup().getHostAddress() + ")");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void read(DNSTransport transport) {
+        final byte[] buf = new byte[DNSConstants.MAX_MSG_ABSOLUTE];
+        final DatagramPacket packet = new DatagramPacket(buf, buf.length);
+        try {
+            while (!_closed) {
+                packet.setLength(buf.length);
+                transport.receive(packet);
+                if (_closed) {
+                    break;
+                }
+                if (this.isDuplicate(transport, packet, DNSClock.Factory.getClock().currentTimeMillis())) {
+                    continue;
+                }
+                final byte[] data = new byte[packet.getLength()];
+                System.arraycopy(packet.getData(), packet.getOffset(), data, 0, data.length);
+                if (!_inbox.offer(new DatagramPacket(data, data.length, packet.getAddress(), packet.getPort()))) {
+                    logger.debug("{} queue full, datagram from {} dropped", this, packet.getAddress());
+                }
+            }
+        } catch (final IOException exception) {
+            if (!_closed) {
+                // The listener gets the error and recovers
+                _failure = exception;
+                _inbox.clear();
+                _inbox.offer(_closeMarker);
+            }
+        }
+    }
+
+    /**
+     * Tells whether the datagram was received on the other family within the duplicate interval. A datagram is matched once, the next copy is handled again.
+     */
+    boolean isDuplicate(DNSTransport transport, DatagramPacket packet, long now) {
+        final long fingerprint = EchoFilter.fingerprint(packet.getData(), packet.getOffset(), packet.getLength());
+        synchronized (_fingerprints) {
+            for (int i = 0; i < RING_SIZE; i++) {
+                if ((_fingerprints[i] == fingerprint) && (_receivedOn[i] != transport) && (now - _received[i] < DNSConstants.DUAL_STACK_DUPLICATE_INTERVAL)) {
+                    _fingerprints[i] = 0;
+                    _receivedOn[i] = null;
+                    _duplicates.incrementAndGet();
+                    return true;
+                }
+            }
+            _fingerprints[_next] = fingerprint;
+            _received[_next] = now;
+            _receivedOn[_next] = transport;
+            _next = (_next + 1) % RING_SIZE;
+            return false;
+        }
+    }
+
+    /**
+     * @return the number of datagrams dropped because they were already received on the other family
+     */
+    public long getDuplicateCount() {
+        return _duplicates.get();
+    }
+
+    /**
+     * Returns the transport of the family of the host address.
+     *
+     * @return primary transport
+     */
+    public DNSTransport getPrimary() {
+        return _primary;
+    }
+
+    /**
+     * Returns the transport of the other family.
+     *
+     * @return alternate transport
+     */
+    public DNSTransport getAlternate() {
+        return _alternate;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.impl.DNSTransport#getGroup()
+     */
+    @Override
+    public InetAddress getGroup() {
+        return _primary.getGroup();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.impl.DNSTransport#send(java.net.DatagramPacket)
+     */
+    @Override
+    public void send(DatagramPacket packet) throws IOException {
+        final InetAddress destination = packet.getAddress();
+        if ((destination == null) || destination.isMulticastAddress()) {
+            _primary.send(new DatagramPacket(packet.getData(), packet.getOffset(), packet.getLength(), _primary.getGroup(), packet.getPort()));
+            _alternate.send(new DatagramPacket(packet.getData(), packet.getOffset(), packet.getLength(), _alternate.getGroup(), packet.getPort()));
+        } else if ((destination instanceof Inet6Address) == (_alternate.getGroup() instanceof Inet6Address)) {
+            _alternate.send(packet);
+        } else {
+            _primary.send(packet);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.impl.DNSTransport#receive(java.net.DatagramPacket)
+     */
+    @Override
+    public void receive(DatagramPacket packet) throws IOException {
+        if (_closed) {
+            throw new SocketException("Socket is closed");
+        }
+        DatagramPacket received;
+        try {
+            received = _inbox.take();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new SocketException("Interrupted");
+        }
+        if (received == _closeMarker) {
+            final IOException failure = _failure;
+            throw (failure != null ? failure : new SocketException("Socket closed"));
+        }
+        final int length = Math.min(received.getLength(), packet.getData().length - packet.getOffset());
+        System.arraycopy(received.getData(), 0, packet.getData(), packet.getOffset(), length);
+        packet.setLength(length);
+        packet.setAddress(received.getAddress());
+        packet.setPort(received.getPort());
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.impl.DNSTransport#isClosed()
+     */
+    @Override
+    public boolean isClosed() {
+        return _closed || _primary.isClosed() || _alternate.isClosed();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.impl.DNSTransport#close()
+     */
+    @Override
+    public void close() {
+        if (!_closed) {
+            _closed = true;
+            _primary.close();
+            _alternate.close();
+            _inbox.clear();
+            _inbox.offer(_closeMarker);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "DualStackTransport(" + _primary + ", " + _alternate + ")";
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.net.DatagramPacket;
+import java.util.Arrays;
+
+import javax.jmdns.impl.constants.DNSConstants;
+
+/**
+ * Recognizes the multicast datagrams we sent when multicast loopback hands them back to the {@link SocketListener}.
+ * <p>
+ * A fingerprint of every multicast datagram sent is kept in a small ring, with the number of its sends whose echo has not come back yet and the time of the last one. A received datagram is only taken for our echo if it
+ * matches a send still waiting for its echo, made shortly before: another instance or another mDNS process of the host sending the same bytes is not matched by one of our sends and is always handled.
+ * </p>
+ * <p>
+ * The first echo of a datagram is still handled: answering our own queries and caching our own records is how an instance discovers the services it registered itself. The echoes of the same datagram sent again shortly
+ * after, like the repeated announcements and queries, only bring back what the first one did and are dropped before parsing. A conflict is never hidden, the records of another host differ from ours and so do its datagrams.
+ * </p>
+ */
+public class EchoFilter {
+
+    private static final long NOT_HANDLED = Long.MIN_VALUE;
+
+    private final long[] _fingerprints;
+
+    /**
+     * Time the echo of each datagram was last handled, {@link #NOT_HANDLED} if not yet.
+     */
+    private final long[] _handled;
+
+    /**
+     * Number of sends of each datagram whose echo has not been received yet.
+     */
+    private final int[]  _pending;
+
+    /**
+     * Time each datagram was last sent.
+     */
+    private final long[] _sent;
+
+    private final long   _interval;
+
+    private final long   _window;
+
+    private int          _next;
+
+    private long         _suppressed;
+
+    /**
+     * Create a filter.
+     *
+     * @param size
+     *            number of datagrams remembered
+     * @param interval
+     *            milliseconds during which the echoes of a datagram already handled are dropped
+     * @param window
+     *            milliseconds after a send during which an identical datagram received is taken for its echo
+     */
+    public EchoFilter(int size, long interval, long window) {
+        super();
+        _fingerprints = new long[size];
+        _handled = new long[size];
+        _pending = new int[size];
+        _sent = new long[size];
+        _interval = interval;
+        _window = window;
+        Arrays.fill(_handled, NOT_HANDLED);
+    }
+
+    /**
+     * Create the filter configured by <code>net.mdns.echo.ring</code>, <code>net.mdns.echo.interval</code> and <code>net.mdns.echo.window</code>.
+     *
+     * @return the filter, or <code>null</code> if disabled
+     */
+    public static EchoFilter newDefaultFilter() {
+        return (DNSConstants.ECHO_RING_SIZE > 0 ? new EchoFilter(DNSConstants.ECHO_RING_SIZE, DNSConstants.ECHO_SUPPRESSION_INTERVAL, DNSConstants.ECHO_MATCH_INTERVAL) : null);
+    }
+
+    /**
+     * Remembers a datagram sent to the multicast group.
+     *
+     * @param data
+     *            datagram content
+     * @param length
+     *            datagram length
+     * @param now
+     *            the current time
+     */
+    public void sent(byte[] data, int length, long now) {
+        final long fingerprint = fingerprint(data, 0, length);
+        synchronized (this) {
+            int index = this.indexOf(fingerprint);
+            if (index < 0) {
+                index = _next;
+                _fingerprints[index] = fingerprint;
+                _handled[index] = NOT_HANDLED;
+                _pending[index] = 0;
+                _next = (_next + 1) % _fingerprints.length;
+            } else if (now - _sent[index] > _window) {
+                // The echoes of the previous sends never came back
+                _pending[index] = 0;
+            }
+            _pending[index]++;
+            _sent[index] = now;
+        }
+    }
+
+    /**
+     * Tells whether a received datagram is the echo of one we just sent whose previous echo was handled recently.
+     *
+     * @param packet
+     *            received datagram, already known to come from our own address
+     * @param now
+     *            the current time
+     * @return <code>true</code> if the datagram can be dropped
+     */
+    public boolean isRedundantEcho(DatagramPacket packet, long now) {
+        final long fingerprint = fingerprint(packet.getData(), packet.getOffset(), packet.getLength());
+        synchronized (this) {
+            final int index = this.indexOf(fingerprint);
+            if ((index < 0) || (_pending[index] <= 0) || (now - _sent[index] > _window)) {
+                // Not an echo of ours, the same bytes sent by someone else on this host
+                return false;
+            }
+            _pending[index]--;
+            if ((_handled[index] != NOT_HANDLED) && (now - _handled[index] < _interval)) {
+                _suppressed++;
+                return true;
+            }
+            _handled[index] = now;
+            return false;
+        }
+    }
+
+    /**
+     * @return the number of echoes dropped
+     */
+    public synchronized long getSuppressedCount() {
+        return _suppressed;
+    }
+
+    /**
+     * Forgets the datagrams sent, their next echo is handled.
+     */
+    public synchronized void clear() {
+        Arrays.fill(_fingerprints, 0);
+        Arrays.fill(_handled, NOT_HANDLED);
+        Arrays.fill(_pending, 0);
+    }
+
+    private int indexOf(long fingerprint) {
+        for (int i = 0; i < _fingerprints.length; i++) {
+            if (_fingerprints[i] == fingerprint) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the datagram, never 0 which marks an empty slot.
+     */
+    static long fingerprint(byte[] data, int offset, int length) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= (data[i] & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= length;
+        return (hash != 0 ? hash : 1);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public synchronized String toString() {
+        return "EchoFilter(size: " + _fingerprints.length + " suppressed: " + _suppressed + ")";
+    }
+
+}
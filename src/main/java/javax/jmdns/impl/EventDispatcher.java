@@ -0,0 +1,426 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import javax.jmdns.ServiceEvent;
+import javax.jmdns.impl.ListenerStatus.ServiceListenerStatus;
+import javax.jmdns.impl.constants.DNSConstants;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers the service events to the asynchronous listeners.
+ * <p>
+ * By default every event is handed to the executor on its own, the listeners see each of them in order.
+ * </p>
+ * <p>
+ * A dispatcher given a capacity is bounded instead. The events waiting for a listener are then coalesced per service instance: only the latest resolution is kept, an added event already pending is not queued twice and a removal
+ * discards the pending added and resolved events. A device flapping while a listener is busy therefore costs at most three pending events, removed, added and resolved, delivered in that order. Once the number of pending events
+ * reaches the capacity the {@link OverflowPolicy} decides which events are dropped. An event for an instance that already has pending events is always merged with them, so the depth can exceed the capacity by two events at most.
+ * </p>
+ */
+public class EventDispatcher {
+
+    private final Logger logger = LoggerFactory.getLogger(EventDispatcher.class);
+
+    /**
+     * What to do with an event arriving while the dispatcher is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Drop the pending events of the instance waiting the longest to make room.
+         */
+        DROP_OLDEST,
+        /**
+         * Drop the arriving event.
+         */
+        DROP_NEWEST
+    }
+
+    /**
+     * Identifies the events of one service instance for one listener.
+     */
+    private static final class Key {
+
+        private final ServiceListenerStatus _listener;
+
+        private final String                _instance;
+
+        Key(ServiceListenerStatus listener, ServiceEvent event) {
+            super();
+            _listener = listener;
+            _instance = (event.getName() + "." + event.getType()).toLowerCase();
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(_listener) + _instance.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return (_listener == other._listener) && _instance.equals(other._instance);
+        }
+    }
+
+    /**
+     * Events waiting for one service instance.
+     */
+    private static final class Pending {
+
+        ServiceEvent _removed;
+
+        ServiceEvent _added;
+
+        ServiceEvent _resolved;
+
+        int size() {
+            return (_removed != null ? 1 : 0) + (_added != null ? 1 : 0) + (_resolved != null ? 1 : 0);
+        }
+    }
+
+    private final Executor                _executor;
+
+    private final Map<Key, Pending>       _pending;
+
+    private int                           _capacity;
+
+    private OverflowPolicy                _policy;
+
+    private boolean                       _scheduled;
+
+    private int                           _depth;
+
+    private int                           _peakDepth;
+
+    private long                          _delivered;
+
+    private long                          _coalesced;
+
+    private long                          _dropped;
+
+    /**
+     * Create a dispatcher from the <code>net.mdns.listener.*</code> system properties.
+     *
+     * @param executor
+     *            executor running the listeners
+     * @return new dispatcher
+     */
+    public static EventDispatcher newDefaultDispatcher(Executor executor) {
+        OverflowPolicy policy;
+        try {
+            policy = OverflowPolicy.valueOf(DNSConstants.LISTENER_OVERFLOW_POLICY.toUpperCase());
+        } catch (IllegalArgumentException exception) {
+            policy = OverflowPolicy.DROP_OLDEST;
+        }
+        return new EventDispatcher(executor, DNSConstants.LISTENER_QUEUE_CAPACITY, policy);
+    }
+
+    /**
+     * Create a dispatcher.
+     *
+     * @param executor
+     *            executor running the listeners
+     * @param capacity
+     *            maximum number of pending events, 0 to deliver every event
+     * @param policy
+     *            what to drop once the capacity is reached
+     */
+    public EventDispatcher(Executor executor, int capacity, OverflowPolicy policy) {
+        super();
+        _executor = executor;
+        _pending = new LinkedHashMap<>();
+        this.setLimits(capacity, policy);
+    }
+
+    /**
+     * Change the bounds of the dispatcher. Lowering the capacity does not drop the events already pending.
+     *
+     * @param capacity
+     *            maximum number of pending events, 0 to deliver every event
+     * @param policy
+     *            what to drop once the capacity is reached
+     */
+    public synchronized void setLimits(int capacity, OverflowPolicy policy) {
+        if ((capacity < 0) || (policy == null)) {
+            throw new IllegalArgumentException("Invalid dispatcher limits: capacity " + capacity + " policy " + policy);
+        }
+        _capacity = capacity;
+        _policy = policy;
+    }
+
+    /**
+     * Queue a service added event.
+     *
+     * @param listener
+     *            listener to call
+     * @param event
+     *            event
+     */
+    public void serviceAdded(ServiceListenerStatus listener, ServiceEvent event) {
+        this.dispatch(listener, event, listener::serviceAdded, (pending, e) -> {
+            if (pending._added != null) {
+                // The listener status would ignore the second one anyway
+                return false;
+            }
+            pending._added = e;
+            return true;
+        });
+    }
+
+    /**
+     * Queue a service removed event.
+     *
+     * @param listener
+     *            listener to call
+     * @param event
+     *            event
+     */
+    public void serviceRemoved(ServiceListenerStatus listener, ServiceEvent event) {
+        this.dispatch(listener, event, listener::serviceRemoved, (pending, e) -> {
+            // Whatever was pending is stale now
+            pending._added = null;
+            pending._resolved = null;
+            pending._removed = e;
+            return true;
+        });
+    }
+
+    /**
+     * Queue a service resolved event.
+     *
+     * @param listener
+     *            listener to call
+     * @param event
+     *            event
+     */
+    public void serviceResolved(ServiceListenerStatus listener, ServiceEvent event) {
+        this.dispatch(listener, event, listener::serviceResolved, (pending, e) -> {
+            pending._resolved = e;
+            return true;
+        });
+    }
+
+    /**
+     * Merges an event into the events pending for its instance.
+     */
+    private interface Merge {
+        /**
+         * @return <code>false</code> if the event was discarded
+         */
+        boolean merge(Pending pending, ServiceEvent event);
+    }
+
+    private void dispatch(ServiceListenerStatus listener, ServiceEvent event, Consumer<ServiceEvent> delivery, Merge merge) {
+        final Key key = new Key(listener, event);
+        boolean schedule = false;
+        synchronized (this) {
+            if ((_capacity == 0) && _pending.isEmpty()) {
+                // Not bounded, and nothing left from a bounded period that this event could overtake
+                schedule = true;
+            }
+        }
+        if (schedule) {
+            this.deliver(listener, event, delivery);
+            return;
+        }
+        synchronized (this) {
+            Pending pending = _pending.get(key);
+            if ((pending == null) && (_capacity > 0) && (_depth >= _capacity)) {
+                if (_policy == OverflowPolicy.DROP_NEWEST) {
+                    _dropped++;
+                    logger.debug("Event queue full, dropping: {}", event);
+                    return;
+                }
+                this.dropOldest();
+            }
+            final boolean created = (pending == null);
+            if (created) {
+                pending = new Pending();
+                _pending.put(key, pending);
+            }
+            final int before = pending.size();
+            if (merge.merge(pending, event)) {
+                final int after = pending.size();
+                // Replacing or discarding pending events counts as coalescing
+                _coalesced += before + 1 - after;
+                _depth += after - before;
+                _peakDepth = Math.max(_peakDepth, _depth);
+            } else {
+                _coalesced++;
+            }
+            if (!_scheduled) {
+                _scheduled = true;
+                schedule = true;
+            }
+        }
+        if (schedule) {
+            try {
+                _executor.execute(this::drain);
+            } catch (RejectedExecutionException exception) {
+                logger.warn("Failed to submit runnable for serviceEvent", exception);
+                this.unschedule();
+            }
+        }
+    }
+
+    private void deliver(ServiceListenerStatus listener, ServiceEvent event, Consumer<ServiceEvent> delivery) {
+        synchronized (this) {
+            _depth++;
+            _peakDepth = Math.max(_peakDepth, _depth);
+        }
+        try {
+            _executor.execute(() -> {
+                synchronized (this) {
+                    _depth--;
+                    _delivered++;
+                }
+                try {
+                    delivery.accept(event);
+                } catch (RuntimeException exception) {
+                    logger.warn("Service listener failed: {}", listener, exception);
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            logger.warn("Failed to submit runnable for serviceEvent", exception);
+            synchronized (this) {
+                _depth--;
+                _dropped++;
+            }
+        }
+    }
+
+    private void dropOldest() {
+        final Iterator<Pending> iterator = _pending.values().iterator();
+        if (iterator.hasNext()) {
+            final int size = iterator.next().size();
+            iterator.remove();
+            _depth -= size;
+            _dropped += size;
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            final ServiceListenerStatus listener;
+            final Pending pending;
+            synchronized (this) {
+                final Iterator<Map.Entry<Key, Pending>> iterator = _pending.entrySet().iterator();
+                if (!iterator.hasNext()) {
+                    _scheduled = false;
+                    return;
+                }
+                final Map.Entry<Key, Pending> entry = iterator.next();
+                iterator.remove();
+                listener = entry.getKey()._listener;
+                pending = entry.getValue();
+                final int size = pending.size();
+                _depth -= size;
+                _delivered += size;
+            }
+            try {
+                if (pending._removed != null) {
+                    listener.serviceRemoved(pending._removed);
+                }
+                if (pending._added != null) {
+                    listener.serviceAdded(pending._added);
+                }
+                if (pending._resolved != null) {
+                    listener.serviceResolved(pending._resolved);
+                }
+            } catch (RuntimeException exception) {
+                // One faulty listener must not stall the others
+                logger.warn("Service listener failed: {}", listener, exception);
+            }
+        }
+    }
+
+    /**
+     * The drain was rejected: the events stay pending and the next event submits the drain again.
+     */
+    private synchronized void unschedule() {
+        _scheduled = false;
+    }
+
+    /**
+     * @return the number of events waiting to be delivered
+     */
+    public synchronized int getQueueDepth() {
+        return _depth;
+    }
+
+    /**
+     * @return the highest number of events that have been waiting at once
+     */
+    public synchronized int getPeakQueueDepth() {
+        return _peakDepth;
+    }
+
+    /**
+     * @return the number of events handed to the listeners
+     */
+    public synchronized long getDeliveredCount() {
+        return _delivered;
+    }
+
+    /**
+     * @return the number of events made obsolete by a later event for the same instance
+     */
+    public synchronized long getCoalescedCount() {
+        return _coalesced;
+    }
+
+    /**
+     * @return the number of events dropped because the dispatcher was full or its executor rejected them
+     */
+    public synchronized long getDroppedCount() {
+        return _dropped;
+    }
+
+    /**
+     * @return the maximum number of pending events, 0 when every event is delivered
+     */
+    public synchronized int getCapacity() {
+        return _capacity;
+    }
+
+    /**
+     * @return what is dropped once the capacity is reached
+     */
+    public synchronized OverflowPolicy getOverflowPolicy() {
+        return _policy;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public synchronized String toString() {
+        return "EventDispatcher(depth: " + _depth + " peak: " + _peakDepth + " delivered: " + _delivered + " coalesced: " + _coalesced + " dropped: " + _dropped + ")";
+    }
+
+}
@@ -41,7 +41,12 @@ import javax.jmdns.impl.tasks.DNSTask;
 public class HostInfo implements DNSStatefulObject {
     protected String            _name;
 
-    protected InetAddress       _address;
+    protected volatile InetAddress _address;
+
+    /**
+     * Address of the other family on the same interface, when the instance serves both IPv4 and IPv6.
+     */
+    protected volatile InetAddress _alternateAddress;
 
     protected NetworkInterface  _interfaze;
 
@@ -159,10 +164,86 @@ public class HostInfo implements DNSStatefulObject {
         return _address;
     }
 
+    /**
+     * Returns the address of the other family on the same interface, when both the IPv4 and the IPv6 group are joined.
+     *
+     * @return alternate address or <code>null</code> if only the family of {@link #getInetAddress()} is served
+     */
+    public InetAddress getAlternateAddress() {
+        return _alternateAddress;
+    }
+
+    void setAlternateAddress(InetAddress alternateAddress) {
+        if ((alternateAddress != null) && (alternateAddress instanceof Inet6Address) == (this.getInetAddress() instanceof Inet6Address)) {
+            throw new IllegalArgumentException("The alternate address must be of the other family: " + alternateAddress);
+        }
+        _alternateAddress = alternateAddress;
+    }
+
+    /**
+     * Moves this host to other addresses of the same interface, the name is kept.
+     *
+     * @param address
+     *            new address
+     * @param alternateAddress
+     *            new address of the other family, <code>null</code> to serve the family of <code>address</code> only
+     */
+    void rebind(InetAddress address, InetAddress alternateAddress) {
+        _alternateAddress = null;
+        _address = address;
+        this.setAlternateAddress(alternateAddress);
+    }
+
+    /**
+     * Looks for an address of the other family on the interface of this host, among the addresses the topology discovery lets us use.
+     *
+     * @param topology
+     *            discovery of the usable addresses
+     * @return the first address of the other family on the same interface, <code>null</code> if there is none
+     */
+    InetAddress findAlternateAddress(NetworkTopologyDiscovery topology) {
+        final InetAddress primary = _address;
+        final String interfaceName = (primary != null ? topology.getInterfaceName(primary) : null);
+        if (interfaceName == null) {
+            return null;
+        }
+        final boolean ipv6 = (primary instanceof Inet6Address);
+        for (InetAddress address : topology.getInetAddresses()) {
+            if (((address instanceof Inet6Address) != ipv6) && interfaceName.equals(topology.getInterfaceName(address))) {
+                return address;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates the host info of the alternate address, to open the transport of the other family.
+     *
+     * @return host info bound to the alternate address, <code>null</code> if there is none
+     */
+    HostInfo getAlternateHostInfo() {
+        final InetAddress alternateAddress = _alternateAddress;
+        return (alternateAddress != null ? new HostInfo(alternateAddress, _name, this.getDns(), _interfaze) : null);
+    }
+
+    /**
+     * Tells whether an address is one this host sends from.
+     *
+     * @param address
+     *            address to check
+     * @return <code>true</code> if it is the address or the alternate address of this host
+     */
+    public boolean isOwnAddress(InetAddress address) {
+        return (address != null) && (address.equals(_address) || address.equals(_alternateAddress));
+    }
+
     Inet4Address getInet4Address() {
         if (this.getInetAddress() instanceof Inet4Address) {
             return (Inet4Address) _address;
         }
+        if (_alternateAddress instanceof Inet4Address) {
+            return (Inet4Address) _alternateAddress;
+        }
         return null;
     }
 
@@ -170,6 +251,9 @@ public class HostInfo implements DNSStatefulObject {
         if (this.getInetAddress() instanceof Inet6Address) {
             return (Inet6Address) _address;
         }
+        if (_alternateAddress instanceof Inet6Address) {
+            return (Inet6Address) _alternateAddress;
+        }
         return null;
     }
 
@@ -192,10 +276,15 @@ public class HostInfo implements DNSStatefulObject {
 
     boolean shouldIgnorePacket(DatagramPacket packet) {
         boolean result = false;
-        if (this.getInetAddress() != null) {
-            InetAddress from = packet.getAddress();
-            if (from != null) {
-                if ((this.getInetAddress().isLinkLocalAddress() || this.getInetAddress().isMCLinkLocal()) && (!from.isLinkLocalAddress())) {
+        final InetAddress from = packet.getAddress();
+        if (from != null) {
+            // The rules apply to our address of the family of the sender, the alternate address may not be link-local or loopback like the primary one
+            InetAddress local = (from instanceof Inet6Address ? this.getInet6Address() : this.getInet4Address());
+            if (local == null) {
+                local = this.getInetAddress();
+            }
+            if (local != null) {
+                if ((local.isLinkLocalAddress() || local.isMCLinkLocal()) && (!from.isLinkLocalAddress())) {
                     // A host sending Multicast DNS queries to a link-local destination
                     // address (including the 224.0.0.251 and FF02::FB link-local multicast
                     // addresses) MUST only accept responses to that query that originate
@@ -206,7 +295,7 @@ public class HostInfo implements DNSStatefulObject {
                     // local link.
                     result = true;
                 }
-                if (from.isLoopbackAddress() && (!this.getInetAddress().isLoopbackAddress())) {
+                if (from.isLoopbackAddress() && (!local.isLoopbackAddress())) {
                     // Ignore loopback packets on a regular interface unless this is also a loopback interface.
                     result = true;
                 }
@@ -228,15 +317,17 @@ public class HostInfo implements DNSStatefulObject {
     }
 
     private DNSRecord.Address getDNS4AddressRecord(boolean unique, int ttl) {
-        if (this.getInetAddress() instanceof Inet4Address) {
-            return new DNSRecord.IPv4Address(this.getName(), DNSRecordClass.CLASS_IN, unique, ttl, this.getInetAddress());
+        final InetAddress address = this.getInet4Address();
+        if (address != null) {
+            return new DNSRecord.IPv4Address(this.getName(), DNSRecordClass.CLASS_IN, unique, ttl, address);
         }
         return null;
     }
 
     private DNSRecord.Address getDNS6AddressRecord(boolean unique, int ttl) {
-        if (this.getInetAddress() instanceof Inet6Address) {
-            return new DNSRecord.IPv6Address(this.getName(), DNSRecordClass.CLASS_IN, unique, ttl, this.getInetAddress());
+        final InetAddress address = this.getInet6Address();
+        if (address != null) {
+            return new DNSRecord.IPv6Address(this.getName(), DNSRecordClass.CLASS_IN, unique, ttl, address);
         }
         return null;
     }
@@ -254,15 +345,17 @@ public class HostInfo implements DNSStatefulObject {
     }
 
     private DNSRecord.Pointer getDNS4ReverseAddressRecord(boolean unique, int ttl) {
-        if (this.getInetAddress() instanceof Inet4Address) {
-            return new DNSRecord.Pointer(this.getInetAddress().getHostAddress() + ".in-addr.arpa.", DNSRecordClass.CLASS_IN, unique, ttl, this.getName());
+        final InetAddress address = this.getInet4Address();
+        if (address != null) {
+            return new DNSRecord.Pointer(address.getHostAddress() + ".in-addr.arpa.", DNSRecordClass.CLASS_IN, unique, ttl, this.getName());
         }
         return null;
     }
 
     private DNSRecord.Pointer getDNS6ReverseAddressRecord(boolean unique, int ttl) {
-        if (this.getInetAddress() instanceof Inet6Address) {
-            return new DNSRecord.Pointer(this.getInetAddress().getHostAddress() + ".ip6.arpa.", DNSRecordClass.CLASS_IN, unique, ttl, this.getName());
+        final InetAddress address = this.getInet6Address();
+        if (address != null) {
+            return new DNSRecord.Pointer(address.getHostAddress() + ".ip6.arpa.", DNSRecordClass.CLASS_IN, unique, ttl, this.getName());
         }
         return null;
     }
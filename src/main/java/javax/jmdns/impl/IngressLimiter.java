@@ -0,0 +1,247 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.net.InetAddress;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jmdns.impl.constants.DNSConstants;
+
+/**
+ * Admission control for incoming datagrams, checked by the {@link SocketListener} right after each receive.
+ * <p>
+ * Every source address gets a token bucket: a well behaved device never notices it while a device flooding the segment has its excess datagrams dropped before they are parsed. On top of that the time spent handling datagrams is charged against an
+ * aggregate budget. Once the budget is exhausted only sources that have been mostly quiet are still admitted until the budget refills, the heavy senders are shed.
+ * </p>
+ * <p>
+ * When a limiter is installed it replaces the fixed sleep before every receive (the <code>threadSleepDurationMs</code> given to {@link javax.jmdns.JmDNS#create(InetAddress, String, long)}), which slows down all senders alike.
+ * </p>
+ */
+public class IngressLimiter {
+
+    private final double                                _rate;
+
+    private final double                                _burst;
+
+    private final long                                  _cpuBudget;
+
+    private final int                                   _maxSources;
+
+    private final ConcurrentMap<InetAddress, TokenBucket> _buckets;
+
+    private final TokenBucket                           _overflow;
+
+    private final TokenBucket                           _cpu;
+
+    private final AtomicLong                            _admitted;
+
+    private final AtomicLong                            _dropped;
+
+    private final AtomicLong                            _shed;
+
+    /**
+     * Simple token bucket refilled according to the {@link DNSClock}.
+     */
+    static final class TokenBucket {
+
+        private final double _capacity;
+
+        private final double _ratePerMillis;
+
+        private double       _tokens;
+
+        private long         _lastRefill;
+
+        TokenBucket(double capacity, double ratePerMillis, long now) {
+            super();
+            _capacity = capacity;
+            _ratePerMillis = ratePerMillis;
+            _tokens = capacity;
+            _lastRefill = now;
+        }
+
+        synchronized double refill(long now) {
+            if (now > _lastRefill) {
+                _tokens = Math.min(_capacity, _tokens + (now - _lastRefill) * _ratePerMillis);
+                _lastRefill = now;
+            }
+            return _tokens;
+        }
+
+        synchronized boolean tryTake(long now, double amount) {
+            if (this.refill(now) >= amount) {
+                _tokens -= amount;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void take(long now, double amount) {
+            // May go into debt, the debt is paid back by the refill
+            this.refill(now);
+            _tokens = Math.max(_tokens - amount, -_capacity);
+        }
+
+        boolean isFull(long now) {
+            return this.refill(now) >= _capacity;
+        }
+
+        boolean isMostlyFull(long now) {
+            return this.refill(now) >= _capacity / 2;
+        }
+    }
+
+    /**
+     * Create a limiter from the <code>net.mdns.ingress.*</code> system properties.
+     *
+     * @return new limiter, or <code>null</code> if no per source rate is configured
+     */
+    public static IngressLimiter newDefaultLimiter() {
+        if (DNSConstants.INGRESS_SOURCE_RATE <= 0) {
+            return null;
+        }
+        return new IngressLimiter(DNSConstants.INGRESS_SOURCE_RATE, DNSConstants.INGRESS_SOURCE_BURST, DNSConstants.INGRESS_CPU_BUDGET);
+    }
+
+    /**
+     * Create a limiter.
+     *
+     * @param rate
+     *            datagrams per second admitted from one source
+     * @param burst
+     *            datagrams one source may send back to back
+     * @param cpuBudget
+     *            milliseconds of handling time per second for all sources, 0 for no limit
+     */
+    public IngressLimiter(int rate, int burst, int cpuBudget) {
+        this(rate, burst, cpuBudget, DNSConstants.INGRESS_MAX_SOURCES);
+    }
+
+    IngressLimiter(int rate, int burst, int cpuBudget, int maxSources) {
+        super();
+        if ((rate <= 0) || (burst <= 0) || (cpuBudget < 0)) {
+            throw new IllegalArgumentException("Invalid ingress limits: rate " + rate + " burst " + burst + " cpu " + cpuBudget);
+        }
+        final long now = DNSClock.Factory.getClock().currentTimeMillis();
+        _rate = rate / 1000.0;
+        _burst = Math.max(1, burst);
+        _cpuBudget = cpuBudget * 1000000L;
+        _maxSources = maxSources;
+        _buckets = new ConcurrentHashMap<>();
+        _overflow = new TokenBucket(_burst, _rate, now);
+        _cpu = new TokenBucket(_cpuBudget, _cpuBudget / 1000.0, now);
+        _admitted = new AtomicLong();
+        _dropped = new AtomicLong();
+        _shed = new AtomicLong();
+    }
+
+    /**
+     * Decide if a datagram should be handled.
+     *
+     * @param source
+     *            sender address
+     * @return <code>true</code> if the datagram should be handled, <code>false</code> if it should be dropped
+     */
+    public boolean admit(InetAddress source) {
+        final long now = DNSClock.Factory.getClock().currentTimeMillis();
+        final TokenBucket bucket = this.bucket(source, now);
+        if ((_cpuBudget > 0) && (_cpu.refill(now) <= 0) && !bucket.isMostlyFull(now)) {
+            _shed.incrementAndGet();
+            return false;
+        }
+        if (!bucket.tryTake(now, 1)) {
+            _dropped.incrementAndGet();
+            return false;
+        }
+        _admitted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Charge the time spent handling an admitted datagram against the aggregate budget.
+     *
+     * @param elapsedNanos
+     *            handling time in nanoseconds
+     */
+    public void charge(long elapsedNanos) {
+        if (_cpuBudget > 0) {
+            _cpu.take(DNSClock.Factory.getClock().currentTimeMillis(), elapsedNanos);
+        }
+    }
+
+    private TokenBucket bucket(InetAddress source, long now) {
+        TokenBucket bucket = _buckets.get(source);
+        if (bucket == null) {
+            if (_buckets.size() >= _maxSources) {
+                this.prune(now);
+                if (_buckets.size() >= _maxSources) {
+                    return _overflow;
+                }
+            }
+            bucket = _buckets.computeIfAbsent(source, key -> new TokenBucket(_burst, _rate, now));
+        }
+        return bucket;
+    }
+
+    private void prune(long now) {
+        // A full bucket carries no history, it can be recreated on demand
+        for (Iterator<Map.Entry<InetAddress, TokenBucket>> i = _buckets.entrySet().iterator(); i.hasNext();) {
+            if (i.next().getValue().isFull(now)) {
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the number of datagrams admitted
+     */
+    public long getAdmittedCount() {
+        return _admitted.get();
+    }
+
+    /**
+     * @return the number of datagrams dropped because their source exceeded its rate
+     */
+    public long getDroppedCount() {
+        return _dropped.get();
+    }
+
+    /**
+     * @return the number of datagrams shed because the aggregate handling budget was exhausted
+     */
+    public long getShedCount() {
+        return _shed.get();
+    }
+
+    /**
+     * @return the number of sources currently tracked
+     */
+    public int getSourceCount() {
+        return _buckets.size();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "IngressLimiter(admitted: " + _admitted + " dropped: " + _dropped + " shed: " + _shed + " sources: " + _buckets.size() + ")";
+    }
+
+}
@@ -20,7 +20,7 @@ import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.MulticastSocket;
-import java.net.SocketAddress;
+import java.net.NetworkInterface;
 import java.net.SocketException;
 import java.util.AbstractMap;
 import java.util.ArrayList;
@@ -29,23 +29,33 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.jmdns.BrowseEvent;
 import javax.jmdns.JmDNS;
+import javax.jmdns.NetworkTopologyDiscovery;
 import javax.jmdns.ServiceEvent;
+import javax.jmdns.ServiceFlow;
 import javax.jmdns.ServiceInfo;
 import javax.jmdns.ServiceInfo.Fields;
 import javax.jmdns.ServiceListener;
@@ -58,6 +68,7 @@ import javax.jmdns.impl.constants.DNSRecordType;
 import javax.jmdns.impl.constants.DNSState;
 import javax.jmdns.impl.tasks.DNSTask;
 import javax.jmdns.impl.tasks.RecordReaper;
+import javax.jmdns.impl.util.ByteWrangler;
 import javax.jmdns.impl.util.NamedThreadFactory;
 
 // REMIND: multiple IP addresses
@@ -69,8 +80,6 @@ import javax.jmdns.impl.util.NamedThreadFactory;
  */
 public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarter {
 
-    private static final boolean IS_WINDOWS;
-
     private final Logger logger = LoggerFactory.getLogger(JmDNSImpl.class);
 
     public enum Operation {
@@ -82,25 +91,68 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
      */
     private volatile InetAddress     _group;
     /**
-     * This is our multicast socket.
+     * This is our multicast transport, usually backed by a multicast socket.
+     */
+    private volatile DNSTransport    _transport;
+
+    /**
+     * Payload size of the multicast messages we send, sized for the link when the transport opens.
+     */
+    private volatile int             _maxUDPPayload = DNSConstants.MAX_MSG_TYPICAL;
+
+    /**
+     * Optional capture of the datagrams sent and received.
+     */
+    private volatile PacketCapture   _packetCapture;
+
+    /**
+     * Optional admission control of incoming datagrams.
+     */
+    private volatile IngressLimiter  _ingressLimiter;
+
+    /**
+     * Optional recognition of the echoes of the multicast datagrams we sent.
+     */
+    private volatile EchoFilter      _echoFilter;
+
+    /**
+     * Maximum number of renewal packets sent per second.
+     */
+    private volatile int             _renewalRate;
+
+    private final ReceiveStatistics  _receiveStatistics = new ReceiveStatistics();
+
+    /**
+     * Optional warm-start snapshot of the cache.
      */
-    private volatile MulticastSocket _socket;
+    private volatile CacheSnapshot   _cacheSnapshot;
 
     /**
-     * Holds instances of JmDNS.DNSListener. Must be a synchronized collection, because it is updated from concurrent threads.
+     * Holds instances of JmDNS.DNSListener. This is a copy on write collection: listeners change rarely while every incoming record walks it, the walk takes no lock and makes no copy.
      */
     private final List<DNSListener> _listeners;
 
     /**
-     * Holds instances of ServiceListener's. Keys are Strings holding a fully qualified service type. Values are LinkedList's of ServiceListener's.
+     * Keys and server names, in lower case, of the service infos listening for their resolution. Rebuilt when the listeners change or a service record reaches them, so that the cache eviction does not walk the listeners for
+     * every entry.
+     */
+    private volatile Set<String>    _protectedNames = Collections.emptySet();
+
+    /**
+     * Holds instances of ServiceListener's. Keys are Strings holding a fully qualified service type. Values are copy on write lists of ServiceListener's, only replaced in the map through atomic map operations.
      */
     /* default */ final ConcurrentMap<String, List<ServiceListenerStatus>> _serviceListeners;
 
     /**
-     * Holds instances of ServiceTypeListener's.
+     * Holds instances of ServiceTypeListener's. This is a copy on write collection.
      */
     private final Set<ServiceTypeListenerStatus> _typeListeners;
 
+    /**
+     * Active browse subscriptions, completed on close.
+     */
+    private final Set<BrowsePublisher.BrowseSubscription> _browseSubscriptions;
+
     /**
      * Cache for DNSEntry's.
      */
@@ -335,6 +387,11 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
 
     private final ExecutorService _executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("JmDNS"));
 
+    /**
+     * Hands the service events of the asynchronous listeners to the executor, coalescing them only once given a capacity.
+     */
+    private final EventDispatcher _eventDispatcher = EventDispatcher.newDefaultDispatcher(_executor);
+
     /**
      * The source for random values. This is used to introduce random delays in responses. This reduces the potential for collisions on the network.
      */
@@ -346,10 +403,10 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
     private final ReentrantLock _ioLock = new ReentrantLock();
 
     /**
-     * If an incoming package which needs an answer is truncated, we store it here. We add more incoming DNSRecords to it, until the JmDNS.Responder timer picks it up.<br/>
-     * FIXME [PJYF June 8 2010]: This does not work well with multiple planned answers for packages that came in from different clients.
+     * If an incoming package which needs an answer is truncated, we store it here by sender. We add the continuation packets of that sender to it, until the JmDNS.Responder timer picks it up or the reassembly times out.<br/>
+     * Guarded by the io lock.
      */
-    private DNSIncoming _plannedAnswer;
+    private final Map<InetSocketAddress, DNSIncoming> _plannedAnswers = new HashMap<>();
 
     // State machine
 
@@ -362,15 +419,6 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
 
     private final String _name;
 
-    static {
-        final String osName = System.getProperty("os.name");
-        if (osName == null) {
-            IS_WINDOWS = false;
-        } else {
-            IS_WINDOWS = osName.startsWith("Windows");
-        }
-    }
-
     /**
      * Main method to display API information if run from java -jar
      *
@@ -420,22 +468,46 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
      * @exception IOException
      */
     public JmDNSImpl(InetAddress address, String name, long threadSleepDurationMs) throws IOException {
+        this(address, null, name, threadSleepDurationMs);
+    }
+
+    /**
+     * Create an instance of JmDNS serving both the IPv4 and the IPv6 group of a network interface with a single cache and service registry.
+     *
+     * @param address
+     *            IP address to bind to.
+     * @param alternateAddress
+     *            IP address of the other family on the same interface, <code>null</code> to serve the family of <code>address</code> only, unless <code>net.mdns.dualstack</code> is set and the interface has one
+     * @param name
+     *            name of the newly created JmDNS
+     * @param threadSleepDurationMs
+     *            time in milliseconds that the JmDNS listener thread should sleep between multicast receives
+     * @exception IOException
+     */
+    public JmDNSImpl(InetAddress address, InetAddress alternateAddress, String name, long threadSleepDurationMs) throws IOException {
         super();
         logger.debug("JmDNS instance created");
 
         _cache = new DNSCache(100);
+        _cache.setEvictionGuard(this::isProtectedCacheEntry);
 
-        _listeners = Collections.synchronizedList(new ArrayList<>());
+        _listeners = new CopyOnWriteArrayList<>();
         _serviceListeners = new ConcurrentHashMap<>();
-        _typeListeners = Collections.synchronizedSet(new HashSet<>());
+        _typeListeners = new CopyOnWriteArraySet<>();
+        _browseSubscriptions = new CopyOnWriteArraySet<>();
         _serviceCollectors = new ConcurrentHashMap<>();
 
         _services = new ConcurrentHashMap<>(20);
         _serviceTypes = new ConcurrentHashMap<>(20);
 
         _localHost = HostInfo.newHostInfo(address, this, name);
+        _localHost.setAlternateAddress(alternateAddress != null ? alternateAddress : (DNSConstants.DUAL_STACK ? _localHost.findAlternateAddress(NetworkTopologyDiscovery.Factory.getInstance()) : null));
         _name = (name != null ? name : _localHost.getName());
         _threadSleepDurationMs = threadSleepDurationMs;
+        _ingressLimiter = IngressLimiter.newDefaultLimiter();
+        _echoFilter = EchoFilter.newDefaultFilter();
+        _renewalRate = DNSConstants.ANNOUNCED_RENEWAL_RATE;
+        this.setCacheSnapshot(CacheSnapshot.newDefaultSnapshot(_name));
 
         // _cancelerTimer = new Timer("JmDNS.cancelerTimer");
 
@@ -455,7 +527,7 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
 
     private void start(Collection<? extends ServiceInfo> serviceInfos) {
         if (_incomingListener == null) {
-            _incomingListener = new SocketListener(this);
+            _incomingListener = new SocketListener(this, _transport);
             _incomingListener.start();
         }
         this.startProber();
@@ -468,55 +540,59 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
         }
     }
 
-    private InetSocketAddress getMulticastBindAddress(HostInfo hostInfo) {
-        if (IS_WINDOWS) {
-            return new InetSocketAddress(hostInfo.getInetAddress(), DNSConstants.MDNS_PORT);
-        } else {
-            return new InetSocketAddress(DNSConstants.MDNS_PORT);
+    private void openMulticastSocket(HostInfo hostInfo) throws IOException {
+        if (_transport != null) {
+            this.closeMulticastSocket();
         }
+        _transport = this.newTransport(hostInfo);
     }
 
-    private void openMulticastSocket(HostInfo hostInfo) throws IOException {
+    /**
+     * Opens a transport on the given host and sizes the messages for it, without publishing it.
+     */
+    private DNSTransport newTransport(HostInfo hostInfo) throws IOException {
+        final Set<Long> sockets = SocketDropMonitor.socketInodes();
+        final DNSTransport transport = DNSTransport.Factory.newDNSTransport(this, hostInfo);
+        _receiveStatistics.setDropMonitor(SocketDropMonitor.newMonitor(sockets));
+        _maxUDPPayload = this.maxUDPPayload(hostInfo);
         if (_group == null) {
-            if (hostInfo.getInetAddress() instanceof Inet6Address) {
-                _group = InetAddress.getByName(DNSConstants.MDNS_GROUP_IPV6);
-            } else {
-                _group = InetAddress.getByName(DNSConstants.MDNS_GROUP);
-            }
+            _group = transport.getGroup();
         }
-        if (_socket != null) {
-            this.closeMulticastSocket();
-        }
-        _socket = new MulticastSocket(getMulticastBindAddress(hostInfo));
-        if ((hostInfo != null) && (hostInfo.getInterface() != null)) {
-            final SocketAddress multicastAddr = new InetSocketAddress(_group, DNSConstants.MDNS_PORT);
-            _socket.setNetworkInterface(hostInfo.getInterface());
-
-            logger.trace("Trying to joinGroup({}, {})", multicastAddr, hostInfo.getInterface());
+        return transport;
+    }
 
-            // this joinGroup() might be less surprisingly so this is the default
-            _socket.joinGroup(multicastAddr, hostInfo.getInterface());
-        } else {
-            logger.trace("Trying to joinGroup({})", _group);
-            _socket.joinGroup(_group);
+    /**
+     * Returns the payload size configured with <code>net.mdns.payload</code>, otherwise the largest one the MTU of the interface allows if its frames are larger than Ethernet ones. Jumbo frames thus carry more records per message.
+     */
+    private int maxUDPPayload(HostInfo hostInfo) {
+        if (DNSConstants.MAX_UDP_PAYLOAD > 0) {
+            return Math.min(DNSConstants.MAX_UDP_PAYLOAD, DNSConstants.MAX_MSG_ABSOLUTE);
         }
-
-        _socket.setTimeToLive(255);
+        final NetworkInterface networkInterface = (hostInfo != null ? hostInfo.getInterface() : null);
+        if (networkInterface != null) {
+            try {
+                // IP and UDP headers
+                final int headers = (hostInfo.getInet6Address() != null ? 48 : 28);
+                final int payload = networkInterface.getMTU() - headers;
+                // An ordinary Ethernet link gives 1472 bytes with IPv4 and 1452 with IPv6, only larger frames are worth the OPT record
+                if (payload > DNSConstants.ETHERNET_MTU - headers) {
+                    return Math.min(payload, DNSConstants.MAX_MSG_ABSOLUTE);
+                }
+            } catch (final SocketException exception) {
+                logger.debug("{}.maxUDPPayload() could not get the MTU of {}", this.getName(), networkInterface, exception);
+            }
+        }
+        return DNSConstants.MAX_MSG_TYPICAL;
     }
 
     private void closeMulticastSocket() {
         // jP: 20010-01-18. See below. We'll need this monitor...
         // assert (Thread.holdsLock(this));
         logger.debug("closeMulticastSocket()");
-        if (_socket != null) {
+        if (_transport != null) {
             // close socket
             try {
-                try {
-                    _socket.leaveGroup(_group);
-                } catch (SocketException exception) {
-                    //
-                }
-                _socket.close();
+                _transport.close();
                 // jP: 20010-01-18. It isn't safe to join() on the listener
                 // thread - it attempts to lock the IoLock object, and deadlock
                 // ensues. Per issue #2933183, changed this to wait on the JmDNS
@@ -540,7 +616,7 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
             } catch (final Exception exception) {
                 logger.warn("closeMulticastSocket() Close socket exception ", exception);
             }
-            _socket = null;
+            _transport = null;
         }
     }
 
@@ -698,6 +774,38 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
         return _cache;
     }
 
+    /**
+     * Cached records backing a service listener, a type listener or a pending service resolution must survive the cache eviction.
+     *
+     * @param entry
+     *            cached entry
+     * @return <code>true</code> if the entry must not be evicted
+     */
+    boolean isProtectedCacheEntry(DNSEntry entry) {
+        if (_serviceListeners.containsKey(entry.getType().toLowerCase())) {
+            return true;
+        }
+        if (entry.isServicesDiscoveryMetaQuery() && !_typeListeners.isEmpty()) {
+            return true;
+        }
+        final Set<String> names = _protectedNames;
+        return !names.isEmpty() && (names.contains(entry.getKey()) || names.contains(entry.getName().toLowerCase()));
+    }
+
+    private void updateProtectedNames() {
+        final Set<String> names = new HashSet<>();
+        for (DNSListener listener : _listeners) {
+            if (listener instanceof ServiceInfoImpl) {
+                ServiceInfoImpl info = (ServiceInfoImpl) listener;
+                names.add(info.getKey());
+                if (!info.getServer().isEmpty()) {
+                    names.add(info.getServer().toLowerCase());
+                }
+            }
+        }
+        _protectedNames = names;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -737,7 +845,8 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
     @Override
     @Deprecated
     public InetAddress getInterface() throws IOException {
-        return _socket.getInterface();
+        final MulticastSocket socket = this.getSocket();
+        return (socket != null ? socket.getInterface() : _localHost.getInetAddress());
     }
 
     /**
@@ -798,47 +907,37 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
             ServiceInfoImpl cachedInfo = (ServiceInfoImpl) ((DNSRecord) pointerEntry).getServiceInfo(persistent);
             if (cachedInfo != null) {
                 // To get a complete info record we need to retrieve the service, address and the text bytes.
-
-                Map<Fields, String> map = cachedInfo.getQualifiedNameMap();
+                // The address and text records are read directly, building a service info per record costs a name decoding each.
                 byte[] srvBytes = null;
                 String server = "";
                 DNSEntry serviceEntry = this.getCache().getDNSEntry(info.getQualifiedName(), DNSRecordType.TYPE_SRV, DNSRecordClass.CLASS_ANY);
-                if (serviceEntry instanceof DNSRecord) {
-                    ServiceInfo cachedServiceEntryInfo = ((DNSRecord) serviceEntry).getServiceInfo(persistent);
-                    if (cachedServiceEntryInfo != null) {
-                        cachedInfo = new ServiceInfoImpl(map, cachedServiceEntryInfo.getPort(), cachedServiceEntryInfo.getWeight(), cachedServiceEntryInfo.getPriority(), persistent, (byte[]) null);
-                        srvBytes = cachedServiceEntryInfo.getTextBytes();
-                        server = cachedServiceEntryInfo.getServer();
-                    }
+                if (serviceEntry instanceof DNSRecord.Service) {
+                    DNSRecord.Service service = (DNSRecord.Service) serviceEntry;
+                    cachedInfo = new ServiceInfoImpl(cachedInfo.getQualifiedNameMap(), service.getPort(), service.getWeight(), service.getPriority(), persistent, (byte[]) null);
+                    srvBytes = service.getServiceInfo(persistent).getTextBytes();
+                    server = service.getServer();
                 }
                 for (DNSEntry addressEntry : this.getCache().getDNSEntryList(server, DNSRecordType.TYPE_A, DNSRecordClass.CLASS_ANY)) {
-                    if (addressEntry instanceof DNSRecord) {
-                        ServiceInfo cachedAddressInfo = ((DNSRecord) addressEntry).getServiceInfo(persistent);
-                        if (cachedAddressInfo != null) {
-                            for (Inet4Address address : cachedAddressInfo.getInet4Addresses()) {
-                                cachedInfo.addAddress(address);
-                            }
-                            cachedInfo._setText(cachedAddressInfo.getTextBytes());
+                    if (addressEntry instanceof DNSRecord.Address) {
+                        InetAddress address = ((DNSRecord.Address) addressEntry).getAddress();
+                        if (address instanceof Inet4Address) {
+                            cachedInfo.addAddress((Inet4Address) address);
                         }
+                        cachedInfo._setText(ByteWrangler.EMPTY_TXT);
                     }
                 }
                 for (DNSEntry addressEntry : this.getCache().getDNSEntryList(server, DNSRecordType.TYPE_AAAA, DNSRecordClass.CLASS_ANY)) {
-                    if (addressEntry instanceof DNSRecord) {
-                        ServiceInfo cachedAddressInfo = ((DNSRecord) addressEntry).getServiceInfo(persistent);
-                        if (cachedAddressInfo != null) {
-                            for (Inet6Address address : cachedAddressInfo.getInet6Addresses()) {
-                                cachedInfo.addAddress(address);
-                            }
-                            cachedInfo._setText(cachedAddressInfo.getTextBytes());
+                    if (addressEntry instanceof DNSRecord.Address) {
+                        InetAddress address = ((DNSRecord.Address) addressEntry).getAddress();
+                        if (address instanceof Inet6Address) {
+                            cachedInfo.addAddress((Inet6Address) address);
                         }
+                        cachedInfo._setText(ByteWrangler.EMPTY_TXT);
                     }
                 }
                 DNSEntry textEntry = this.getCache().getDNSEntry(cachedInfo.getQualifiedName(), DNSRecordType.TYPE_TXT, DNSRecordClass.CLASS_ANY);
-                if (textEntry instanceof DNSRecord) {
-                    ServiceInfo cachedTextInfo = ((DNSRecord) textEntry).getServiceInfo(persistent);
-                    if (cachedTextInfo != null) {
-                        cachedInfo._setText(cachedTextInfo.getTextBytes());
-                    }
+                if (textEntry instanceof DNSRecord.Text) {
+                    cachedInfo._setText(((DNSRecord.Text) textEntry).getText());
                 }
                 if (cachedInfo.getTextBytes().length == 0) {
                     cachedInfo._setText(srvBytes);
@@ -905,27 +1004,10 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
 
     void handleServiceResolved(ServiceEvent event) {
         List<ServiceListenerStatus> list = _serviceListeners.get(event.getType().toLowerCase());
-        final List<ServiceListenerStatus> listCopy;
         if ((list != null) && (!list.isEmpty())) {
             if ((event.getInfo() != null) && event.getInfo().hasData()) {
-                final ServiceEvent localEvent = event;
-                synchronized (list) {
-                    listCopy = new ArrayList<>(list);
-                }
-                try {
-                    for (final ServiceListenerStatus listener : listCopy) {
-                        _executor.submit(new Runnable() {
-                            /**
-                             * {@inheritDoc}
-                             */
-                            @Override
-                            public void run() {
-                                listener.serviceResolved(localEvent);
-                            }
-                        });
-                    }
-                } catch (RejectedExecutionException exc) {
-                    logger.warn("Failed to submit runnable for serviceEvent in handleServiceResolved", exc);
+                for (final ServiceListenerStatus listener : list) {
+                    _eventDispatcher.serviceResolved(listener, event);
                 }
             }
         }
@@ -967,23 +1049,20 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
     private void addServiceListener(String type, ServiceListener listener, boolean synch, boolean shouldStartServiceResolver) {
         ServiceListenerStatus status = new ServiceListenerStatus(listener, synch);
         final String loType = type.toLowerCase();
-        List<ServiceListenerStatus> list = _serviceListeners.get(loType);
-        if (list == null) {
-            if (_serviceListeners.putIfAbsent(loType, new LinkedList<>()) == null) {
+        if (!_serviceListeners.containsKey(loType)) {
+            if (_serviceListeners.putIfAbsent(loType, new CopyOnWriteArrayList<>()) == null) {
                 if (_serviceCollectors.putIfAbsent(loType, new ServiceCollector(type)) == null) {
                     // We have a problem here. The service collectors must be called synchronously so that their cache get cleaned up immediately, or we will report .
                     this.addServiceListener(loType, _serviceCollectors.get(loType), ListenerStatus.SYNCHRONOUS, false);
                 }
             }
-            list = _serviceListeners.get(loType);
-        }
-        if (list != null) {
-            synchronized (list) {
-                if (!list.contains(status)) {
-                    list.add(status);
-                }
-            }
         }
+        // Atomic with respect to a concurrent removal of the last listener of the type
+        _serviceListeners.compute(loType, (key, list) -> {
+            final CopyOnWriteArrayList<ServiceListenerStatus> listeners = (list != null ? (CopyOnWriteArrayList<ServiceListenerStatus>) list : new CopyOnWriteArrayList<>());
+            listeners.addIfAbsent(status);
+            return listeners;
+        });
         // report cached service types
         final List<ServiceEvent> serviceEvents = new ArrayList<>();
         Collection<DNSEntry> dnsEntryLits = this.getCache().allValues();
@@ -1014,16 +1093,19 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
     @Override
     public void removeServiceListener(String type, ServiceListener listener) {
         String loType = type.toLowerCase();
-        List<ServiceListenerStatus> list = _serviceListeners.get(loType);
-        if (list != null) {
-            synchronized (list) {
-                ServiceListenerStatus status = new ServiceListenerStatus(listener, ListenerStatus.ASYNCHRONOUS);
-                list.remove(status);
-                if (list.isEmpty()) {
-                    _serviceListeners.remove(loType, list);
-                }
-            }
-        }
+        final ServiceListenerStatus status = new ServiceListenerStatus(listener, ListenerStatus.ASYNCHRONOUS);
+        _serviceListeners.computeIfPresent(loType, (key, list) -> {
+            list.remove(status);
+            return (list.isEmpty() ? null : list);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ServiceFlow.Publisher<BrowseEvent> browse(String type) {
+        return new BrowsePublisher(type, this::addServiceListener, this::removeServiceListener, _browseSubscriptions);
     }
 
     /**
@@ -1031,10 +1113,36 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
      */
     @Override
     public void registerService(ServiceInfo infoAbstract) throws IOException {
+        this.addService(infoAbstract);
+
+        this.startProber();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Void> registerServices(Collection<? extends ServiceInfo> infos) throws IOException {
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(infos.size());
+        try {
+            for (ServiceInfo info : infos) {
+                futures.add(this.addService(info).whenAnnounced());
+            }
+        } finally {
+            // A single prober picks up every service added so far
+            if (!futures.isEmpty()) {
+                this.startProber();
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+    }
+
+    private ServiceInfoImpl addService(ServiceInfo infoAbstract) {
         if (this.isClosing() || this.isClosed()) {
             throw new IllegalStateException("This DNS is closed.");
         }
-        final ServiceInfoImpl info = (ServiceInfoImpl) infoAbstract;
+        // A snapshot is a value, what gets registered and announced is a copy of it
+        final ServiceInfoImpl info = (infoAbstract instanceof ServiceInfoSnapshot ? ((ServiceInfoSnapshot) infoAbstract).clone() : (ServiceInfoImpl) infoAbstract);
 
         if (info.getDns() != null) {
             if (info.getDns() != this) {
@@ -1057,9 +1165,8 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
             this.makeServiceNameUnique(info);
         } while (_services.putIfAbsent(info.getKey(), info) != null);
 
-        this.startProber();
-
         logger.debug("registerService() JmDNS registered service as {}", info);
+        return info;
     }
 
     /**
@@ -1085,30 +1192,51 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
      * {@inheritDoc}
      */
     @Override
-    public void unregisterAllServices() {
-        logger.debug("unregisterAllServices()");
-
-        for (final ServiceInfo info : _services.values()) {
+    public CompletableFuture<Void> unregisterServices(Collection<? extends ServiceInfo> infos) {
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(infos.size());
+        for (ServiceInfo infoAbstract : infos) {
+            final ServiceInfoImpl info = (ServiceInfoImpl) _services.get(infoAbstract.getKey());
             if (info != null) {
-                final ServiceInfoImpl infoImpl = (ServiceInfoImpl) info;
-                logger.debug("Cancelling service info: {}", info);
-                infoImpl.cancelState();
+                info.cancelState();
+                futures.add(info.whenCanceled().thenRun(() -> {
+                    _services.remove(info.getKey(), info);
+                    logger.debug("unregisterServices() JmDNS {} unregistered service as {}", this.getName(), info);
+                }));
+            } else {
+                logger.warn("{} removing unregistered service info: {}", this.getName(), infoAbstract.getKey());
             }
         }
-        this.startCanceler();
+        if (!futures.isEmpty()) {
+            // A single canceler sends the goodbye packets of every service
+            this.startCanceler();
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+    }
 
-        for (final Map.Entry<String, ServiceInfo> entry : _services.entrySet()) {
-            final ServiceInfo info = entry.getValue();
-            if (info != null) {
-                final ServiceInfoImpl infoImpl = (ServiceInfoImpl) info;
-                final String name = entry.getKey();
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void unregisterAllServices() {
+        logger.debug("unregisterAllServices()");
 
-                logger.debug("Wait for service info cancel: {}", info);
-                infoImpl.waitForCanceled(DNSConstants.CLOSE_TIMEOUT);
-                _services.remove(name, info);
-            }
+        final List<ServiceInfo> infos = new ArrayList<>(_services.values());
+        final CompletableFuture<Void> canceled = this.unregisterServices(infos);
+        if (infos.isEmpty()) {
+            // When closing the canceler also carries the cancellation of this instance
+            this.startCanceler();
+        }
+        try {
+            // The services are canceled together, wait once for all of them rather than for each in turn
+            canceled.get(DNSConstants.CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException exception) {
+            logger.warn("{} wait for services cancel timed out: {}", this.getName(), exception.toString());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        for (final ServiceInfo info : infos) {
+            _services.remove(info.getKey(), info);
         }
-
     }
 
     /**
@@ -1117,7 +1245,7 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
     @Override
     public boolean registerServiceType(String type) {
         boolean typeAdded = false;
-        Map<Fields, String> map = ServiceTypeDecoder.decodeQualifiedNameMapForType(type);
+        Map<Fields, String> map = ServiceTypeDecoder.cachedQualifiedNameMapForType(type);
         String domain = map.get(Fields.Domain);
         String protocol = map.get(Fields.Protocol);
         String application = map.get(Fields.Application);
@@ -1135,10 +1263,9 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
         if (!_serviceTypes.containsKey(loname) && !application.equalsIgnoreCase("dns-sd") && !domain.toLowerCase().endsWith("in-addr.arpa") && !domain.toLowerCase().endsWith("ip6.arpa")) {
             typeAdded = _serviceTypes.putIfAbsent(loname, new ServiceTypeEntry(name)) == null;
             if (typeAdded) {
-                final ServiceTypeListenerStatus[] list = _typeListeners.toArray(new ServiceTypeListenerStatus[0]);
                 final ServiceEvent event = new ServiceEventImpl(this, name, "", null);
                 try {
-                    for (final ServiceTypeListenerStatus status : list) {
+                    for (final ServiceTypeListenerStatus status : _typeListeners) {
                         _executor.submit(new Runnable() {
                             /**
                              * {@inheritDoc}
@@ -1161,10 +1288,9 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
                     if (!subtypes.contains(subtype)) {
                         typeAdded = true;
                         subtypes.add(subtype);
-                        final ServiceTypeListenerStatus[] list = _typeListeners.toArray(new ServiceTypeListenerStatus[0]);
                         final ServiceEvent event = new ServiceEventImpl(this, "_" + subtype + "._sub." + name, "", null);
                         try {
-                            for (final ServiceTypeListenerStatus status : list) {
+                            for (final ServiceTypeListenerStatus status : _typeListeners) {
                                 _executor.submit(new Runnable() {
                                     /**
                                      * {@inheritDoc}
@@ -1192,7 +1318,7 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
      */
     private boolean makeServiceNameUnique(ServiceInfoImpl info) {
         final String originalQualifiedName = info.getKey();
-        final long now = System.currentTimeMillis();
+        final long now = DNSClock.Factory.getClock().currentTimeMillis();
 
         boolean collision;
         do {
@@ -1237,10 +1363,11 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
      *            DNS query
      */
     public void addListener(DNSListener listener, DNSQuestion question) {
-        final long now = System.currentTimeMillis();
+        final long now = DNSClock.Factory.getClock().currentTimeMillis();
 
         // add the new listener
         _listeners.add(listener);
+        this.updateProtectedNames();
 
         // report existing matched records
 
@@ -1260,7 +1387,9 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
      *            DSN listener
      */
     public void removeListener(DNSListener listener) {
-        _listeners.remove(listener);
+        if (_listeners.remove(listener)) {
+            this.updateProtectedNames();
+        }
     }
 
     /**
@@ -1294,14 +1423,12 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
         }
 
         // We do not want to block the entire DNS while we are updating the record for each listener (service info)
-        {
-            List<DNSListener> listenerList;
-            synchronized (_listeners) {
-                listenerList = new ArrayList<>(_listeners);
-            }
-            for (DNSListener listener : listenerList) {
-                listener.updateRecord(this.getCache(), now, rec);
-            }
+        for (DNSListener listener : _listeners) {
+            listener.updateRecord(this.getCache(), now, rec);
+        }
+        if (DNSRecordType.TYPE_SRV.equals(rec.getRecordType()) && !_listeners.isEmpty()) {
+            // The service record may have given a listening service info its server
+            this.updateProtectedNames();
         }
 
         if (
@@ -1317,15 +1444,8 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
                 }
             }
 
-            List<ServiceListenerStatus> list = _serviceListeners.get(event.getType().toLowerCase());
-            final List<ServiceListenerStatus> serviceListenerList;
-            if (list != null) {
-                synchronized (list) {
-                    serviceListenerList = new ArrayList<ServiceListenerStatus>(list);
-                }
-            } else {
-                serviceListenerList = Collections.emptyList();
-            }
+            final List<ServiceListenerStatus> list = _serviceListeners.get(event.getType().toLowerCase());
+            final List<ServiceListenerStatus> serviceListenerList = (list != null ? list : Collections.<ServiceListenerStatus> emptyList());
             logger.trace("{}.updating record for event: {} list {} operation: {}",
                 this.getName(),
                 event,
@@ -1333,7 +1453,8 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
                 operation
             );
             if (!serviceListenerList.isEmpty()) {
-                final ServiceEvent localEvent = event;
+                // One snapshot shared by all the listeners instead of a copy per listener
+                final ServiceEvent localEvent = (event.getInfo() != null ? new ServiceEventImpl(this, event.getType(), event.getName(), ServiceInfoSnapshot.of(event.getInfo())) : event);
 
                 switch (operation) {
                     case Add:
@@ -1341,19 +1462,7 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
                             if (listener.isSynchronous()) {
                                 listener.serviceAdded(localEvent);
                             } else {
-                                try {
-                                    _executor.submit(new Runnable() {
-                                        /**
-                                         * {@inheritDoc}
-                                         */
-                                        @Override
-                                        public void run() {
-                                            listener.serviceAdded(localEvent);
-                                        }
-                                    });
-                                } catch (RejectedExecutionException exc) {
-                                    logger.warn("Failed to submit runnable for serviceEvent in updateRecord (Add)", exc);
-                                }
+                                _eventDispatcher.serviceAdded(listener, localEvent);
                             }
                         }
                         break;
@@ -1362,19 +1471,7 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
                             if (listener.isSynchronous()) {
                                 listener.serviceRemoved(localEvent);
                             } else {
-                                try {
-                                    _executor.submit(new Runnable() {
-                                        /**
-                                         * {@inheritDoc}
-                                         */
-                                        @Override
-                                        public void run() {
-                                            listener.serviceRemoved(localEvent);
-                                        }
-                                    });
-                                } catch (RejectedExecutionException exc) {
-                                    logger.warn("Failed to submit runnable for serviceEvent in updateRecord (Remove)", exc);
-                                }
+                                _eventDispatcher.serviceRemoved(listener, localEvent);
                             }
                         }
                         break;
@@ -1505,13 +1602,59 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
         return (dnsRecord.getCreated() < (timeToCompare - DNSConstants.FLUSH_RECORD_OLDER_THAN_1_SECOND*1000));
     }
 
+    /**
+     * Parse and dispatch one received datagram. Called by the {@link SocketListener} and by {@link PacketReplay}, on their own thread.
+     *
+     * @param packet
+     *            datagram as returned by the transport
+     * @exception IOException
+     *                if the datagram is not a valid DNS message
+     */
+    void handlePacket(DatagramPacket packet) throws IOException {
+        if (this.getLocalHost().shouldIgnorePacket(packet)) {
+            return;
+        }
+        final EchoFilter echoFilter = this.getEchoFilter();
+        if ((echoFilter != null) && this.getLocalHost().isOwnAddress(packet.getAddress()) && echoFilter.isRedundantEcho(packet, DNSClock.Factory.getClock().currentTimeMillis())) {
+            return;
+        }
+
+        final ReceiveStatistics statistics = this.getReceiveStatistics();
+        long start = System.nanoTime();
+        DNSIncoming msg = new DNSIncoming(packet);
+        statistics.parsed(System.nanoTime() - start);
+        if (msg.isValidResponseCode()) {
+            start = System.nanoTime();
+            if (logger.isTraceEnabled()) {
+                logger.trace("{}.handlePacket() JmDNS in:{}", this.getName(), msg.print(true));
+            }
+            if (msg.isQuery()) {
+                // The continuations of a truncated query come from the same sender, whoever the answer goes to
+                final InetSocketAddress sender = new InetSocketAddress(packet.getAddress(), packet.getPort());
+                // When we have a QUERY, unique means that QU is true, and we should respond to the sender directly
+                if (msg.getQuestions().stream().anyMatch(DNSEntry::isUnique)) {
+                    this.handleQuery(msg, sender, packet.getAddress(), packet.getPort());
+                } else {
+                    this.handleQuery(msg, sender, this.getGroup(), DNSConstants.MDNS_PORT);
+                }
+            } else {
+                this.handleResponse(msg);
+            }
+            statistics.handled(System.nanoTime() - start);
+        } else {
+            if (logger.isDebugEnabled()) {
+                logger.debug("{}.handlePacket() JmDNS in message with error code: {}", this.getName(), msg.print(true));
+            }
+        }
+    }
+
     /**
      * Handle an incoming response. Cache answers, and pass them on to the appropriate questions.
      *
      * @exception IOException
      */
     void handleResponse(DNSIncoming msg) throws IOException {
-        final long now = System.currentTimeMillis();
+        final long now = DNSClock.Factory.getClock().currentTimeMillis();
 
         boolean hostConflictDetected = false;
         boolean serviceConflictDetected = false;
@@ -1580,15 +1723,20 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
      * Handle an incoming query. See if we can answer any part of it given our service infos.
      *
      * @param in
+     *            query
+     * @param sender
+     *            address and port the query came from, the continuations of a truncated query are added to the query of the same sender
      * @param addr
+     *            address to answer to
      * @param port
+     *            port to answer to
      * @exception IOException
      */
-    void handleQuery(DNSIncoming in, InetAddress addr, int port) throws IOException {
+    void handleQuery(DNSIncoming in, InetSocketAddress sender, InetAddress addr, int port) throws IOException {
         logger.debug("{} handle query: {}", this.getName(), in);
         // Track known answers
         boolean conflictDetected = false;
-        final long expirationTime = System.currentTimeMillis() + DNSConstants.KNOWN_ANSWER_TTL;
+        final long expirationTime = DNSClock.Factory.getClock().currentTimeMillis() + DNSConstants.KNOWN_ANSWER_TTL;
         for (DNSRecord answer : in.getAllAnswers()) {
             conflictDetected |= answer.handleQuery(this, expirationTime);
         }
@@ -1596,12 +1744,14 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
         this.ioLock();
         try {
 
-            if (_plannedAnswer != null) {
-                _plannedAnswer.append(in);
+            this.expirePlannedAnswers();
+            DNSIncoming plannedAnswer = _plannedAnswers.get(sender);
+            if (plannedAnswer != null) {
+                plannedAnswer.append(in);
             } else {
-                DNSIncoming plannedAnswer = in.clone();
+                plannedAnswer = in.clone();
                 if (in.isTruncated()) {
-                    _plannedAnswer = plannedAnswer;
+                    _plannedAnswers.put(sender, plannedAnswer);
                 }
                 this.startResponder(plannedAnswer, addr, port);
             }
@@ -1610,7 +1760,7 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
             this.ioUnlock();
         }
 
-        final long now = System.currentTimeMillis();
+        final long now = DNSClock.Factory.getClock().currentTimeMillis();
         for (DNSRecord answer : in.getAnswers()) {
             this.handleRecord(answer, now);
         }
@@ -1623,14 +1773,21 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
     public void respondToQuery(DNSIncoming in) {
         this.ioLock();
         try {
-            if (_plannedAnswer == in) {
-                _plannedAnswer = null;
-            }
+            _plannedAnswers.values().remove(in);
         } finally {
             this.ioUnlock();
         }
     }
 
+    /**
+     * Drops the truncated queries whose continuation did not come in time, the responder answers with what was received. Must be called with the io lock held.
+     */
+    private void expirePlannedAnswers() {
+        if (!_plannedAnswers.isEmpty()) {
+            _plannedAnswers.values().removeIf(plannedAnswer -> plannedAnswer.elapseSinceArrival() > DNSConstants.TRUNCATED_QUERY_TIMEOUT);
+        }
+    }
+
     /**
      * Add an answer to a question. Deal with the case when the outgoing packet overflows
      *
@@ -1692,9 +1849,18 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
                     logger.debug("{}.send({}) - JmDNS can not parse what it sends!!!", getClass(), this.getName(), e);
                 }
             }
-            final MulticastSocket ms = _socket;
-            if (ms != null && !ms.isClosed()) {
-                ms.send(packet);
+            final DNSTransport transport = _transport;
+            if (transport != null && !transport.isClosed()) {
+                final EchoFilter echoFilter = _echoFilter;
+                if ((echoFilter != null) && addr.equals(_group)) {
+                    // Before sending, the echo may come back before send returns
+                    echoFilter.sent(message, message.length, DNSClock.Factory.getClock().currentTimeMillis());
+                }
+                transport.send(packet);
+                final PacketCapture capture = _packetCapture;
+                if (capture != null) {
+                    capture.capture(packet, true, _localHost);
+                }
             }
         }
     }
@@ -1780,6 +1946,15 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
         DNSTaskStarter.Factory.getInstance().getStarter(this.getDns()).startReaper();
     }
 
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.impl.DNSTaskStarter#startRecoverer()
+     */
+    @Override
+    public void startRecoverer() {
+        DNSTaskStarter.Factory.getInstance().getStarter(this.getDns()).startRecoverer();
+    }
+
     /*
      * (non-Javadoc)
      * @see javax.jmdns.impl.DNSTaskStarter#startServiceInfoResolver(javax.jmdns.impl.ServiceInfoImpl)
@@ -1818,8 +1993,21 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
 
     private final Object _recoverLock = new Object();
 
+    /**
+     * Set while a {@link javax.jmdns.impl.tasks.Recoverer} reopens the transport, the errors of the closed transport are expected.
+     */
+    private final AtomicBoolean _reopening = new AtomicBoolean();
+
+    /**
+     * Set when the addresses changed while the transport was being reopened, the transport has to be reopened once more on the new addresses.
+     */
+    private final AtomicBoolean _reopenPending = new AtomicBoolean();
+
     /**
      * Recover jmDNS when there is an error.
+     * <p>
+     * Once announced, the transport is only reopened and the registrations announced again, keeping the cache. Otherwise, or when <code>net.mdns.recover.full</code> is set, everything is unregistered and registered again.
+     * </p>
      */
     public void recover() {
         logger.debug("{}.recover()", this.getName());
@@ -1829,6 +2017,99 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
             return;
         }
 
+        if (!DNSConstants.RECOVER_FULL && this.isAnnounced()) {
+            if (_reopening.compareAndSet(false, true)) {
+                this.startRecoverer();
+            }
+            return;
+        }
+        this.recoverFully();
+    }
+
+    /**
+     * Moves this instance to other addresses of the same interface, keeping the cache and the registrations. The transport is reopened on the new addresses and the records announced again, their cache-flush bit replaces the
+     * previous addresses in the caches of the neighbours.
+     *
+     * @param address
+     *            new address
+     * @param alternateAddress
+     *            new address of the other family, <code>null</code> to serve the family of <code>address</code> only
+     */
+    public void rebind(InetAddress address, InetAddress alternateAddress) {
+        if (this.isClosing() || this.isClosed() || this.isCanceling() || this.isCanceled()) {
+            return;
+        }
+        final HostInfo localHost = this.getLocalHost();
+        final InetAddress previous4 = localHost.getInet4Address();
+        final InetAddress previous6 = localHost.getInet6Address();
+        logger.debug("{}.rebind() from {} to {}", this.getName(), localHost.getInetAddress(), address);
+        localHost.rebind(address, alternateAddress);
+        for (ServiceInfo serviceInfo : _services.values()) {
+            final ServiceInfoImpl info = (ServiceInfoImpl) serviceInfo;
+            info.replaceAddress(previous4, localHost.getInet4Address());
+            info.replaceAddress(previous6, localHost.getInet6Address());
+        }
+        _reopenPending.set(true);
+        if (_reopening.compareAndSet(false, true)) {
+            this.startRecoverer();
+        }
+    }
+
+    /**
+     * Reopens the transport, keeping the registrations and the cache. Called by the {@link javax.jmdns.impl.tasks.Recoverer}, falls back to the full recovery if the transport cannot be reopened.
+     *
+     * @return <code>true</code> if the transport was reopened
+     */
+    public boolean reopen() {
+        // A rebind from now on may come after the transport is opened, it asks for another reopen
+        _reopenPending.set(false);
+        try {
+            if (this.isClosing() || this.isClosed() || this.isCanceling() || this.isCanceled()) {
+                return false;
+            }
+            logger.warn("{}.reopen() Reopening the transport", this.getName());
+            // The new transport is opened before being published, the messages sent in between go through the previous one
+            final DNSTransport previous = _transport;
+            final DNSTransport transport = this.newTransport(this.getLocalHost());
+            _transport = transport;
+            _incomingListener = new SocketListener(this, transport);
+            _incomingListener.start();
+            if (previous != null) {
+                // Its listener sees it was replaced and exits without recovering
+                previous.close();
+            }
+
+            // The records due for a refresh missed it while we were away, they have to be confirmed before being trusted again
+            final long now = DNSClock.Factory.getClock().currentTimeMillis();
+            for (DNSEntry entry : this.getCache().allValues()) {
+                final DNSRecord record = (DNSRecord) entry;
+                if (record.isStaleAndShouldBeRefreshed(now)) {
+                    record.unverify();
+                }
+            }
+            final EchoFilter echoFilter = _echoFilter;
+            if (echoFilter != null) {
+                echoFilter.clear();
+            }
+            logger.warn("{}.reopen() We are back!", this.getName());
+            return true;
+        } catch (final Exception exception) {
+            logger.warn("{}.reopen() Could not reopen the transport, recovering fully", this.getName(), exception);
+            this.recoverFully();
+            return false;
+        } finally {
+            _reopening.set(false);
+            if (_reopenPending.get() && _reopening.compareAndSet(false, true)) {
+                // Rebound while we were reopening
+                this.startRecoverer();
+            }
+        }
+    }
+
+    /**
+     * Unregisters everything, clears the cache and registers everything again, on a thread of its own.
+     */
+    private void recoverFully() {
         // We need some definite lock here as we may have multiple timer running in the same thread that will not be stopped by the reentrant lock
         // in the state object. This is only a problem in this case as we are going to execute in seperate thread so that the timer can clear.
         synchronized (_recoverLock) {
@@ -1878,6 +2159,11 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
 
         //
         this.getCache().clear();
+        final EchoFilter echoFilter = _echoFilter;
+        if (echoFilter != null) {
+            // Our records have to be cached again from the echoes
+            echoFilter.clear();
+        }
         logger.debug("{}.recover() All is clean", this.getName());
 
         if (this.isCanceled()) {
@@ -1920,7 +2206,7 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
     public void cleanCache() {
         this.getCache().logCachedContent();
 
-        final long now = System.currentTimeMillis();
+        final long now = DNSClock.Factory.getClock().currentTimeMillis();
         final Set<String> staleServiceTypesForRefresh = new HashSet<>();
         for (final DNSEntry entry : this.getCache().allValues()) {
             try {
@@ -1943,6 +2229,19 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
                 logger.warn(this.toString());
             }
         }
+
+        final CacheSnapshot snapshot = _cacheSnapshot;
+        if ((snapshot != null) && snapshot.isDue(now)) {
+            this.writeCacheSnapshot(snapshot);
+        }
+    }
+
+    private void writeCacheSnapshot(CacheSnapshot snapshot) {
+        try {
+            snapshot.write(this);
+        } catch (IOException exception) {
+            logger.warn("{}.Error while writing the cache snapshot: {}", this.getName(), snapshot, exception);
+        }
     }
 
     /**
@@ -1961,6 +2260,12 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
         if (this.cancelState()) {
             // We got the tie-break now clean up
 
+            // Save the cache while it still holds what we learned
+            final CacheSnapshot snapshot = _cacheSnapshot;
+            if (snapshot != null) {
+                this.writeCacheSnapshot(snapshot);
+            }
+
             // Stop the timer
             logger.debug("Canceling the timer");
             this.cancelTimer();
@@ -1968,6 +2273,9 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
             // Cancel all services
             this.unregisterAllServices();
             this.disposeServiceCollectors();
+            for (BrowsePublisher.BrowseSubscription subscription : _browseSubscriptions) {
+                subscription.complete();
+            }
 
             logger.debug("Wait for JmDNS cancel: {}", this);
 
@@ -2065,6 +2373,14 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
      */
     @Override
     public ServiceInfo[] list(String type, long timeout) {
+        return this.list(type, timeout, DNSConstants.LIST_SETTLE_TIME);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ServiceInfo[] list(String type, long timeout, long settle) {
         this.cleanCache();
         // Implementation note: The first time a list for a given type is
         // requested, a ServiceCollector is created which collects service
@@ -2092,7 +2408,7 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
         logger.debug("{}-collector: {}", this.getName(), collector);
 
         // At this stage the collector should never be null, but it keeps findbugs happy.
-        return (collector != null ? collector.list(timeout) : new ServiceInfo[0]);
+        return (collector != null ? collector.list(timeout, settle) : new ServiceInfo[0]);
     }
 
     /**
@@ -2167,16 +2483,16 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
         private final String _type;
 
         /**
-         * This is used to force a wait on the first invocation of list.
+         * Time of the last change to the collected services, as measured by the JmDNS clock. Guarded by the collector.
          */
-        private volatile boolean _needToWaitForInfos;
+        private long _lastChange;
 
         public ServiceCollector(String type) {
             super();
             _infos = new ConcurrentHashMap<>();
             _events = new ConcurrentHashMap<>();
             _type = type;
-            _needToWaitForInfos = true;
+            _lastChange = DNSClock.Factory.getClock().currentTimeMillis();
         }
 
         /**
@@ -2189,17 +2505,18 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
         public void serviceAdded(ServiceEvent event) {
             synchronized (this) {
                 ServiceInfo info = event.getInfo();
-                if ((info != null) && (info.hasData())) {
-                    _infos.put(event.getName(), info);
-                } else {
+                if ((info == null) || !info.hasData()) {
                     String subtype = (info != null ? info.getSubtype() : "");
                     info = ((JmDNSImpl) event.getDNS()).resolveServiceInfo(event.getType(), event.getName(), subtype, true);
-                    if (info != null) {
-                        _infos.put(event.getName(), info);
-                    } else {
-                        _events.put(event.getName(), event);
-                    }
                 }
+                if (info != null) {
+                    _infos.put(event.getName(), info);
+                }
+                if ((info == null) || !info.hasData()) {
+                    // The resolution signals the collector when it completes
+                    _events.put(event.getName(), event);
+                }
+                this.changed();
             }
         }
 
@@ -2214,6 +2531,7 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
             synchronized (this) {
                 _infos.remove(event.getName());
                 _events.remove(event.getName());
+                this.changed();
             }
         }
 
@@ -2228,34 +2546,60 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
             synchronized (this) {
                 _infos.put(event.getName(), event.getInfo());
                 _events.remove(event.getName());
+                this.changed();
             }
         }
 
+        private void changed() {
+            _lastChange = DNSClock.Factory.getClock().currentTimeMillis();
+            this.notifyAll();
+        }
+
         /**
-         * Returns an array of all service infos which have been collected by this ServiceCollector.
+         * Returns an array of all service infos which have been collected by this ServiceCollector, waiting for the default settle time.
          *
          * @param timeout
-         *            timeout if the info list is empty.
+         *            maximum time to wait for the collection to be complete
          * @return Service Info array
+         * @see #list(long, long)
          */
         public ServiceInfo[] list(long timeout) {
-            if (_infos.isEmpty() || !_events.isEmpty() || _needToWaitForInfos) {
-                long loops = (timeout / 200L);
-                if (loops < 1) {
-                    loops = 1;
-                }
-                for (int i = 0; i < loops; i++) {
-                    try {
-                        Thread.sleep(200);
-                    } catch (final InterruptedException e) {
-                        /* Stub */
-                    }
-                    if (_events.isEmpty() && !_infos.isEmpty() && !_needToWaitForInfos) {
-                        break;
+            return this.list(timeout, DNSConstants.LIST_SETTLE_TIME);
+        }
+
+        /**
+         * Returns an array of all service infos which have been collected by this ServiceCollector.
+         * <p>
+         * The call returns as soon as services have been collected, none of them is waiting for its resolution and the collection did not change for the settle time. A warm collector therefore answers immediately, a new one
+         * waits for the answers to its first queries to stop coming in.
+         * </p>
+         *
+         * @param timeout
+         *            maximum time to wait for the collection to be complete
+         * @param settle
+         *            time without changes after which the collection is considered complete, 0 to return as soon as the services found are resolved
+         * @return Service Info array
+         */
+        public synchronized ServiceInfo[] list(long timeout, long settle) {
+            final DNSClock clock = DNSClock.Factory.getClock();
+            long now = clock.currentTimeMillis();
+            final long deadline = now + timeout;
+            try {
+                while (now < deadline) {
+                    long wait = deadline - now;
+                    if (!_infos.isEmpty() && _events.isEmpty()) {
+                        final long quiet = now - _lastChange;
+                        if (quiet >= settle) {
+                            break;
+                        }
+                        wait = Math.min(wait, settle - quiet);
                     }
+                    clock.waitOn(this, wait);
+                    now = clock.currentTimeMillis();
                 }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-            _needToWaitForInfos = false;
             return _infos.values().toArray(new ServiceInfo[0]);
         }
 
@@ -2335,12 +2679,22 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
         _ioLock.unlock();
     }
 
-    public void setPlannedAnswer(DNSIncoming plannedAnswer) {
-        this._plannedAnswer = plannedAnswer;
-    }
-
-    public DNSIncoming getPlannedAnswer() {
-        return _plannedAnswer;
+    /**
+     * Returns the truncated query of a sender still waiting for its continuation.
+     *
+     * @param addr
+     *            sender address
+     * @param port
+     *            sender port
+     * @return the query being reassembled, or <code>null</code> if none
+     */
+    public DNSIncoming getPlannedAnswer(InetAddress addr, int port) {
+        this.ioLock();
+        try {
+            return _plannedAnswers.get(new InetSocketAddress(addr, port));
+        } finally {
+            this.ioUnlock();
+        }
     }
 
     void setLocalHost(HostInfo localHost) {
@@ -2351,8 +2705,173 @@ public class JmDNSImpl extends JmDNS implements DNSStatefulObject, DNSTaskStarte
         return _serviceTypes;
     }
 
+    /**
+     * Returns the multicast socket if this instance uses the default socket transport.
+     *
+     * @return multicast socket or <code>null</code> if another transport is in use
+     */
     public MulticastSocket getSocket() {
-        return _socket;
+        final DNSTransport transport = _transport;
+        return (transport instanceof DNSTransport.MulticastSocketTransport ? ((DNSTransport.MulticastSocketTransport) transport).getSocket() : null);
+    }
+
+    /**
+     * Returns the payload size of the multicast messages sent on the link.
+     *
+     * @return payload size in bytes
+     */
+    public int getMaxUDPPayload() {
+        return _maxUDPPayload;
+    }
+
+    /**
+     * Creates an outgoing multicast message sized for the link. Queries advertise the payload size with an OPT record when it is above the typical size, so that the responders can use it for their unicast answers.
+     *
+     * @param flags
+     *            message flags
+     * @return outgoing message
+     */
+    public DNSOutgoing newOutgoing(int flags) {
+        final int payload = _maxUDPPayload;
+        final DNSOutgoing out = new DNSOutgoing(flags, true, payload);
+        if (out.isQuery() && (payload > DNSConstants.MAX_MSG_TYPICAL)) {
+            out.setAdvertisedUDPPayload(payload);
+        }
+        return out;
+    }
+
+    /**
+     * Returns the transport used to send and receive messages.
+     *
+     * @return transport
+     */
+    public DNSTransport getTransport() {
+        return _transport;
+    }
+
+    /**
+     * Returns the capture recording the datagrams sent and received, if any.
+     *
+     * @return packet capture or <code>null</code>
+     */
+    public PacketCapture getPacketCapture() {
+        return _packetCapture;
+    }
+
+    /**
+     * Starts or stops recording the datagrams sent and received. The capture is not closed by JmDNS, the caller owns it.
+     *
+     * @param packetCapture
+     *            packet capture, <code>null</code> to stop recording
+     */
+    public void setPacketCapture(PacketCapture packetCapture) {
+        _packetCapture = packetCapture;
+    }
+
+    /**
+     * Returns the admission control of incoming datagrams, if any.
+     *
+     * @return ingress limiter or <code>null</code>
+     */
+    public IngressLimiter getIngressLimiter() {
+        return _ingressLimiter;
+    }
+
+    /**
+     * Sets the admission control of incoming datagrams. While a limiter is installed the listener thread no longer sleeps before each receive.
+     *
+     * @param ingressLimiter
+     *            ingress limiter, <code>null</code> to admit every datagram
+     */
+    public void setIngressLimiter(IngressLimiter ingressLimiter) {
+        _ingressLimiter = ingressLimiter;
+    }
+
+    /**
+     * Returns the recognition of the echoes of our own multicast datagrams, if any.
+     *
+     * @return echo filter or <code>null</code>
+     */
+    public EchoFilter getEchoFilter() {
+        return _echoFilter;
+    }
+
+    /**
+     * Sets the recognition of the echoes of our own multicast datagrams.
+     *
+     * @param echoFilter
+     *            echo filter, <code>null</code> to handle every echo
+     */
+    public void setEchoFilter(EchoFilter echoFilter) {
+        _echoFilter = echoFilter;
+    }
+
+    /**
+     * Returns the maximum number of renewal packets sent per second, <code>net.mdns.renewal.rate</code> unless changed.
+     *
+     * @return packets per second
+     */
+    public int getRenewalRate() {
+        return _renewalRate;
+    }
+
+    /**
+     * Sets the maximum number of renewal packets sent per second by this instance.
+     *
+     * @param renewalRate
+     *            packets per second
+     */
+    public void setRenewalRate(int renewalRate) {
+        _renewalRate = Math.max(1, renewalRate);
+    }
+
+    /**
+     * Returns the time spent parsing and handling the received datagrams, and the number of datagrams the kernel dropped before they could be read.
+     *
+     * @return receive statistics
+     */
+    public ReceiveStatistics getReceiveStatistics() {
+        return _receiveStatistics;
+    }
+
+    /**
+     * Returns the warm-start snapshot of the cache, if any.
+     *
+     * @return cache snapshot or <code>null</code>
+     */
+    public CacheSnapshot getCacheSnapshot() {
+        return _cacheSnapshot;
+    }
+
+    /**
+     * Sets the warm-start snapshot of the cache. The unexpired records of the snapshot are restored immediately, then the cache is written back on close and periodically.
+     *
+     * @param cacheSnapshot
+     *            cache snapshot, <code>null</code> to stop saving the cache
+     */
+    public void setCacheSnapshot(CacheSnapshot cacheSnapshot) {
+        if (cacheSnapshot != null) {
+            cacheSnapshot.restore(this);
+        }
+        _cacheSnapshot = cacheSnapshot;
+    }
+
+    /**
+     * Returns the executor running the asynchronous listeners, for the work they hand off.
+     *
+     * @return executor
+     */
+    Executor getExecutor() {
+        return _executor;
+    }
+
+    /**
+     * Returns the dispatcher delivering the service events to the asynchronous listeners, to change its bounds or read its queue metrics.
+     *
+     * @return event dispatcher
+     */
+    public EventDispatcher getEventDispatcher() {
+        return _eventDispatcher;
     }
 
     public InetAddress getGroup() {
@@ -14,6 +14,7 @@
 package javax.jmdns.impl;
 
 import java.io.IOException;
+import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -21,31 +22,41 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.jmdns.BrowseEvent;
 import javax.jmdns.JmDNS;
 import javax.jmdns.JmmDNS;
 import javax.jmdns.NetworkTopologyDiscovery;
 import javax.jmdns.NetworkTopologyEvent;
 import javax.jmdns.NetworkTopologyListener;
+import javax.jmdns.ServiceFlow;
 import javax.jmdns.ServiceInfo;
 import javax.jmdns.ServiceListener;
 import javax.jmdns.ServiceTypeListener;
@@ -54,10 +65,14 @@ import javax.jmdns.impl.util.NamedThreadFactory;
 
 /**
  * This class enable multihoming mDNS. It will open a mDNS per IP address of the machine.
+ * <p>
+ * The lookups made on every mDNS, such as {@link #list(String, long)} or {@link #getServiceInfos(String, String, long)}, run on at most {@link DNSConstants#JMMDNS_LOOKUP_THREADS} threads. The lookups over that limit run on
+ * the calling thread, including the one of {@link #listAsync(String, long)}, rather than waiting for a thread past their timeout.
+ * </p>
  *
  * @author C&eacute;drik Lime, Pierre Frisch
  */
-public class JmmDNSImpl implements JmmDNS, NetworkTopologyListener, ServiceInfoImpl.Delegate {
+public class JmmDNSImpl implements JmmDNS, NetworkTopologyRebindListener, ServiceInfoImpl.Delegate {
     private final Logger                                       logger = LoggerFactory.getLogger(JmmDNSImpl.class);
 
     private final Set<NetworkTopologyListener>                 _networkListeners;
@@ -78,21 +93,37 @@ public class JmmDNSImpl implements JmmDNS, NetworkTopologyListener, ServiceInfoI
     private final Set<String>                                  _serviceTypes;
 
     /**
-     * Holds instances of ServiceListener's. Keys are Strings holding a fully qualified service type. Values are LinkedList's of ServiceListener's.
+     * Holds the merged views dispatching the service events to the ServiceListener's. Keys are Strings holding a lower case fully qualified service type.
      */
-    private final ConcurrentMap<String, List<ServiceListener>> _serviceListeners;
+    private final ConcurrentMap<String, MergedServiceView>     _serviceViews;
 
     /**
      * Holds instances of ServiceTypeListener's.
      */
     private final Set<ServiceTypeListener>                     _typeListeners;
 
+    /**
+     * Active browse subscriptions, completed on close.
+     */
+    private final Set<BrowsePublisher.BrowseSubscription>      _browseSubscriptions;
+
     private final ExecutorService                              _listenerExecutor;
 
+    /**
+     * Shared by the calls fanned out to every JmDNS, bounded and idle threads expire.
+     */
     private final ExecutorService                              _jmDNSExecutor;
 
+    /**
+     * Runs the blocking lookups fanned out to every JmDNS. It never queues: a lookup finding all of its {@link DNSConstants#JMMDNS_LOOKUP_THREADS} threads busy runs on the calling thread, so it cannot wait for a thread past its
+     * timeout.
+     */
+    private final ExecutorService                              _lookupExecutor;
+
     private final Timer                                        _timer;
 
+    private final NetworkChecker                               _networkChecker;
+
     private final AtomicBoolean                                _isClosing;
 
     private final AtomicBoolean                                _closed;
@@ -101,19 +132,36 @@ public class JmmDNSImpl implements JmmDNS, NetworkTopologyListener, ServiceInfoI
      *
      */
     public JmmDNSImpl() {
+        this(NetworkTopologyDiscovery.Factory.getInstance());
+    }
+
+    /**
+     * @param topology
+     *            discovery of the addresses to serve
+     */
+    JmmDNSImpl(NetworkTopologyDiscovery topology) {
         super();
         _networkListeners = Collections.synchronizedSet(new HashSet<>());
         _knownMDNS = new ConcurrentHashMap<>();
         _services = new ConcurrentHashMap<>(20);
         _listenerExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("JmmDNS Listeners"));
-        _jmDNSExecutor = Executors.newCachedThreadPool(new NamedThreadFactory("JmmDNS"));
-        _timer = new Timer("Multihomed mDNS.Timer", true);
-        _serviceListeners = new ConcurrentHashMap<>();
+        final ThreadPoolExecutor jmDNSExecutor = new ThreadPoolExecutor(DNSConstants.JMMDNS_THREADS, DNSConstants.JMMDNS_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new NamedThreadFactory("JmmDNS"));
+        jmDNSExecutor.allowCoreThreadTimeOut(true);
+        _jmDNSExecutor = jmDNSExecutor;
+        _lookupExecutor = new ThreadPoolExecutor(0, DNSConstants.JMMDNS_LOOKUP_THREADS, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), new NamedThreadFactory("JmmDNS Lookup"));
+        _timer = DNSClock.Factory.getClock().newTimer("Multihomed mDNS.Timer", true);
+        _serviceViews = new ConcurrentHashMap<>();
         _typeListeners = Collections.synchronizedSet(new HashSet<>());
+        _browseSubscriptions = new CopyOnWriteArraySet<>();
         _serviceTypes = Collections.synchronizedSet(new HashSet<>());
-        (new NetworkChecker(this, NetworkTopologyDiscovery.Factory.getInstance())).start(_timer);
         _isClosing = new AtomicBoolean(false);
         _closed = new AtomicBoolean(false);
+        _networkChecker = new NetworkChecker(this, topology);
+        _networkChecker.start(_timer);
+    }
+
+    NetworkChecker getNetworkChecker() {
+        return _networkChecker;
     }
 
     private void submitIfNotShuttingDown(ExecutorService executor, Runnable runnable) {
@@ -132,37 +180,32 @@ public class JmmDNSImpl implements JmmDNS, NetworkTopologyListener, ServiceInfoI
         if (_isClosing.compareAndSet(false, true)) {
             logger.debug("Cancelling JmmDNS: {}", this);
             _timer.cancel();
+            for (BrowsePublisher.BrowseSubscription subscription : _browseSubscriptions) {
+                subscription.complete();
+            }
             _listenerExecutor.shutdown();
-            _jmDNSExecutor.shutdown();
             // We need to cancel all the DNS
-            ExecutorService executor = Executors.newCachedThreadPool(new NamedThreadFactory("JmmDNS.close"));
-            try {
-                for (final JmDNS mDNS : this.getDNS()) {
-                    executor.submit(new Runnable() {
-                        /**
-                         * {@inheritDoc}
-                         */
-                        @Override
-                        public void run() {
-                            try {
-                                mDNS.close();
-                            } catch (IOException exception) {
-                                // JmDNS never throws this is only because of the closeable interface
-                            }
-                        }
-                    });
+            final List<CompletableFuture<ServiceInfo[]>> closing = this.fanOut(mDNS -> {
+                try {
+                    mDNS.close();
+                } catch (IOException exception) {
+                    // JmDNS never throws this is only because of the closeable interface
                 }
-            } finally {
-                executor.shutdown();
-            }
+                return null;
+            });
+            _jmDNSExecutor.shutdown();
+            _lookupExecutor.shutdown();
             try {
-                executor.awaitTermination(DNSConstants.CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
+                CompletableFuture.allOf(closing.toArray(new CompletableFuture<?>[closing.size()])).get(DNSConstants.CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
             } catch (InterruptedException exception) {
                 logger.warn("Exception ", exception);
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException exception) {
+                logger.warn("Exception ", exception);
             }
             _knownMDNS.clear();
             _services.clear();
-            _serviceListeners.clear();
+            _serviceViews.clear();
             _typeListeners.clear();
             _serviceTypes.clear();
             _closed.set(true);
@@ -268,46 +311,20 @@ public class JmmDNSImpl implements JmmDNS, NetworkTopologyListener, ServiceInfoI
     @Override
     public ServiceInfo[] getServiceInfos(final String type, final String name, final boolean persistent, final long timeout) {
         // We need to run this in parallel to respect the timeout.
-        final JmDNS[] dnsArray = this.getDNS();
-        final Set<ServiceInfo> result = new HashSet<>(dnsArray.length);
-        if (dnsArray.length > 0) {
-            List<Callable<ServiceInfo>> tasks = new ArrayList<>(dnsArray.length);
-            for (final JmDNS mDNS : dnsArray) {
-                tasks.add(() -> mDNS.getServiceInfo(type, name, persistent, timeout));
-            }
+        return this.await(this.lookup((mDNS, remaining) -> this.toArray(mDNS.getServiceInfo(type, name, persistent, remaining)), timeout), timeout);
+    }
 
-            ExecutorService executor = Executors.newFixedThreadPool(tasks.size(), new NamedThreadFactory("JmmDNS.getServiceInfos"));
-            try {
-                List<Future<ServiceInfo>> results = Collections.emptyList();
-                try {
-                    results = executor.invokeAll(tasks, timeout + 100, TimeUnit.MILLISECONDS);
-                } catch (InterruptedException exception) {
-                    logger.debug("Interrupted ", exception);
-                    Thread.currentThread().interrupt();
-                    // Will terminate next loop early.
-                }
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.JmmDNS#getServiceInfosAsync(java.lang.String, java.lang.String, boolean, long)
+     */
+    @Override
+    public CompletableFuture<ServiceInfo[]> getServiceInfosAsync(final String type, final String name, final boolean persistent, final long timeout) {
+        return this.merge(this.lookup((mDNS, remaining) -> this.toArray(mDNS.getServiceInfo(type, name, persistent, remaining)), timeout));
+    }
 
-                for (Future<ServiceInfo> future : results) {
-                    if (future.isCancelled()) {
-                        continue;
-                    }
-                    try {
-                        ServiceInfo info = future.get();
-                        if (info != null) {
-                            result.add(info);
-                        }
-                    } catch (InterruptedException exception) {
-                        logger.debug("Interrupted ", exception);
-                        Thread.currentThread().interrupt();
-                    } catch (ExecutionException exception) {
-                        logger.warn("Exception ", exception);
-                    }
-                }
-            } finally {
-                executor.shutdown();
-            }
-        }
-        return result.toArray(new ServiceInfo[0]);
+    private ServiceInfo[] toArray(ServiceInfo info) {
+        return (info != null ? new ServiceInfo[] { info } : new ServiceInfo[0]);
     }
 
     /*
@@ -382,21 +399,19 @@ public class JmmDNSImpl implements JmmDNS, NetworkTopologyListener, ServiceInfoI
     @Override
     public void addServiceListener(String type, ServiceListener listener) {
         final String loType = type.toLowerCase();
-        List<ServiceListener> list = _serviceListeners.get(loType);
-        if (list == null) {
-            _serviceListeners.putIfAbsent(loType, new LinkedList<>());
-            list = _serviceListeners.get(loType);
-        }
-        if (list != null) {
-            synchronized (list) {
-                if (!list.contains(listener)) {
-                    list.add(listener);
+        synchronized (_serviceViews) {
+            MergedServiceView view = _serviceViews.get(loType);
+            if (view == null) {
+                view = new MergedServiceView(type, _listenerExecutor);
+                _serviceViews.put(loType, view);
+            }
+            if (view.addListener(listener)) {
+                // The view listens on every interface and merges what they see
+                for (JmDNS mDNS : this.getDNS()) {
+                    mDNS.addServiceListener(type, view);
                 }
             }
         }
-        for (JmDNS mDNS : this.getDNS()) {
-            mDNS.addServiceListener(type, listener);
-        }
     }
 
     /*
@@ -405,19 +420,37 @@ public class JmmDNSImpl implements JmmDNS, NetworkTopologyListener, ServiceInfoI
      */
     @Override
     public void removeServiceListener(String type, ServiceListener listener) {
-        String loType = type.toLowerCase();
-        List<ServiceListener> list = _serviceListeners.get(loType);
-        if (list != null) {
-            synchronized (list) {
-                list.remove(listener);
-                if (list.isEmpty()) {
-                    _serviceListeners.remove(loType, list);
+        final String loType = type.toLowerCase();
+        synchronized (_serviceViews) {
+            final MergedServiceView view = _serviceViews.get(loType);
+            if ((view != null) && view.removeListener(listener)) {
+                _serviceViews.remove(loType);
+                for (JmDNS mDNS : this.getDNS()) {
+                    mDNS.removeServiceListener(type, view);
                 }
             }
         }
-        for (JmDNS mDNS : this.getDNS()) {
-            mDNS.removeServiceListener(type, listener);
-        }
+    }
+
+    /**
+     * Returns the merged view of the services of a type, each service instance appears once whatever the number of interfaces it is seen on.
+     *
+     * @param type
+     *            fully qualified service type
+     * @return view of the services, <code>null</code> if no listener is registered for the type
+     */
+    public MergedServiceView getServiceView(String type) {
+        return _serviceViews.get(type.toLowerCase());
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.JmmDNS#browse(java.lang.String)
+     */
+    @Override
+    public ServiceFlow.Publisher<BrowseEvent> browse(String type) {
+        // Listening through JmmDNS merges the interfaces, including those appearing later
+        return new BrowsePublisher(type, this::addServiceListener, this::removeServiceListener, _browseSubscriptions);
     }
 
     /*
@@ -446,14 +479,16 @@ public class JmmDNSImpl implements JmmDNS, NetworkTopologyListener, ServiceInfoI
      */
     @Override
     public void registerService(ServiceInfo info) throws IOException {
-        // We need to get the list out of the synchronized block to prevent deadlocks
-        final JmDNS[] dnsArray = this.getDNS();
         // This is really complex. We need to clone the service info for each DNS, but then we loose the ability to update it.
         synchronized (_services) {
-            for (JmDNS mDNS : dnsArray) {
+            // The instances are read without locking _knownMDNS to prevent deadlocks. A new instance is published under this lock with the services registered so far, it either is listed here or will get this one.
+            for (JmDNS mDNS : _knownMDNS.values()) {
                 mDNS.registerService(info.clone());
             }
-            ((ServiceInfoImpl) info).setDelegate(this);
+            if (info instanceof ServiceInfoImpl) {
+                // A snapshot never changes, there is nothing to forward
+                ((ServiceInfoImpl) info).setDelegate(this);
+            }
             _services.put(info.getQualifiedName(), info);
         }
     }
@@ -471,7 +506,9 @@ public class JmmDNSImpl implements JmmDNS, NetworkTopologyListener, ServiceInfoI
             for (JmDNS mDNS : dnsArray) {
                 mDNS.unregisterService(info);
             }
-            ((ServiceInfoImpl) info).setDelegate(null);
+            if (info instanceof ServiceInfoImpl) {
+                ((ServiceInfoImpl) info).setDelegate(null);
+            }
         }
     }
 
@@ -517,42 +554,118 @@ public class JmmDNSImpl implements JmmDNS, NetworkTopologyListener, ServiceInfoI
      * @see javax.jmdns.JmmDNS#list(java.lang.String, long)
      */
     @Override
-    public ServiceInfo[] list(final String type, final long timeout) {
-        final JmDNS[] dnsArray = this.getDNS();
+    public ServiceInfo[] list(String type, long timeout) {
+        return this.list(type, timeout, DNSConstants.LIST_SETTLE_TIME);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.JmmDNS#list(java.lang.String, long, long)
+     */
+    @Override
+    public ServiceInfo[] list(final String type, final long timeout, final long settle) {
         // We need to run this in parallel to respect the timeout.
-        final Set<ServiceInfo> result = new HashSet<>(dnsArray.length * 5);
-        if (dnsArray.length > 0) {
-            List<Callable<List<ServiceInfo>>> tasks = new ArrayList<>(dnsArray.length);
-            for (final JmDNS mDNS : dnsArray) {
-                tasks.add(() -> Arrays.asList(mDNS.list(type, timeout)));
+        return this.await(this.lookup((mDNS, remaining) -> mDNS.list(type, remaining, settle), timeout), timeout);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.JmmDNS#listAsync(java.lang.String, long)
+     */
+    @Override
+    public CompletableFuture<ServiceInfo[]> listAsync(final String type, final long timeout) {
+        return this.merge(this.lookup((mDNS, remaining) -> mDNS.list(type, remaining), timeout));
+    }
+
+    /**
+     * Runs the call for every JmDNS on the shared executor.
+     *
+     * @param call
+     *            call made on each JmDNS
+     * @return one future per JmDNS
+     */
+    private List<CompletableFuture<ServiceInfo[]>> fanOut(final Function<JmDNS, ServiceInfo[]> call) {
+        final JmDNS[] dnsArray = this.getDNS();
+        final List<CompletableFuture<ServiceInfo[]>> futures = new ArrayList<>(dnsArray.length);
+        for (final JmDNS mDNS : dnsArray) {
+            try {
+                futures.add(CompletableFuture.supplyAsync(() -> call.apply(mDNS), _jmDNSExecutor));
+            } catch (RejectedExecutionException e) {
+                // We are shutting down
             }
+        }
+        return futures;
+    }
 
-            ExecutorService executor = Executors.newFixedThreadPool(tasks.size(), new NamedThreadFactory("JmmDNS.list"));
+    /**
+     * Runs a blocking lookup for every JmDNS on the lookup executor. When all the lookup threads are busy the lookup runs on the calling thread instead of waiting for one, and every lookup is given what remains of the timeout
+     * when it starts, so the lookups of a call are over once its timeout has expired.
+     *
+     * @param call
+     *            lookup made on each JmDNS with the time it may take
+     * @param timeout
+     *            timeout of the whole call in milliseconds
+     * @return one future per JmDNS
+     */
+    private List<CompletableFuture<ServiceInfo[]>> lookup(final BiFunction<JmDNS, Long, ServiceInfo[]> call, final long timeout) {
+        final long deadline = System.currentTimeMillis() + timeout;
+        final JmDNS[] dnsArray = this.getDNS();
+        final List<CompletableFuture<ServiceInfo[]>> futures = new ArrayList<>(dnsArray.length);
+        final List<JmDNS> overflow = new ArrayList<>();
+        for (final JmDNS mDNS : dnsArray) {
             try {
-                List<Future<List<ServiceInfo>>> results = Collections.emptyList();
-                try {
-                    results = executor.invokeAll(tasks, timeout + 100, TimeUnit.MILLISECONDS);
-                } catch (InterruptedException exception) {
-                    logger.debug("Interrupted ", exception);
-                    Thread.currentThread().interrupt();
-                    // Will terminate next loop early.
+                futures.add(CompletableFuture.supplyAsync(() -> call.apply(mDNS, Math.max(0L, deadline - System.currentTimeMillis())), _lookupExecutor));
+            } catch (RejectedExecutionException e) {
+                if (!_lookupExecutor.isShutdown()) {
+                    overflow.add(mDNS);
                 }
+            }
+        }
+        if (!overflow.isEmpty()) {
+            logger.debug("All {} lookup threads are busy, running {} lookups on the calling thread", DNSConstants.JMMDNS_LOOKUP_THREADS, overflow.size());
+            for (final JmDNS mDNS : overflow) {
+                futures.add(CompletableFuture.supplyAsync(() -> call.apply(mDNS, Math.max(0L, deadline - System.currentTimeMillis())), Runnable::run));
+            }
+        }
+        return futures;
+    }
 
-                for (Future<List<ServiceInfo>> future : results) {
-                    if (future.isCancelled()) {
-                        continue;
-                    }
-                    try {
-                        result.addAll(future.get());
-                    } catch (InterruptedException exception) {
-                        logger.debug("Interrupted ", exception);
-                        Thread.currentThread().interrupt();
-                    } catch (ExecutionException exception) {
-                        logger.warn("Exception ", exception);
-                    }
-                }
-            } finally {
-                executor.shutdown();
+    /**
+     * Waits for the futures of a fan out and merges the results available when they are done or when the timeout expires.
+     */
+    private ServiceInfo[] await(List<CompletableFuture<ServiceInfo[]>> futures, long timeout) {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).get(timeout + 100, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException exception) {
+            logger.debug("Interrupted ", exception);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException exception) {
+            // The results of the other futures are still merged
+            logger.debug("Incomplete fan out ", exception);
+        }
+        return this.collect(futures);
+    }
+
+    /**
+     * Merges the results of the futures of a fan out once they are all done.
+     */
+    private CompletableFuture<ServiceInfo[]> merge(final List<CompletableFuture<ServiceInfo[]>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).handle((ignored, exception) -> this.collect(futures));
+    }
+
+    private ServiceInfo[] collect(List<CompletableFuture<ServiceInfo[]>> futures) {
+        final Set<ServiceInfo> result = new HashSet<>(futures.size() * 5);
+        for (CompletableFuture<ServiceInfo[]> future : futures) {
+            if (!future.isDone()) {
+                future.cancel(false);
+                continue;
+            }
+            try {
+                result.addAll(Arrays.asList(future.join()));
+            } catch (CancellationException exception) {
+                // Skip
+            } catch (CompletionException exception) {
+                logger.warn("Exception ", exception.getCause());
             }
         }
         return result.toArray(new ServiceInfo[0]);
@@ -625,18 +738,30 @@ public class JmmDNSImpl implements JmmDNS, NetworkTopologyListener, ServiceInfoI
      */
     @Override
     public void inetAddressAdded(NetworkTopologyEvent event) {
-        InetAddress address = event.getInetAddress();
+        this.inetAddressAdded(event.getInetAddress(), null);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.impl.NetworkTopologyRebindListener#inetAddressAdded(java.net.InetAddress, java.net.InetAddress)
+     */
+    @Override
+    public void inetAddressAdded(InetAddress address, InetAddress alternateAddress) {
         try {
             if (!_knownMDNS.containsKey(address)) {
                 synchronized (_knownMDNS) {
                     if (!_knownMDNS.containsKey(address)) {
-                        final JmDNS dns = createJmDnsInstance(address);
-                        if (_knownMDNS.putIfAbsent(address, dns) == null) {
+                        final JmDNS dns = createJmDnsInstance(address, alternateAddress);
+                        final Collection<ServiceInfo> infos;
+                        synchronized (_services) {
+                            // The services registered from now on are registered with the new JmDNS by registerService
+                            infos = (_knownMDNS.putIfAbsent(address, dns) == null ? new ArrayList<>(_services.values()) : null);
+                        }
+                        if (infos != null) {
                             // We need to register the services and listeners with the new JmDNS
                             final Collection<String> types = _serviceTypes;
-                            final Collection<ServiceInfo> infos = _services.values();
                             final Collection<ServiceTypeListener> typeListeners = _typeListeners;
-                            final Map<String, List<ServiceListener>> serviceListeners = _serviceListeners;
+                            final Collection<MergedServiceView> serviceViews = _serviceViews.values();
                             submitIfNotShuttingDown(_jmDNSExecutor, () -> {
                                 // Register Types
                                 for (String type : types) {
@@ -659,14 +784,8 @@ public class JmmDNSImpl implements JmmDNS, NetworkTopologyListener, ServiceInfoI
                                     }
                                 }
                                 // Add Service Listeners
-                                for (final Map.Entry<String, List<ServiceListener>> entry : serviceListeners.entrySet()) {
-                                    final String type = entry.getKey();
-                                    final List<ServiceListener> listeners = entry.getValue();
-                                    synchronized (listeners) {
-                                        for (ServiceListener listener : listeners) {
-                                            dns.addServiceListener(type, listener);
-                                        }
-                                    }
+                                for (MergedServiceView view : serviceViews) {
+                                    dns.addServiceListener(view.getType(), view);
                                 }
                             });
                             final NetworkTopologyEvent jmdnsEvent = new NetworkTopologyEventImpl(dns, address);
@@ -699,6 +818,9 @@ public class JmmDNSImpl implements JmmDNS, NetworkTopologyListener, ServiceInfoI
                     if (_knownMDNS.containsKey(address)) {
                         JmDNS mDNS = _knownMDNS.remove(address);
                         mDNS.close();
+                        for (MergedServiceView view : _serviceViews.values()) {
+                            view.removeDNS(mDNS);
+                        }
                         final NetworkTopologyEvent jmdnsEvent = new NetworkTopologyEventImpl(mDNS, address);
                         for (final NetworkTopologyListener listener : this.networkListeners()) {
                             submitIfNotShuttingDown(_listenerExecutor, () -> {
@@ -713,55 +835,199 @@ public class JmmDNSImpl implements JmmDNS, NetworkTopologyListener, ServiceInfoI
         }
     }
 
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.impl.NetworkTopologyRebindListener#inetAddressRebound(java.net.InetAddress, java.net.InetAddress, java.net.InetAddress)
+     */
+    @Override
+    public void inetAddressRebound(InetAddress previous, InetAddress address, InetAddress alternateAddress) {
+        try {
+            final JmDNS dns;
+            synchronized (_knownMDNS) {
+                dns = _knownMDNS.get(previous);
+                if (dns instanceof JmDNSImpl) {
+                    _knownMDNS.remove(previous);
+                    ((JmDNSImpl) dns).rebind(address, alternateAddress);
+                    _knownMDNS.put(address, dns);
+                }
+            }
+            if (!(dns instanceof JmDNSImpl)) {
+                // Not an instance we can move, replace it
+                this.inetAddressRemoved(new NetworkTopologyEventImpl(this, previous));
+                this.inetAddressAdded(address, alternateAddress);
+                return;
+            }
+            final NetworkTopologyEvent removed = new NetworkTopologyEventImpl(dns, previous);
+            final NetworkTopologyEvent added = new NetworkTopologyEventImpl(dns, address);
+            for (final NetworkTopologyListener listener : this.networkListeners()) {
+                submitIfNotShuttingDown(_listenerExecutor, () -> {
+                    listener.inetAddressRemoved(removed);
+                    listener.inetAddressAdded(added);
+                });
+            }
+        } catch (Exception e) {
+            logger.warn("Unexpected unhandled exception: ", e);
+        }
+    }
+
     /**
      * Checks the network state.<br/>
-     * If the network change, this class will reconfigure the list of DNS do adapt to the new configuration.
+     * The addresses are grouped by interface, one JmDNS is kept per interface and address family, or per interface when a single instance serves both families. When the address of an interface changes its JmDNS is rebound in
+     * place rather than replaced, keeping its cache and registrations. A poll finding the same addresses as the previous one stops there. The polling speeds up after a change and slows down again while nothing changes.
      */
-    static class NetworkChecker extends TimerTask {
-        private final NetworkTopologyListener  _mmDNS;
+    static class NetworkChecker {
+
+        private final NetworkTopologyRebindListener  _mmDNS;
+
+        private final NetworkTopologyDiscovery       _topology;
+
+        private final boolean                        _dualStack;
 
-        private final NetworkTopologyDiscovery _topology;
+        private Set<InetAddress>                     _knownAddresses;
 
-        private Set<InetAddress>               _knownAddresses;
+        /**
+         * Address, and alternate address of the other family, bound on each interface.
+         */
+        private final Map<String, InetAddress[]>     _bindings;
+
+        private volatile long                        _interval;
+
+        private volatile Timer                       _timer;
+
+        public NetworkChecker(NetworkTopologyRebindListener mmDNS, NetworkTopologyDiscovery topology) {
+            this(mmDNS, topology, DNSConstants.DUAL_STACK);
+        }
 
-        public NetworkChecker(NetworkTopologyListener mmDNS, NetworkTopologyDiscovery topology) {
+        NetworkChecker(NetworkTopologyRebindListener mmDNS, NetworkTopologyDiscovery topology, boolean dualStack) {
             super();
             this._mmDNS = mmDNS;
             this._topology = topology;
-            _knownAddresses = Collections.synchronizedSet(new HashSet<>());
+            this._dualStack = dualStack;
+            _knownAddresses = Collections.emptySet();
+            _bindings = new HashMap<>();
+            _interval = DNSConstants.NETWORK_CHECK_INTERVAL;
         }
 
         public void start(Timer timer) {
+            _timer = timer;
             // Run once up-front otherwise the list of servers will only appear after a delay.
-            timer.schedule(this, 0, DNSConstants.NETWORK_CHECK_INTERVAL);
+            this.schedule(0);
+        }
+
+        private void schedule(long delay) {
+            try {
+                _timer.schedule(new TimerTask() {
+                    @Override
+                    public void run() {
+                        NetworkChecker.this.run();
+                    }
+                }, delay);
+            } catch (IllegalStateException exception) {
+                // The timer was canceled on close
+            }
         }
 
-        /**
-         * {@inheritDoc}
-         */
-        @Override
         public void run() {
+            boolean changed = false;
             try {
-                InetAddress[] curentAddresses = _topology.getInetAddresses();
-                Set<InetAddress> current = new HashSet<>(curentAddresses.length);
-                for (InetAddress address : curentAddresses) {
-                    current.add(address);
-                    if (!_knownAddresses.contains(address)) {
-                        final NetworkTopologyEvent event = new NetworkTopologyEventImpl(_mmDNS, address);
-                        _mmDNS.inetAddressAdded(event);
+                changed = this.check();
+            } catch (Exception e) {
+                final Logger logger = LoggerFactory.getLogger(JmmDNSImpl.class);
+                logger.warn("Unexpected unhandled exception: ", e);
+            }
+            _interval = (changed ? DNSConstants.NETWORK_CHECK_MIN_INTERVAL : Math.min(2 * _interval, DNSConstants.NETWORK_CHECK_INTERVAL));
+            if (_timer != null) {
+                this.schedule(_interval);
+            }
+        }
+
+        /**
+         * @return the delay until the next poll
+         */
+        long getInterval() {
+            return _interval;
+        }
+
+        /**
+         * Polls the topology once and reports the differences with the previous poll.
+         *
+         * @return <code>true</code> if the addresses changed
+         */
+        synchronized boolean check() {
+            final InetAddress[] addresses = _topology.getInetAddresses();
+            final Set<InetAddress> current = new HashSet<>(Arrays.asList(addresses));
+            if (current.equals(_knownAddresses)) {
+                return false;
+            }
+            _knownAddresses = current;
+
+            final Map<String, List<InetAddress>> interfaces = new HashMap<>();
+            for (InetAddress address : addresses) {
+                interfaces.computeIfAbsent(this.keyOf(address), key -> new ArrayList<>()).add(address);
+            }
+            for (Iterator<Map.Entry<String, InetAddress[]>> i = _bindings.entrySet().iterator(); i.hasNext();) {
+                final Map.Entry<String, InetAddress[]> binding = i.next();
+                if (!interfaces.containsKey(binding.getKey())) {
+                    i.remove();
+                    _mmDNS.inetAddressRemoved(new NetworkTopologyEventImpl(_mmDNS, binding.getValue()[0]));
+                }
+            }
+            for (Map.Entry<String, List<InetAddress>> entry : interfaces.entrySet()) {
+                final InetAddress[] previous = _bindings.get(entry.getKey());
+                final InetAddress[] binding = this.bind(entry.getValue(), previous);
+                if (previous == null) {
+                    _bindings.put(entry.getKey(), binding);
+                    _mmDNS.inetAddressAdded(binding[0], binding[1]);
+                } else if (!Arrays.equals(previous, binding)) {
+                    _bindings.put(entry.getKey(), binding);
+                    _mmDNS.inetAddressRebound(previous[0], binding[0], binding[1]);
+                }
+            }
+            return true;
+        }
+
+        private String keyOf(InetAddress address) {
+            final String name = _topology.getInterfaceName(address);
+            if (name == null) {
+                // Unknown interface, the address is an interface of its own
+                return address.getHostAddress();
+            }
+            return (_dualStack ? name : name + (address instanceof Inet6Address ? "/ipv6" : "/ipv4"));
+        }
+
+        /**
+         * Picks the addresses to bind on an interface. The addresses in use are kept as long as the interface has them, IPv4 is preferred when serving both families.
+         */
+        private InetAddress[] bind(List<InetAddress> addresses, InetAddress[] previous) {
+            InetAddress address = null;
+            if ((previous != null) && addresses.contains(previous[0])) {
+                address = previous[0];
+            }
+            if (address == null) {
+                for (InetAddress candidate : addresses) {
+                    if (!_dualStack || !(candidate instanceof Inet6Address)) {
+                        address = candidate;
+                        break;
                     }
                 }
-                for (InetAddress address : _knownAddresses) {
-                    if (!current.contains(address)) {
-                        final NetworkTopologyEvent event = new NetworkTopologyEventImpl(_mmDNS, address);
-                        _mmDNS.inetAddressRemoved(event);
+                if (address == null) {
+                    address = addresses.get(0);
+                }
+            }
+            InetAddress alternateAddress = null;
+            if (_dualStack) {
+                if ((previous != null) && (previous[1] != null) && addresses.contains(previous[1]) && ((previous[1] instanceof Inet6Address) != (address instanceof Inet6Address))) {
+                    alternateAddress = previous[1];
+                } else {
+                    for (InetAddress candidate : addresses) {
+                        if ((candidate instanceof Inet6Address) != (address instanceof Inet6Address)) {
+                            alternateAddress = candidate;
+                            break;
+                        }
                     }
                 }
-                _knownAddresses = current;
-            } catch (Exception e) {
-                final Logger logger = LoggerFactory.getLogger(JmmDNSImpl.class);
-                logger.warn("Unexpected unhandled exception: ", e);
             }
+            return new InetAddress[] { address, alternateAddress };
         }
 
     }
@@ -771,4 +1037,19 @@ public class JmmDNSImpl implements JmmDNS, NetworkTopologyListener, ServiceInfoI
         return JmDNS.create(address);
     }
 
+    /**
+     * Creates the instance bound to the addresses of an interface.
+     *
+     * @param address
+     *            address to bind
+     * @param alternateAddress
+     *            address of the other family on the same interface, <code>null</code> to serve the family of <code>address</code> only
+     * @return the new instance
+     * @exception IOException
+     */
+    protected JmDNS createJmDnsInstance(InetAddress address, InetAddress alternateAddress) throws IOException
+    {
+        return (alternateAddress != null ? new JmDNSImpl(address, alternateAddress, null, 0) : this.createJmDnsInstance(address));
+    }
+
 }
@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.jmdns.impl.constants.DNSConstants;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds a query with its known answers, split over as many packets as needed (RFC 6762 section 7.2, Multipacket Known-Answer Suppression).
+ * <p>
+ * The known answers whose remaining TTL is less than half of their original TTL are left out, a responder would answer them anyway (section 7.1). The others are sorted by decreasing remaining TTL, so that the first packet, the one
+ * carrying the questions, suppresses the most answers even if a continuation packet is lost. Every packet is filled up to the payload limit, all but the last have the TC bit set.
+ * </p>
+ */
+public class KnownAnswerQuery {
+
+    private final Logger         logger = LoggerFactory.getLogger(KnownAnswerQuery.class);
+
+    private final DNSOutgoing    _query;
+
+    private final Set<DNSRecord> _knownAnswers;
+
+    /**
+     * Create a query.
+     *
+     * @param query
+     *            first packet, holding the questions
+     */
+    public KnownAnswerQuery(DNSOutgoing query) {
+        super();
+        _query = query;
+        _knownAnswers = new LinkedHashSet<>();
+    }
+
+    /**
+     * Adds a known answer, duplicates are only sent once.
+     *
+     * @param record
+     *            known answer, ignored if <code>null</code>
+     */
+    public void addKnownAnswer(DNSRecord record) {
+        if (record != null) {
+            _knownAnswers.add(record);
+        }
+    }
+
+    /**
+     * @return the number of known answers added
+     */
+    public int getKnownAnswerCount() {
+        return _knownAnswers.size();
+    }
+
+    /**
+     * Builds the packets of the query.
+     *
+     * @param now
+     *            the current time
+     * @return the packets to send in order, empty if the query has no question
+     * @exception IOException
+     */
+    public List<DNSOutgoing> packets(long now) throws IOException {
+        final List<DNSOutgoing> packets = new ArrayList<>();
+        if (_query.isEmpty()) {
+            return packets;
+        }
+        final List<DNSRecord> knownAnswers = new ArrayList<>(_knownAnswers.size());
+        for (DNSRecord record : _knownAnswers) {
+            if (!record.isStale(now) && !record.isUnverified()) {
+                knownAnswers.add(record);
+            }
+        }
+        knownAnswers.sort(Comparator.comparingLong((DNSRecord record) -> record.getExpirationTime(100)).reversed());
+
+        DNSOutgoing out = _query;
+        packets.add(out);
+        for (DNSRecord record : knownAnswers) {
+            try {
+                out.addAnswer(record, now);
+            } catch (final IOException e) {
+                if ((out != _query) && (out.getNumberOfAnswers() == 0)) {
+                    // Does not fit in an empty packet either
+                    logger.debug("Known answer too large: {}", record);
+                    continue;
+                }
+                out.setFlags(out.getFlags() | DNSConstants.FLAGS_TC);
+                out = new DNSOutgoing(_query.getFlags() & ~DNSConstants.FLAGS_TC, _query.isMulticast(), _query.getMaxUDPPayload());
+                out.setDestination(_query.getDestination());
+                packets.add(out);
+                try {
+                    out.addAnswer(record, now);
+                } catch (final IOException exception) {
+                    logger.debug("Known answer too large: {}", record);
+                }
+            }
+        }
+        if (out.isEmpty() && (packets.size() > 1)) {
+            packets.remove(packets.size() - 1);
+            packets.get(packets.size() - 1).setFlags(out.getFlags());
+        }
+        return packets;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "KnownAnswerQuery(questions: " + _query.getNumberOfQuestions() + " known answers: " + _knownAnswers.size() + ")";
+    }
+
+}
@@ -39,7 +39,7 @@ public class ListenerStatus<T extends EventListener> {
     public static class ServiceListenerStatus extends ListenerStatus<ServiceListener> {
         private final Logger logger = LoggerFactory.getLogger(ServiceListenerStatus.class);
 
-        private final ConcurrentMap<String, ServiceInfo> _addedServices;
+        private final ConcurrentMap<String, ServiceInfoSnapshot> _addedServices;
 
         /**
          * @param listener
@@ -69,7 +69,7 @@ public class ListenerStatus<T extends EventListener> {
          */
         void serviceAdded(ServiceEvent event) {
             String qualifiedName = event.getName() + "." + event.getType();
-            if (null == _addedServices.putIfAbsent(qualifiedName, event.getInfo().clone())) {
+            if (null == _addedServices.putIfAbsent(qualifiedName, ServiceInfoSnapshot.of(event.getInfo()))) {
                 this.getListener().serviceAdded(event);
                 ServiceInfo info = event.getInfo();
                 if ((info != null) && (info.hasData())) {
@@ -106,14 +106,18 @@ public class ListenerStatus<T extends EventListener> {
             ServiceInfo info = event.getInfo();
             if ((info != null) && (info.hasData())) {
                 String qualifiedName = event.getName() + "." + event.getType();
-                ServiceInfo previousServiceInfo = _addedServices.get(qualifiedName);
-                if (!_sameInfo(info, previousServiceInfo)) {
+                ServiceInfoSnapshot snapshot = ServiceInfoSnapshot.of(info);
+                ServiceInfoSnapshot previousServiceInfo = _addedServices.get(qualifiedName);
+                if (!_sameInfo(snapshot, previousServiceInfo)) {
                     if (null == previousServiceInfo) {
-                        if (null == _addedServices.putIfAbsent(qualifiedName, info.clone())) {
+                        if (null == _addedServices.putIfAbsent(qualifiedName, snapshot)) {
                             this.getListener().serviceResolved(event);
                         }
                     } else {
-                        if (_addedServices.replace(qualifiedName, previousServiceInfo, info.clone())) {
+                        if (_addedServices.replace(qualifiedName, previousServiceInfo, snapshot)) {
+                            if (logger.isTraceEnabled()) {
+                                logger.trace("Service Resolved changed {} for: {}", snapshot.changesFrom(previousServiceInfo), event);
+                            }
                             this.getListener().serviceResolved(event);
                         }
                     }
@@ -126,18 +130,11 @@ public class ListenerStatus<T extends EventListener> {
             }
         }
 
-        private static boolean _sameInfo(ServiceInfo info, ServiceInfo lastInfo) {
+        private static boolean _sameInfo(ServiceInfoSnapshot info, ServiceInfoSnapshot lastInfo) {
             if (info == null) return false;
             if (lastInfo == null) return false;
-            if (!info.equals(lastInfo)) return false;
-            byte[] text = info.getTextBytes();
-            byte[] lastText = lastInfo.getTextBytes();
-            if (text.length != lastText.length) return false;
-            for (int i = 0; i < text.length; i++) {
-                if (text[i] != lastText[i]) return false;
-            }
-
-            return info.hasSameAddresses(lastInfo);
+            // The snapshots are shared by all the listeners, usually this is either the very same snapshot or the hashes differ
+            return info.sameContent(lastInfo);
         }
 
         /*
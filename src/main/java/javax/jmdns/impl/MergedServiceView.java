@@ -0,0 +1,332 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import javax.jmdns.JmDNS;
+import javax.jmdns.ServiceEvent;
+import javax.jmdns.ServiceInfo;
+import javax.jmdns.ServiceListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges the services of a type seen by several JmDNS instances, one per interface, into a single view.
+ * <p>
+ * The view is registered as the service listener of every JmDNS and keeps one canonical entry per service instance: the interfaces it was seen on, and once resolved its details with the addresses of all interfaces. The listeners of the
+ * view are told once that an instance was added, when the first interface sees it, and once that it was removed, when the last interface loses it. A resolution is only reported when the merged details change.
+ * </p>
+ * <p>
+ * The service information kept per interface are the immutable snapshots already delivered to the listeners, they are shared and not copied.
+ * </p>
+ */
+public class MergedServiceView implements ServiceListener {
+
+    private final Logger                       logger = LoggerFactory.getLogger(MergedServiceView.class);
+
+    private final String                       _type;
+
+    private final Executor                     _executor;
+
+    private final List<ServiceListener>        _listeners;
+
+    /**
+     * Instances by lower case name. Guarded by the view.
+     */
+    private final Map<String, MergedInstance>  _instances;
+
+    /**
+     * One service instance as seen by all the interfaces.
+     */
+    private static final class MergedInstance {
+
+        /**
+         * Event announcing the instance, replayed to the listeners added later.
+         */
+        final ServiceEvent                          _added;
+
+        /**
+         * Interfaces seeing the instance with their resolution, <code>null</code> until resolved on that interface. The latest resolution comes last.
+         */
+        final LinkedHashMap<JmDNS, ServiceInfoSnapshot> _seen;
+
+        /**
+         * Last resolution reported, <code>null</code> until resolved.
+         */
+        ServiceEvent                                _resolved;
+
+        MergedInstance(ServiceEvent added) {
+            super();
+            _added = added;
+            _seen = new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Create a view.
+     *
+     * @param type
+     *            fully qualified service type
+     * @param executor
+     *            executor delivering the events to the listeners, it should run them in order
+     */
+    public MergedServiceView(String type, Executor executor) {
+        super();
+        _type = type;
+        _executor = executor;
+        _listeners = new CopyOnWriteArrayList<>();
+        _instances = new LinkedHashMap<>();
+    }
+
+    /**
+     * @return the service type
+     */
+    public String getType() {
+        return _type;
+    }
+
+    /**
+     * Adds a listener, the instances already known are reported to it.
+     *
+     * @param listener
+     *            service listener
+     * @return <code>true</code> if this is the first listener of the view
+     */
+    public synchronized boolean addListener(ServiceListener listener) {
+        if (_listeners.contains(listener)) {
+            return false;
+        }
+        _listeners.add(listener);
+        for (MergedInstance instance : _instances.values()) {
+            final ServiceEvent added = instance._added;
+            final ServiceEvent resolved = instance._resolved;
+            this.dispatch(new ServiceListener[] { listener }, target -> {
+                target.serviceAdded(added);
+                if (resolved != null) {
+                    target.serviceResolved(resolved);
+                }
+            });
+        }
+        return (_listeners.size() == 1);
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener
+     *            service listener
+     * @return <code>true</code> if the view has no listener left
+     */
+    public synchronized boolean removeListener(ServiceListener listener) {
+        _listeners.remove(listener);
+        return _listeners.isEmpty();
+    }
+
+    /**
+     * Forgets what a JmDNS instance saw, typically when its interface went away. The instances no other interface sees are reported removed.
+     *
+     * @param dns
+     *            the JmDNS instance
+     */
+    public synchronized void removeDNS(JmDNS dns) {
+        for (Iterator<MergedInstance> i = _instances.values().iterator(); i.hasNext();) {
+            final MergedInstance instance = i.next();
+            if (instance._seen.containsKey(dns)) {
+                instance._seen.remove(dns);
+                if (instance._seen.isEmpty()) {
+                    i.remove();
+                    this.dispatch(target -> target.serviceRemoved(instance._added));
+                } else {
+                    this.merge(instance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the canonical information of every instance: the merged resolution if any, the information of the instance announcement otherwise.
+     *
+     * @return service infos
+     */
+    public synchronized ServiceInfo[] getServices() {
+        final List<ServiceInfo> result = new ArrayList<>(_instances.size());
+        for (MergedInstance instance : _instances.values()) {
+            result.add(instance._resolved != null ? instance._resolved.getInfo() : instance._added.getInfo());
+        }
+        return result.toArray(new ServiceInfo[0]);
+    }
+
+    /**
+     * Returns the JmDNS instances, one per interface, seeing the given instance.
+     *
+     * @param name
+     *            unqualified service instance name
+     * @return JmDNS instances, empty if the instance is unknown
+     */
+    public synchronized JmDNS[] getDNS(String name) {
+        final MergedInstance instance = _instances.get(name.toLowerCase());
+        return (instance != null ? instance._seen.keySet().toArray(new JmDNS[0]) : new JmDNS[0]);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceListener#serviceAdded(javax.jmdns.ServiceEvent)
+     */
+    @Override
+    public synchronized void serviceAdded(ServiceEvent event) {
+        final MergedInstance instance = this.instance(event);
+        if (!instance._seen.containsKey(event.getDNS())) {
+            instance._seen.put(event.getDNS(), null);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceListener#serviceRemoved(javax.jmdns.ServiceEvent)
+     */
+    @Override
+    public synchronized void serviceRemoved(ServiceEvent event) {
+        final String key = event.getName().toLowerCase();
+        final MergedInstance instance = _instances.get(key);
+        if ((instance == null) || !instance._seen.containsKey(event.getDNS())) {
+            return;
+        }
+        instance._seen.remove(event.getDNS());
+        if (instance._seen.isEmpty()) {
+            _instances.remove(key);
+            this.dispatch(target -> target.serviceRemoved(event));
+        } else {
+            // Still seen elsewhere, only the addresses of this interface are gone
+            this.merge(instance);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceListener#serviceResolved(javax.jmdns.ServiceEvent)
+     */
+    @Override
+    public synchronized void serviceResolved(ServiceEvent event) {
+        final ServiceInfoSnapshot snapshot = ServiceInfoSnapshot.of(event.getInfo());
+        if (snapshot == null) {
+            return;
+        }
+        final MergedInstance instance = this.instance(event);
+        // Moves the interface last, its resolution is the latest
+        instance._seen.remove(event.getDNS());
+        instance._seen.put(event.getDNS(), snapshot);
+        this.merge(instance);
+    }
+
+    private MergedInstance instance(ServiceEvent event) {
+        final String key = event.getName().toLowerCase();
+        MergedInstance instance = _instances.get(key);
+        if (instance == null) {
+            instance = new MergedInstance(event);
+            _instances.put(key, instance);
+            this.dispatch(target -> target.serviceAdded(event));
+        }
+        return instance;
+    }
+
+    /**
+     * Recomputes the merged resolution of an instance and reports it if it changed.
+     */
+    private void merge(MergedInstance instance) {
+        JmDNS source = null;
+        ServiceInfoSnapshot latest = null;
+        int resolutions = 0;
+        for (Map.Entry<JmDNS, ServiceInfoSnapshot> entry : instance._seen.entrySet()) {
+            if (entry.getValue() != null) {
+                source = entry.getKey();
+                latest = entry.getValue();
+                resolutions++;
+            }
+        }
+        if (latest == null) {
+            return;
+        }
+        ServiceInfoSnapshot merged = latest;
+        if (resolutions > 1) {
+            // The details are the latest ones, the addresses those of all the interfaces
+            final ServiceInfoImpl union = new ServiceInfoImpl(latest.getQualifiedNameMap(), latest.getPort(), latest.getWeight(), latest.getPriority(), latest.isPersistent(), latest.getTextBytes());
+            if (latest.hasServer()) {
+                union.setServer(latest.getServer());
+            }
+            for (ServiceInfoSnapshot resolution : instance._seen.values()) {
+                if (resolution != null) {
+                    for (Inet4Address address : resolution.getInet4Addresses()) {
+                        union.addAddress(address);
+                    }
+                    for (Inet6Address address : resolution.getInet6Addresses()) {
+                        union.addAddress(address);
+                    }
+                }
+            }
+            merged = new ServiceInfoSnapshot(union);
+        }
+        if ((instance._resolved != null) && merged.sameContent(ServiceInfoSnapshot.of(instance._resolved.getInfo()))) {
+            return;
+        }
+        final ServiceEvent resolved = new ServiceEventImpl(source, instance._added.getType(), instance._added.getName(), merged);
+        instance._resolved = resolved;
+        this.dispatch(target -> target.serviceResolved(resolved));
+    }
+
+    private void dispatch(Consumer<ServiceListener> call) {
+        this.dispatch(_listeners.toArray(new ServiceListener[0]), call);
+    }
+
+    private void dispatch(final ServiceListener[] targets, final Consumer<ServiceListener> call) {
+        if (targets.length == 0) {
+            return;
+        }
+        try {
+            _executor.execute(() -> {
+                for (ServiceListener target : targets) {
+                    try {
+                        call.accept(target);
+                    } catch (RuntimeException exception) {
+                        logger.warn("Service listener {} failed", target, exception);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // We are shutting down
+            logger.debug("Dropped the events of {} for {} listeners, the executor is shut down", _type, targets.length);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public synchronized String toString() {
+        return "MergedServiceView(" + _type + " instances: " + _instances.size() + " listeners: " + _listeners.size() + ")";
+    }
+
+}
@@ -18,7 +18,9 @@ import java.net.NetworkInterface;
 import java.net.SocketException;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.jmdns.NetworkTopologyDiscovery;
 
@@ -33,6 +35,11 @@ import org.slf4j.LoggerFactory;
 public class NetworkTopologyDiscoveryImpl implements NetworkTopologyDiscovery {
     private final Logger logger = LoggerFactory.getLogger(NetworkTopologyDiscoveryImpl.class);
 
+    /**
+     * Interface of each address found by the last enumeration.
+     */
+    private volatile Map<InetAddress, String> _interfaceNames = new ConcurrentHashMap<>();
+
     /**
      *
      */
@@ -47,6 +54,7 @@ public class NetworkTopologyDiscoveryImpl implements NetworkTopologyDiscovery {
     @Override
     public InetAddress[] getInetAddresses() {
         Set<InetAddress> result = new HashSet<>();
+        Map<InetAddress, String> interfaceNames = new ConcurrentHashMap<>();
         try {
 
             for (Enumeration<NetworkInterface> nifs = NetworkInterface.getNetworkInterfaces(); nifs.hasMoreElements();) {
@@ -56,15 +64,27 @@ public class NetworkTopologyDiscoveryImpl implements NetworkTopologyDiscovery {
                     logger.trace("Found NetworkInterface/InetAddress: {} -- {}",  nif , interfaceAddress);
                     if (useInetAddress(nif, interfaceAddress)) {
                         result.add(interfaceAddress);
+                        interfaceNames.put(interfaceAddress, nif.getName());
                     }
                 }
             }
         } catch (SocketException se) {
             logger.warn("Error while fetching network interfaces addresses: ", se);
         }
+        _interfaceNames = interfaceNames;
         return result.toArray(new InetAddress[0]);
     }
 
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.NetworkTopologyDiscovery#getInterfaceName(java.net.InetAddress)
+     */
+    @Override
+    public String getInterfaceName(InetAddress interfaceAddress) {
+        final String name = _interfaceNames.get(interfaceAddress);
+        return (name != null ? name : NetworkTopologyDiscovery.super.getInterfaceName(interfaceAddress));
+    }
+
     /*
      * (non-Javadoc)
      * @see javax.jmdns.NetworkTopologyDiscovery#lockInetAddress(java.net.InetAddress)
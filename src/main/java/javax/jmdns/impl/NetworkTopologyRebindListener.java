@@ -0,0 +1,47 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.net.InetAddress;
+
+import javax.jmdns.NetworkTopologyListener;
+
+/**
+ * Receives the changes of the topology found by the {@link JmmDNSImpl.NetworkChecker}, including the address changes of an interface.
+ */
+interface NetworkTopologyRebindListener extends NetworkTopologyListener {
+
+    /**
+     * An interface appeared, an instance is bound to its addresses.
+     *
+     * @param address
+     *            address to bind
+     * @param alternateAddress
+     *            address of the other family on the same interface, <code>null</code> unless serving both families
+     */
+    void inetAddressAdded(InetAddress address, InetAddress alternateAddress);
+
+    /**
+     * The address bound on an interface changed, the instance bound to the previous one moves to the new one.
+     *
+     * @param previous
+     *            address the instance is bound to
+     * @param address
+     *            new address
+     * @param alternateAddress
+     *            new address of the other family, <code>null</code> unless serving both families
+     */
+    void inetAddressRebound(InetAddress previous, InetAddress address, InetAddress alternateAddress);
+
+}
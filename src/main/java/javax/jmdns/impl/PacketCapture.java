@@ -0,0 +1,288 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.jmdns.impl.constants.DNSConstants;
+
+/**
+ * Writes the datagrams sent and received by JmDNS to a pcapng file that can be opened with Wireshark or fed back into JmDNS with {@link PacketReplay}.
+ * <p>
+ * Each datagram is stored with synthesized IP and UDP headers (link type RAW), its timestamp from the {@link DNSClock}, its direction and the interface it went through. One capture can be shared by several JmDNS instances, each network
+ * interface gets its own interface description block.
+ * </p>
+ *
+ * <pre>
+ * jmdns.setPacketCapture(PacketCapture.open(new File("mdns.pcapng")));
+ * </pre>
+ */
+public class PacketCapture implements Closeable {
+
+    static final int                    BLOCK_SECTION_HEADER   = 0x0A0D0D0A;
+    static final int                    BLOCK_INTERFACE        = 0x00000001;
+    static final int                    BLOCK_SIMPLE_PACKET    = 0x00000003;
+    static final int                    BLOCK_ENHANCED_PACKET  = 0x00000006;
+    static final int                    BYTE_ORDER_MAGIC       = 0x1A2B3C4D;
+
+    static final int                    LINKTYPE_NULL          = 0;
+    static final int                    LINKTYPE_ETHERNET      = 1;
+    static final int                    LINKTYPE_RAW           = 101;
+    static final int                    LINKTYPE_LINUX_SLL     = 113;
+
+    private static final int            OPTION_END             = 0;
+    private static final int            OPTION_IF_NAME         = 2;
+    static final int                    OPTION_EPB_FLAGS       = 2;
+
+    static final int                    EPB_FLAGS_INBOUND      = 0x1;
+    static final int                    EPB_FLAGS_OUTBOUND     = 0x2;
+    static final int                    EPB_FLAGS_DIRECTION    = 0x3;
+
+    private final OutputStream          _out;
+
+    private final Map<String, Integer>  _interfaces;
+
+    private boolean                     _closed;
+
+    /**
+     * Create a new capture writing to the given stream. The section header is written immediately.
+     *
+     * @param out
+     *            destination stream, closed with this capture
+     * @exception IOException
+     *                if the header cannot be written
+     */
+    public PacketCapture(OutputStream out) throws IOException {
+        super();
+        _out = out;
+        _interfaces = new HashMap<>();
+        ByteBuffer block = newBlock(BLOCK_SECTION_HEADER, 16);
+        block.putInt(BYTE_ORDER_MAGIC);
+        block.putShort((short) 1); // major version
+        block.putShort((short) 0); // minor version
+        block.putLong(-1L); // unknown section length
+        this.writeBlock(block);
+    }
+
+    /**
+     * Create a new capture file, an existing file is overwritten.
+     *
+     * @param file
+     *            capture file
+     * @return new capture
+     * @exception IOException
+     *                if the file cannot be created
+     */
+    public static PacketCapture open(File file) throws IOException {
+        return new PacketCapture(new BufferedOutputStream(new FileOutputStream(file)));
+    }
+
+    /**
+     * Record a datagram.
+     *
+     * @param packet
+     *            datagram as given to or returned by the transport
+     * @param outbound
+     *            <code>true</code> if the datagram was sent, <code>false</code> if it was received
+     * @param localHost
+     *            local host of the JmDNS instance handling the datagram
+     */
+    public synchronized void capture(DatagramPacket packet, boolean outbound, HostInfo localHost) {
+        if (_closed) {
+            return;
+        }
+        try {
+            final InetAddress local = (localHost != null ? localHost.getInetAddress() : null);
+            final InetAddress remote = packet.getAddress();
+            final InetAddress source;
+            final int sourcePort;
+            final InetAddress destination;
+            final int destinationPort;
+            if (outbound) {
+                source = (local != null ? local : anyLocalAddress(remote));
+                sourcePort = DNSConstants.MDNS_PORT;
+                destination = remote;
+                destinationPort = packet.getPort();
+            } else {
+                // The transport does not tell if the datagram was multicast, assume it was as this is the norm for mDNS
+                source = remote;
+                sourcePort = packet.getPort();
+                destination = InetAddress.getByName(remote instanceof Inet6Address ? DNSConstants.MDNS_GROUP_IPV6 : DNSConstants.MDNS_GROUP);
+                destinationPort = DNSConstants.MDNS_PORT;
+            }
+            final int interfaceId = this.interfaceId(localHost);
+            final byte[] frame = frame(source, sourcePort, destination, destinationPort, packet.getData(), packet.getOffset(), packet.getLength());
+            final long timestamp = DNSClock.Factory.getClock().currentTimeMillis() * 1000L;
+
+            ByteBuffer block = newBlock(BLOCK_ENHANCED_PACKET, 20 + pad(frame.length) + 8 + 4);
+            block.putInt(interfaceId);
+            block.putInt((int) (timestamp >>> 32));
+            block.putInt((int) timestamp);
+            block.putInt(frame.length);
+            block.putInt(frame.length);
+            block.put(frame);
+            block.position(block.position() + pad(frame.length) - frame.length);
+            block.putShort((short) OPTION_EPB_FLAGS);
+            block.putShort((short) 4);
+            block.putInt(outbound ? EPB_FLAGS_OUTBOUND : EPB_FLAGS_INBOUND);
+            block.putInt(OPTION_END);
+            this.writeBlock(block);
+        } catch (IOException exception) {
+            // Capture is best effort, stop writing rather than breaking the traffic
+            this.close();
+        }
+    }
+
+    /**
+     * Flush the pending data to the underlying stream.
+     *
+     * @exception IOException
+     *                if an I/O error occurs
+     */
+    public synchronized void flush() throws IOException {
+        if (!_closed) {
+            _out.flush();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public synchronized void close() {
+        if (!_closed) {
+            _closed = true;
+            try {
+                _out.close();
+            } catch (IOException exception) {
+                // Nothing we can do
+            }
+        }
+    }
+
+    private int interfaceId(HostInfo localHost) throws IOException {
+        final String name = ((localHost != null) && (localHost.getInterface() != null) ? localHost.getInterface().getName() : (localHost != null ? String.valueOf(localHost.getInetAddress()) : "unknown"));
+        Integer id = _interfaces.get(name);
+        if (id == null) {
+            id = _interfaces.size();
+            _interfaces.put(name, id);
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer block = newBlock(BLOCK_INTERFACE, 8 + 4 + pad(nameBytes.length) + 4);
+            block.putShort((short) LINKTYPE_RAW);
+            block.putShort((short) 0); // reserved
+            block.putInt(0); // no snap length
+            block.putShort((short) OPTION_IF_NAME);
+            block.putShort((short) nameBytes.length);
+            block.put(nameBytes);
+            block.position(block.position() + pad(nameBytes.length) - nameBytes.length);
+            block.putInt(OPTION_END);
+            this.writeBlock(block);
+        }
+        return id;
+    }
+
+    private static InetAddress anyLocalAddress(InetAddress remote) throws IOException {
+        return InetAddress.getByName(remote instanceof Inet6Address ? "::" : "0.0.0.0");
+    }
+
+    /**
+     * Build an IP packet holding the UDP datagram. The UDP checksum is left empty which is legal for IPv4 and flagged, but still decoded, by Wireshark for IPv6.
+     */
+    static byte[] frame(InetAddress source, int sourcePort, InetAddress destination, int destinationPort, byte[] data, int offset, int length) {
+        final boolean ipv6 = (source instanceof Inet6Address) || (destination instanceof Inet6Address);
+        final int ipHeaderLength = (ipv6 ? 40 : 20);
+        final int udpLength = 8 + length;
+        ByteBuffer frame = ByteBuffer.allocate(ipHeaderLength + udpLength);
+        if (ipv6) {
+            frame.putInt(0x60000000);
+            frame.putShort((short) udpLength);
+            frame.put((byte) 17); // UDP
+            frame.put((byte) 255); // hop limit
+            frame.put(ipv6Bytes(source));
+            frame.put(ipv6Bytes(destination));
+        } else {
+            frame.put((byte) 0x45);
+            frame.put((byte) 0);
+            frame.putShort((short) (ipHeaderLength + udpLength));
+            frame.putInt(0); // identification, flags and fragment offset
+            frame.put((byte) 255); // TTL
+            frame.put((byte) 17); // UDP
+            frame.putShort((short) 0); // checksum, computed below
+            frame.put(source.getAddress());
+            frame.put(destination.getAddress());
+            frame.putShort(10, ipv4Checksum(frame.array()));
+        }
+        frame.putShort((short) sourcePort);
+        frame.putShort((short) destinationPort);
+        frame.putShort((short) udpLength);
+        frame.putShort((short) 0);
+        frame.put(data, offset, length);
+        return frame.array();
+    }
+
+    private static byte[] ipv6Bytes(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 16) {
+            return bytes;
+        }
+        // IPv4 mapped address
+        byte[] mapped = new byte[16];
+        mapped[10] = (byte) 0xFF;
+        mapped[11] = (byte) 0xFF;
+        System.arraycopy(bytes, 0, mapped, 12, 4);
+        return mapped;
+    }
+
+    private static short ipv4Checksum(byte[] header) {
+        int sum = 0;
+        for (int i = 0; i < 20; i += 2) {
+            sum += ((header[i] & 0xFF) << 8) | (header[i + 1] & 0xFF);
+        }
+        while ((sum >> 16) != 0) {
+            sum = (sum & 0xFFFF) + (sum >> 16);
+        }
+        return (short) ~sum;
+    }
+
+    private static int pad(int length) {
+        return (length + 3) & ~3;
+    }
+
+    private static ByteBuffer newBlock(int type, int bodyLength) {
+        ByteBuffer block = ByteBuffer.allocate(12 + bodyLength).order(ByteOrder.BIG_ENDIAN);
+        block.putInt(type);
+        block.putInt(12 + bodyLength);
+        return block;
+    }
+
+    private void writeBlock(ByteBuffer block) throws IOException {
+        block.putInt(block.capacity());
+        _out.write(block.array());
+    }
+
+}
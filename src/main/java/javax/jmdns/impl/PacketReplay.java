@@ -0,0 +1,413 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jmdns.impl.constants.DNSConstants;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Feeds the mDNS datagrams of a capture file into a JmDNS instance, as if they had been received by its socket.
+ * <p>
+ * Both the classic pcap and the pcapng formats are understood, with Ethernet, raw IP, BSD loopback and Linux cooked link types. Only UDP datagrams to or from the mDNS port are kept. The capture can be replayed at its original pace, accelerated, or as
+ * fast as possible to benchmark the parsing and handling of incoming traffic.
+ * The datagrams a pcapng capture marks as outbound were sent by the captured host, they are read but not replayed.
+ * </p>
+ *
+ * <pre>
+ * List&lt;PacketReplay.Datagram&gt; datagrams = PacketReplay.read(new File("burst.pcapng"));
+ * int handled = new PacketReplay(jmdns).replay(datagrams, 10.0); // ten times faster than captured
+ * </pre>
+ */
+public class PacketReplay {
+    private final Logger         logger = LoggerFactory.getLogger(PacketReplay.class);
+
+    private static final int     PCAP_MAGIC_MICROS = 0xA1B2C3D4;
+    private static final int     PCAP_MAGIC_NANOS  = 0xA1B23C4D;
+
+    private final JmDNSImpl      _jmDNSImpl;
+
+    /**
+     * One datagram read from a capture.
+     */
+    public static final class Datagram {
+
+        private final long           _timestamp;
+
+        private final DatagramPacket _packet;
+
+        private final boolean        _outbound;
+
+        Datagram(long timestamp, DatagramPacket packet, boolean outbound) {
+            super();
+            _timestamp = timestamp;
+            _packet = packet;
+            _outbound = outbound;
+        }
+
+        /**
+         * Returns the capture time.
+         *
+         * @return capture time in microseconds since the epoch
+         */
+        public long getTimestamp() {
+            return _timestamp;
+        }
+
+        /**
+         * Returns the datagram with its source address and port, as a socket would have returned it.
+         *
+         * @return datagram
+         */
+        public DatagramPacket getPacket() {
+            return _packet;
+        }
+
+        /**
+         * Tells whether the capture marks the datagram as sent by the captured host.
+         *
+         * @return <code>true</code> if outbound, <code>false</code> if inbound or unknown
+         */
+        public boolean isOutbound() {
+            return _outbound;
+        }
+
+    }
+
+    /**
+     * Create a replay driver for the given JmDNS instance.
+     *
+     * @param jmDNSImpl
+     *            instance receiving the replayed datagrams
+     */
+    public PacketReplay(JmDNSImpl jmDNSImpl) {
+        super();
+        _jmDNSImpl = jmDNSImpl;
+    }
+
+    /**
+     * Read the mDNS datagrams of a capture file.
+     *
+     * @param file
+     *            pcap or pcapng file
+     * @return datagrams in capture order
+     * @exception IOException
+     *                if the file cannot be read or is not a capture
+     */
+    public static List<Datagram> read(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Read the mDNS datagrams of a capture.
+     *
+     * @param in
+     *            pcap or pcapng stream
+     * @return datagrams in capture order
+     * @exception IOException
+     *                if the stream cannot be read or is not a capture
+     */
+    public static List<Datagram> read(InputStream in) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int length;
+        while ((length = in.read(buffer)) > 0) {
+            content.write(buffer, 0, length);
+        }
+        ByteBuffer capture = ByteBuffer.wrap(content.toByteArray());
+        if (capture.remaining() < 4) {
+            throw new IOException("Not a capture file");
+        }
+        final int magic = capture.getInt(0);
+        if (magic == PacketCapture.BLOCK_SECTION_HEADER) {
+            return readPcapng(capture);
+        }
+        return readPcap(capture);
+    }
+
+    /**
+     * Replay datagrams into the JmDNS instance. The outbound datagrams are skipped.
+     *
+     * @param datagrams
+     *            datagrams to replay
+     * @param speed
+     *            1.0 to keep the captured pace, a higher value to accelerate, 0 to replay as fast as possible
+     * @return number of datagrams handed to JmDNS
+     * @exception InterruptedException
+     *                if interrupted while waiting for the next datagram
+     */
+    public int replay(List<Datagram> datagrams, double speed) throws InterruptedException {
+        final DNSClock clock = DNSClock.Factory.getClock();
+        final long start = clock.currentTimeMillis();
+        final long firstTimestamp = (datagrams.isEmpty() ? 0 : datagrams.get(0).getTimestamp());
+        int count = 0;
+        for (Datagram datagram : datagrams) {
+            if (datagram.isOutbound()) {
+                continue;
+            }
+            if (speed > 0) {
+                final long due = start + (long) ((datagram.getTimestamp() - firstTimestamp) / 1000L / speed);
+                final long wait = due - clock.currentTimeMillis();
+                if (wait > 0) {
+                    clock.sleep(wait);
+                }
+            }
+            DatagramPacket packet = datagram.getPacket();
+            // The handling may keep a reference to the buffer, give it a private copy
+            byte[] data = packet.getData().clone();
+            try {
+                _jmDNSImpl.handlePacket(new DatagramPacket(data, data.length, packet.getAddress(), packet.getPort()));
+                count++;
+            } catch (IOException exception) {
+                logger.debug("replay() skipping datagram from {}: {}", packet.getAddress(), exception.getMessage());
+            }
+        }
+        return count;
+    }
+
+    private static List<Datagram> readPcap(ByteBuffer capture) throws IOException {
+        int magic = capture.order(ByteOrder.BIG_ENDIAN).getInt(0);
+        if ((magic != PCAP_MAGIC_MICROS) && (magic != PCAP_MAGIC_NANOS)) {
+            capture.order(ByteOrder.LITTLE_ENDIAN);
+            magic = capture.getInt(0);
+        }
+        if ((magic != PCAP_MAGIC_MICROS) && (magic != PCAP_MAGIC_NANOS)) {
+            throw new IOException("Not a capture file");
+        }
+        final long resolution = (magic == PCAP_MAGIC_NANOS ? 1000L : 1L);
+        final int linkType = capture.getInt(20) & 0xFFFF;
+        capture.position(24);
+
+        List<Datagram> result = new ArrayList<>();
+        while (capture.remaining() >= 16) {
+            final long seconds = capture.getInt() & 0xFFFFFFFFL;
+            final long fraction = capture.getInt() & 0xFFFFFFFFL;
+            final int capturedLength = capture.getInt();
+            capture.getInt(); // original length
+            if ((capturedLength < 0) || (capturedLength > capture.remaining())) {
+                break;
+            }
+            final int offset = capture.position();
+            addDatagram(result, seconds * 1000000L + fraction / resolution, linkType, capture, offset, capturedLength, false);
+            capture.position(offset + capturedLength);
+        }
+        return result;
+    }
+
+    private static List<Datagram> readPcapng(ByteBuffer capture) throws IOException {
+        List<Datagram> result = new ArrayList<>();
+        List<int[]> interfaces = new ArrayList<>(); // link type, time resolution exponent (negative powers of 10)
+        ByteOrder sectionOrder = ByteOrder.BIG_ENDIAN;
+        while (capture.remaining() >= 12) {
+            final int blockStart = capture.position();
+            if (capture.order(ByteOrder.BIG_ENDIAN).getInt(blockStart) == PacketCapture.BLOCK_SECTION_HEADER) {
+                // Each section defines its own byte order and interfaces
+                sectionOrder = (capture.getInt(blockStart + 8) == PacketCapture.BYTE_ORDER_MAGIC ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+                interfaces.clear();
+            }
+            capture.order(sectionOrder);
+            final int blockType = capture.getInt(blockStart);
+            final int blockLength = capture.getInt(blockStart + 4);
+            if ((blockLength < 12) || (blockLength > capture.limit() - blockStart)) {
+                break;
+            }
+            switch (blockType) {
+                case PacketCapture.BLOCK_INTERFACE:
+                    interfaces.add(new int[] { capture.getShort(blockStart + 8) & 0xFFFF, interfaceResolution(capture, blockStart + 16, blockStart + blockLength - 4) });
+                    break;
+                case PacketCapture.BLOCK_ENHANCED_PACKET: {
+                    final int interfaceId = capture.getInt(blockStart + 8);
+                    final long timestamp = ((capture.getInt(blockStart + 12) & 0xFFFFFFFFL) << 32) | (capture.getInt(blockStart + 16) & 0xFFFFFFFFL);
+                    final int capturedLength = capture.getInt(blockStart + 20);
+                    if ((interfaceId >= 0) && (interfaceId < interfaces.size()) && (capturedLength >= 0) && (capturedLength <= blockLength - 32)) {
+                        final int[] description = interfaces.get(interfaceId);
+                        final boolean outbound = isOutbound(capture, blockStart + 28 + ((capturedLength + 3) & ~3), blockStart + blockLength - 4);
+                        addDatagram(result, toMicros(timestamp, description[1]), description[0], capture, blockStart + 28, capturedLength, outbound);
+                    }
+                    break;
+                }
+                case PacketCapture.BLOCK_SIMPLE_PACKET:
+                    if (!interfaces.isEmpty()) {
+                        final int capturedLength = Math.min(capture.getInt(blockStart + 8), blockLength - 16);
+                        addDatagram(result, 0, interfaces.get(0)[0], capture, blockStart + 12, capturedLength, false);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            capture.position(blockStart + blockLength);
+        }
+        return result;
+    }
+
+    private static int interfaceResolution(ByteBuffer capture, int optionsStart, int optionsEnd) {
+        int position = optionsStart;
+        while (position + 4 <= optionsEnd) {
+            final int code = capture.getShort(position) & 0xFFFF;
+            final int length = capture.getShort(position + 2) & 0xFFFF;
+            if (code == 0) {
+                break;
+            }
+            if ((code == 9) && (length == 1)) {
+                // if_tsresol: we only support powers of 10
+                final int value = capture.get(position + 4);
+                return ((value & 0x80) == 0 ? value : 6);
+            }
+            position += 4 + ((length + 3) & ~3);
+        }
+        return 6;
+    }
+
+    private static boolean isOutbound(ByteBuffer capture, int optionsStart, int optionsEnd) {
+        int position = optionsStart;
+        while (position + 4 <= optionsEnd) {
+            final int code = capture.getShort(position) & 0xFFFF;
+            final int length = capture.getShort(position + 2) & 0xFFFF;
+            if (code == 0) {
+                break;
+            }
+            if ((code == PacketCapture.OPTION_EPB_FLAGS) && (length == 4) && (position + 8 <= optionsEnd)) {
+                // epb_flags: the two low bits are the direction
+                return (capture.getInt(position + 4) & PacketCapture.EPB_FLAGS_DIRECTION) == PacketCapture.EPB_FLAGS_OUTBOUND;
+            }
+            position += 4 + ((length + 3) & ~3);
+        }
+        return false;
+    }
+
+    private static long toMicros(long timestamp, int resolution) {
+        long value = timestamp;
+        for (int i = resolution; i > 6; i--) {
+            value /= 10;
+        }
+        for (int i = resolution; i < 6; i++) {
+            value *= 10;
+        }
+        return value;
+    }
+
+    private static void addDatagram(List<Datagram> result, long timestamp, int linkType, ByteBuffer file, int offset, int length, boolean outbound) {
+        // Protocol headers are in network byte order whatever the order of the capture file
+        final ByteBuffer capture = file.duplicate().order(ByteOrder.BIG_ENDIAN);
+        int position = offset;
+        final int end = offset + length;
+        int etherType;
+        switch (linkType) {
+            case PacketCapture.LINKTYPE_ETHERNET:
+                if (length < 14) {
+                    return;
+                }
+                position += 12;
+                etherType = capture.getShort(position) & 0xFFFF;
+                position += 2;
+                while ((etherType == 0x8100) || (etherType == 0x88A8)) {
+                    // VLAN tags
+                    if (position + 4 > end) {
+                        return;
+                    }
+                    etherType = capture.getShort(position + 2) & 0xFFFF;
+                    position += 4;
+                }
+                break;
+            case PacketCapture.LINKTYPE_LINUX_SLL:
+                if (length < 16) {
+                    return;
+                }
+                etherType = capture.getShort(position + 14) & 0xFFFF;
+                position += 16;
+                break;
+            case PacketCapture.LINKTYPE_NULL:
+                // The loopback family is in host byte order, the IP version tells us everything we need
+                position += 4;
+                etherType = 0;
+                break;
+            case PacketCapture.LINKTYPE_RAW:
+                etherType = 0;
+                break;
+            default:
+                return;
+        }
+        if (position >= end) {
+            return;
+        }
+        final int version = (capture.get(position) & 0xF0) >> 4;
+        if ((etherType != 0) && (etherType != 0x0800) && (etherType != 0x86DD)) {
+            return;
+        }
+        final byte[] source;
+        int udp;
+        if (version == 4) {
+            final int headerLength = (capture.get(position) & 0x0F) * 4;
+            if ((position + headerLength > end) || (capture.get(position + 9) != 17) || ((capture.getShort(position + 6) & 0x1FFF) != 0)) {
+                // Not UDP or a fragment we cannot reassemble
+                return;
+            }
+            source = new byte[4];
+            for (int i = 0; i < 4; i++) {
+                source[i] = capture.get(position + 12 + i);
+            }
+            udp = position + headerLength;
+        } else if (version == 6) {
+            if ((position + 40 > end) || (capture.get(position + 6) != 17)) {
+                // Not UDP or extension headers we do not walk
+                return;
+            }
+            source = new byte[16];
+            for (int i = 0; i < 16; i++) {
+                source[i] = capture.get(position + 8 + i);
+            }
+            udp = position + 40;
+        } else {
+            return;
+        }
+        if (udp + 8 > end) {
+            return;
+        }
+        final int sourcePort = capture.getShort(udp) & 0xFFFF;
+        final int destinationPort = capture.getShort(udp + 2) & 0xFFFF;
+        if ((sourcePort != DNSConstants.MDNS_PORT) && (destinationPort != DNSConstants.MDNS_PORT)) {
+            return;
+        }
+        final int payloadLength = Math.min((capture.getShort(udp + 4) & 0xFFFF) - 8, end - udp - 8);
+        if (payloadLength <= 0) {
+            return;
+        }
+        byte[] payload = new byte[payloadLength];
+        for (int i = 0; i < payloadLength; i++) {
+            payload[i] = capture.get(udp + 8 + i);
+        }
+        try {
+            result.add(new Datagram(timestamp, new DatagramPacket(payload, payloadLength, InetAddress.getByAddress(source), sourcePort), outbound));
+        } catch (IOException exception) {
+            // Cannot happen with a 4 or 16 byte address
+        }
+    }
+
+}
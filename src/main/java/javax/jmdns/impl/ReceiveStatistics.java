@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What the {@link SocketListener} spends on the datagrams it receives, next to what the kernel dropped before we could read them.
+ * <p>
+ * Parsing covers the decoding of the datagram into a {@link DNSIncoming}, handling the processing of the message by the instance. Datagrams dropped by the kernel never reach the listener, comparing their number with the time spent
+ * per datagram tells whether the receive buffer or the listener has to grow.
+ * </p>
+ */
+public class ReceiveStatistics {
+
+    private final AtomicLong           _parsed;
+
+    private final AtomicLong           _parseNanos;
+
+    private final AtomicLong           _maxParseNanos;
+
+    private final AtomicLong           _handled;
+
+    private final AtomicLong           _handleNanos;
+
+    private final AtomicLong           _maxHandleNanos;
+
+    private volatile SocketDropMonitor _dropMonitor;
+
+    public ReceiveStatistics() {
+        super();
+        _parsed = new AtomicLong();
+        _parseNanos = new AtomicLong();
+        _maxParseNanos = new AtomicLong();
+        _handled = new AtomicLong();
+        _handleNanos = new AtomicLong();
+        _maxHandleNanos = new AtomicLong();
+    }
+
+    /**
+     * Records the decoding of a datagram.
+     *
+     * @param nanos
+     *            time spent in nanoseconds
+     */
+    void parsed(long nanos) {
+        _parsed.incrementAndGet();
+        _parseNanos.addAndGet(nanos);
+        _maxParseNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Records the processing of a message.
+     *
+     * @param nanos
+     *            time spent in nanoseconds
+     */
+    void handled(long nanos) {
+        _handled.incrementAndGet();
+        _handleNanos.addAndGet(nanos);
+        _maxHandleNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @return the number of datagrams decoded
+     */
+    public long getParsedCount() {
+        return _parsed.get();
+    }
+
+    /**
+     * @param unit
+     *            unit of the result
+     * @return the average time spent decoding a datagram
+     */
+    public long getAverageParseTime(TimeUnit unit) {
+        final long parsed = _parsed.get();
+        return unit.convert(parsed > 0 ? _parseNanos.get() / parsed : 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit
+     *            unit of the result
+     * @return the longest time spent decoding a datagram
+     */
+    public long getMaxParseTime(TimeUnit unit) {
+        return unit.convert(_maxParseNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the number of messages processed
+     */
+    public long getHandledCount() {
+        return _handled.get();
+    }
+
+    /**
+     * @param unit
+     *            unit of the result
+     * @return the average time spent processing a message
+     */
+    public long getAverageHandleTime(TimeUnit unit) {
+        final long handled = _handled.get();
+        return unit.convert(handled > 0 ? _handleNanos.get() / handled : 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit
+     *            unit of the result
+     * @return the longest time spent processing a message
+     */
+    public long getMaxHandleTime(TimeUnit unit) {
+        return unit.convert(_maxHandleNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Reads the number of datagrams the kernel dropped on the sockets of the transport since it was opened.
+     *
+     * @return the number of drops, or -1 if unknown on this system or transport
+     */
+    public long getKernelDrops() {
+        final SocketDropMonitor dropMonitor = _dropMonitor;
+        return (dropMonitor != null ? dropMonitor.getDrops() : -1);
+    }
+
+    /**
+     * Returns the reader of the kernel drops of the current transport.
+     *
+     * @return drop monitor or <code>null</code> if unknown on this system or transport
+     */
+    public SocketDropMonitor getDropMonitor() {
+        return _dropMonitor;
+    }
+
+    void setDropMonitor(SocketDropMonitor dropMonitor) {
+        _dropMonitor = dropMonitor;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "ReceiveStatistics(parsed: " + this.getParsedCount() + " avg: " + this.getAverageParseTime(TimeUnit.MICROSECONDS) + "us max: " + this.getMaxParseTime(TimeUnit.MICROSECONDS) + "us, handled: " + this.getHandledCount() + " avg: "
+                + this.getAverageHandleTime(TimeUnit.MICROSECONDS) + "us max: " + this.getMaxHandleTime(TimeUnit.MICROSECONDS) + "us, kernel drops: " + this.getKernelDrops() + ")";
+    }
+
+}
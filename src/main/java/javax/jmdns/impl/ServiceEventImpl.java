@@ -52,7 +52,7 @@ public class ServiceEventImpl extends ServiceEvent {
      * @param info
      *            the service info record, or null if the service could be resolved.
      */
-    public ServiceEventImpl(JmDNSImpl jmDNS, String type, String name, ServiceInfo info) {
+    public ServiceEventImpl(JmDNS jmDNS, String type, String name, ServiceInfo info) {
         super(jmDNS);
         this._type = type;
         this._name = name;
@@ -116,7 +116,7 @@ public class ServiceEventImpl extends ServiceEvent {
     @Override
     public ServiceEventImpl clone() {
         ServiceInfoImpl newInfo = new ServiceInfoImpl(this.getInfo());
-        return new ServiceEventImpl((JmDNSImpl) this.getDNS(), this.getType(), this.getName(), newInfo);
+        return new ServiceEventImpl(this.getDNS(), this.getType(), this.getName(), newInfo);
     }
 
 }
@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -475,6 +476,27 @@ public class ServiceInfoImpl extends ServiceInfo implements DNSListener, DNSStat
         _ipv6Addresses.add(addr);
     }
 
+    /**
+     * Replaces an address of the host this service is registered on.
+     *
+     * @param previous
+     *            the address to remove, ignored if <code>null</code>
+     * @param addr
+     *            the address to add, ignored if <code>null</code>
+     */
+    void replaceAddress(InetAddress previous, InetAddress addr) {
+        if (previous instanceof Inet4Address) {
+            _ipv4Addresses.remove(previous);
+        } else if (previous instanceof Inet6Address) {
+            _ipv6Addresses.remove(previous);
+        }
+        if (addr instanceof Inet4Address) {
+            _ipv4Addresses.add((Inet4Address) addr);
+        } else if (addr instanceof Inet6Address) {
+            _ipv6Addresses.add((Inet6Address) addr);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -794,11 +816,11 @@ public class ServiceInfoImpl extends ServiceInfo implements DNSListener, DNSStat
                     // The listeners run on different threads concurrently. When they start and read the event,
                     // the ServiceInfo is already removed/ changed.
                     //
-                    // The simple solution is to clone the ServiceInfo.  Therefore, future changes to ServiceInfo 
-                    // will not be seen by the listeners.
+                    // The simple solution is to take an immutable snapshot of the ServiceInfo, shared by all the listeners.
+                    // Therefore, future changes to ServiceInfo will not be seen by the listeners.
                     //
                     // Fixes ListenerStatus warning "Service Resolved called for an unresolved event: {}"
-                    ServiceEvent event = new ServiceEventImpl(dns, this.getType(), this.getName(), this.clone());
+                    ServiceEvent event = new ServiceEventImpl(dns, this.getType(), this.getName(), new ServiceInfoSnapshot(this));
                     dns.handleServiceResolved(event);
                 }
                 // This is done, to notify the wait loop in method JmDNS.waitForInfoData(ServiceInfo info, int timeout);
@@ -1092,6 +1114,26 @@ public class ServiceInfoImpl extends ServiceInfo implements DNSListener, DNSStat
         return _state.waitForCanceled(timeout);
     }
 
+    /**
+     * Returns a future completed when this service is announced.
+     *
+     * @return announce future
+     * @see DNSStatefulObject.DefaultImplementation#whenAnnounced()
+     */
+    CompletableFuture<Void> whenAnnounced() {
+        return _state.whenAnnounced();
+    }
+
+    /**
+     * Returns a future completed when this service is canceled.
+     *
+     * @return cancel future
+     * @see DNSStatefulObject.DefaultImplementation#whenCanceled()
+     */
+    CompletableFuture<Void> whenCanceled() {
+        return _state.whenCanceled();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1105,7 +1147,7 @@ public class ServiceInfoImpl extends ServiceInfo implements DNSListener, DNSStat
      */
     @Override
     public boolean equals(Object obj) {
-        return (obj instanceof ServiceInfoImpl) && getQualifiedName().equals(((ServiceInfoImpl) obj).getQualifiedName());
+        return ((obj instanceof ServiceInfoImpl) || (obj instanceof ServiceInfoSnapshot)) && getQualifiedName().equals(((ServiceInfo) obj).getQualifiedName());
     }
 
     /**
@@ -0,0 +1,572 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.jmdns.ServiceInfo;
+
+/**
+ * Immutable copy of a service information as it was when an event was fired.
+ * <p>
+ * A snapshot is taken once per change and the same instance is handed to every listener, which can keep it without copying it. The content hash is computed up front so that telling two snapshots apart, as the {@link ListenerStatus} does
+ * to suppress duplicate resolutions, is usually a single comparison.
+ * </p>
+ * <p>
+ * A snapshot is a plain value, it has no state and is never registered itself: registering it registers a copy. Any attempt to modify it throws an {@link IllegalStateException}, use {@link #clone()} to get a modifiable copy.
+ * </p>
+ */
+public final class ServiceInfoSnapshot extends ServiceInfo {
+
+    /**
+     * Parts of a service information that can change.
+     */
+    public enum Change {
+        /**
+         * The port, weight, priority or server changed.
+         */
+        SERVICE,
+        /**
+         * The text changed.
+         */
+        TEXT,
+        /**
+         * The addresses changed.
+         */
+        ADDRESSES
+    }
+
+    /**
+     * Private copy answering the reads, never registered nor handed out.
+     */
+    private final ServiceInfoImpl   _info;
+
+    private final Set<Inet4Address> _inet4Addresses;
+
+    private final Set<Inet6Address> _inet6Addresses;
+
+    private final int               _contentHash;
+
+    /**
+     * Take a snapshot of a service information.
+     *
+     * @param info
+     *            service information to copy
+     */
+    ServiceInfoSnapshot(ServiceInfo info) {
+        super();
+        _info = new ServiceInfoImpl(info.getQualifiedNameMap(), info.getPort(), info.getWeight(), info.getPriority(), info.isPersistent(), info.getTextBytes().clone());
+        if (info.hasServer()) {
+            _info.setServer(info.getServer());
+        }
+        final Inet4Address[] inet4Addresses = info.getInet4Addresses();
+        for (Inet4Address address : inet4Addresses) {
+            _info.addAddress(address);
+        }
+        final Inet6Address[] inet6Addresses = info.getInet6Addresses();
+        for (Inet6Address address : inet6Addresses) {
+            _info.addAddress(address);
+        }
+        _inet4Addresses = new HashSet<>(Arrays.asList(inet4Addresses));
+        _inet6Addresses = new HashSet<>(Arrays.asList(inet6Addresses));
+
+        int hash = this.getKey().hashCode();
+        hash = 31 * hash + this.getPort();
+        hash = 31 * hash + this.getWeight();
+        hash = 31 * hash + this.getPriority();
+        hash = 31 * hash + this.getServer().hashCode();
+        hash = 31 * hash + Arrays.hashCode(_info.getTextBytes());
+        hash = 31 * hash + _inet4Addresses.hashCode();
+        hash = 31 * hash + _inet6Addresses.hashCode();
+        _contentHash = hash;
+    }
+
+    /**
+     * Returns a snapshot of the given service information, the information itself if it already is one.
+     *
+     * @param info
+     *            service information
+     * @return snapshot, or <code>null</code> if the information is <code>null</code>
+     */
+    public static ServiceInfoSnapshot of(ServiceInfo info) {
+        if ((info == null) || (info instanceof ServiceInfoSnapshot)) {
+            return (ServiceInfoSnapshot) info;
+        }
+        return new ServiceInfoSnapshot(info);
+    }
+
+    /**
+     * Returns what changed between a previous snapshot of the same service and this one.
+     *
+     * @param previous
+     *            previous snapshot
+     * @return the parts that changed, all of them if the previous snapshot is <code>null</code> or of another service
+     */
+    public Set<Change> changesFrom(ServiceInfoSnapshot previous) {
+        if (previous == this) {
+            return Collections.emptySet();
+        }
+        if ((previous == null) || !this.getKey().equals(previous.getKey())) {
+            return EnumSet.allOf(Change.class);
+        }
+        final Set<Change> changes = EnumSet.noneOf(Change.class);
+        if ((this.getPort() != previous.getPort()) || (this.getWeight() != previous.getWeight()) || (this.getPriority() != previous.getPriority()) || !this.getServer().equals(previous.getServer())) {
+            changes.add(Change.SERVICE);
+        }
+        if (!Arrays.equals(_info.getTextBytes(), previous._info.getTextBytes())) {
+            changes.add(Change.TEXT);
+        }
+        if (!_inet4Addresses.equals(previous._inet4Addresses) || !_inet6Addresses.equals(previous._inet6Addresses)) {
+            changes.add(Change.ADDRESSES);
+        }
+        return changes;
+    }
+
+    /**
+     * Returns <code>true</code> if both snapshots carry the same content.
+     *
+     * @param other
+     *            other snapshot
+     * @return <code>true</code> if nothing changed between the snapshots
+     */
+    public boolean sameContent(ServiceInfoSnapshot other) {
+        if (other == this) {
+            return true;
+        }
+        if ((other == null) || (_contentHash != other._contentHash)) {
+            return false;
+        }
+        return this.changesFrom(other).isEmpty();
+    }
+
+    /**
+     * @return the hash of the content compared by {@link #sameContent(ServiceInfoSnapshot)}
+     */
+    int getContentHash() {
+        return _contentHash;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#hasSameAddresses(javax.jmdns.ServiceInfo)
+     */
+    @Override
+    public boolean hasSameAddresses(ServiceInfo other) {
+        if (other instanceof ServiceInfoSnapshot) {
+            final ServiceInfoSnapshot snapshot = (ServiceInfoSnapshot) other;
+            return _inet4Addresses.equals(snapshot._inet4Addresses) && _inet6Addresses.equals(snapshot._inet6Addresses);
+        }
+        return _info.hasSameAddresses(other);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#hasData()
+     */
+    @Override
+    public boolean hasData() {
+        return _info.hasData();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getType()
+     */
+    @Override
+    public String getType() {
+        return _info.getType();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getTypeWithSubtype()
+     */
+    @Override
+    public String getTypeWithSubtype() {
+        return _info.getTypeWithSubtype();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getName()
+     */
+    @Override
+    public String getName() {
+        return _info.getName();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getKey()
+     */
+    @Override
+    public String getKey() {
+        return _info.getKey();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getQualifiedName()
+     */
+    @Override
+    public String getQualifiedName() {
+        return _info.getQualifiedName();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getServer()
+     */
+    @Override
+    public String getServer() {
+        return _info.getServer();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#hasServer()
+     */
+    @Override
+    public boolean hasServer() {
+        return _info.hasServer();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getHostAddress()
+     */
+    @Override
+    public String getHostAddress() {
+        return _info.getHostAddress();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getHostAddresses()
+     */
+    @Override
+    public String[] getHostAddresses() {
+        return _info.getHostAddresses();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getAddress()
+     */
+    @Override
+    public InetAddress getAddress() {
+        return _info.getAddress();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getInetAddress()
+     */
+    @Override
+    public InetAddress getInetAddress() {
+        return _info.getInetAddress();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getInet4Address()
+     */
+    @Override
+    public Inet4Address getInet4Address() {
+        return _info.getInet4Address();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getInet6Address()
+     */
+    @Override
+    public Inet6Address getInet6Address() {
+        return _info.getInet6Address();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getInetAddresses()
+     */
+    @Override
+    public InetAddress[] getInetAddresses() {
+        return _info.getInetAddresses();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getInet4Addresses()
+     */
+    @Override
+    public Inet4Address[] getInet4Addresses() {
+        return _info.getInet4Addresses();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getInet6Addresses()
+     */
+    @Override
+    public Inet6Address[] getInet6Addresses() {
+        return _info.getInet6Addresses();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getPort()
+     */
+    @Override
+    public int getPort() {
+        return _info.getPort();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getPriority()
+     */
+    @Override
+    public int getPriority() {
+        return _info.getPriority();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getWeight()
+     */
+    @Override
+    public int getWeight() {
+        return _info.getWeight();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getTextBytes()
+     */
+    @Override
+    public byte[] getTextBytes() {
+        // A copy, the snapshot and its content hash must not change
+        return _info.getTextBytes().clone();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getTextString()
+     */
+    @Override
+    public String getTextString() {
+        return _info.getTextString();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getURL()
+     */
+    @Override
+    public String getURL() {
+        return _info.getURL();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getURLs()
+     */
+    @Override
+    public String[] getURLs() {
+        return _info.getURLs();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getURL(java.lang.String)
+     */
+    @Override
+    public String getURL(String protocol) {
+        return _info.getURL(protocol);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getURLs(java.lang.String)
+     */
+    @Override
+    public String[] getURLs(String protocol) {
+        return _info.getURLs(protocol);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getPropertyBytes(java.lang.String)
+     */
+    @Override
+    public byte[] getPropertyBytes(String name) {
+        return _info.getPropertyBytes(name);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getPropertyString(java.lang.String)
+     */
+    @Override
+    public String getPropertyString(String name) {
+        return _info.getPropertyString(name);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getPropertyNames()
+     */
+    @Override
+    public Enumeration<String> getPropertyNames() {
+        return _info.getPropertyNames();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getNiceTextString()
+     */
+    @Override
+    public String getNiceTextString() {
+        return _info.getNiceTextString();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#isPersistent()
+     */
+    @Override
+    public boolean isPersistent() {
+        return _info.isPersistent();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getDomain()
+     */
+    @Override
+    public String getDomain() {
+        return _info.getDomain();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getProtocol()
+     */
+    @Override
+    public String getProtocol() {
+        return _info.getProtocol();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getApplication()
+     */
+    @Override
+    public String getApplication() {
+        return _info.getApplication();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getSubtype()
+     */
+    @Override
+    public String getSubtype() {
+        return _info.getSubtype();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#getQualifiedNameMap()
+     */
+    @Override
+    public Map<Fields, String> getQualifiedNameMap() {
+        return _info.getQualifiedNameMap();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#setText(byte[])
+     */
+    @Override
+    public void setText(byte[] text) throws IllegalStateException {
+        throw this.immutable();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.ServiceInfo#setText(java.util.Map)
+     */
+    @Override
+    public void setText(Map<String, ?> props) throws IllegalStateException {
+        throw this.immutable();
+    }
+
+    /**
+     * Returns a modifiable copy of the snapshot.
+     *
+     * @return a new service information, not registered
+     */
+    @Override
+    public ServiceInfoImpl clone() {
+        return _info.clone();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return this.getQualifiedName().hashCode();
+    }
+
+    /**
+     * A snapshot equals the service information it was taken from, like all the service informations of the same qualified name.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return ((obj instanceof ServiceInfoSnapshot) || (obj instanceof ServiceInfoImpl)) && this.getQualifiedName().equals(((ServiceInfo) obj).getQualifiedName());
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append('[').append(this.getClass().getSimpleName()).append('@').append(System.identityHashCode(this));
+        sb.append(" name: '").append(this.getQualifiedName());
+        sb.append("' address: '").append(Arrays.toString(this.getInetAddresses())).append(':').append(this.getPort());
+        sb.append(this.isPersistent() ? "' is persistent," : "',");
+        sb.append(this.hasData() ? " has data" : " has NO data");
+        sb.append(']');
+        return sb.toString();
+    }
+
+    private IllegalStateException immutable() {
+        return new IllegalStateException("The service info " + this.getQualifiedName() + " is a snapshot and cannot be modified, use a clone.");
+    }
+
+}
@@ -13,12 +13,24 @@
  */
 package javax.jmdns.impl;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.jmdns.impl.constants.DNSConstants;
+
 import static javax.jmdns.ServiceInfo.Fields;
 
+/**
+ * Splits a qualified name into its instance, subtype, application, protocol and domain.
+ * <p>
+ * The names are decoded by walking their labels once. The result is the one of the patterns below, which are still used for the names the walk does not handle: names with characters outside of ASCII, whose lower case may
+ * not have the same length, and names with line terminators, which the patterns treat specially. The decoded names are kept in a bounded cache, as the same few names come back in every message.
+ * </p>
+ */
 class ServiceTypeDecoder {
 
     private static final Pattern SUBTYPE_PATTERN = Pattern.compile("^((.*)\\._)?_?(.*)\\._sub\\._([^.]*)\\._([^.]*)\\.(.*)\\.?$", Pattern.CASE_INSENSITIVE);
@@ -26,6 +38,26 @@ class ServiceTypeDecoder {
 
     private static final Pattern TYPE_A_PATTERN = Pattern.compile("^([^.]*)\\.(.*)\\.?$");
 
+    private static final String IN_ADDR_ARPA = "in-addr.arpa";
+
+    private static final String IP6_ARPA = "ip6.arpa";
+
+    private static final String SUBTYPE_MARKER = "._sub._";
+
+    private static final String LABEL_MARKER = "._";
+
+    /**
+     * Decoded names, least recently used first. Guarded by itself.
+     */
+    private static final Map<String, Map<Fields, String>> DECODED_NAMES = new LinkedHashMap<String, Map<Fields, String>>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<Fields, String>> eldest) {
+            return this.size() > DNSConstants.DECODED_NAME_CACHE_SIZE;
+        }
+    };
+
     private ServiceTypeDecoder() {
     }
 
@@ -38,7 +70,170 @@ class ServiceTypeDecoder {
         return ServiceInfoImpl.checkQualifiedNameMap(qualifiedNameMap);
     }
 
+    /**
+     * Decodes a qualified name into a map the caller may change.
+     *
+     * @param type
+     *            qualified name
+     * @return a new map of the fields
+     */
     static Map<Fields, String> decodeQualifiedNameMapForType(String type) {
+        return new EnumMap<>(cachedQualifiedNameMapForType(type));
+    }
+
+    /**
+     * Decodes a qualified name, sharing the result with the other callers decoding the same name.
+     *
+     * @param type
+     *            qualified name
+     * @return an unmodifiable map of the fields
+     */
+    static Map<Fields, String> cachedQualifiedNameMapForType(String type) {
+        if (DNSConstants.DECODED_NAME_CACHE_SIZE <= 0) {
+            return Collections.unmodifiableMap(decode(type));
+        }
+        Map<Fields, String> decoded;
+        synchronized (DECODED_NAMES) {
+            decoded = DECODED_NAMES.get(type);
+        }
+        if (decoded == null) {
+            // Decoded outside of the lock, two threads decoding the same name store the same fields
+            decoded = Collections.unmodifiableMap(decode(type));
+            synchronized (DECODED_NAMES) {
+                DECODED_NAMES.put(type.intern(), decoded);
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * @return the number of decoded names in the cache
+     */
+    static int cachedNameCount() {
+        synchronized (DECODED_NAMES) {
+            return DECODED_NAMES.size();
+        }
+    }
+
+    private static Map<Fields, String> decode(String type) {
+        if (!isPlainAscii(type)) {
+            return decodeWithPatterns(type);
+        }
+        String application = "";
+        String protocol = "";
+        String subtype = "";
+        String name = "";
+        String domain = "";
+
+        int index = indexOfIgnoreCase(type, IN_ADDR_ARPA);
+        if (index < 0) {
+            index = indexOfIgnoreCase(type, IP6_ARPA);
+        }
+        if (index >= 0) {
+            name = ServiceInfoImpl.removeSeparators(type.substring(0, index));
+            domain = type.substring(index);
+        } else {
+            final int marker = lastSubtypeMarker(type);
+            if (marker >= 0) {
+                // [instance._][_]subtype._sub._application._protocol.domain, the instance ends at the last label marker before the subtype
+                final int instanceEnd = type.lastIndexOf(LABEL_MARKER, marker - 2);
+                int subtypeStart = 0;
+                if (instanceEnd >= 0) {
+                    name = type.substring(0, instanceEnd);
+                    subtypeStart = instanceEnd + 2;
+                }
+                if ((subtypeStart < marker) && (type.charAt(subtypeStart) == '_')) {
+                    subtypeStart++;
+                }
+                subtype = type.substring(subtypeStart, marker);
+                final int applicationStart = marker + SUBTYPE_MARKER.length();
+                final int applicationEnd = type.indexOf('.', applicationStart);
+                final int protocolEnd = protocolEnd(type, applicationStart);
+                application = type.substring(applicationStart, applicationEnd);
+                protocol = type.substring(applicationEnd + 2, protocolEnd);
+                domain = type.substring(protocolEnd + 1);
+            } else {
+                // [instance._]application._protocol.domain, the instance ends at the last label marker followed by a service
+                int applicationStart = -1;
+                for (int instanceEnd = type.lastIndexOf(LABEL_MARKER); instanceEnd >= 0; instanceEnd = type.lastIndexOf(LABEL_MARKER, instanceEnd - 1)) {
+                    if (protocolEnd(type, instanceEnd + 2) >= 0) {
+                        name = type.substring(0, instanceEnd);
+                        applicationStart = instanceEnd + 2;
+                        break;
+                    }
+                }
+                if ((applicationStart < 0) && (protocolEnd(type, 0) >= 0)) {
+                    applicationStart = 0;
+                }
+                if (applicationStart >= 0) {
+                    final int applicationEnd = type.indexOf('.', applicationStart);
+                    final int protocolEnd = protocolEnd(type, applicationStart);
+                    application = type.substring(applicationStart, applicationEnd);
+                    protocol = type.substring(applicationEnd + 2, protocolEnd);
+                    domain = type.substring(protocolEnd + 1);
+                } else {
+                    // host.domain
+                    final int hostEnd = type.indexOf('.');
+                    if (hostEnd >= 0) {
+                        name = type.substring(0, hostEnd);
+                        domain = type.substring(hostEnd + 1);
+                    } else {
+                        application = type.toLowerCase();
+                    }
+                }
+            }
+        }
+
+        return ServiceInfoImpl.createQualifiedMap(name, ServiceInfoImpl.removeSeparators(application), protocol, ServiceInfoImpl.removeSeparators(domain), subtype);
+    }
+
+    /**
+     * Finds the end of <code>application._protocol.</code> starting at <code>from</code>, neither label holding a dot.
+     *
+     * @return index of the dot ending the protocol, -1 if there is no service at <code>from</code>
+     */
+    private static int protocolEnd(String type, int from) {
+        final int applicationEnd = type.indexOf('.', from);
+        if ((applicationEnd < 0) || (applicationEnd + 1 >= type.length()) || (type.charAt(applicationEnd + 1) != '_')) {
+            return -1;
+        }
+        return type.indexOf('.', applicationEnd + 2);
+    }
+
+    /**
+     * Finds the last <code>._sub._</code>, in any case, followed by a service.
+     *
+     * @return index of the marker, -1 if there is none
+     */
+    private static int lastSubtypeMarker(String type) {
+        for (int index = type.length() - SUBTYPE_MARKER.length(); index >= 0; index--) {
+            if (type.regionMatches(true, index, SUBTYPE_MARKER, 0, SUBTYPE_MARKER.length()) && (protocolEnd(type, index + SUBTYPE_MARKER.length()) >= 0)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfIgnoreCase(String type, String part) {
+        for (int index = 0, last = type.length() - part.length(); index <= last; index++) {
+            if (type.regionMatches(true, index, part, 0, part.length())) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isPlainAscii(String type) {
+        for (int index = 0; index < type.length(); index++) {
+            final char c = type.charAt(index);
+            if ((c >= 0x80) || (c == '\n') || (c == '\r')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static Map<Fields, String> decodeWithPatterns(String type) {
         int index;
 
         String casePreservedType = type;
@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the number of datagrams the Linux kernel dropped on our sockets because their receive buffer was full, from <code>/proc/net/udp</code> and <code>/proc/net/udp6</code>.
+ * <p>
+ * The sockets are recognized by their inode: the sockets of the process are listed before and after the transport is opened, the new ones are ours. On other systems, or when <code>/proc</code> is not readable, there is no monitor.
+ * </p>
+ */
+public class SocketDropMonitor {
+    private final Logger            logger      = LoggerFactory.getLogger(SocketDropMonitor.class);
+
+    private static final Path       PROCESS_FDS = Paths.get("/proc/self/fd");
+
+    private static final List<Path> UDP_TABLES  = Arrays.asList(Paths.get("/proc/net/udp"), Paths.get("/proc/net/udp6"));
+
+    private static final String     SOCKET      = "socket:[";
+
+    // Columns of /proc/net/udp
+    private static final int        QUEUES      = 4;
+
+    private static final int        INODE       = 9;
+
+    private static final int        DROPS       = 12;
+
+    private final Set<Long>         _inodes;
+
+    private final List<Path>        _tables;
+
+    /**
+     * Create a monitor.
+     *
+     * @param inodes
+     *            inodes of the sockets to watch
+     * @param tables
+     *            UDP socket tables to read
+     */
+    SocketDropMonitor(Set<Long> inodes, List<Path> tables) {
+        super();
+        _inodes = inodes;
+        _tables = tables;
+    }
+
+    /**
+     * Lists the sockets of the process, to call before opening the transport.
+     *
+     * @return inodes of the sockets, <code>null</code> if they cannot be listed or their drops cannot be read
+     */
+    public static Set<Long> socketInodes() {
+        if (!Files.isDirectory(PROCESS_FDS) || !Files.isReadable(UDP_TABLES.get(0))) {
+            return null;
+        }
+        final Set<Long> inodes = new HashSet<>();
+        try (DirectoryStream<Path> fds = Files.newDirectoryStream(PROCESS_FDS)) {
+            for (Path fd : fds) {
+                try {
+                    final String target = Files.readSymbolicLink(fd).toString();
+                    if (target.startsWith(SOCKET)) {
+                        inodes.add(Long.valueOf(target.substring(SOCKET.length(), target.length() - 1)));
+                    }
+                } catch (IOException | RuntimeException exception) {
+                    // Closed in between or not a socket
+                }
+            }
+        } catch (IOException exception) {
+            LoggerFactory.getLogger(SocketDropMonitor.class).debug("Could not list the sockets of the process", exception);
+            return null;
+        }
+        return inodes;
+    }
+
+    /**
+     * Create the monitor of the sockets opened since <code>before</code> was listed.
+     *
+     * @param before
+     *            sockets of the process before the transport was opened, as returned by {@link #socketInodes()}
+     * @return the monitor, or <code>null</code> if the drops cannot be read on this system
+     */
+    public static SocketDropMonitor newMonitor(Set<Long> before) {
+        final Set<Long> inodes = (before != null ? socketInodes() : null);
+        if (inodes == null) {
+            return null;
+        }
+        inodes.removeAll(before);
+        return (inodes.isEmpty() ? null : new SocketDropMonitor(inodes, UDP_TABLES));
+    }
+
+    /**
+     * Reads the number of datagrams dropped on the watched sockets since they were opened.
+     *
+     * @return the number of drops, or -1 if the tables cannot be read
+     */
+    public long getDrops() {
+        return this.sum(DROPS);
+    }
+
+    /**
+     * Reads the number of bytes waiting in the receive buffers of the watched sockets.
+     *
+     * @return the queued bytes, or -1 if the tables cannot be read
+     */
+    public long getReceiveQueue() {
+        return this.sum(QUEUES);
+    }
+
+    private long sum(int column) {
+        long sum = 0;
+        boolean found = false;
+        for (Path table : _tables) {
+            try (BufferedReader reader = Files.newBufferedReader(table, StandardCharsets.US_ASCII)) {
+                // Skip the header
+                String line = reader.readLine();
+                while ((line = reader.readLine()) != null) {
+                    final String[] fields = line.trim().split("\\s+");
+                    if ((fields.length > DROPS) && _inodes.contains(Long.valueOf(fields[INODE]))) {
+                        sum += this.value(fields[column], column);
+                        found = true;
+                    }
+                }
+            } catch (IOException | RuntimeException exception) {
+                logger.trace("Could not read {}", table, exception);
+            }
+        }
+        return (found ? sum : -1);
+    }
+
+    private long value(String field, int column) {
+        if (column == QUEUES) {
+            // tx_queue:rx_queue in hexadecimal
+            return Long.parseLong(field.substring(field.indexOf(':') + 1), 16);
+        }
+        return Long.parseLong(field);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "SocketDropMonitor(sockets: " + _inodes + " drops: " + this.getDrops() + ")";
+    }
+
+}
@@ -27,12 +27,23 @@ import org.slf4j.LoggerFactory;
 class SocketListener extends Thread {
     final Logger logger = LoggerFactory.getLogger(SocketListener.class);
     
-    private final JmDNSImpl _jmDNSImpl;
+    private final JmDNSImpl    _jmDNSImpl;
 
-    SocketListener(JmDNSImpl jmDNSImpl) {
+    private final DNSTransport _transport;
+
+    /**
+     * Create a listener reading the given transport until it is closed or replaced.
+     *
+     * @param jmDNSImpl
+     *            instance handling the messages
+     * @param transport
+     *            transport to read
+     */
+    SocketListener(JmDNSImpl jmDNSImpl, DNSTransport transport) {
         super("SocketListener(" + (jmDNSImpl != null ? jmDNSImpl.getName() : "") + ")");
         this.setDaemon(true);
         this._jmDNSImpl = jmDNSImpl;
+        this._transport = transport;
     }
 
     private void sleepThread() {
@@ -40,7 +51,7 @@ class SocketListener extends Thread {
             try {
                 // sleep a small amount of time in case the network is overloaded with mdns packets (some devices do this),
                 // in order to allow other threads to get some cpu time
-                Thread.sleep(_jmDNSImpl._threadSleepDurationMs);
+                DNSClock.Factory.getClock().sleep(_jmDNSImpl._threadSleepDurationMs);
             } catch (InterruptedException e) {
                 logger.warn("{}.run() interrupted ", this.getName(), e);
                 Thread.currentThread().interrupt();
@@ -54,51 +65,52 @@ class SocketListener extends Thread {
             byte[] buf = new byte[DNSConstants.MAX_MSG_ABSOLUTE];
             DatagramPacket packet = new DatagramPacket(buf, buf.length);
 
-            while (!this._jmDNSImpl.isCanceling() && !this._jmDNSImpl.isCanceled()) {
-                sleepThread();
+            while (!this._jmDNSImpl.isCanceling() && !this._jmDNSImpl.isCanceled() && this.isCurrent()) {
+                final IngressLimiter limiter = this._jmDNSImpl.getIngressLimiter();
+                if (limiter == null) {
+                    sleepThread();
+                }
                 packet.setLength(buf.length);
-                this._jmDNSImpl.getSocket().receive(packet);
+                _transport.receive(packet);
                 if (this._jmDNSImpl.isCanceling() || this._jmDNSImpl.isCanceled() || this._jmDNSImpl.isClosing() || this._jmDNSImpl.isClosed()) {
                     break;
                 }
+                final PacketCapture capture = this._jmDNSImpl.getPacketCapture();
+                if (capture != null) {
+                    capture.capture(packet, false, this._jmDNSImpl.getLocalHost());
+                }
+                if ((limiter != null) && !limiter.admit(packet.getAddress())) {
+                    continue;
+                }
+                final long start = System.nanoTime();
                 try {
-                    if (this._jmDNSImpl.getLocalHost().shouldIgnorePacket(packet)) {
-                        continue;
-                    }
-
-                    DNSIncoming msg = new DNSIncoming(packet);
-                    if (msg.isValidResponseCode()) {
-                        if (logger.isTraceEnabled()) {
-                            logger.trace("{}.run() JmDNS in:{}", this.getName(), msg.print(true));
-                        }
-                        if (msg.isQuery()) {
-                            // When we have a QUERY, unique means that QU is true, and we should respond to the sender directly
-                            if (msg.getQuestions().stream().anyMatch(DNSEntry::isUnique)) {
-                                this._jmDNSImpl.handleQuery(msg, packet.getAddress(), packet.getPort());
-                            } else {
-                                this._jmDNSImpl.handleQuery(msg, this._jmDNSImpl.getGroup(), DNSConstants.MDNS_PORT);
-                            }
-                        } else {
-                            this._jmDNSImpl.handleResponse(msg);
-                        }
-                    } else {
-                        if (logger.isDebugEnabled()) {
-                            logger.debug("{}.run() JmDNS in message with error code: {}", this.getName(), msg.print(true));
-                        }
-                    }
+                    this._jmDNSImpl.handlePacket(packet);
                 } catch (IOException e) {
                     logger.warn("{}.run() exception ", this.getName(), e);
                 }
+                if (limiter != null) {
+                    limiter.charge(System.nanoTime() - start);
+                }
             }
         } catch (IOException e) {
-            if (!this._jmDNSImpl.isCanceling() && !this._jmDNSImpl.isCanceled() && !this._jmDNSImpl.isClosing() && !this._jmDNSImpl.isClosed()) {
+            // A replaced transport is closed on purpose
+            if (!this._jmDNSImpl.isCanceling() && !this._jmDNSImpl.isCanceled() && !this._jmDNSImpl.isClosing() && !this._jmDNSImpl.isClosed() && this.isCurrent()) {
                 logger.warn("{}.run() exception ", this.getName(), e);
                 this._jmDNSImpl.recover();
             }
+        } finally {
+            // Wake up closeMulticastSocket()
+            synchronized (this._jmDNSImpl) {
+                this._jmDNSImpl.notifyAll();
+            }
         }
         logger.trace("{}.run() exiting.", this.getName());
     }
 
+    private boolean isCurrent() {
+        return _transport == this._jmDNSImpl.getTransport();
+    }
+
     public JmDNSImpl getDns() {
         return _jmDNSImpl;
     }
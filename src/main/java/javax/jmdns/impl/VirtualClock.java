@@ -0,0 +1,435 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import javax.jmdns.impl.tasks.DNSTask;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A deterministic clock where time only moves when {@link #advance(long)} is called.
+ * <p>
+ * Timers created by this clock do not own a thread: their tasks run on the thread calling {@link #advance(long)}, in order of their scheduled time, with the clock set to that time. Threads sleeping through {@link #sleep(long)} are released once the
+ * virtual time reaches their deadline, as are threads waiting on a monitor through {@link #waitOn(Object, long)}.
+ * </p>
+ *
+ * <pre>
+ * VirtualClock clock = new VirtualClock();
+ * DNSClock.Factory.setClock(clock);
+ * JmDNS jmdns = JmDNS.create(...);
+ * clock.advance(DNSConstants.DNS_TTL * 1000L); // one hour of renewals and cache expiry
+ * </pre>
+ */
+public class VirtualClock implements DNSClock {
+    private final Logger                      logger = LoggerFactory.getLogger(VirtualClock.class);
+
+    private final PriorityQueue<ScheduledTask> _queue;
+
+    private final List<Waiter>                 _waiters;
+
+    private final Object                       _advanceLock;
+
+    private volatile long                      _now;
+
+    private long                               _sequence;
+
+    /**
+     * Create a virtual clock starting at the current system time.
+     */
+    public VirtualClock() {
+        this(System.currentTimeMillis());
+    }
+
+    /**
+     * Create a virtual clock starting at the given time.
+     *
+     * @param startTime
+     *            initial time in milliseconds
+     */
+    public VirtualClock(long startTime) {
+        super();
+        _queue = new PriorityQueue<>();
+        _waiters = new ArrayList<>();
+        _advanceLock = new Object();
+        _now = startTime;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.impl.DNSClock#currentTimeMillis()
+     */
+    @Override
+    public long currentTimeMillis() {
+        return _now;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.impl.DNSClock#sleep(long)
+     */
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        if (millis <= 0) {
+            return;
+        }
+        synchronized (this) {
+            final long deadline = _now + millis;
+            while (_now < deadline) {
+                this.wait();
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.impl.DNSClock#waitOn(java.lang.Object, long)
+     */
+    @Override
+    public void waitOn(Object monitor, long millis) throws InterruptedException {
+        if (millis <= 0) {
+            return;
+        }
+        final Waiter waiter;
+        synchronized (this) {
+            waiter = new Waiter(monitor, _now + millis);
+            _waiters.add(waiter);
+        }
+        try {
+            // The monitor is still owned here, the notification of a deadline reached meanwhile waits for this wait
+            monitor.wait();
+        } finally {
+            synchronized (this) {
+                _waiters.remove(waiter);
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.impl.DNSClock#newTimer(java.lang.String, boolean)
+     */
+    @Override
+    public Timer newTimer(String name, boolean isDaemon) {
+        return new VirtualTimer(name);
+    }
+
+    /**
+     * Moves the time forward, running every task that becomes due on the way.
+     *
+     * @param millis
+     *            amount of time in milliseconds
+     */
+    public void advance(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Time cannot go backward: " + millis);
+        }
+        synchronized (_advanceLock) {
+            this.advanceTo(_now + millis);
+        }
+    }
+
+    /**
+     * Runs every task already due without moving the time forward.
+     */
+    public void runDueTasks() {
+        this.advance(0);
+    }
+
+    /**
+     * Returns the number of tasks waiting to be run.
+     *
+     * @return number of pending tasks
+     */
+    public synchronized int getPendingTaskCount() {
+        return _queue.size();
+    }
+
+    private void advanceTo(long time) {
+        while (true) {
+            final ScheduledTask next;
+            synchronized (this) {
+                next = _queue.peek();
+                if ((next == null) || (next._time > time)) {
+                    break;
+                }
+                _queue.poll();
+                this.setTime(next._time);
+            }
+            if (next.isCancelled()) {
+                continue;
+            }
+            try {
+                next._task.run();
+            } catch (RuntimeException exception) {
+                logger.warn("{} task {} failed", next._timer, next._task, exception);
+            }
+            this.releaseWaiters();
+            if ((next._period > 0) && !next.isCancelled()) {
+                synchronized (this) {
+                    next._time += next._period;
+                    next._sequence = _sequence++;
+                    _queue.add(next);
+                }
+            }
+        }
+        synchronized (this) {
+            this.setTime(time);
+        }
+        this.releaseWaiters();
+    }
+
+    private void releaseWaiters() {
+        final List<Object> monitors = new ArrayList<>();
+        synchronized (this) {
+            for (Waiter waiter : _waiters) {
+                if (waiter._deadline <= _now) {
+                    monitors.add(waiter._monitor);
+                }
+            }
+        }
+        // Outside of the clock lock, the waiting threads own their monitor while registering
+        for (Object monitor : monitors) {
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    private void setTime(long time) {
+        if (time > _now) {
+            _now = time;
+            this.notifyAll();
+        }
+    }
+
+    synchronized void schedule(VirtualTimer timer, TimerTask task, long time, long period) {
+        _queue.add(new ScheduledTask(timer, task, Math.max(time, _now), period, _sequence++));
+    }
+
+    synchronized void cancel(VirtualTimer timer) {
+        for (Iterator<ScheduledTask> i = _queue.iterator(); i.hasNext();) {
+            ScheduledTask scheduled = i.next();
+            if (scheduled._timer == timer) {
+                scheduled.cancel();
+                i.remove();
+            }
+        }
+    }
+
+    synchronized int purge(VirtualTimer timer) {
+        int removed = 0;
+        for (Iterator<ScheduledTask> i = _queue.iterator(); i.hasNext();) {
+            ScheduledTask scheduled = i.next();
+            if ((scheduled._timer == timer) && scheduled.isCancelled()) {
+                i.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private static final class Waiter {
+
+        final Object _monitor;
+
+        final long   _deadline;
+
+        Waiter(Object monitor, long deadline) {
+            super();
+            _monitor = monitor;
+            _deadline = deadline;
+        }
+    }
+
+    private static final class ScheduledTask implements Comparable<ScheduledTask> {
+
+        final VirtualTimer _timer;
+
+        final TimerTask    _task;
+
+        final long         _period;
+
+        long               _time;
+
+        long               _sequence;
+
+        /**
+         * Set when the task is dropped through its timer, {@link TimerTask} itself does not tell if it was cancelled.
+         */
+        private volatile boolean _cancelled;
+
+        ScheduledTask(VirtualTimer timer, TimerTask task, long time, long period, long sequence) {
+            super();
+            _timer = timer;
+            _task = task;
+            _time = time;
+            _period = period;
+            _sequence = sequence;
+        }
+
+        void cancel() {
+            _cancelled = true;
+        }
+
+        boolean isCancelled() {
+            return _cancelled || _timer.isCancelled() || ((_task instanceof DNSTask) && ((DNSTask) _task).isCancelled());
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Comparable#compareTo(java.lang.Object)
+         */
+        @Override
+        public int compareTo(ScheduledTask other) {
+            int result = Long.compare(_time, other._time);
+            return (result != 0 ? result : Long.compare(_sequence, other._sequence));
+        }
+
+    }
+
+    /**
+     * A timer whose tasks are run by the enclosing clock instead of a background thread.
+     */
+    final class VirtualTimer extends Timer {
+
+        private final String     _name;
+
+        private volatile boolean _cancelled;
+
+        VirtualTimer(String name) {
+            super(name, true);
+            // Every Timer constructor starts a thread, stop it before it can get any task: the tasks are only kept by the clock
+            super.cancel();
+            _name = name;
+        }
+
+        boolean isCancelled() {
+            return _cancelled;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.Timer#cancel()
+         */
+        @Override
+        public void cancel() {
+            _cancelled = true;
+            VirtualClock.this.cancel(this);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.Timer#purge()
+         */
+        @Override
+        public int purge() {
+            return VirtualClock.this.purge(this);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.Timer#schedule(java.util.TimerTask, long)
+         */
+        @Override
+        public void schedule(TimerTask task, long delay) {
+            this.add(task, _now + checkDelay(delay), 0);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.Timer#schedule(java.util.TimerTask, java.util.Date)
+         */
+        @Override
+        public void schedule(TimerTask task, Date time) {
+            this.add(task, time.getTime(), 0);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.Timer#schedule(java.util.TimerTask, long, long)
+         */
+        @Override
+        public void schedule(TimerTask task, long delay, long period) {
+            this.add(task, _now + checkDelay(delay), checkPeriod(period));
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.Timer#schedule(java.util.TimerTask, java.util.Date, long)
+         */
+        @Override
+        public void schedule(TimerTask task, Date firstTime, long period) {
+            this.add(task, firstTime.getTime(), checkPeriod(period));
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.Timer#scheduleAtFixedRate(java.util.TimerTask, long, long)
+         */
+        @Override
+        public void scheduleAtFixedRate(TimerTask task, long delay, long period) {
+            this.add(task, _now + checkDelay(delay), checkPeriod(period));
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.Timer#scheduleAtFixedRate(java.util.TimerTask, java.util.Date, long)
+         */
+        @Override
+        public void scheduleAtFixedRate(TimerTask task, Date firstTime, long period) {
+            this.add(task, firstTime.getTime(), checkPeriod(period));
+        }
+
+        private void add(TimerTask task, long time, long period) {
+            // Like the StarterTimer, silently ignore tasks rescheduled after cancellation
+            if (!_cancelled) {
+                VirtualClock.this.schedule(this, task, time, period);
+            }
+        }
+
+        private long checkDelay(long delay) {
+            if (delay < 0) {
+                throw new IllegalArgumentException("Negative delay.");
+            }
+            return delay;
+        }
+
+        private long checkPeriod(long period) {
+            if (period <= 0) {
+                throw new IllegalArgumentException("Non-positive period.");
+            }
+            return period;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return "VirtualTimer(" + _name + ")";
+        }
+
+    }
+
+}
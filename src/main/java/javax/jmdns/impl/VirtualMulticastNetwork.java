@@ -0,0 +1,349 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jmdns.impl.constants.DNSConstants;
+import javax.jmdns.impl.util.NamedThreadFactory;
+
+/**
+ * An in-memory multicast bus that lets many JmDNS instances talk to each other inside a single JVM without touching the network.
+ * <p>
+ * Install the network as the {@link DNSTransport.Factory.ClassDelegate} before creating the JmDNS instances, each instance must be bound to a distinct (possibly fictitious) address:
+ *
+ * <pre>
+ * VirtualMulticastNetwork network = new VirtualMulticastNetwork();
+ * network.setLossProbability(0.01);
+ * network.setLatency(1, 5);
+ * DNSTransport.Factory.setClassDelegate(network);
+ * JmDNS host1 = JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1");
+ * JmDNS host2 = JmDNS.create(InetAddress.getByName("10.0.0.2"), "host2");
+ * </pre>
+ * <p>
+ * Datagrams sent to the multicast group are delivered to every attached transport of the same address family, including the sender as a real socket with multicast loopback would. Datagrams sent to a unicast address are delivered to the transport bound
+ * to that address.
+ * </p>
+ */
+public class VirtualMulticastNetwork implements DNSTransport.Factory.ClassDelegate {
+
+    private final CopyOnWriteArrayList<VirtualTransport> _transports;
+
+    private final ScheduledExecutorService               _scheduler;
+
+    private final Random                                 _random;
+
+    private volatile double                              _lossProbability;
+
+    private volatile int                                 _minLatency;
+
+    private volatile int                                 _maxLatency;
+
+    private final AtomicLong                             _sent;
+
+    private final AtomicLong                             _delivered;
+
+    private final AtomicLong                             _dropped;
+
+    /**
+     * Create a lossless network without latency.
+     */
+    public VirtualMulticastNetwork() {
+        this(new Random());
+    }
+
+    /**
+     * Create a lossless network without latency.
+     *
+     * @param random
+     *            source of randomness for loss and latency, use a seeded instance for reproducible runs
+     */
+    public VirtualMulticastNetwork(Random random) {
+        super();
+        _transports = new CopyOnWriteArrayList<>();
+        _scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("VirtualMulticastNetwork") {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = super.newThread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        _random = random;
+        _sent = new AtomicLong();
+        _delivered = new AtomicLong();
+        _dropped = new AtomicLong();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.impl.DNSTransport.Factory.ClassDelegate#newDNSTransport(javax.jmdns.impl.JmDNSImpl, javax.jmdns.impl.HostInfo)
+     */
+    @Override
+    public DNSTransport newDNSTransport(JmDNSImpl jmDNSImpl, HostInfo hostInfo) throws IOException {
+        VirtualTransport transport = new VirtualTransport(hostInfo.getInetAddress());
+        _transports.add(transport);
+        return transport;
+    }
+
+    /**
+     * Sets the probability that a datagram is lost on its way to each receiver.
+     *
+     * @param lossProbability
+     *            value between 0 (no loss) and 1 (everything is lost)
+     */
+    public void setLossProbability(double lossProbability) {
+        _lossProbability = lossProbability;
+    }
+
+    /**
+     * Returns the probability that a datagram is lost on its way to each receiver.
+     *
+     * @return loss probability
+     */
+    public double getLossProbability() {
+        return _lossProbability;
+    }
+
+    /**
+     * Sets the one way latency. Each delivery picks a uniformly distributed delay in the given range.
+     *
+     * @param minLatency
+     *            minimal latency in milliseconds
+     * @param maxLatency
+     *            maximal latency in milliseconds
+     */
+    public void setLatency(int minLatency, int maxLatency) {
+        if (minLatency < 0 || maxLatency < minLatency) {
+            throw new IllegalArgumentException("Invalid latency range: " + minLatency + "-" + maxLatency);
+        }
+        _minLatency = minLatency;
+        _maxLatency = maxLatency;
+    }
+
+    /**
+     * @return the number of datagrams sent on this network
+     */
+    public long getSentCount() {
+        return _sent.get();
+    }
+
+    /**
+     * @return the number of datagrams delivered to a receiver, a multicast datagram counts once per receiver
+     */
+    public long getDeliveredCount() {
+        return _delivered.get();
+    }
+
+    /**
+     * @return the number of datagrams dropped by the simulated loss
+     */
+    public long getDroppedCount() {
+        return _dropped.get();
+    }
+
+    /**
+     * @return the number of open transports attached to this network
+     */
+    public int getTransportCount() {
+        return _transports.size();
+    }
+
+    /**
+     * Stops the delivery thread. Transports still attached will not receive anything anymore.
+     */
+    public void shutdown() {
+        _scheduler.shutdownNow();
+    }
+
+    void deliver(VirtualTransport sender, DatagramPacket packet) {
+        _sent.incrementAndGet();
+        final InetAddress destination = packet.getAddress();
+        final boolean multicast = (destination == null) || destination.isMulticastAddress();
+        final byte[] data = new byte[packet.getLength()];
+        System.arraycopy(packet.getData(), packet.getOffset(), data, 0, data.length);
+        // Every transport stands for a socket bound to the mDNS port, whatever the destination port its datagrams come from there
+        final int sourcePort = DNSConstants.MDNS_PORT;
+
+        for (final VirtualTransport receiver : _transports) {
+            if (multicast) {
+                if ((receiver._address instanceof Inet6Address) != (sender._address instanceof Inet6Address)) {
+                    continue;
+                }
+            } else if (!receiver._address.equals(destination)) {
+                continue;
+            }
+            if (_lossProbability > 0 && nextDouble() < _lossProbability) {
+                _dropped.incrementAndGet();
+                continue;
+            }
+            final DatagramPacket copy = new DatagramPacket(data, data.length, sender._address, sourcePort);
+            final int delay = nextLatency();
+            if (delay <= 0) {
+                receiver.enqueue(copy);
+            } else {
+                try {
+                    _scheduler.schedule(() -> receiver.enqueue(copy), delay, TimeUnit.MILLISECONDS);
+                } catch (Exception exception) {
+                    // The network has been shut down
+                    _dropped.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private double nextDouble() {
+        synchronized (_random) {
+            return _random.nextDouble();
+        }
+    }
+
+    private int nextLatency() {
+        if (_maxLatency <= 0) {
+            return 0;
+        }
+        synchronized (_random) {
+            return _minLatency + _random.nextInt(_maxLatency - _minLatency + 1);
+        }
+    }
+
+    /**
+     * One endpoint of the virtual network.
+     */
+    final class VirtualTransport implements DNSTransport {
+
+        private final DatagramPacket                 _closeMarker = new DatagramPacket(new byte[0], 0);
+
+        private final InetAddress                    _address;
+
+        private final InetAddress                    _group;
+
+        private final BlockingQueue<DatagramPacket>  _inbox;
+
+        private volatile boolean                     _closed;
+
+        VirtualTransport(InetAddress address) throws IOException {
+            super();
+            _address = address;
+            _group = InetAddress.getByName(address instanceof Inet6Address ? DNSConstants.MDNS_GROUP_IPV6 : DNSConstants.MDNS_GROUP);
+            _inbox = new LinkedBlockingQueue<>();
+        }
+
+        /**
+         * @return the address the transport is bound to
+         */
+        InetAddress getAddress() {
+            return _address;
+        }
+
+        void enqueue(DatagramPacket packet) {
+            if (!_closed) {
+                _inbox.offer(packet);
+                _delivered.incrementAndGet();
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.impl.DNSTransport#getGroup()
+         */
+        @Override
+        public InetAddress getGroup() {
+            return _group;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.impl.DNSTransport#send(java.net.DatagramPacket)
+         */
+        @Override
+        public void send(DatagramPacket packet) throws IOException {
+            if (!_closed) {
+                deliver(this, packet);
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.impl.DNSTransport#receive(java.net.DatagramPacket)
+         */
+        @Override
+        public void receive(DatagramPacket packet) throws IOException {
+            if (_closed) {
+                throw new SocketException("Socket is closed");
+            }
+            DatagramPacket received;
+            try {
+                received = _inbox.take();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new SocketException("Interrupted");
+            }
+            if (received == _closeMarker) {
+                throw new SocketException("Socket closed");
+            }
+            int length = Math.min(received.getLength(), packet.getData().length - packet.getOffset());
+            System.arraycopy(received.getData(), 0, packet.getData(), packet.getOffset(), length);
+            packet.setLength(length);
+            packet.setAddress(received.getAddress());
+            packet.setPort(received.getPort());
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.impl.DNSTransport#isClosed()
+         */
+        @Override
+        public boolean isClosed() {
+            return _closed;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.impl.DNSTransport#close()
+         */
+        @Override
+        public void close() {
+            if (!_closed) {
+                _closed = true;
+                _transports.remove(this);
+                _inbox.clear();
+                _inbox.offer(_closeMarker);
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return "VirtualTransport(" + _address.getHostAddress() + ")";
+        }
+
+    }
+
+}
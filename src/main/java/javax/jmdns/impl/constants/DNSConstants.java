@@ -26,7 +26,11 @@ public final class DNSConstants {
     public static final int DNS_PORT = 53;
     public static final int DNS_TTL = Integer.getInteger("net.dns.ttl", 60 * 60); // default one hour TTL
     public static final int MAX_MSG_TYPICAL = 1460;
+    public static final int ETHERNET_MTU = 1500; // MTU of an ordinary Ethernet link, larger ones carry jumbo frames
     public static final int MAX_MSG_ABSOLUTE = 8972;
+    public static final int MAX_UDP_PAYLOAD = Integer.getInteger("net.mdns.payload", 0); // payload size of the multicast messages sent, 0 to derive it from the interface MTU
+    public static final int SOCKET_RECEIVE_BUFFER = Integer.getInteger("net.mdns.rcvbuf", 0); // SO_RCVBUF of the multicast socket in bytes, 0 to keep the system default
+    public static final int SOCKET_SEND_BUFFER = Integer.getInteger("net.mdns.sndbuf", 0); // SO_SNDBUF of the multicast socket in bytes, 0 to keep the system default
     public static final int FLAGS_QR_MASK = 0x8000; // Query response mask
     public static final int FLAGS_QR_QUERY = 0x0000; // Query
     public static final int FLAGS_QR_RESPONSE = 0x8000; // Response
@@ -46,6 +50,10 @@ public final class DNSConstants {
     public static final int PROBE_WAIT_INTERVAL = 250; // milliseconds between probe loops.
     public static final int RESPONSE_MIN_WAIT_INTERVAL = 20; // minimal wait interval for response.
     public static final int RESPONSE_MAX_WAIT_INTERVAL = 115; // maximal wait interval for response
+    public static final int TRUNCATED_RESPONSE_MIN_WAIT_INTERVAL = 400; // minimal wait interval for the response to a truncated query, rfc6762 section 7.2
+    public static final int TRUNCATED_RESPONSE_MAX_WAIT_INTERVAL = 500; // maximal wait interval for the response to a truncated query
+    public static final int KNOWN_ANSWER_CONTINUATION_INTERVAL = Integer.getInteger("net.mdns.knownanswer.interval", 5); // milliseconds between the continuation packets of a query with many known answers
+    public static final int TRUNCATED_QUERY_TIMEOUT = Integer.getInteger("net.mdns.truncated.timeout", TRUNCATED_RESPONSE_MAX_WAIT_INTERVAL); // milliseconds a truncated query waits for the continuation of its sender
     public static final int PROBE_CONFLICT_INTERVAL = 1000; // milliseconds to wait after conflict.
     public static final int PROBE_THROTTLE_COUNT = 10; // After x tries go 1 time a sec. on probes.
     public static final int PROBE_THROTTLE_COUNT_INTERVAL = 5000; // We only increment the throttle count, if the previous increment is inside this interval.
@@ -54,12 +62,40 @@ public final class DNSConstants {
     public static final int RECORD_EXPIRY_DELAY = 1; // This is 1s delay used in ttl and therefore in seconds
     public static final int KNOWN_ANSWER_TTL = 120;
     public static final int ANNOUNCED_RENEWAL_TTL_INTERVAL = DNS_TTL * 500; // 50% of the TTL in milliseconds
+    public static final int ANNOUNCED_RENEWAL_JITTER = Integer.getInteger("net.mdns.renewal.jitter", 20); // percentage of the renewal interval over which the renewals are spread
+    public static final int ANNOUNCED_RENEWAL_RATE = Integer.getInteger("net.mdns.renewal.rate", 10); // maximum renewal packets per second
+    public static final int ANNOUNCED_RENEWAL_TICK_INTERVAL = 1000; // milliseconds between two checks for due renewals
     public static final int FLUSH_RECORD_OLDER_THAN_1_SECOND = 1; // rfc6762, section 10.2 Flush outdated cache (older than 1 second)
     public static final int STALE_REFRESH_INCREMENT = 5;
     public static final int STALE_REFRESH_STARTING_PERCENTAGE = 80;
     public static final long CLOSE_TIMEOUT = ANNOUNCE_WAIT_INTERVAL * 5L;
     public static final long SERVICE_INFO_TIMEOUT = ANNOUNCE_WAIT_INTERVAL * 6L;
+    public static final int LIST_SETTLE_TIME = Integer.getInteger("net.mdns.list.settle", 200); // milliseconds without new answers before a list is considered complete
+    public static final int ECHO_RING_SIZE = Integer.getInteger("net.mdns.echo.ring", 64); // multicast datagrams sent remembered to recognize their echoes, 0 to handle every echo
+    public static final int ECHO_SUPPRESSION_INTERVAL = Integer.getInteger("net.mdns.echo.interval", 10 * 1000); // milliseconds during which the echoes of a datagram already handled are dropped
+    public static final int ECHO_MATCH_INTERVAL = Integer.getInteger("net.mdns.echo.window", 1000); // milliseconds after sending a datagram during which an identical one received is taken for its echo
+    public static final boolean RECOVER_FULL = Boolean.getBoolean("net.mdns.recover.full"); // unregister and register everything again after an IO error rather than only reopening the transport
+    public static final boolean DUAL_STACK = Boolean.getBoolean("net.mdns.dualstack"); // join both the IPv4 and the IPv6 group of the interface with a single instance
+    public static final int DUAL_STACK_DUPLICATE_INTERVAL = 1000; // milliseconds during which a datagram received on both address families is only handled once
     public static final int NETWORK_CHECK_INTERVAL = 10 * 1000; // 10 seconds
+    public static final int NETWORK_CHECK_MIN_INTERVAL = 1000; // polling interval right after a topology change, doubled on each quiet poll up to NETWORK_CHECK_INTERVAL
+    public static final int JMMDNS_THREADS = Integer.getInteger("net.mdns.jmmdns.threads", 16); // maximum number of threads running the calls JmmDNS makes on each interface, other than its lookups
+    public static final int JMMDNS_LOOKUP_THREADS = Integer.getInteger("net.mdns.jmmdns.lookup.threads", 64); // maximum number of threads running the blocking lookups JmmDNS makes on each interface, the lookups over this limit run on the calling thread
+    public static final int CACHE_MAX_ENTRIES = Integer.getInteger("net.mdns.cache.entries", 10000); // maximum number of cached records, 0 for no limit
+    public static final long CACHE_MAX_BYTES = Long.getLong("net.mdns.cache.bytes", 8L * 1024 * 1024); // maximum estimated memory of cached records, 0 for no limit
+    public static final String CACHE_SNAPSHOT_DIRECTORY = System.getProperty("net.mdns.cache.snapshot"); // directory holding the warm-start cache snapshots, unset to disable them
+    public static final int CACHE_SNAPSHOT_INTERVAL = Integer.getInteger("net.mdns.cache.snapshot.interval", 60 * 1000); // milliseconds between two periodic snapshots
+    public static final int DECODED_NAME_CACHE_SIZE = Integer.getInteger("net.mdns.decoder.cache", 512); // decoded qualified names kept, 0 to decode every name
+
+    // Ingress admission control, the limiter is disabled unless a per source rate is configured
+    public static final int INGRESS_SOURCE_RATE = Integer.getInteger("net.mdns.ingress.rate", 0); // datagrams per second admitted from one source
+    public static final int INGRESS_SOURCE_BURST = Integer.getInteger("net.mdns.ingress.burst", 50); // datagrams one source may send back to back
+    public static final int INGRESS_CPU_BUDGET = Integer.getInteger("net.mdns.ingress.cpu", 250); // milliseconds of handling time per second for all sources, 0 for no limit
+    public static final int INGRESS_MAX_SOURCES = 1024; // sources tracked individually, the others share one bucket
+
+    // Delivery of the service events to the asynchronous listeners
+    public static final int LISTENER_QUEUE_CAPACITY = Integer.getInteger("net.mdns.listener.capacity", 0); // maximum number of pending events, coalesced per service instance, 0 to deliver every event
+    public static final String LISTENER_OVERFLOW_POLICY = System.getProperty("net.mdns.listener.overflow", "DROP_OLDEST"); // events dropped once the capacity is reached, DROP_OLDEST or DROP_NEWEST
 
     private DNSConstants() {
         // hide implicit public constructor
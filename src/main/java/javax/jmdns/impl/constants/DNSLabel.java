@@ -41,6 +41,17 @@ public enum DNSLabel {
      */
     static final int LABEL_MASK = 0xC0;
     static final int LABEL_NOT_MASK = 0x3F;
+    /**
+     * Labels by the value of their first 2 bits.
+     */
+    private static final DNSLabel[] LABELS_BY_BITS = new DNSLabel[4];
+
+    static {
+        for (DNSLabel label : DNSLabel.values()) {
+            LABELS_BY_BITS[label.indexValue >> 6] = label;
+        }
+    }
+
     private final String externalName;
     private final int indexValue;
 
@@ -72,11 +83,7 @@ public enum DNSLabel {
      * @return label
      */
     public static DNSLabel labelForByte(int index) {
-        int maskedIndex = index & LABEL_MASK;
-        for (DNSLabel label : DNSLabel.values()) {
-            if (label.indexValue == maskedIndex) return label;
-        }
-        return Unknown;
+        return LABELS_BY_BITS[(index & LABEL_MASK) >> 6];
     }
 
     /**
@@ -67,6 +67,17 @@ public enum DNSRecordClass {
 
     public static final boolean NOT_UNIQUE = false;
 
+    /**
+     * Classes by index, the indexes are all below 256.
+     */
+    private static final DNSRecordClass[] CLASSES_BY_INDEX = new DNSRecordClass[256];
+
+    static {
+        for (DNSRecordClass recordClass : DNSRecordClass.values()) {
+            CLASSES_BY_INDEX[recordClass.indexValue] = recordClass;
+        }
+    }
+
     private final String externalName;
 
     private final int indexValue;
@@ -128,8 +139,8 @@ public enum DNSRecordClass {
      */
     public static DNSRecordClass classForIndex(int index) {
         int maskedIndex = index & CLASS_MASK;
-        for (DNSRecordClass recordClass : DNSRecordClass.values()) {
-            if (recordClass.indexValue == maskedIndex) return recordClass;
+        if ((maskedIndex < CLASSES_BY_INDEX.length) && (CLASSES_BY_INDEX[maskedIndex] != null)) {
+            return CLASSES_BY_INDEX[maskedIndex];
         }
 
         final Logger logger = LoggerFactory.getLogger(DNSRecordClass.class);
@@ -259,6 +259,17 @@ public enum DNSRecordType {
      */
     TYPE_ANY("any", 255);
 
+    /**
+     * Types by index, the indexes are dense and all below 256.
+     */
+    private static final DNSRecordType[] TYPES_BY_INDEX = new DNSRecordType[256];
+
+    static {
+        for (DNSRecordType recordType : DNSRecordType.values()) {
+            TYPES_BY_INDEX[recordType.indexValue] = recordType;
+        }
+    }
+
     private final String externalName;
 
     private final int indexValue;
@@ -309,8 +320,8 @@ public enum DNSRecordType {
      * @return type for name
      */
     public static DNSRecordType typeForIndex(int index) {
-        for (DNSRecordType recordType : DNSRecordType.values()) {
-            if (recordType.indexValue == index) return recordType;
+        if ((index >= 0) && (index < TYPES_BY_INDEX.length) && (TYPES_BY_INDEX[index] != null)) {
+            return TYPES_BY_INDEX[index];
         }
 
         final Logger logger = LoggerFactory.getLogger(DNSRecordType.class);
@@ -33,6 +33,8 @@ public abstract class DNSTask extends TimerTask {
 
     private final JmDNSImpl jmDNS;
 
+    private volatile boolean cancelled;
+
     protected DNSTask(JmDNSImpl jmDNSImpl) {
         super();
         jmDNS = jmDNSImpl;
@@ -61,6 +63,25 @@ public abstract class DNSTask extends TimerTask {
      */
     public abstract String getName();
 
+    /*
+     * (non-Javadoc)
+     * @see java.util.TimerTask#cancel()
+     */
+    @Override
+    public boolean cancel() {
+        cancelled = true;
+        return super.cancel();
+    }
+
+    /**
+     * Returns <code>true</code> if this task has been cancelled. Timers that do not rely on the {@link java.util.Timer} thread use this to drop cancelled tasks.
+     *
+     * @return <code>true</code> if cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
     /*
      * (non-Javadoc)
      * @see java.lang.Object#toString()
@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl.tasks;
+
+import java.util.Timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jmdns.ServiceInfo;
+import javax.jmdns.impl.DNSOutgoing;
+import javax.jmdns.impl.DNSRecord;
+import javax.jmdns.impl.JmDNSImpl;
+import javax.jmdns.impl.ServiceInfoImpl;
+import javax.jmdns.impl.constants.DNSConstants;
+import javax.jmdns.impl.constants.DNSRecordClass;
+
+/**
+ * The Recoverer reopens the transport after an IO error and announces again what was announced before.
+ * <p>
+ * The registrations, their state and the cache are kept, only the cached records that were due for a refresh have to be confirmed again. When the transport cannot be reopened the instance falls back to the full recovery, which unregisters and registers
+ * everything again.
+ * </p>
+ */
+public class Recoverer extends DNSTask {
+    private final Logger logger = LoggerFactory.getLogger(Recoverer.class);
+
+    /**
+     * Number of announcements, like the Announcer two of them one second apart: a neighbour only flushes the records it received more than one second before.
+     */
+    private static final int ANNOUNCEMENTS = 2;
+
+    private int              _runs;
+
+    public Recoverer(JmDNSImpl jmDNSImpl) {
+        super(jmDNSImpl);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.impl.tasks.DNSTask#getName()
+     */
+    @Override
+    public String getName() {
+        return "Recoverer(" + (this.getDns() != null ? this.getDns().getName() : "") + ")";
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.impl.tasks.DNSTask#start(java.util.Timer)
+     */
+    @Override
+    public void start(Timer timer) {
+        if (!this.getDns().isCanceling() && !this.getDns().isCanceled()) {
+            timer.schedule(this, 0, DNSConstants.ANNOUNCE_WAIT_INTERVAL);
+        }
+    }
+
+    @Override
+    public void run() {
+        if ((_runs++ == 0) && !this.getDns().reopen()) {
+            this.cancel();
+            return;
+        }
+        if (_runs >= ANNOUNCEMENTS) {
+            this.cancel();
+        }
+        try {
+            // One batch each time, the neighbours still know us, it tells them we are reachable again and replaces our previous addresses
+            DNSOutgoing out = this.getDns().newOutgoing(DNSConstants.FLAGS_QR_RESPONSE | DNSConstants.FLAGS_AA);
+            for (DNSRecord answer : this.getDns().getLocalHost().answers(DNSRecordClass.CLASS_ANY, DNSRecordClass.UNIQUE, DNSConstants.DNS_TTL)) {
+                out = this.addAnswer(out, null, answer);
+            }
+            for (ServiceInfo serviceInfo : this.getDns().getServices().values()) {
+                final ServiceInfoImpl info = (ServiceInfoImpl) serviceInfo;
+                if (info.isAnnounced()) {
+                    for (DNSRecord answer : info.answers(DNSRecordClass.CLASS_ANY, DNSRecordClass.UNIQUE, DNSConstants.DNS_TTL, this.getDns().getLocalHost())) {
+                        out = this.addAnswer(out, null, answer);
+                    }
+                }
+            }
+            if (!out.isEmpty()) {
+                this.getDns().send(out);
+            }
+        } catch (Throwable e) {
+            logger.warn("{}.run() exception ", this.getName(), e);
+        }
+    }
+
+}
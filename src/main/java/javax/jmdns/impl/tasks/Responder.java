@@ -22,6 +22,7 @@ import java.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.jmdns.impl.DNSClock;
 import javax.jmdns.impl.DNSIncoming;
 import javax.jmdns.impl.DNSOutgoing;
 import javax.jmdns.impl.DNSQuestion;
@@ -76,7 +77,7 @@ public class Responder extends DNSTask {
         // In all other cases, we respond within 20-120 ms.
         //
         // According to draft-cheshire-dnsext-multicastdns.txt chapter "6.2 Multi-Packet Known Answer Suppression":
-        // We respond after 20-120 ms if the query is truncated.
+        // We respond after 400-500 ms if the query is truncated.
 
         boolean iAmTheOnlyOne = true;
         for (DNSQuestion question : dnsIncoming.getQuestions()) {
@@ -86,7 +87,13 @@ public class Responder extends DNSTask {
                 break;
             }
         }
-        int delay = (iAmTheOnlyOne && !dnsIncoming.isTruncated()) ? 0 : DNSConstants.RESPONSE_MIN_WAIT_INTERVAL + JmDNSImpl.getRandom().nextInt(DNSConstants.RESPONSE_MAX_WAIT_INTERVAL - DNSConstants.RESPONSE_MIN_WAIT_INTERVAL + 1) - dnsIncoming.elapseSinceArrival();
+        int delay;
+        if (dnsIncoming.isTruncated()) {
+            // Leave the querier the time to send the rest of its known answers
+            delay = DNSConstants.TRUNCATED_RESPONSE_MIN_WAIT_INTERVAL + JmDNSImpl.getRandom().nextInt(DNSConstants.TRUNCATED_RESPONSE_MAX_WAIT_INTERVAL - DNSConstants.TRUNCATED_RESPONSE_MIN_WAIT_INTERVAL + 1) - dnsIncoming.elapseSinceArrival();
+        } else {
+            delay = iAmTheOnlyOne ? 0 : DNSConstants.RESPONSE_MIN_WAIT_INTERVAL + JmDNSImpl.getRandom().nextInt(DNSConstants.RESPONSE_MAX_WAIT_INTERVAL - DNSConstants.RESPONSE_MIN_WAIT_INTERVAL + 1) - dnsIncoming.elapseSinceArrival();
+        }
         if (delay < 0) {
             delay = 0;
         }
@@ -120,7 +127,7 @@ public class Responder extends DNSTask {
                 }
 
                 // remove known answers, if the TTL is at least half of the correct value. (See Draft Cheshire chapter 7.1.).
-                long now = System.currentTimeMillis();
+                long now = DNSClock.Factory.getClock().currentTimeMillis();
                 for (DNSRecord knownAnswer : dnsIncoming.getAnswers()) {
                     if (knownAnswer.isStale(now)) {
                         answers.remove(knownAnswer);
@@ -132,7 +139,8 @@ public class Responder extends DNSTask {
                 if (!answers.isEmpty()) {
                     logger.debug("{}.run() JmDNS responding", this.getName());
 
-                    DNSOutgoing out = new DNSOutgoing(DNSConstants.FLAGS_QR_RESPONSE | DNSConstants.FLAGS_AA, !unicast, dnsIncoming.getSenderUDPPayload());
+                    // A multicast answer reaches the whole link, it is sized for the link rather than for the querier
+                    DNSOutgoing out = new DNSOutgoing(DNSConstants.FLAGS_QR_RESPONSE | DNSConstants.FLAGS_AA, !unicast, unicast ? dnsIncoming.getSenderUDPPayload() : this.getDns().getMaxUDPPayload());
                     out.setDestination(new InetSocketAddress(inetAddress, port));
                     out.setId(dnsIncoming.getId());
                     for (DNSQuestion question : questions) {
@@ -14,13 +14,16 @@
 package javax.jmdns.impl.tasks.resolver;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Timer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.jmdns.impl.DNSClock;
 import javax.jmdns.impl.DNSOutgoing;
 import javax.jmdns.impl.JmDNSImpl;
+import javax.jmdns.impl.KnownAnswerQuery;
 import javax.jmdns.impl.constants.DNSConstants;
 import javax.jmdns.impl.tasks.DNSTask;
 
@@ -37,6 +40,11 @@ public abstract class DNSResolverTask extends DNSTask {
      */
     protected int count = 0;
 
+    /**
+     * Timer this task runs on, the continuation packets are scheduled on it.
+     */
+    private Timer _timer;
+
     /**
      * @param jmDNSImpl the JmDNS instance which belongs to this resolver task
      */
@@ -60,6 +68,7 @@ public abstract class DNSResolverTask extends DNSTask {
     @Override
     public void start(Timer timer) {
         if (!this.getDns().isCanceling() && !this.getDns().isCanceled()) {
+            _timer = timer;
             timer.schedule(this, DNSConstants.QUERY_WAIT_INTERVAL, DNSConstants.QUERY_WAIT_INTERVAL);
         }
     }
@@ -77,14 +86,14 @@ public abstract class DNSResolverTask extends DNSTask {
                 if (count++ < 3) {
                     logger.debug("{}.run() JmDNS {}", this.getName(), this.description());
 
-                    DNSOutgoing out = new DNSOutgoing(DNSConstants.FLAGS_QR_QUERY);
+                    DNSOutgoing out = this.getDns().newOutgoing(DNSConstants.FLAGS_QR_QUERY);
                     out = this.addQuestions(out);
+                    final long now = DNSClock.Factory.getClock().currentTimeMillis();
+                    final KnownAnswerQuery query = new KnownAnswerQuery(out);
                     if (this.getDns().isAnnounced()) {
-                        out = this.addAnswers(out);
-                    }
-                    if (!out.isEmpty()) {
-                        this.getDns().send(out);
+                        this.addAnswers(query, now);
                     }
+                    this.send(query.packets(now));
                 } else {
                     // After three queries, we can quit.
                     this.cancel();
@@ -107,14 +116,29 @@ public abstract class DNSResolverTask extends DNSTask {
     protected abstract DNSOutgoing addQuestions(DNSOutgoing out) throws IOException;
 
     /**
-     * Overridden by subclasses to add questions to the message.<br/>
-     * <b>Note:</b> Because of message size limitation the returned message may be different from the message parameter.
+     * Sends the packets of a query. The continuation packets of a long known answer list are spaced a little so that they do not overflow the receive buffers of the responders, which wait for them anyway. They are scheduled
+     * on the timer rather than waited for, the timer is shared by all the tasks of the instance.
      *
-     * @param out outgoing message
-     * @return the outgoing message.
+     * @param packets the query packets
      * @throws IOException
      */
-    protected abstract DNSOutgoing addAnswers(DNSOutgoing out) throws IOException;
+    private void send(List<DNSOutgoing> packets) throws IOException {
+        for (int i = 0; i < packets.size(); i++) {
+            if ((i > 0) && (_timer != null) && (DNSConstants.KNOWN_ANSWER_CONTINUATION_INTERVAL > 0)) {
+                new Continuation(this.getDns(), packets.get(i), (long) i * DNSConstants.KNOWN_ANSWER_CONTINUATION_INTERVAL).start(_timer);
+            } else {
+                this.getDns().send(packets.get(i));
+            }
+        }
+    }
+
+    /**
+     * Overridden by subclasses to add the known answers to the query. The query is split over several packets if the answers do not fit in one.
+     *
+     * @param query the query
+     * @param now the current time
+     */
+    protected abstract void addAnswers(KnownAnswerQuery query, long now);
 
     /**
      * Returns a description of the resolver for debugging
@@ -123,4 +147,58 @@ public abstract class DNSResolverTask extends DNSTask {
      */
     protected abstract String description();
 
+    /**
+     * Sends one continuation packet of a query after a delay.
+     */
+    private static class Continuation extends DNSTask {
+        private final Logger      logger = LoggerFactory.getLogger(Continuation.class);
+
+        private final DNSOutgoing _out;
+
+        private final long        _delay;
+
+        Continuation(JmDNSImpl jmDNSImpl, DNSOutgoing out, long delay) {
+            super(jmDNSImpl);
+            _out = out;
+            _delay = delay;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.impl.tasks.DNSTask#getName()
+         */
+        @Override
+        public String getName() {
+            return "Continuation(" + (this.getDns() != null ? this.getDns().getName() : "") + ")";
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javax.jmdns.impl.tasks.DNSTask#start(java.util.Timer)
+         */
+        @Override
+        public void start(Timer timer) {
+            if (!this.getDns().isCanceling() && !this.getDns().isCanceled()) {
+                timer.schedule(this, _delay);
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.TimerTask#run()
+         */
+        @Override
+        public void run() {
+            if (this.getDns().isCanceling() || this.getDns().isCanceled()) {
+                return;
+            }
+            try {
+                this.getDns().send(_out);
+            } catch (IOException e) {
+                logger.warn("{}.run() exception ", this.getName(), e);
+            }
+        }
+
+    }
+
 }
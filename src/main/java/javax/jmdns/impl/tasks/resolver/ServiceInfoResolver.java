@@ -20,6 +20,7 @@ import javax.jmdns.impl.DNSOutgoing;
 import javax.jmdns.impl.DNSQuestion;
 import javax.jmdns.impl.DNSRecord;
 import javax.jmdns.impl.JmDNSImpl;
+import javax.jmdns.impl.KnownAnswerQuery;
 import javax.jmdns.impl.ServiceInfoImpl;
 import javax.jmdns.impl.constants.DNSRecordClass;
 import javax.jmdns.impl.constants.DNSRecordType;
@@ -66,25 +67,22 @@ public class ServiceInfoResolver extends DNSResolverTask {
 
     /*
      * (non-Javadoc)
-     * @see javax.jmdns.impl.tasks.Resolver#addAnswers(javax.jmdns.impl.DNSOutgoing)
+     * @see javax.jmdns.impl.tasks.resolver.DNSResolverTask#addAnswers(javax.jmdns.impl.KnownAnswerQuery, long)
      */
     @Override
-    protected DNSOutgoing addAnswers(DNSOutgoing out) throws IOException {
-        DNSOutgoing newOut = out;
+    protected void addAnswers(KnownAnswerQuery query, long now) {
         if (!serviceInfo.hasData()) {
-            long now = System.currentTimeMillis();
-            newOut = this.addAnswer(newOut, (DNSRecord) this.getDns().getCache().getDNSEntry(serviceInfo.getQualifiedName(), DNSRecordType.TYPE_SRV, DNSRecordClass.CLASS_IN), now);
-            newOut = this.addAnswer(newOut, (DNSRecord) this.getDns().getCache().getDNSEntry(serviceInfo.getQualifiedName(), DNSRecordType.TYPE_TXT, DNSRecordClass.CLASS_IN), now);
+            query.addKnownAnswer((DNSRecord) this.getDns().getCache().getDNSEntry(serviceInfo.getQualifiedName(), DNSRecordType.TYPE_SRV, DNSRecordClass.CLASS_IN));
+            query.addKnownAnswer((DNSRecord) this.getDns().getCache().getDNSEntry(serviceInfo.getQualifiedName(), DNSRecordType.TYPE_TXT, DNSRecordClass.CLASS_IN));
             if (!serviceInfo.getServer().isEmpty()) {
                 for (DNSEntry addressEntry : this.getDns().getCache().getDNSEntryList(serviceInfo.getServer(), DNSRecordType.TYPE_A, DNSRecordClass.CLASS_IN)) {
-                    newOut = this.addAnswer(newOut, (DNSRecord) addressEntry, now);
+                    query.addKnownAnswer((DNSRecord) addressEntry);
                 }
                 for (DNSEntry addressEntry : this.getDns().getCache().getDNSEntryList(serviceInfo.getServer(), DNSRecordType.TYPE_AAAA, DNSRecordClass.CLASS_IN)) {
-                    newOut = this.addAnswer(newOut, (DNSRecord) addressEntry, now);
+                    query.addKnownAnswer((DNSRecord) addressEntry);
                 }
             }
         }
-        return newOut;
     }
 
     /*
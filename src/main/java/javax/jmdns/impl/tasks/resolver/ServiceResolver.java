@@ -16,10 +16,12 @@ package javax.jmdns.impl.tasks.resolver;
 import java.io.IOException;
 
 import javax.jmdns.ServiceInfo;
+import javax.jmdns.impl.DNSEntry;
 import javax.jmdns.impl.DNSOutgoing;
 import javax.jmdns.impl.DNSQuestion;
 import javax.jmdns.impl.DNSRecord;
 import javax.jmdns.impl.JmDNSImpl;
+import javax.jmdns.impl.KnownAnswerQuery;
 import javax.jmdns.impl.constants.DNSConstants;
 import javax.jmdns.impl.constants.DNSRecordClass;
 import javax.jmdns.impl.constants.DNSRecordType;
@@ -50,16 +52,16 @@ public class ServiceResolver extends DNSResolverTask {
 
     /*
      * (non-Javadoc)
-     * @see javax.jmdns.impl.tasks.Resolver#addAnswers(javax.jmdns.impl.DNSOutgoing)
+     * @see javax.jmdns.impl.tasks.resolver.DNSResolverTask#addAnswers(javax.jmdns.impl.KnownAnswerQuery, long)
      */
     @Override
-    protected DNSOutgoing addAnswers(DNSOutgoing out) throws IOException {
-        DNSOutgoing newOut = out;
-        long now = System.currentTimeMillis();
+    protected void addAnswers(KnownAnswerQuery query, long now) {
+        for (DNSEntry entry : this.getDns().getCache().getDNSEntryList(type, DNSRecordType.TYPE_PTR, DNSRecordClass.CLASS_IN)) {
+            query.addKnownAnswer((DNSRecord) entry);
+        }
         for (ServiceInfo info : this.getDns().getServices().values()) {
-            newOut = this.addAnswer(newOut, new DNSRecord.Pointer(info.getType(), DNSRecordClass.CLASS_IN, DNSRecordClass.NOT_UNIQUE, DNSConstants.DNS_TTL, info.getQualifiedName()), now);
+            query.addKnownAnswer(new DNSRecord.Pointer(info.getType(), DNSRecordClass.CLASS_IN, DNSRecordClass.NOT_UNIQUE, DNSConstants.DNS_TTL, info.getQualifiedName()));
         }
-        return newOut;
     }
 
     /*
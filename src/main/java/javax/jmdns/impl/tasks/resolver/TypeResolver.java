@@ -19,6 +19,7 @@ import javax.jmdns.impl.DNSOutgoing;
 import javax.jmdns.impl.DNSQuestion;
 import javax.jmdns.impl.DNSRecord;
 import javax.jmdns.impl.JmDNSImpl;
+import javax.jmdns.impl.KnownAnswerQuery;
 import javax.jmdns.impl.JmDNSImpl.ServiceTypeEntry;
 import javax.jmdns.impl.constants.DNSConstants;
 import javax.jmdns.impl.constants.DNSRecordClass;
@@ -53,16 +54,13 @@ public class TypeResolver extends DNSResolverTask {
 
     /*
      * (non-Javadoc)
-     * @see javax.jmdns.impl.tasks.Resolver#addAnswers(javax.jmdns.impl.DNSOutgoing)
+     * @see javax.jmdns.impl.tasks.resolver.DNSResolverTask#addAnswers(javax.jmdns.impl.KnownAnswerQuery, long)
      */
     @Override
-    protected DNSOutgoing addAnswers(final DNSOutgoing out) throws IOException {
-        DNSOutgoing newOut = out;
-        final long now = System.currentTimeMillis();
+    protected void addAnswers(final KnownAnswerQuery query, final long now) {
         for (final ServiceTypeEntry typeEntry : this.getDns().getServiceTypes().values()) {
-            newOut = this.addAnswer(newOut, new DNSRecord.Pointer("_services._dns-sd._udp.local.", DNSRecordClass.CLASS_IN, DNSRecordClass.NOT_UNIQUE, DNSConstants.DNS_TTL, typeEntry.getType()), now);
+            query.addKnownAnswer(new DNSRecord.Pointer("_services._dns-sd._udp.local.", DNSRecordClass.CLASS_IN, DNSRecordClass.NOT_UNIQUE, DNSConstants.DNS_TTL, typeEntry.getType()));
         }
-        return newOut;
     }
 
     /*
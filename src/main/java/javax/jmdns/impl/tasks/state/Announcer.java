@@ -99,7 +99,7 @@ public class Announcer extends DNSStateTask {
      */
     @Override
     protected DNSOutgoing createOutgoing() {
-        return new DNSOutgoing(DNSConstants.FLAGS_QR_RESPONSE | DNSConstants.FLAGS_AA);
+        return this.getDns().newOutgoing(DNSConstants.FLAGS_QR_RESPONSE | DNSConstants.FLAGS_AA);
     }
 
     /*
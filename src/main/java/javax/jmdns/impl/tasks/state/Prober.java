@@ -16,6 +16,7 @@ package javax.jmdns.impl.tasks.state;
 import java.io.IOException;
 import java.util.Timer;
 
+import javax.jmdns.impl.DNSClock;
 import javax.jmdns.impl.DNSOutgoing;
 import javax.jmdns.impl.DNSQuestion;
 import javax.jmdns.impl.DNSRecord;
@@ -66,7 +67,7 @@ public class Prober extends DNSStateTask {
      */
     @Override
     public void start(Timer timer) {
-        long now = System.currentTimeMillis();
+        long now = DNSClock.Factory.getClock().currentTimeMillis();
         if (now - this.getDns().getLastThrottleIncrement() < DNSConstants.PROBE_THROTTLE_COUNT_INTERVAL) {
             this.getDns().setThrottle(this.getDns().getThrottle() + 1);
         } else {
@@ -112,7 +113,7 @@ public class Prober extends DNSStateTask {
      */
     @Override
     protected DNSOutgoing createOutgoing() {
-        return new DNSOutgoing(DNSConstants.FLAGS_QR_QUERY);
+        return this.getDns().newOutgoing(DNSConstants.FLAGS_QR_QUERY);
     }
 
     /*
@@ -14,23 +14,50 @@
 package javax.jmdns.impl.tasks.state;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Timer;
 
+import javax.jmdns.ServiceInfo;
+import javax.jmdns.impl.DNSClock;
 import javax.jmdns.impl.DNSOutgoing;
 import javax.jmdns.impl.DNSRecord;
+import javax.jmdns.impl.DNSStatefulObject;
 import javax.jmdns.impl.JmDNSImpl;
 import javax.jmdns.impl.ServiceInfoImpl;
 import javax.jmdns.impl.constants.DNSConstants;
 import javax.jmdns.impl.constants.DNSRecordClass;
 import javax.jmdns.impl.constants.DNSState;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * The Renewer is there to send renewal announcement when the record expire for ours infos.
+ * <p>
+ * Each service info, and the host itself, has its own renewal date picked at random in the last {@link DNSConstants#ANNOUNCED_RENEWAL_JITTER} percent of the renewal interval, so services registered together and hosts started together do
+ * not renew at the same instant. The renewer checks for due renewals every second and sends at most {@link JmDNSImpl#getRenewalRate()} packets per second, the renewals that do not fit are sent on the next check.
+ * </p>
  */
 public class Renewer extends DNSStateTask {
+    private final Logger                            logger = LoggerFactory.getLogger(Renewer.class);
+
+    /**
+     * Next renewal date of each object associated with this task. Only accessed from the timer thread.
+     */
+    private final Map<DNSStatefulObject, Long>      _due;
+
+    /**
+     * Packets sent beyond the rate during the previous check, paid back on the next one.
+     */
+    private int                                     _debt;
 
     public Renewer(JmDNSImpl jmDNSImpl) {
         super(jmDNSImpl, defaultTTL());
+        _due = new IdentityHashMap<>();
 
         this.setTaskState(DNSState.ANNOUNCED);
         this.associate(DNSState.ANNOUNCED);
@@ -61,10 +88,106 @@ public class Renewer extends DNSStateTask {
     @Override
     public void start(Timer timer) {
         if (!this.getDns().isCanceling() && !this.getDns().isCanceled()) {
-            timer.schedule(this, DNSConstants.ANNOUNCED_RENEWAL_TTL_INTERVAL, DNSConstants.ANNOUNCED_RENEWAL_TTL_INTERVAL);
+            timer.schedule(this, DNSConstants.ANNOUNCED_RENEWAL_TICK_INTERVAL, DNSConstants.ANNOUNCED_RENEWAL_TICK_INTERVAL);
         }
     }
 
+    /*
+     * (non-Javadoc)
+     * @see javax.jmdns.impl.tasks.state.DNSStateTask#run()
+     */
+    @Override
+    public void run() {
+        try {
+            if (!this.checkRunCondition()) {
+                this.cancel();
+                return;
+            }
+            // Pick up the objects announced since we started so a single renewer paces all of them
+            this.associate(DNSState.ANNOUNCED);
+
+            final long now = DNSClock.Factory.getClock().currentTimeMillis();
+            final Map<DNSStatefulObject, Long> associated = new IdentityHashMap<>();
+            if (this.getDns().isAssociatedWithTask(this, this.getTaskState())) {
+                associated.put(this.getDns(), this.dueDate(this.getDns(), now));
+            }
+            for (ServiceInfo serviceInfo : this.getDns().getServices().values()) {
+                ServiceInfoImpl info = (ServiceInfoImpl) serviceInfo;
+                if (info.isAssociatedWithTask(this, this.getTaskState())) {
+                    associated.put(info, this.dueDate(info, now));
+                }
+            }
+            _due.keySet().retainAll(associated.keySet());
+            if (associated.isEmpty()) {
+                // Everything went back to probing or is being canceled, a new renewer will be started when needed
+                this.cancel();
+                return;
+            }
+
+            final List<DNSStatefulObject> due = new ArrayList<>();
+            for (Map.Entry<DNSStatefulObject, Long> entry : associated.entrySet()) {
+                if (entry.getValue() <= now) {
+                    due.add(entry.getKey());
+                }
+            }
+            final int rate = this.getDns().getRenewalRate();
+            if (due.isEmpty()) {
+                _debt = Math.max(0, _debt - rate);
+                return;
+            }
+            due.sort(Comparator.comparing(associated::get));
+
+            final int budget = rate - _debt;
+            int sent = 0;
+            DNSOutgoing out = this.createOutgoing();
+            final List<DNSStatefulObject> renewed = new ArrayList<>();
+            for (DNSStatefulObject object : due) {
+                if (sent >= budget) {
+                    break;
+                }
+                synchronized (object) {
+                    if (!object.isAssociatedWithTask(this, this.getTaskState())) {
+                        continue;
+                    }
+                    logger.debug("{}.run() JmDNS {} {}", this.getName(), this.getTaskDescription(), (object == this.getDns() ? this.getDns().getName() : ((ServiceInfoImpl) object).getQualifiedName()));
+                    final DNSOutgoing previous = out;
+                    out = (object == this.getDns() ? this.buildOutgoingForDNS(out) : this.buildOutgoingForInfo((ServiceInfoImpl) object, out));
+                    if (out != previous) {
+                        // The previous message was full and has been sent
+                        sent++;
+                    }
+                }
+                renewed.add(object);
+                _due.put(object, this.nextRenewal(now));
+            }
+            if (!out.isEmpty()) {
+                this.getDns().send(out);
+                sent++;
+            }
+            _debt = Math.max(0, _debt + sent - rate);
+            logger.debug("{}.run() renewed {} of {} due, {} packets", this.getName(), renewed.size(), due.size(), sent);
+
+            this.advanceObjectsState(renewed);
+        } catch (Throwable e) {
+            logger.warn("{}.run() exception ", this.getName(), e);
+            this.recoverTask(e);
+        }
+    }
+
+    private long dueDate(DNSStatefulObject object, long now) {
+        Long due = _due.get(object);
+        if (due == null) {
+            due = this.nextRenewal(now);
+            _due.put(object, due);
+        }
+        return due;
+    }
+
+    private long nextRenewal(long now) {
+        final int jitter = (DNSConstants.ANNOUNCED_RENEWAL_TTL_INTERVAL / 100) * Math.max(0, Math.min(100, DNSConstants.ANNOUNCED_RENEWAL_JITTER));
+        return now + DNSConstants.ANNOUNCED_RENEWAL_TTL_INTERVAL - (jitter > 0 ? JmDNSImpl.getRandom().nextInt(jitter) : 0);
+    }
+
     @Override
     public boolean cancel() {
         this.removeAssociation();
@@ -96,7 +219,7 @@ public class Renewer extends DNSStateTask {
      */
     @Override
     protected DNSOutgoing createOutgoing() {
-        return new DNSOutgoing(DNSConstants.FLAGS_QR_RESPONSE | DNSConstants.FLAGS_AA);
+        return this.getDns().newOutgoing(DNSConstants.FLAGS_QR_RESPONSE | DNSConstants.FLAGS_AA);
     }
 
     /*
@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.jmdns.JmDNS;
+import javax.jmdns.ServiceInfo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class BatchRegistrationTest {
+
+    private static final int        SERVICES = 200;
+
+    @RegisterExtension
+    final VirtualNetworkExtension virtual = new VirtualNetworkExtension();
+
+    @Test
+    void testBatchShareProbeAndAnnounceCycle() throws Exception {
+        List<ServiceInfo> services = new ArrayList<>();
+        for (int i = 0; i < SERVICES; i++) {
+            services.add(ServiceInfo.create("_html._tcp.local.", "apache-" + i, 8000 + i, "Test hypothetical web server"));
+        }
+        try (JmDNS registry = JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1")) {
+            registry.registerServices(services).get(30, TimeUnit.SECONDS);
+            for (ServiceInfo service : services) {
+                assertTrue(((ServiceInfoImpl) service).isAnnounced(), "Every service should have been announced: " + service);
+            }
+            long sent = virtual.getNetwork().getSentCount();
+            assertTrue(sent < SERVICES, "The records should be packed together, sent " + sent + " datagrams");
+
+            registry.unregisterServices(services).get(30, TimeUnit.SECONDS);
+            assertTrue(((JmDNSImpl) registry).getServices().isEmpty(), "Every service should have been removed");
+            for (ServiceInfo service : services) {
+                assertTrue(((ServiceInfoImpl) service).isCanceled(), "Every service should have been canceled: " + service);
+            }
+        }
+    }
+
+    @Test
+    void testEmptyBatch() throws Exception {
+        try (JmDNS registry = JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1")) {
+            assertTrue(registry.registerServices(new ArrayList<ServiceInfo>()).isDone());
+            assertTrue(registry.unregisterServices(new ArrayList<ServiceInfo>()).isDone());
+        }
+    }
+
+}
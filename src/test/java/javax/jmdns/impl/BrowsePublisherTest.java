@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.jmdns.BrowseEvent;
+import javax.jmdns.BrowseEvent.Kind;
+import javax.jmdns.JmDNS;
+import javax.jmdns.ServiceFlow;
+import javax.jmdns.ServiceInfo;
+import javax.jmdns.impl.ListenerStatus.ServiceListenerStatus;
+import javax.jmdns.impl.constants.DNSConstants;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class BrowsePublisherTest {
+
+    private static final String TYPE = "_html._tcp.local.";
+
+    @RegisterExtension
+    final VirtualNetworkExtension virtual = new VirtualNetworkExtension();
+
+    /**
+     * Subscriber recording everything it receives.
+     */
+    static final class RecordingSubscriber implements ServiceFlow.Subscriber<BrowseEvent> {
+
+        final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+
+        volatile ServiceFlow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(ServiceFlow.Subscription s) {
+            subscription = s;
+        }
+
+        @Override
+        public void onNext(BrowseEvent item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            received.add(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            received.add("complete");
+        }
+
+        BrowseEvent next() throws InterruptedException {
+            return (BrowseEvent) received.poll(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void testDemandReplayAndLifecycle() throws Exception {
+        ServiceInfo service = ServiceInfo.create(TYPE, "apache", 80, "Test hypothetical web server");
+        try (JmDNS registry = JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1");
+             JmDNS browser = JmDNS.create(InetAddress.getByName("10.0.0.2"), "host2")) {
+            registry.registerService(service);
+            assertTrue(((ServiceInfoImpl) service).waitForAnnounced(DNSConstants.SERVICE_INFO_TIMEOUT));
+
+            RecordingSubscriber live = new RecordingSubscriber();
+            browser.browse(TYPE).subscribe(live);
+            assertTrue(live.received.isEmpty(), "Nothing should be sent without demand");
+            live.subscription.request(1);
+            BrowseEvent added = live.next();
+            assertNotNull(added, "The service should have been found");
+            assertEquals(Kind.ADDED, added.getKind());
+            assertEquals("apache", added.getName());
+            VirtualNetworkExtension.waitFor(() -> ((BrowsePublisher.BrowseSubscription) live.subscription).getBufferedCount() > 0, "The resolution should be buffered");
+            assertTrue(live.received.isEmpty(), "No more than the demand should be sent");
+            live.subscription.request(Long.MAX_VALUE);
+            BrowseEvent resolved = live.next();
+            assertEquals(Kind.RESOLVED, resolved.getKind());
+            assertTrue(resolved.getInfo().hasData(), "The resolved event should carry the details");
+
+            // A late subscriber gets the cache replayed without waiting for the network
+            RecordingSubscriber late = new RecordingSubscriber();
+            browser.browse(TYPE).subscribe(late);
+            late.subscription.request(Long.MAX_VALUE);
+            assertEquals(Kind.ADDED, late.next().getKind());
+            assertEquals(Kind.RESOLVED, late.next().getKind());
+
+            late.subscription.cancel();
+            List<ServiceListenerStatus> listeners = ((JmDNSImpl) browser)._serviceListeners.get(TYPE);
+            for (ServiceListenerStatus status : listeners) {
+                assertNotSame(late.subscription, status.getListener(), "Canceling should remove the listener");
+            }
+
+            RecordingSubscriber invalid = new RecordingSubscriber();
+            browser.browse(TYPE).subscribe(invalid);
+            invalid.subscription.request(0);
+            assertTrue(invalid.received.poll(10, TimeUnit.SECONDS) instanceof IllegalArgumentException, "A non positive request should fail the subscription");
+
+            browser.close();
+            Object last;
+            while ((last = live.received.poll(10, TimeUnit.SECONDS)) instanceof BrowseEvent) {
+                // Skip the events still buffered
+            }
+            assertEquals("complete", last, "Closing should complete the subscriptions");
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.jmdns.impl.constants.DNSConstants;
+import javax.jmdns.impl.constants.DNSRecordClass;
+import javax.jmdns.impl.constants.DNSRecordType;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+class CacheSnapshotTest {
+
+    private static final String SERVICE = "apache._html._tcp.local.";
+
+    @TempDir
+    File                        directory;
+
+    private VirtualClock        clock;
+
+    @RegisterExtension
+    final VirtualNetworkExtension virtual = new VirtualNetworkExtension();
+
+    @BeforeEach
+    public void setup() {
+        clock = new VirtualClock(1_000_000L);
+        DNSClock.Factory.setClock(clock);
+    }
+
+    @AfterEach
+    public void teardown() {
+        DNSClock.Factory.setClock(null);
+    }
+
+    @Test
+    void testRestoreWithRemainingTTL() throws Exception {
+        CacheSnapshot snapshot = new CacheSnapshot(new File(directory, "cache"), 0);
+        // Closing advances the clock too, by how much depends on the load of the machine
+        final long written = clock.currentTimeMillis();
+        JmDNSImpl dns = new JmDNSImpl(InetAddress.getByName("10.0.0.1"), "host1", 0);
+        try {
+            DNSCache cache = dns.getCache();
+            cache.addDNSEntry(new DNSRecord.Pointer("_html._tcp.local.", DNSRecordClass.CLASS_IN, false, 4500, SERVICE));
+            cache.addDNSEntry(new DNSRecord.Service(SERVICE, DNSRecordClass.CLASS_IN, true, 120, 0, 0, 80, "apache.local."));
+            cache.addDNSEntry(new DNSRecord.Text(SERVICE, DNSRecordClass.CLASS_IN, true, 4500, new byte[] { 4, 'p', 'a', '=', '1' }));
+            cache.addDNSEntry(new DNSRecord.IPv4Address("apache.local.", DNSRecordClass.CLASS_IN, true, 120, InetAddress.getByName("10.0.0.9")));
+            cache.addDNSEntry(new DNSRecord.Pointer("_ftp._tcp.local.", DNSRecordClass.CLASS_IN, false, 10, "short._ftp._tcp.local."));
+            assertEquals(5, snapshot.write(dns));
+        } finally {
+            close(dns);
+        }
+
+        clock.advance(30_000);
+
+        dns = new JmDNSImpl(InetAddress.getByName("10.0.0.1"), "host1", 0);
+        try {
+            assertEquals(4, snapshot.restore(dns), "The expired record should not have been restored");
+            final long now = clock.currentTimeMillis();
+            DNSRecord service = (DNSRecord) dns.getCache().getDNSEntry(SERVICE, DNSRecordType.TYPE_SRV, DNSRecordClass.CLASS_IN);
+            assertNotNull(service, "The service record should have been restored");
+            assertEquals(80, ((DNSRecord.Service) service).getPort());
+            assertEquals("apache.local.", ((DNSRecord.Service) service).getServer());
+            final int remaining = 120 - (int) ((now - written) / 1000);
+            assertTrue(service.getRemainingTTL(now) >= remaining - 1 && service.getRemainingTTL(now) <= remaining + 1, "The record should keep its remaining TTL");
+            assertTrue(service.isUnverified(), "A restored record should wait for verification");
+            assertTrue(service.isStaleAndShouldBeRefreshed(now), "A restored record should be refreshed immediately");
+
+            DNSRecord address = (DNSRecord) dns.getCache().getDNSEntry("apache.local.", DNSRecordType.TYPE_A, DNSRecordClass.CLASS_IN);
+            assertEquals(InetAddress.getByName("10.0.0.9"), ((DNSRecord.Address) address).getAddress());
+            DNSRecord text = (DNSRecord) dns.getCache().getDNSEntry(SERVICE, DNSRecordType.TYPE_TXT, DNSRecordClass.CLASS_IN);
+            assertArrayEquals(new byte[] { 4, 'p', 'a', '=', '1' }, ((DNSRecord.Text) text).getText());
+            assertNull(dns.getCache().getDNSEntry("_ftp._tcp.local.", DNSRecordType.TYPE_PTR, DNSRecordClass.CLASS_IN));
+        } finally {
+            close(dns);
+        }
+    }
+
+    @Test
+    void testUnverifiedRecordIsNotAKnownAnswer() throws Exception {
+        DNSRecord record = new DNSRecord.Service(SERVICE, DNSRecordClass.CLASS_IN, true, 120, 0, 0, 80, "apache.local.");
+        record.restore(clock.currentTimeMillis(), 60);
+
+        DNSOutgoing out = new DNSOutgoing(DNSConstants.FLAGS_QR_QUERY);
+        out.addAnswer(record, clock.currentTimeMillis());
+        assertTrue(out.getAnswers().isEmpty(), "A restored record must not suppress the answer confirming it");
+
+        record.resetTTL(new DNSRecord.Service(SERVICE, DNSRecordClass.CLASS_IN, true, 120, 0, 0, 80, "apache.local."));
+        assertFalse(record.isUnverified(), "A fresh copy from the network should verify the record");
+        out.addAnswer(record, clock.currentTimeMillis());
+        assertEquals(1, out.getAnswers().size());
+    }
+
+    @Test
+    void testDamagedSnapshotIsIgnored() throws Exception {
+        File file = new File(directory, "cache");
+        Files.write(file.toPath(), new byte[] { 'J', 'M', 'D', 'C', 0, 1, 0, 0, 0, 5, 0 });
+        List<DNSRecord> records = new CacheSnapshot(file).read();
+        assertTrue(records.isEmpty(), "A truncated snapshot should be ignored");
+        assertTrue(new CacheSnapshot(new File(directory, "missing")).read().isEmpty());
+    }
+
+    private void close(JmDNSImpl dns) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> result = executor.submit(dns::close);
+            while (!result.isDone()) {
+                clock.advance(10);
+                Thread.sleep(1);
+            }
+            result.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -14,18 +14,25 @@
 package javax.jmdns.impl;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
 
+import javax.jmdns.JmDNS;
 import javax.jmdns.impl.DNSCache;
 import javax.jmdns.impl.DNSEntry;
 import javax.jmdns.impl.DNSRecord;
 import javax.jmdns.impl.constants.DNSRecordClass;
+import javax.jmdns.impl.constants.DNSRecordType;
 
+import java.net.InetAddress;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class DNSCacheTest {
 
+    @RegisterExtension
+    final VirtualNetworkExtension virtual = new VirtualNetworkExtension();
+
     @Test
     void testCacheCreation() {
         DNSCache cache = new DNSCache();
@@ -57,4 +64,86 @@ class DNSCacheTest {
         assertNull(values, "Cache contains key with no entries");
     }
 
+    @Test
+    void testCacheCountsEntries() {
+        DNSCache cache = new DNSCache();
+
+        DNSEntry entry = new DNSRecord.Service("pierre._home-sharing._tcp.local.", DNSRecordClass.CLASS_IN, false, 0, 0, 0, 0, "panoramix.local.");
+        cache.addDNSEntry(entry);
+        assertEquals(1, cache.getEntryCount());
+        assertTrue(cache.getEstimatedSize() > 0);
+        cache.removeDNSEntry(entry);
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getEstimatedSize());
+    }
+
+    @Test
+    void testCacheEvictsSoonestToExpire() {
+        DNSCache cache = new DNSCache();
+        cache.setCapacity(10, 0);
+
+        for (int i = 0; i < 10; i++) {
+            cache.addDNSEntry(new DNSRecord.Pointer("_http._tcp.local.", DNSRecordClass.CLASS_IN, false, 1000 + i, "printer" + i + "._http._tcp.local."));
+        }
+        assertEquals(0, cache.getEvictionCount());
+        cache.addDNSEntry(new DNSRecord.Pointer("_http._tcp.local.", DNSRecordClass.CLASS_IN, false, 5000, "printer10._http._tcp.local."));
+
+        assertEquals(9, cache.getEntryCount(), "The cache should be trimmed to 90% of its capacity");
+        assertEquals(2, cache.getEvictionCount());
+        for (DNSEntry entry : cache.getDNSEntryList("_http._tcp.local.")) {
+            assertTrue(((DNSRecord) entry).getTTL() >= 1002, "The records closest to expiration should go first");
+        }
+    }
+
+    @Test
+    void testCacheProtectsGuardedEntries() throws Exception {
+        DNSCache cache = new DNSCache();
+        cache.setCapacity(4, 0);
+        cache.setEvictionGuard(entry -> "_ipp._tcp.local.".equals(entry.getType()));
+
+        cache.addDNSEntry(new DNSRecord.Service("printer._ipp._tcp.local.", DNSRecordClass.CLASS_IN, false, 1, 0, 0, 631, "printer.local."));
+        cache.addDNSEntry(new DNSRecord.IPv4Address("printer.local.", DNSRecordClass.CLASS_IN, false, 1, InetAddress.getByName("10.0.0.3")));
+        for (int i = 0; i < 10; i++) {
+            cache.addDNSEntry(new DNSRecord.Pointer("_http._tcp.local.", DNSRecordClass.CLASS_IN, false, 3600, "server" + i + "._http._tcp.local."));
+        }
+
+        assertNotNull(cache.getDNSEntry("printer._ipp._tcp.local.", DNSRecordType.TYPE_SRV, DNSRecordClass.CLASS_IN), "A listened record should never be evicted");
+        assertNotNull(cache.getDNSEntry("printer.local.", DNSRecordType.TYPE_A, DNSRecordClass.CLASS_IN), "The address of a listened service should never be evicted");
+        assertTrue(cache.getEntryCount() <= 4);
+    }
+
+    @Test
+    void testResolvingServiceInfoProtectsItsRecords() throws Exception {
+        try (JmDNSImpl dns = (JmDNSImpl) JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1")) {
+            DNSRecord service = new DNSRecord.Service("printer._ipp._tcp.local.", DNSRecordClass.CLASS_IN, false, 120, 0, 0, 631, "Printer.local.");
+            DNSRecord address = new DNSRecord.IPv4Address("printer.local.", DNSRecordClass.CLASS_IN, false, 120, InetAddress.getByName("10.0.0.3"));
+            assertFalse(dns.isProtectedCacheEntry(service), "Nothing waits for the service yet");
+
+            ServiceInfoImpl info = new ServiceInfoImpl("_ipp._tcp.local.", "printer", "", 0, 0, 0, false, (byte[]) null);
+            dns.addListener(info, null);
+            assertTrue(dns.isProtectedCacheEntry(service), "The service record of a pending resolution should be kept");
+            assertFalse(dns.isProtectedCacheEntry(address), "The server of the service is not known yet");
+
+            dns.updateRecord(DNSClock.Factory.getClock().currentTimeMillis(), service, JmDNSImpl.Operation.Add);
+            assertTrue(dns.isProtectedCacheEntry(address), "The address of the server should be kept once the service record gave it");
+
+            dns.removeListener(info);
+            assertFalse(dns.isProtectedCacheEntry(service), "The records should no longer be kept once the resolution is over");
+            assertFalse(dns.isProtectedCacheEntry(address), "The records should no longer be kept once the resolution is over");
+        }
+    }
+
+    @Test
+    void testCacheEvictsOnMemory() {
+        DNSCache cache = new DNSCache();
+        cache.setCapacity(0, 20 * 1024);
+
+        byte[] text = new byte[1024];
+        for (int i = 0; i < 100; i++) {
+            cache.addDNSEntry(new DNSRecord.Text("device" + i + "._http._tcp.local.", DNSRecordClass.CLASS_IN, false, 3600, text));
+        }
+        assertTrue(cache.getEstimatedSize() <= 20 * 1024, "The cache should stay within its memory limit");
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+
 }
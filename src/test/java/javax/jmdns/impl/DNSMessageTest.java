@@ -101,6 +101,26 @@ class DNSMessageTest {
         }
     }
 
+    @Test
+    void testAdvertiseUDPPayload() throws IOException {
+        String serviceType = "_home-sharing._tcp.local.";
+        DNSOutgoing out = new DNSOutgoing(DNSConstants.FLAGS_QR_QUERY, true, DNSConstants.MAX_MSG_ABSOLUTE);
+        out.setAdvertisedUDPPayload(DNSConstants.MAX_MSG_ABSOLUTE);
+        out.addQuestion(DNSQuestion.newQuestion(serviceType, DNSRecordType.TYPE_PTR, DNSRecordClass.CLASS_IN, false));
+        int records = 0;
+        while (out.availableSpace() > 100) {
+            out.addAnswer(new DNSRecord.Pointer(serviceType, DNSRecordClass.CLASS_IN, false, DNSConstants.DNS_TTL, "Pierre " + records++ + "." + serviceType), 0);
+        }
+        assertTrue(records > 200, "A jumbo message should hold far more than a typical one: " + records);
+        byte[] data = out.data();
+        assertTrue(data.length <= DNSConstants.MAX_MSG_ABSOLUTE, "The OPT record should fit in the payload");
+
+        DNSIncoming in = new DNSIncoming(new DatagramPacket(data, 0, data.length));
+        assertEquals(DNSConstants.MAX_MSG_ABSOLUTE, in.getSenderUDPPayload(), "The OPT record should carry the payload size");
+        assertEquals(records, in.getNumberOfAnswers());
+        assertEquals(0, in.getNumberOfAdditionals(), "The OPT record is not an additional answer");
+    }
+
     protected void print(byte[] data) {
         System.out.print("{");
         for (int i = 0; i < data.length; i++) {
@@ -0,0 +1,123 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jmdns.impl.constants.DNSConstants;
+import javax.jmdns.impl.constants.DNSLabel;
+import javax.jmdns.impl.constants.DNSRecordClass;
+import javax.jmdns.impl.constants.DNSRecordType;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class DNSRecordCodecTest {
+
+    @AfterEach
+    public void teardown() {
+        DNSRecordCodec.Factory.resetCodecs();
+    }
+
+    @Test
+    void testLookupTables() {
+        for (DNSRecordType type : DNSRecordType.values()) {
+            assertSame(type, DNSRecordType.typeForIndex(type.indexValue()));
+        }
+        assertSame(DNSRecordType.TYPE_IGNORE, DNSRecordType.typeForIndex(65000));
+        assertSame(DNSRecordType.TYPE_IGNORE, DNSRecordType.typeForIndex(-1));
+        for (DNSRecordClass recordClass : DNSRecordClass.values()) {
+            assertSame(recordClass, DNSRecordClass.classForIndex(recordClass.indexValue()));
+            assertSame(recordClass, DNSRecordClass.classForIndex(recordClass.indexValue() | DNSRecordClass.CLASS_UNIQUE), "The unique bit should be ignored");
+        }
+        assertSame(DNSRecordClass.CLASS_UNKNOWN, DNSRecordClass.classForIndex(300));
+        assertSame(DNSLabel.Standard, DNSLabel.labelForByte(0x3F));
+        assertSame(DNSLabel.Extended, DNSLabel.labelForByte(0x41));
+        assertSame(DNSLabel.Unknown, DNSLabel.labelForByte(0x80));
+        assertSame(DNSLabel.Compressed, DNSLabel.labelForByte(0xC0));
+    }
+
+    @Test
+    void testNegativeResponseIsSkipped() throws IOException {
+        DNSIncoming in = new DNSIncoming(this.negativeResponse());
+        assertEquals(1, in.getAllAnswers().size(), "Only the address should be kept");
+        DNSRecord record = (DNSRecord) in.getAllAnswers().iterator().next();
+        assertEquals(DNSRecordType.TYPE_A, record.getRecordType());
+        assertEquals(InetAddress.getByName("10.0.0.1"), ((DNSRecord.Address) record).getAddress());
+    }
+
+    @Test
+    void testCodecCanBeReplaced() throws IOException {
+        final AtomicInteger read = new AtomicInteger();
+        DNSRecordCodec.Factory.setCodec(DNSRecordType.TYPE_NSEC, (in, name, recordClass, unique, ttl, length) -> {
+            read.incrementAndGet();
+            assertEquals("host.local.", name);
+            assertTrue(unique, "The cache flush bit is set");
+            return DNSRecordCodec.Factory.SKIP.read(in, name, recordClass, unique, ttl, length);
+        });
+        try {
+            assertEquals(1, new DNSIncoming(this.negativeResponse()).getAllAnswers().size());
+            assertEquals(1, read.get(), "The registered codec should read the record");
+        } finally {
+            DNSRecordCodec.Factory.setCodec(DNSRecordType.TYPE_NSEC, null);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> DNSRecordCodec.Factory.setCodec(DNSRecordType.TYPE_OPT, DNSRecordCodec.Factory.SKIP));
+    }
+
+    /**
+     * A response with a NSEC record telling host.local. has no other record than its IPv4 address, followed by this address.
+     */
+    private DatagramPacket negativeResponse() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort(0);
+        out.writeShort(DNSConstants.FLAGS_QR_RESPONSE | DNSConstants.FLAGS_AA);
+        out.writeShort(0);
+        out.writeShort(2);
+        out.writeShort(0);
+        out.writeShort(0);
+        // host.local. NSEC, the name is at offset 12
+        out.writeByte(4);
+        out.writeBytes("host");
+        out.writeByte(5);
+        out.writeBytes("local");
+        out.writeByte(0);
+        out.writeShort(DNSRecordType.TYPE_NSEC.indexValue());
+        out.writeShort(DNSRecordClass.CLASS_IN.indexValue() | DNSRecordClass.CLASS_UNIQUE);
+        out.writeInt(120);
+        out.writeShort(5);
+        out.writeShort(0xC00C);
+        out.writeByte(0);
+        out.writeByte(1);
+        out.writeByte(0x40);
+        // host.local. A 10.0.0.1
+        out.writeShort(0xC00C);
+        out.writeShort(DNSRecordType.TYPE_A.indexValue());
+        out.writeShort(DNSRecordClass.CLASS_IN.indexValue() | DNSRecordClass.CLASS_UNIQUE);
+        out.writeInt(120);
+        out.writeShort(4);
+        out.write(new byte[] { 10, 0, 0, 1 });
+        byte[] data = bytes.toByteArray();
+        return new DatagramPacket(data, data.length, InetAddress.getByName("10.0.0.1"), DNSConstants.MDNS_PORT);
+    }
+
+}
@@ -13,13 +13,19 @@
  */
 package javax.jmdns.impl;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import javax.jmdns.impl.DNSStatefulObject.DNSStatefulObjectSemaphore;
+import javax.jmdns.impl.DNSStatefulObject.DefaultImplementation;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class DNSStatefulObjectTest {
@@ -69,10 +75,13 @@ class DNSStatefulObjectTest {
     void testWaitAndSignal() throws InterruptedException {
         WaitingThread thread = new WaitingThread(semaphore, Long.MAX_VALUE);
         thread.start();
-        Thread.sleep(1);
+        // The signal is only delivered to the threads already waiting
+        while (thread.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
         assertFalse(thread.hasFinished(), "The thread should be waiting.");
         semaphore.signalEvent();
-        Thread.sleep(1);
+        thread.join(1000);
         assertTrue(thread.hasFinished(), "The thread should have finished.");
     }
 
@@ -86,4 +95,27 @@ class DNSStatefulObjectTest {
         assertTrue(thread.hasFinished(), "The thread should have finished.");
     }
 
+    @Test
+    void testAnnouncedFutureCompletesOutsideOfTheLock() {
+        DefaultImplementation state = new DefaultImplementation();
+        AtomicBoolean heldByAction = new AtomicBoolean(true);
+        CompletableFuture<Void> announced = state.whenAnnounced();
+        announced.thenRun(() -> heldByAction.set(state.isHeldByCurrentThread()));
+        while (!state.isAnnounced()) {
+            state.advanceState(null);
+        }
+        assertTrue(announced.isDone(), "The future should have completed once announced.");
+        assertFalse(heldByAction.get(), "The dependent action should not run while the lock is held.");
+    }
+
+    @Test
+    void testAnnouncedFutureFailsWhenClosedFirst() {
+        DefaultImplementation state = new DefaultImplementation();
+        CompletableFuture<Void> announced = state.whenAnnounced();
+        state.closeState();
+        assertTrue(announced.isCompletedExceptionally(), "The future should have failed once closed.");
+        assertThrows(CancellationException.class, announced::join, "The future should fail with a cancellation.");
+        assertTrue(state.whenAnnounced().isCompletedExceptionally(), "A future asked for after closing should fail right away.");
+    }
+
 }
@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.jmdns.JmDNS;
+import javax.jmdns.NetworkTopologyDiscovery;
+import javax.jmdns.ServiceInfo;
+import javax.jmdns.impl.constants.DNSConstants;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class DualStackTransportTest {
+
+    @RegisterExtension
+    final VirtualNetworkExtension virtual = new VirtualNetworkExtension(11);
+
+    @Test
+    void testSingleInstanceServesBothFamilies() throws IOException {
+        try (JmDNSImpl registry = new JmDNSImpl(InetAddress.getByName("10.0.0.1"), InetAddress.getByName("fd00::1"), "host1", 0);
+                JmDNS browser4 = JmDNS.create(InetAddress.getByName("10.0.0.2"), "host2");
+                JmDNS browser6 = JmDNS.create(InetAddress.getByName("fd00::3"), "host3")) {
+            assertTrue(registry.getTransport() instanceof DualStackTransport);
+            assertEquals(4, virtual.getNetwork().getTransportCount(), "The dual-stack instance should join both groups");
+
+            ServiceInfo service = ServiceInfo.create("_html._tcp.local.", "dual", 80, 0, 0, true, new HashMap<String, byte[]>());
+            registry.registerService(service);
+            assertTrue(((ServiceInfoImpl) service).waitForAnnounced(DNSConstants.SERVICE_INFO_TIMEOUT));
+            assertEquals(1, service.getInet4Addresses().length);
+            assertEquals(1, service.getInet6Addresses().length);
+
+            ServiceInfo[] services = browser4.list(service.getType());
+            assertEquals(1, services.length, "The IPv4 host should see the service");
+            services = browser6.list(service.getType());
+            assertEquals(1, services.length, "The IPv6 host should see the service");
+            assertArrayEquals(service.getInet6Addresses(), services[0].getInet6Addresses());
+
+            // Both families feed the same cache
+            ServiceInfo other = ServiceInfo.create("_html._tcp.local.", "other", 80, 0, 0, true, new HashMap<String, byte[]>());
+            browser6.registerService(other);
+            assertTrue(((ServiceInfoImpl) other).waitForAnnounced(DNSConstants.SERVICE_INFO_TIMEOUT));
+            services = registry.list(service.getType());
+            assertEquals(2, services.length, "The dual-stack instance should see the services of both families");
+        }
+    }
+
+    @Test
+    void testDatagramsReceivedOnBothFamiliesAreHandledOnce() throws IOException {
+        try (JmDNSImpl registry = new JmDNSImpl(InetAddress.getByName("10.0.0.1"), InetAddress.getByName("fd00::1"), "host1", 0);
+                JmDNSImpl browser = new JmDNSImpl(InetAddress.getByName("10.0.0.2"), InetAddress.getByName("fd00::2"), "host2", 0)) {
+            ServiceInfo service = ServiceInfo.create("_html._tcp.local.", "dual", 80, 0, 0, true, new HashMap<String, byte[]>());
+            registry.registerService(service);
+            assertTrue(((ServiceInfoImpl) service).waitForAnnounced(DNSConstants.SERVICE_INFO_TIMEOUT));
+
+            ServiceInfo[] services = browser.list(service.getType());
+            assertEquals(1, services.length, "The service should be listed once");
+            assertTrue(((DualStackTransport) browser.getTransport()).getDuplicateCount() > 0, "The copies received on the other family should be dropped");
+        }
+    }
+
+    @Test
+    void testPacketsAreCheckedAgainstTheAddressOfTheirFamily() throws IOException {
+        HostInfo host = HostInfo.newHostInfo(InetAddress.getByName("fe80::1"), null, "host1");
+        host.setAlternateAddress(InetAddress.getByName("10.0.0.1"));
+        assertFalse(host.shouldIgnorePacket(packetFrom("10.0.0.2")), "A routable IPv4 sender should not be checked against the link-local IPv6 address");
+        assertTrue(host.shouldIgnorePacket(packetFrom("fd00::2")), "A routable IPv6 sender should be ignored on a link-local IPv6 address");
+        assertFalse(host.shouldIgnorePacket(packetFrom("fe80::2")));
+        assertTrue(host.shouldIgnorePacket(packetFrom("127.0.0.1")), "Loopback packets should be ignored on a regular interface");
+    }
+
+    @Test
+    void testAlternateAddressIsOneTheTopologyLetsUsUse() throws IOException {
+        final Map<InetAddress, String> interfaces = new LinkedHashMap<>();
+        interfaces.put(InetAddress.getByName("10.0.0.1"), "eth0");
+        interfaces.put(InetAddress.getByName("fd00::9"), "eth1");
+        interfaces.put(InetAddress.getByName("fd00::1"), "eth0");
+        NetworkTopologyDiscovery topology = new NetworkTopologyDiscovery() {
+            @Override
+            public InetAddress[] getInetAddresses() {
+                return interfaces.keySet().toArray(new InetAddress[0]);
+            }
+
+            @Override
+            public String getInterfaceName(InetAddress interfaceAddress) {
+                return interfaces.get(interfaceAddress);
+            }
+
+            @Override
+            public boolean useInetAddress(NetworkInterface networkInterface, InetAddress interfaceAddress) {
+                return true;
+            }
+
+            @Override
+            public void lockInetAddress(InetAddress interfaceAddress) {
+                // Nothing to lock
+            }
+
+            @Override
+            public void unlockInetAddress(InetAddress interfaceAddress) {
+                // Nothing to unlock
+            }
+        };
+        HostInfo host = HostInfo.newHostInfo(InetAddress.getByName("10.0.0.1"), null, "host1");
+        assertEquals(InetAddress.getByName("fd00::1"), host.findAlternateAddress(topology), "The alternate address should be on the same interface");
+
+        interfaces.remove(InetAddress.getByName("fd00::1"));
+        assertNull(host.findAlternateAddress(topology), "An address the topology does not list should not be used");
+    }
+
+    private static DatagramPacket packetFrom(String address) throws IOException {
+        return new DatagramPacket(new byte[0], 0, InetAddress.getByName(address), DNSConstants.MDNS_PORT);
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.util.HashMap;
+
+import javax.jmdns.JmDNS;
+import javax.jmdns.ServiceInfo;
+import javax.jmdns.impl.constants.DNSConstants;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class EchoFilterTest {
+
+    @RegisterExtension
+    final VirtualNetworkExtension virtual = new VirtualNetworkExtension(7);
+
+    @Test
+    void testRepeatedEchoIsDropped() {
+        EchoFilter filter = new EchoFilter(2, 1000, 100);
+        byte[] announcement = new byte[] { 0, 0, (byte) 0x84, 0, 0, 0, 0, 1, 0, 0, 0, 0 };
+        byte[] other = new byte[] { 0, 0, (byte) 0x84, 0, 0, 0, 0, 2, 0, 0, 0, 0 };
+
+        filter.sent(announcement, announcement.length, 0);
+        assertFalse(filter.isRedundantEcho(packet(announcement), 0), "The first echo should be handled");
+        filter.sent(announcement, announcement.length, 500);
+        assertTrue(filter.isRedundantEcho(packet(announcement), 500), "The echo of the repeated datagram should be dropped");
+        assertFalse(filter.isRedundantEcho(packet(other), 500), "A datagram we did not send should be handled");
+        filter.sent(announcement, announcement.length, 1500);
+        assertFalse(filter.isRedundantEcho(packet(announcement), 1500), "The echo should be handled again once the interval is over");
+        assertEquals(1, filter.getSuppressedCount());
+
+        // The ring forgets the oldest datagrams
+        filter.sent(other, other.length, 1600);
+        filter.sent(new byte[] { 1 }, 1, 1600);
+        assertFalse(filter.isRedundantEcho(packet(announcement), 1600), "A forgotten datagram should be handled");
+    }
+
+    @Test
+    void testIdenticalDatagramOfAnotherSenderIsHandled() {
+        EchoFilter filter = new EchoFilter(2, 1000, 100);
+        byte[] query = new byte[] { 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0 };
+
+        filter.sent(query, query.length, 0);
+        assertFalse(filter.isRedundantEcho(packet(query), 0), "The first echo should be handled");
+        filter.sent(query, query.length, 500);
+        assertTrue(filter.isRedundantEcho(packet(query), 501), "The echo of the repeated datagram should be dropped");
+        assertFalse(filter.isRedundantEcho(packet(query), 502), "The same query from another instance of the host should be handled");
+        filter.sent(query, query.length, 700);
+        assertFalse(filter.isRedundantEcho(packet(query), 900), "A datagram received long after our send should not be taken for its echo");
+        assertEquals(1, filter.getSuppressedCount());
+    }
+
+    @Test
+    void testSelfDiscoveryStillWorks() throws IOException {
+        try (JmDNS registry = JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1")) {
+            ServiceInfo service = ServiceInfo.create("_html._tcp.local.", "echo", 80, 0, 0, true, new HashMap<String, byte[]>());
+            registry.registerService(service);
+            assertTrue(((ServiceInfoImpl) service).waitForAnnounced(DNSConstants.SERVICE_INFO_TIMEOUT));
+
+            ServiceInfo[] services = registry.list(service.getType());
+            assertEquals(1, services.length, "We should still see the service we registered");
+            assertTrue(((JmDNSImpl) registry).getEchoFilter().getSuppressedCount() > 0, "The repeated announcements should not be handled again");
+        }
+    }
+
+    private static DatagramPacket packet(byte[] data) {
+        return new DatagramPacket(data.clone(), data.length);
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.jmdns.ServiceEvent;
+import javax.jmdns.ServiceListener;
+import javax.jmdns.impl.EventDispatcher.OverflowPolicy;
+import javax.jmdns.impl.ListenerStatus.ServiceListenerStatus;
+import javax.jmdns.impl.util.ByteWrangler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EventDispatcherTest {
+
+    private static final String TYPE = "_html._tcp.local.";
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    private final Executor        executor = tasks::add;
+
+    private final List<String>    calls = new ArrayList<>();
+
+    private ServiceListenerStatus listener;
+
+    private JmDNSImpl             dns;
+
+    @BeforeEach
+    public void setup() {
+        dns = mock(JmDNSImpl.class);
+        listener = new ServiceListenerStatus(new ServiceListener() {
+            @Override
+            public void serviceAdded(ServiceEvent event) {
+                calls.add("added " + event.getName());
+            }
+
+            @Override
+            public void serviceRemoved(ServiceEvent event) {
+                calls.add("removed " + event.getName());
+            }
+
+            @Override
+            public void serviceResolved(ServiceEvent event) {
+                calls.add("resolved " + event.getName() + " " + event.getInfo().getPropertyString("v"));
+            }
+        }, ListenerStatus.ASYNCHRONOUS);
+    }
+
+    @Test
+    void testEveryEventIsDeliveredByDefault() throws Exception {
+        EventDispatcher dispatcher = new EventDispatcher(executor, 0, OverflowPolicy.DROP_OLDEST);
+        dispatcher.serviceAdded(listener, added("a"));
+        dispatcher.serviceResolved(listener, resolved("a", 1));
+        dispatcher.serviceResolved(listener, resolved("a", 2));
+        dispatcher.serviceRemoved(listener, added("a"));
+        assertEquals(4, dispatcher.getQueueDepth(), "Every event should be pending");
+        assertEquals(4, tasks.size(), "Each event should be handed to the executor on its own");
+        runAll();
+        assertEquals(Arrays.asList("added a", "resolved a 1", "resolved a 2", "removed a"), calls, "An unbounded dispatcher should not coalesce");
+        assertEquals(0, dispatcher.getCoalescedCount());
+        assertEquals(4, dispatcher.getDeliveredCount());
+        assertEquals(0, dispatcher.getQueueDepth());
+    }
+
+    @Test
+    void testFlappingServiceIsCoalesced() throws Exception {
+        EventDispatcher dispatcher = new EventDispatcher(executor, 100, OverflowPolicy.DROP_OLDEST);
+        dispatcher.serviceAdded(listener, added("a"));
+        for (int i = 0; i < 10; i++) {
+            dispatcher.serviceResolved(listener, resolved("a", i));
+        }
+        assertEquals(2, dispatcher.getQueueDepth(), "Only the latest resolution should be pending");
+        assertEquals(9, dispatcher.getCoalescedCount());
+        assertEquals(1, tasks.size(), "A single drain should be scheduled");
+        runAll();
+        assertEquals(Arrays.asList("added a", "resolved a 9"), calls);
+
+        calls.clear();
+        dispatcher.serviceRemoved(listener, added("a"));
+        dispatcher.serviceAdded(listener, added("a"));
+        dispatcher.serviceResolved(listener, resolved("a", 10));
+        dispatcher.serviceRemoved(listener, added("a"));
+        runAll();
+        assertEquals(Arrays.asList("removed a"), calls, "The service is gone, the intermediate events are stale");
+        assertEquals(0, dispatcher.getQueueDepth());
+        assertEquals(3, dispatcher.getDeliveredCount());
+    }
+
+    @Test
+    void testOverflowPolicies() throws Exception {
+        EventDispatcher dispatcher = new EventDispatcher(executor, 2, OverflowPolicy.DROP_NEWEST);
+        dispatcher.serviceAdded(listener, added("a"));
+        dispatcher.serviceAdded(listener, added("b"));
+        dispatcher.serviceAdded(listener, added("c"));
+        dispatcher.serviceResolved(listener, resolved("a", 1));
+        assertEquals(1, dispatcher.getDroppedCount());
+        assertEquals(3, dispatcher.getQueueDepth(), "An instance already pending should still be merged");
+        runAll();
+        assertEquals(Arrays.asList("added a", "resolved a 1", "added b"), calls);
+
+        calls.clear();
+        dispatcher.setLimits(2, OverflowPolicy.DROP_OLDEST);
+        dispatcher.serviceAdded(listener, added("d"));
+        dispatcher.serviceAdded(listener, added("e"));
+        dispatcher.serviceAdded(listener, added("f"));
+        assertEquals(2, dispatcher.getDroppedCount());
+        assertEquals(3, dispatcher.getPeakQueueDepth());
+        runAll();
+        assertEquals(Arrays.asList("added e", "added f"), calls);
+    }
+
+    @Test
+    void testRejectedDrainKeepsThePendingEvents() throws Exception {
+        final boolean[] reject = { true };
+        EventDispatcher dispatcher = new EventDispatcher(task -> {
+            if (reject[0]) {
+                throw new RejectedExecutionException();
+            }
+            tasks.add(task);
+        }, 100, OverflowPolicy.DROP_OLDEST);
+        dispatcher.serviceAdded(listener, added("a"));
+        dispatcher.serviceAdded(listener, added("b"));
+        assertEquals(2, dispatcher.getQueueDepth(), "A rejected drain should not drop the pending events");
+        assertEquals(0, dispatcher.getDroppedCount());
+
+        reject[0] = false;
+        dispatcher.serviceAdded(listener, added("c"));
+        assertEquals(1, tasks.size(), "The next event should submit the drain again");
+        runAll();
+        assertEquals(Arrays.asList("added a", "added b", "added c"), calls);
+    }
+
+    private void runAll() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private ServiceEvent added(String name) {
+        return new ServiceEventImpl(dns, TYPE, name, new ServiceInfoImpl(TYPE, name, "", 0, 0, 0, false, (byte[]) null));
+    }
+
+    private ServiceEvent resolved(String name, int version) throws Exception {
+        ServiceInfoImpl info = new ServiceInfoImpl(TYPE, name, "", 80, 0, 0, false, ByteWrangler.encodeText("v=" + version));
+        info.setServer(name + ".local.");
+        info.addAddress((Inet4Address) InetAddress.getByName("10.0.0.9"));
+        return new ServiceEventImpl(dns, TYPE, name, ServiceInfoSnapshot.of(info));
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.InetAddress;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IngressLimiterTest {
+
+    private VirtualClock clock;
+    private InetAddress flooder;
+    private InetAddress neighbour;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        clock = new VirtualClock(0);
+        DNSClock.Factory.setClock(clock);
+        flooder = InetAddress.getByName("10.0.0.66");
+        neighbour = InetAddress.getByName("10.0.0.2");
+    }
+
+    @AfterEach
+    public void teardown() {
+        DNSClock.Factory.setClock(null);
+    }
+
+    @Test
+    void testFloodingSourceIsDropped() {
+        IngressLimiter limiter = new IngressLimiter(10, 5, 0);
+        int admitted = 0;
+        for (int i = 0; i < 100; i++) {
+            if (limiter.admit(flooder)) {
+                admitted++;
+            }
+        }
+        assertEquals(5, admitted, "Only the burst should be admitted");
+        assertEquals(95, limiter.getDroppedCount());
+        assertTrue(limiter.admit(neighbour), "Other sources should not be affected by the flood");
+
+        clock.advance(1000);
+        admitted = 0;
+        for (int i = 0; i < 100; i++) {
+            if (limiter.admit(flooder)) {
+                admitted++;
+            }
+        }
+        assertEquals(5, admitted, "The bucket should have refilled up to the burst");
+    }
+
+    @Test
+    void testSteadySourceIsNeverDropped() {
+        IngressLimiter limiter = new IngressLimiter(10, 5, 0);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(limiter.admit(neighbour), "A source within its rate should always be admitted");
+            clock.advance(100);
+        }
+        assertEquals(0, limiter.getDroppedCount());
+    }
+
+    @Test
+    void testExhaustedBudgetShedsHeavySenders() {
+        IngressLimiter limiter = new IngressLimiter(1000, 100, 10);
+        // Use most of the flooder burst and blow the 10ms budget
+        for (int i = 0; i < 80; i++) {
+            assertTrue(limiter.admit(flooder));
+        }
+        limiter.charge(20_000_000L);
+
+        assertFalse(limiter.admit(flooder), "A heavy sender should be shed while the budget is exhausted");
+        assertEquals(1, limiter.getShedCount());
+        assertTrue(limiter.admit(neighbour), "A quiet source should still be admitted");
+
+        clock.advance(2000);
+        assertTrue(limiter.admit(flooder), "Once the budget has refilled the sender should be admitted again");
+    }
+
+    @Test
+    void testSourcesAreBounded() throws Exception {
+        IngressLimiter limiter = new IngressLimiter(10, 1, 0, 4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.admit(InetAddress.getByName("10.0.1." + i)));
+        }
+        assertEquals(4, limiter.getSourceCount());
+        assertTrue(limiter.admit(InetAddress.getByName("10.0.2.1")), "Untracked sources share the overflow bucket");
+        assertFalse(limiter.admit(InetAddress.getByName("10.0.2.2")), "Untracked sources share the overflow bucket");
+        assertEquals(4, limiter.getSourceCount());
+
+        clock.advance(1000);
+        assertTrue(limiter.admit(InetAddress.getByName("10.0.2.3")), "Idle sources should be pruned");
+        assertEquals(1, limiter.getSourceCount());
+    }
+
+}
@@ -21,14 +21,22 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.jmdns.JmDNS;
 import javax.jmdns.JmmDNS;
 import javax.jmdns.ServiceEvent;
 import javax.jmdns.ServiceInfo;
 import javax.jmdns.ServiceListener;
+import javax.jmdns.impl.constants.DNSConstants;
 import javax.jmdns.test.util.ReflectionUtils;
 
 class JmmDNSTest {
@@ -147,6 +155,60 @@ class JmmDNSTest {
         }
     }
 
+    @Test
+    void testListMyServiceAsync() throws Exception {
+        try (JmmDNS registry = JmmDNS.Factory.getInstance()) {
+            registry.registerService(service);
+            VirtualNetworkExtension.waitFor(() -> this.isAnnounced(registry), "The service should be announced");
+
+            ServiceInfo[] services = registry.listAsync(service.getType(), DNSConstants.SERVICE_INFO_TIMEOUT).get(DNSConstants.SERVICE_INFO_TIMEOUT * 2, TimeUnit.MILLISECONDS);
+            assertTrue(services.length > 0, "We should see the service we just registered: ");
+            assertEquals(service, services[0]);
+
+            ServiceInfo[] queriedService = registry.getServiceInfosAsync(service.getType(), service.getName(), false, DNSConstants.SERVICE_INFO_TIMEOUT).get(DNSConstants.SERVICE_INFO_TIMEOUT * 2, TimeUnit.MILLISECONDS);
+            assertTrue(queriedService.length > 0, "We expect to see the service we just registered");
+            assertEquals(service, queriedService[0]);
+
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                assertFalse(thread.getName().startsWith("JmmDNS."), "No thread should be created per call: " + thread.getName());
+            }
+        }
+    }
+
+    @Test
+    void testConcurrentListsSeeMyService() throws Exception {
+        try (JmmDNS registry = JmmDNS.Factory.getInstance()) {
+            registry.registerService(service);
+            VirtualNetworkExtension.waitFor(() -> this.isAnnounced(registry), "The service should be announced");
+
+            final int callers = 2 * DNSConstants.JMMDNS_LOOKUP_THREADS;
+            final ExecutorService executor = Executors.newFixedThreadPool(callers);
+            try {
+                final List<CompletableFuture<ServiceInfo[]>> lists = new ArrayList<>(callers);
+                for (int i = 0; i < callers; i++) {
+                    lists.add(CompletableFuture.supplyAsync(() -> registry.list(service.getType(), DNSConstants.SERVICE_INFO_TIMEOUT), executor));
+                }
+                for (CompletableFuture<ServiceInfo[]> list : lists) {
+                    final ServiceInfo[] services = list.get(DNSConstants.SERVICE_INFO_TIMEOUT * 2, TimeUnit.MILLISECONDS);
+                    assertTrue(services.length > 0, "Every concurrent caller should see the service we just registered");
+                    assertEquals(service, services[0]);
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private boolean isAnnounced(JmmDNS registry) {
+        for (JmDNS dns : registry.getDNS()) {
+            final ServiceInfo registered = ((JmDNSImpl) dns).getServices().get(service.getKey());
+            if ((registered != null) && ((ServiceInfoImpl) registered).isAnnounced()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Test
     void testListenForMyService() throws IOException, InterruptedException {
         ArgumentCaptor<ServiceEvent> capServiceAddedEvent = ArgumentCaptor.forClass(ServiceEvent.class);
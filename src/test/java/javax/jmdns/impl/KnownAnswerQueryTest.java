@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.util.List;
+
+import javax.jmdns.impl.constants.DNSConstants;
+import javax.jmdns.impl.constants.DNSRecordClass;
+import javax.jmdns.impl.constants.DNSRecordType;
+
+import org.junit.jupiter.api.Test;
+
+class KnownAnswerQueryTest {
+
+    private static final String TYPE = "_googlecast._tcp.local.";
+
+    @Test
+    void testLargeKnownAnswerListIsSplit() throws IOException {
+        DNSOutgoing out = new DNSOutgoing(DNSConstants.FLAGS_QR_QUERY);
+        out.addQuestion(DNSQuestion.newQuestion(TYPE, DNSRecordType.TYPE_PTR, DNSRecordClass.CLASS_IN, false));
+        KnownAnswerQuery query = new KnownAnswerQuery(out);
+        for (int i = 0; i < 800; i++) {
+            // Half of the answers will be past half of their TTL
+            int ttl = (i % 2 == 0 ? 120 : DNSConstants.DNS_TTL + i);
+            query.addKnownAnswer(new DNSRecord.Pointer(TYPE, DNSRecordClass.CLASS_IN, false, ttl, "Chromecast-" + i + "." + TYPE));
+        }
+        query.addKnownAnswer(new DNSRecord.Pointer(TYPE, DNSRecordClass.CLASS_IN, false, DNSConstants.DNS_TTL + 1, "Chromecast-1." + TYPE));
+        assertEquals(800, query.getKnownAnswerCount(), "Duplicates should be dropped");
+
+        long now = DNSClock.Factory.getClock().currentTimeMillis() + 61 * 1000;
+        List<DNSOutgoing> packets = query.packets(now);
+        assertTrue(packets.size() > 1, "The answers should not fit in one packet");
+
+        int answers = 0;
+        int previousTTL = Integer.MAX_VALUE;
+        for (int i = 0; i < packets.size(); i++) {
+            byte[] data = packets.get(i).data();
+            assertTrue(data.length <= DNSConstants.MAX_MSG_TYPICAL, "Packet " + i + " is too large: " + data.length);
+            DNSIncoming in = new DNSIncoming(new DatagramPacket(data, data.length));
+            assertTrue(in.isQuery());
+            assertEquals(i < packets.size() - 1, in.isTruncated(), "Only the last packet should not be truncated");
+            assertEquals(i == 0 ? 1 : 0, in.getNumberOfQuestions(), "Only the first packet should carry the question");
+            for (DNSRecord answer : in.getAnswers()) {
+                assertTrue(answer.getTTL() > 120, "Answers past half of their TTL should be left out");
+                assertTrue(answer.getTTL() <= previousTTL, "Answers should be sorted by remaining TTL");
+                previousTTL = answer.getTTL();
+                answers++;
+            }
+        }
+        assertEquals(400, answers);
+    }
+
+    @Test
+    void testQueryWithoutKnownAnswers() throws IOException {
+        DNSOutgoing out = new DNSOutgoing(DNSConstants.FLAGS_QR_QUERY);
+        assertTrue(new KnownAnswerQuery(out).packets(0).isEmpty(), "A query without question should not be sent");
+        out.addQuestion(DNSQuestion.newQuestion(TYPE, DNSRecordType.TYPE_PTR, DNSRecordClass.CLASS_IN, false));
+        List<DNSOutgoing> packets = new KnownAnswerQuery(out).packets(0);
+        assertEquals(1, packets.size());
+        assertFalse(packets.get(0).isTruncated());
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import javax.jmdns.JmDNS;
+import javax.jmdns.ServiceEvent;
+import javax.jmdns.ServiceListener;
+import javax.jmdns.impl.util.ByteWrangler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MergedServiceViewTest {
+
+    private static final String TYPE = "_html._tcp.local.";
+
+    private final List<String>  calls = new ArrayList<>();
+
+    private ServiceListener     listener;
+
+    private JmDNSImpl           dns1;
+
+    private JmDNSImpl           dns2;
+
+    @BeforeEach
+    public void setup() {
+        dns1 = mock(JmDNSImpl.class);
+        dns2 = mock(JmDNSImpl.class);
+        listener = new ServiceListener() {
+            @Override
+            public void serviceAdded(ServiceEvent event) {
+                calls.add("added " + event.getName());
+            }
+
+            @Override
+            public void serviceRemoved(ServiceEvent event) {
+                calls.add("removed " + event.getName());
+            }
+
+            @Override
+            public void serviceResolved(ServiceEvent event) {
+                calls.add("resolved " + event.getName() + " " + new TreeSet<>(Arrays.asList(event.getInfo().getHostAddresses())));
+            }
+        };
+    }
+
+    @Test
+    void testInstanceSeenOnTwoInterfacesIsMerged() throws Exception {
+        MergedServiceView view = new MergedServiceView(TYPE, Runnable::run);
+        assertTrue(view.addListener(listener), "The first listener should be reported");
+
+        view.serviceAdded(added(dns1, "Apache"));
+        view.serviceAdded(added(dns2, "apache"));
+        assertEquals(Arrays.asList("added Apache"), calls, "The instance should be added once");
+
+        view.serviceResolved(resolved(dns1, "Apache", "10.0.0.1"));
+        view.serviceResolved(resolved(dns2, "apache", "10.0.1.1"));
+        view.serviceResolved(resolved(dns2, "apache", "10.0.1.1"));
+        assertEquals(Arrays.asList("added Apache", "resolved Apache [10.0.0.1]", "resolved Apache [10.0.0.1, 10.0.1.1]"), calls, "Only the changes of the merged details should be reported");
+        assertEquals(1, view.getServices().length);
+        assertEquals(2, view.getDNS("APACHE").length);
+
+        // A late listener gets the merged state
+        final List<String> late = new ArrayList<>();
+        assertFalse(view.addListener(new ServiceListener() {
+            @Override
+            public void serviceAdded(ServiceEvent event) {
+                late.add("late added " + event.getName());
+            }
+
+            @Override
+            public void serviceRemoved(ServiceEvent event) {
+                late.add("late removed " + event.getName());
+            }
+
+            @Override
+            public void serviceResolved(ServiceEvent event) {
+                late.add("late resolved " + event.getInfo().getHostAddresses().length);
+            }
+        }));
+        assertEquals(Arrays.asList("late added Apache", "late resolved 2"), late);
+
+        view.serviceRemoved(added(dns1, "Apache"));
+        assertEquals("resolved Apache [10.0.1.1]", calls.get(calls.size() - 1), "Losing one interface should only drop its addresses");
+        view.removeDNS(dns2);
+        assertEquals("removed Apache", calls.get(calls.size() - 1), "Losing the last interface should remove the instance");
+        assertEquals(0, view.getServices().length);
+        assertEquals("late removed Apache", late.get(late.size() - 1));
+
+        assertFalse(view.removeListener(listener));
+    }
+
+    @Test
+    void testInstanceResolvedByAnyJmDNSIsReported() throws Exception {
+        MergedServiceView view = new MergedServiceView(TYPE, Runnable::run);
+        view.addListener(listener);
+        JmDNS dns = mock(JmDNS.class);
+
+        view.serviceAdded(added(dns, "Apache"));
+        view.serviceResolved(resolved(dns, "Apache", "10.0.0.1"));
+        assertEquals(Arrays.asList("added Apache", "resolved Apache [10.0.0.1]"), calls, "A resolution should be reported whatever the JmDNS implementation");
+    }
+
+    private ServiceEvent added(JmDNS dns, String name) {
+        return new ServiceEventImpl(dns, TYPE, name, new ServiceInfoImpl(TYPE, name, "", 0, 0, 0, false, (byte[]) null));
+    }
+
+    private ServiceEvent resolved(JmDNS dns, String name, String address) throws Exception {
+        ServiceInfoImpl info = new ServiceInfoImpl(TYPE, name, "", 80, 0, 0, false, ByteWrangler.encodeText("path=/"));
+        info.setServer("host.local.");
+        info.addAddress((Inet4Address) InetAddress.getByName(address));
+        return new ServiceEventImpl(dns, TYPE, name, ServiceInfoSnapshot.of(info));
+    }
+
+}
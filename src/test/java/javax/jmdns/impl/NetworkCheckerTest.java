@@ -0,0 +1,210 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.jmdns.JmDNS;
+import javax.jmdns.NetworkTopologyDiscovery;
+import javax.jmdns.NetworkTopologyEvent;
+import javax.jmdns.ServiceInfo;
+import javax.jmdns.impl.constants.DNSConstants;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class NetworkCheckerTest {
+
+    @RegisterExtension
+    final VirtualNetworkExtension virtual = new VirtualNetworkExtension(13);
+
+    @Test
+    void testAddressChangeIsARebind() throws IOException {
+        FakeTopology topology = new FakeTopology();
+        RecordingListener listener = new RecordingListener();
+        JmmDNSImpl.NetworkChecker checker = new JmmDNSImpl.NetworkChecker(listener, topology, false);
+
+        topology.put("10.0.0.1", "eth0");
+        topology.put("fd00::1", "eth0");
+        topology.put("10.1.0.1", "eth1");
+        checker.run();
+        assertEquals(3, listener.events.size(), "One instance per interface and family: " + listener.events);
+        assertEquals(DNSConstants.NETWORK_CHECK_MIN_INTERVAL, checker.getInterval(), "The polling should speed up after a change");
+
+        listener.events.clear();
+        checker.run();
+        assertTrue(listener.events.isEmpty());
+        assertEquals(2 * DNSConstants.NETWORK_CHECK_MIN_INTERVAL, checker.getInterval(), "The polling should slow down while nothing changes");
+
+        // A second address on the interface does not need an instance of its own
+        topology.put("10.0.0.2", "eth0");
+        checker.run();
+        assertTrue(listener.events.isEmpty(), "Unexpected events: " + listener.events);
+
+        topology.remove("10.0.0.1");
+        checker.run();
+        assertEquals(Arrays.asList("rebound 10.0.0.1 -> 10.0.0.2"), listener.events);
+
+        listener.events.clear();
+        topology.remove("10.1.0.1");
+        checker.run();
+        assertEquals(Arrays.asList("removed 10.1.0.1"), listener.events);
+    }
+
+    @Test
+    void testDualStackKeepsOneInstancePerInterface() throws IOException {
+        FakeTopology topology = new FakeTopology();
+        RecordingListener listener = new RecordingListener();
+        JmmDNSImpl.NetworkChecker checker = new JmmDNSImpl.NetworkChecker(listener, topology, true);
+
+        topology.put("fd00::1", "eth0");
+        topology.put("10.0.0.1", "eth0");
+        checker.run();
+        assertEquals(Arrays.asList("added 10.0.0.1 fd00:0:0:0:0:0:0:1"), listener.events, "The alternate address should come from the topology");
+
+        listener.events.clear();
+        topology.remove("fd00::1");
+        topology.put("fd00::2", "eth0");
+        checker.run();
+        assertEquals(Arrays.asList("rebound 10.0.0.1 -> 10.0.0.1 fd00:0:0:0:0:0:0:2"), listener.events);
+    }
+
+    @Test
+    void testInstanceIsMovedToTheNewAddress() throws IOException {
+        FakeTopology topology = new FakeTopology();
+        topology.put("10.0.0.1", "eth0");
+        try (JmmDNSImpl registry = new JmmDNSImpl(topology); JmDNS browser = JmDNS.create(InetAddress.getByName("10.0.0.9"), "browser")) {
+            VirtualNetworkExtension.waitFor(() -> registry.getDNS().length == 1, "The instance should be created");
+            final JmDNSImpl dns = (JmDNSImpl) registry.getDNS()[0];
+
+            ServiceInfo service = ServiceInfo.create("_html._tcp.local.", "moving", 80, 0, 0, true, new HashMap<String, byte[]>());
+            registry.registerService(service);
+            VirtualNetworkExtension.waitFor(() -> !dns.getServices().isEmpty(), "The service should be registered on the instance");
+            ServiceInfo registered = dns.getServices().values().iterator().next();
+            assertTrue(((ServiceInfoImpl) registered).waitForAnnounced(DNSConstants.SERVICE_INFO_TIMEOUT));
+            assertEquals(1, browser.list(service.getType()).length);
+
+            topology.remove("10.0.0.1");
+            topology.put("10.0.0.5", "eth0");
+            registry.getNetworkChecker().check();
+
+            assertEquals(1, registry.getDNS().length);
+            assertSame(dns, registry.getDNS()[0], "The instance should be kept");
+            assertEquals(InetAddress.getByName("10.0.0.5"), dns.getInetAddress());
+            assertSame(registered, dns.getServices().values().iterator().next(), "The registration should be kept");
+            assertEquals(Arrays.asList(InetAddress.getByName("10.0.0.5")), Arrays.asList(registered.getInet4Addresses()));
+
+            final InetAddress moved = InetAddress.getByName("10.0.0.5");
+            VirtualNetworkExtension.waitFor(() -> {
+                ServiceInfo info = browser.getServiceInfo(service.getType(), service.getName(), 100);
+                return (info != null) && Arrays.asList(info.getInet4Addresses()).equals(Arrays.asList(moved));
+            }, "The browser should see the service at its new address");
+        }
+    }
+
+    @Test
+    void testRebindDuringReopenIsNotLost() throws IOException {
+        try (JmDNSImpl dns = (JmDNSImpl) JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1")) {
+            ServiceInfo service = ServiceInfo.create("_html._tcp.local.", "rebound", 80, 0, 0, true, new HashMap<String, byte[]>());
+            dns.registerService(service);
+            assertTrue(((ServiceInfoImpl) service).waitForAnnounced(DNSConstants.SERVICE_INFO_TIMEOUT));
+
+            // The second rebind comes while the first one reopens the transport
+            dns.rebind(InetAddress.getByName("10.0.0.2"), null);
+            dns.rebind(InetAddress.getByName("10.0.0.3"), null);
+
+            final InetAddress last = InetAddress.getByName("10.0.0.3");
+            VirtualNetworkExtension.waitFor(() -> {
+                DNSTransport transport = dns.getTransport();
+                return (transport instanceof VirtualMulticastNetwork.VirtualTransport) && last.equals(((VirtualMulticastNetwork.VirtualTransport) transport).getAddress());
+            }, "The transport should be bound to the last address");
+        }
+    }
+
+    private static class FakeTopology implements NetworkTopologyDiscovery {
+
+        private final Map<InetAddress, String> interfaces = new LinkedHashMap<>();
+
+        synchronized void put(String address, String name) throws IOException {
+            interfaces.put(InetAddress.getByName(address), name);
+        }
+
+        synchronized void remove(String address) throws IOException {
+            interfaces.remove(InetAddress.getByName(address));
+        }
+
+        @Override
+        public synchronized InetAddress[] getInetAddresses() {
+            return interfaces.keySet().toArray(new InetAddress[0]);
+        }
+
+        @Override
+        public synchronized String getInterfaceName(InetAddress interfaceAddress) {
+            return interfaces.get(interfaceAddress);
+        }
+
+        @Override
+        public boolean useInetAddress(NetworkInterface networkInterface, InetAddress interfaceAddress) {
+            return true;
+        }
+
+        @Override
+        public void lockInetAddress(InetAddress interfaceAddress) {
+            // Nothing to lock
+        }
+
+        @Override
+        public void unlockInetAddress(InetAddress interfaceAddress) {
+            // Nothing to unlock
+        }
+
+    }
+
+    private static class RecordingListener implements NetworkTopologyRebindListener {
+
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void inetAddressAdded(NetworkTopologyEvent event) {
+            events.add("added " + event.getInetAddress().getHostAddress());
+        }
+
+        @Override
+        public void inetAddressAdded(InetAddress address, InetAddress alternateAddress) {
+            events.add("added " + address.getHostAddress() + (alternateAddress != null ? " " + alternateAddress.getHostAddress() : ""));
+        }
+
+        @Override
+        public void inetAddressRemoved(NetworkTopologyEvent event) {
+            events.add("removed " + event.getInetAddress().getHostAddress());
+        }
+
+        @Override
+        public void inetAddressRebound(InetAddress previous, InetAddress address, InetAddress alternateAddress) {
+            events.add("rebound " + previous.getHostAddress() + " -> " + address.getHostAddress() + (alternateAddress != null ? " " + alternateAddress.getHostAddress() : ""));
+        }
+
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.jmdns.JmDNS;
+import javax.jmdns.ServiceInfo;
+import javax.jmdns.impl.constants.DNSConstants;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class PacketCaptureTest {
+
+    @RegisterExtension
+    final VirtualNetworkExtension virtual = new VirtualNetworkExtension();
+
+    @Test
+    void testCaptureRoundTrip() throws Exception {
+        HostInfo localHost = HostInfo.newHostInfo(InetAddress.getByName("10.0.0.1"), null, "test");
+        byte[] sent = { 0, 0, (byte) 0x84, 0, 0, 0, 0, 0, 0, 0, 0, 0 };
+        byte[] received = { 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 1 };
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PacketCapture capture = new PacketCapture(out)) {
+            capture.capture(new DatagramPacket(sent, sent.length, InetAddress.getByName(DNSConstants.MDNS_GROUP), DNSConstants.MDNS_PORT), true, localHost);
+            capture.capture(new DatagramPacket(received, received.length, InetAddress.getByName("10.0.0.2"), 5354), false, localHost);
+        }
+
+        List<PacketReplay.Datagram> datagrams = PacketReplay.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(2, datagrams.size());
+        DatagramPacket first = datagrams.get(0).getPacket();
+        assertEquals(InetAddress.getByName("10.0.0.1"), first.getAddress(), "The source of a sent datagram is the local host");
+        assertEquals(DNSConstants.MDNS_PORT, first.getPort());
+        assertTrue(datagrams.get(0).isOutbound(), "A sent datagram is marked outbound");
+        assertArrayEquals(sent, Arrays.copyOf(first.getData(), first.getLength()));
+        DatagramPacket second = datagrams.get(1).getPacket();
+        assertEquals(InetAddress.getByName("10.0.0.2"), second.getAddress(), "The source of a received datagram is the sender");
+        assertEquals(5354, second.getPort());
+        assertFalse(datagrams.get(1).isOutbound(), "A received datagram is marked inbound");
+        assertArrayEquals(received, Arrays.copyOf(second.getData(), second.getLength()));
+    }
+
+    @Test
+    void testCaptureLiveTraffic() throws Exception {
+        ServiceInfo service = ServiceInfo.create("_html._tcp.local.", "apache-someuniqueid", 80, "Test hypothetical web server");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PacketCapture capture = new PacketCapture(out); JmDNS registry = JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1")) {
+            ((JmDNSImpl) registry).setPacketCapture(capture);
+            registry.registerService(service);
+            assertTrue(((ServiceInfoImpl) service).waitForAnnounced(DNSConstants.SERVICE_INFO_TIMEOUT), "The service should have been announced");
+            ((JmDNSImpl) registry).setPacketCapture(null);
+        }
+
+        List<PacketReplay.Datagram> datagrams = PacketReplay.read(new ByteArrayInputStream(out.toByteArray()));
+        assertFalse(datagrams.isEmpty(), "The probes and announcements should have been captured");
+        for (PacketReplay.Datagram datagram : datagrams) {
+            assertTrue(datagram.getTimestamp() > 0);
+            new DNSIncoming(datagram.getPacket());
+        }
+
+        long inbound = datagrams.stream().filter(datagram -> !datagram.isOutbound()).count();
+        assertTrue(inbound < datagrams.size(), "The datagrams the registry sent should be marked outbound");
+        try (JmDNS browser = JmDNS.create(InetAddress.getByName("10.0.0.2"), "host2")) {
+            assertEquals(inbound, new PacketReplay((JmDNSImpl) browser).replay(datagrams, 0), "Only the received datagrams should be replayed");
+        }
+    }
+
+    @Test
+    void testReplayReferenceCapture() throws Exception {
+        List<PacketReplay.Datagram> datagrams;
+        try (InputStream in = this.getClass().getResourceAsStream("a_record_before_srv.pcapng")) {
+            datagrams = PacketReplay.read(in);
+        }
+        assertFalse(datagrams.isEmpty(), "The reference capture holds mDNS traffic");
+
+        try (JmDNS browser = JmDNS.create(InetAddress.getByName("10.0.0.2"), "host2")) {
+            int handled = new PacketReplay((JmDNSImpl) browser).replay(datagrams, 0);
+            assertEquals(datagrams.size(), handled);
+            assertFalse(((JmDNSImpl) browser).getCache().getDNSEntryList("DeviceManagementService._ibisip_http._tcp.local.").isEmpty(), "The replayed records should be cached");
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import javax.jmdns.JmDNS;
+import javax.jmdns.ServiceEvent;
+import javax.jmdns.ServiceInfo;
+import javax.jmdns.ServiceListener;
+import javax.jmdns.impl.ListenerStatus.ServiceListenerStatus;
+import javax.jmdns.impl.constants.DNSConstants;
+import javax.jmdns.impl.util.ByteWrangler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class ServiceInfoSnapshotTest {
+
+    @RegisterExtension
+    final VirtualNetworkExtension virtual = new VirtualNetworkExtension(3);
+
+    private static final String TYPE = "_html._tcp.local.";
+
+    @Test
+    void testSnapshotIsAnImmutableCopy() throws Exception {
+        ServiceInfoImpl info = resolved("path=/index.html", "10.0.0.9");
+        ServiceInfoSnapshot snapshot = ServiceInfoSnapshot.of(info);
+
+        assertEquals(info.getQualifiedName(), snapshot.getQualifiedName());
+        assertEquals(info.getPort(), snapshot.getPort());
+        assertEquals(info.getServer(), snapshot.getServer());
+        assertArrayEquals(info.getTextBytes(), snapshot.getTextBytes());
+        assertTrue(snapshot.hasSameAddresses(info));
+        assertTrue(snapshot.hasData(), "The snapshot should be resolved like the original");
+        assertSame(snapshot, ServiceInfoSnapshot.of(snapshot), "A snapshot should not be copied again");
+
+        info.addAddress((Inet4Address) InetAddress.getByName("10.0.0.10"));
+        assertEquals(1, snapshot.getInet4Addresses().length, "Later changes of the original should not be seen");
+
+        snapshot.getTextBytes()[1] = 'P';
+        assertEquals("/index.html", snapshot.getPropertyString("path"), "Changing the returned text should not change the snapshot");
+        assertTrue(snapshot.sameContent(ServiceInfoSnapshot.of(resolved("path=/index.html", "10.0.0.9"))), "Changing the returned text should not change the content of the snapshot");
+
+        assertThrows(IllegalStateException.class, () -> snapshot.setText(new byte[] { 3, 'a', '=', 'b' }));
+        assertFalse(((ServiceInfo) snapshot) instanceof DNSStatefulObject, "A snapshot should be a plain value");
+        assertEquals(info, snapshot, "A snapshot should equal the information it was taken from");
+        assertEquals(snapshot, info, "The information should equal its snapshot");
+        ServiceInfo copy = snapshot.clone();
+        copy.setText(new byte[] { 3, 'a', '=', 'b' });
+        assertEquals("b", copy.getPropertyString("a"), "A clone of a snapshot should be modifiable");
+    }
+
+    @Test
+    void testRegisteringASnapshotRegistersACopy() throws Exception {
+        try (JmDNS registry = JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1")) {
+            ServiceInfoSnapshot snapshot = ServiceInfoSnapshot.of(new ServiceInfoImpl(TYPE, "apache", "", 80, 0, 0, false, ByteWrangler.encodeText("path=/index.html")));
+            registry.registerService(snapshot);
+            ServiceInfo registered = ((JmDNSImpl) registry).getServices().get(snapshot.getKey());
+            assertNotNull(registered, "The snapshot should have been registered");
+            assertNotSame(snapshot, registered, "A copy should have been registered");
+            assertTrue(((ServiceInfoImpl) registered).waitForAnnounced(DNSConstants.SERVICE_INFO_TIMEOUT), "The copy should be announced");
+
+            registry.unregisterService(snapshot);
+            assertTrue(((JmDNSImpl) registry).getServices().isEmpty(), "The snapshot should unregister its copy");
+        }
+    }
+
+    @Test
+    void testSameContentAndChanges() throws Exception {
+        ServiceInfoSnapshot snapshot = ServiceInfoSnapshot.of(resolved("path=/index.html", "10.0.0.9"));
+        ServiceInfoSnapshot same = ServiceInfoSnapshot.of(resolved("path=/index.html", "10.0.0.9"));
+        assertNotSame(snapshot, same);
+        assertEquals(snapshot.getContentHash(), same.getContentHash());
+        assertTrue(snapshot.sameContent(same));
+        assertEquals(Collections.emptySet(), snapshot.changesFrom(same));
+
+        ServiceInfoSnapshot text = ServiceInfoSnapshot.of(resolved("path=/other.html", "10.0.0.9"));
+        assertFalse(snapshot.sameContent(text));
+        assertEquals(EnumSet.of(ServiceInfoSnapshot.Change.TEXT), text.changesFrom(snapshot));
+
+        ServiceInfoSnapshot address = ServiceInfoSnapshot.of(resolved("path=/index.html", "10.0.0.10"));
+        assertEquals(EnumSet.of(ServiceInfoSnapshot.Change.ADDRESSES), address.changesFrom(snapshot));
+        assertEquals(EnumSet.allOf(ServiceInfoSnapshot.Change.class), address.changesFrom(null));
+    }
+
+    @Test
+    void testListenerKeepsTheSharedSnapshot() throws Exception {
+        final List<ServiceEvent> resolved = new ArrayList<>();
+        ServiceListener listener = new ServiceListener() {
+            @Override
+            public void serviceAdded(ServiceEvent event) {
+                // Ignore
+            }
+
+            @Override
+            public void serviceRemoved(ServiceEvent event) {
+                // Ignore
+            }
+
+            @Override
+            public void serviceResolved(ServiceEvent event) {
+                resolved.add(event);
+            }
+        };
+        ServiceListenerStatus first = new ServiceListenerStatus(listener, ListenerStatus.SYNCHRONOUS);
+        ServiceListenerStatus second = new ServiceListenerStatus(listener, ListenerStatus.SYNCHRONOUS);
+
+        ServiceEvent event = event(resolved("path=/index.html", "10.0.0.9"));
+        first.serviceResolved(event);
+        second.serviceResolved(event);
+        assertEquals(2, resolved.size());
+        assertSame(resolved.get(0).getInfo(), resolved.get(1).getInfo(), "Both listeners should get the same snapshot");
+
+        first.serviceResolved(event(resolved("path=/index.html", "10.0.0.9")));
+        assertEquals(2, resolved.size(), "An unchanged service should not be resolved again");
+
+        first.serviceResolved(event(resolved("path=/other.html", "10.0.0.9")));
+        assertEquals(3, resolved.size(), "A changed text should be resolved again");
+    }
+
+    private static ServiceEvent event(ServiceInfoImpl info) {
+        return new ServiceEventImpl(mock(JmDNSImpl.class), info.getType(), info.getName(), ServiceInfoSnapshot.of(info));
+    }
+
+    private static ServiceInfoImpl resolved(String text, String address) throws Exception {
+        ServiceInfoImpl info = new ServiceInfoImpl(TYPE, "apache", "", 80, 0, 0, false, ByteWrangler.encodeText(text));
+        info.setServer("apache.local.");
+        info.addAddress((Inet4Address) InetAddress.getByName(address));
+        return info;
+    }
+
+}
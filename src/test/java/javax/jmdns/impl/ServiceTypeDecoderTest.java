@@ -16,9 +16,15 @@ package javax.jmdns.impl;
 import org.junit.jupiter.api.Test;
 
 import javax.jmdns.ServiceInfo;
+import javax.jmdns.impl.constants.DNSConstants;
 import java.util.Map;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ServiceTypeDecoderTest {
 
@@ -315,6 +321,38 @@ class ServiceTypeDecoderTest {
         assertEquals("", map.get(ServiceInfo.Fields.Subtype), "We did not get the right subtype:");
     }
 
+    @Test
+    void testLabelDecoderMatchesThePatterns() {
+        String[] labels = { "a", "B", "_", ".", "._", "._sub._", "._SuB._", "_http", "._tcp.", "local.", "in-addr.arpa", "IP6.ARPA", "sub", "-", "\n", "\u0130" };
+        Random random = new Random(5);
+        for (int count = 0; count < 100000; count++) {
+            StringBuilder type = new StringBuilder();
+            for (int length = random.nextInt(9); length > 0; length--) {
+                type.append(labels[random.nextInt(labels.length)]);
+            }
+            String name = type.toString();
+            assertEquals(ServiceTypeDecoder.decodeWithPatterns(name), ServiceTypeDecoder.decodeQualifiedNameMapForType(name), "Wrong fields for \"" + name + "\":");
+        }
+    }
+
+    @Test
+    void testDecodedNamesAreShared() {
+        String type = "shared._http._tcp.local.";
+        Map<ServiceInfo.Fields, String> cached = ServiceTypeDecoder.cachedQualifiedNameMapForType(type);
+        assertSame(cached, ServiceTypeDecoder.cachedQualifiedNameMapForType(new String(type)), "The decoded name should be cached");
+        assertThrows(UnsupportedOperationException.class, () -> cached.put(ServiceInfo.Fields.Instance, "changed"));
+
+        Map<ServiceInfo.Fields, String> copy = ServiceTypeDecoder.decodeQualifiedNameMapForType(type);
+        assertNotSame(cached, copy);
+        copy.put(ServiceInfo.Fields.Instance, "changed");
+        assertEquals("shared", ServiceTypeDecoder.cachedQualifiedNameMapForType(type).get(ServiceInfo.Fields.Instance), "Changing a copy should not change the cache");
+
+        for (int count = 0; count < 2 * DNSConstants.DECODED_NAME_CACHE_SIZE; count++) {
+            ServiceTypeDecoder.cachedQualifiedNameMapForType("host" + count + ".local.");
+        }
+        assertTrue(ServiceTypeDecoder.cachedNameCount() <= DNSConstants.DECODED_NAME_CACHE_SIZE, "The cache should be bounded");
+    }
+
     private void assertDecodeProperly(String type, String... qualifiedMap) {
         Map<ServiceInfo.Fields, String> actual = ServiceTypeDecoder.decodeQualifiedNameMapForType(type);
         Map<ServiceInfo.Fields, String> expected = ServiceInfoImpl.createQualifiedMap(qualifiedMap[0], qualifiedMap[1], qualifiedMap[2], qualifiedMap[3], qualifiedMap[4]);
@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import javax.jmdns.JmDNS;
+import javax.jmdns.ServiceInfo;
+import javax.jmdns.impl.constants.DNSConstants;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class SocketDropMonitorTest {
+
+    @RegisterExtension
+    final VirtualNetworkExtension virtual = new VirtualNetworkExtension(17);
+
+    private static final String HEADER = "   sl  local_address rem_address   st tx_queue rx_queue tr tm->when retrnsmt   uid  timeout inode ref pointer drops\n";
+
+    @Test
+    void testDropsAreReadForOurSockets(@TempDir Path directory) throws IOException {
+        Path udp = directory.resolve("udp");
+        Path udp6 = directory.resolve("udp6");
+        Files.write(udp, (HEADER
+                + "  412: 00000000:14E9 00000000:0000 07 00000000:00000000 00:00000000 00000000   107        0 20245 2 0000000000000000 17\n"
+                + "  412: 00000000:14E9 00000000:0000 07 00000000:00000A00 00:00000000 00000000  1000        0 31337 2 0000000000000000 5\n").getBytes(StandardCharsets.US_ASCII));
+        Files.write(udp6, (HEADER
+                + "  412: 00000000000000000000000000000000:14E9 00000000000000000000000000000000:0000 07 00000000:00000100 00:00000000 00000000  1000        0 31338 2 0000000000000000 2\n").getBytes(StandardCharsets.US_ASCII));
+
+        SocketDropMonitor monitor = new SocketDropMonitor(new HashSet<>(Arrays.asList(31337L, 31338L)), Arrays.asList(udp, udp6));
+        assertEquals(7, monitor.getDrops(), "The drops of the other sockets on the port should not be counted");
+        assertEquals(0xA00 + 0x100, monitor.getReceiveQueue());
+
+        monitor = new SocketDropMonitor(new HashSet<>(Arrays.asList(42L)), Arrays.asList(udp, directory.resolve("missing")));
+        assertEquals(-1, monitor.getDrops(), "Unknown sockets should not read as no drop");
+    }
+
+    @Test
+    void testReceiveStatistics() throws IOException {
+        try (JmDNS registry = JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1"); JmDNS browser = JmDNS.create(InetAddress.getByName("10.0.0.2"), "host2")) {
+            ServiceInfo service = ServiceInfo.create("_html._tcp.local.", "statistics", 80, 0, 0, true, new HashMap<String, byte[]>());
+            registry.registerService(service);
+            assertTrue(((ServiceInfoImpl) service).waitForAnnounced(DNSConstants.SERVICE_INFO_TIMEOUT));
+            assertEquals(1, browser.list(service.getType()).length);
+
+            ReceiveStatistics statistics = ((JmDNSImpl) browser).getReceiveStatistics();
+            assertTrue(statistics.getParsedCount() > 0);
+            assertTrue(statistics.getHandledCount() > 0);
+            assertTrue(statistics.getMaxHandleTime(TimeUnit.NANOSECONDS) >= statistics.getAverageHandleTime(TimeUnit.NANOSECONDS));
+            assertNull(statistics.getDropMonitor(), "The virtual transport has no socket");
+            assertEquals(-1, statistics.getKernelDrops());
+        }
+    }
+
+}
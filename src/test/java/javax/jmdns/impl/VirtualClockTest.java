@@ -0,0 +1,271 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.jmdns.JmDNS;
+import javax.jmdns.ServiceInfo;
+import javax.jmdns.impl.constants.DNSConstants;
+import javax.jmdns.impl.constants.DNSRecordClass;
+import javax.jmdns.impl.constants.DNSRecordType;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class VirtualClockTest {
+
+    @RegisterExtension
+    final VirtualNetworkExtension virtual = new VirtualNetworkExtension();
+
+    private VirtualClock clock;
+
+    @BeforeEach
+    public void setup() {
+        clock = new VirtualClock(1_000_000L);
+        DNSClock.Factory.setClock(clock);
+    }
+
+    @AfterEach
+    public void teardown() {
+        DNSClock.Factory.setClock(null);
+    }
+
+    @Test
+    void testTimerRunsInVirtualTime() {
+        final List<Long> runs = new ArrayList<>();
+        Timer timer = clock.newTimer("test", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                runs.add(clock.currentTimeMillis());
+            }
+        }, 1000, 500);
+
+        clock.advance(999);
+        assertTrue(runs.isEmpty(), "The task should not run before its delay");
+        clock.advance(2001);
+        assertEquals(5, runs.size(), "The periodic task should have run every 500ms");
+        assertEquals(1_001_000L, runs.get(0).longValue());
+        assertEquals(1_003_000L, runs.get(4).longValue());
+        assertEquals(1_003_000L, clock.currentTimeMillis());
+
+        timer.cancel();
+        clock.advance(10000);
+        assertEquals(5, runs.size(), "A cancelled timer should not run tasks");
+        assertEquals(0, clock.getPendingTaskCount());
+    }
+
+    @Test
+    void testSleepWaitsForVirtualTime() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> sleeper = executor.submit(() -> {
+                clock.sleep(60000);
+                return null;
+            });
+            Thread.sleep(100);
+            assertFalse(sleeper.isDone(), "The sleeper should wait for the virtual time");
+            clock.advance(60000);
+            sleeper.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRecordExpiresInVirtualTime() {
+        DNSRecord record = new DNSRecord.Pointer("_html._tcp.local.", DNSRecordClass.CLASS_IN, false, 120, "apache._html._tcp.local.");
+        assertFalse(record.isExpired(clock.currentTimeMillis()));
+        clock.advance(119_000);
+        assertFalse(record.isExpired(clock.currentTimeMillis()));
+        clock.advance(2_000);
+        assertTrue(record.isExpired(clock.currentTimeMillis()), "The record should have expired after its TTL");
+    }
+
+    @Test
+    void testServiceSurvivesHoursOfVirtualTime() throws Exception {
+        Map<String, byte[]> properties = new HashMap<>();
+        properties.put("srvname", "Test hypothetical web server".getBytes());
+        final ServiceInfo service = ServiceInfo.create("_html._tcp.local.", "apache-someuniqueid", 80, 0, 0, true, properties);
+
+        final JmDNS registry = JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1");
+        final JmDNS browser = JmDNS.create(InetAddress.getByName("10.0.0.2"), "host2");
+        try {
+            runWhileAdvancing(() -> {
+                registry.registerService(service);
+                return null;
+            });
+            ServiceInfo[] services = runWhileAdvancing(() -> browser.list(service.getType()));
+            assertEquals(1, services.length, "We should see the service registered on the other instance: ");
+
+            // Two hours, well past every record TTL, the renewer has to keep the records alive
+            final long end = clock.currentTimeMillis() + 2 * 3600 * 1000L;
+            while (clock.currentTimeMillis() < end) {
+                clock.advance(5000);
+                Thread.sleep(1);
+            }
+            DNSEntry entry = ((JmDNSImpl) browser).getCache().getDNSEntry(service.getQualifiedName(), DNSRecordType.TYPE_SRV, DNSRecordClass.CLASS_IN);
+            assertNotNull(entry, "The service record should have been renewed");
+            assertFalse(entry.isExpired(clock.currentTimeMillis()), "The service record should have been renewed");
+        } finally {
+            runWhileAdvancing(() -> {
+                registry.close();
+                browser.close();
+                return null;
+            });
+        }
+    }
+
+    @Test
+    void testTimerCancelledFromItsTaskStopsIt() {
+        final List<Long> runs = new ArrayList<>();
+        final Timer timer = clock.newTimer("test", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                runs.add(clock.currentTimeMillis());
+                if (runs.size() == 2) {
+                    timer.cancel();
+                }
+            }
+        }, 0, 100);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                runs.add(-clock.currentTimeMillis());
+            }
+        }, 1000);
+
+        clock.advance(2000);
+        assertEquals(2, runs.size(), "Neither the periodic task nor the other task of the cancelled timer should run again");
+        assertEquals(0, clock.getPendingTaskCount());
+    }
+
+    @Test
+    void testRenewalsAreSpreadAndPaced() throws Exception {
+        // Large text records so the renewals need more packets than the rate allows
+        final StringBuilder text = new StringBuilder();
+        while (text.length() < 200) {
+            text.append("Test hypothetical web server ");
+        }
+        final List<ServiceInfo> services = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Map<String, byte[]> properties = new HashMap<>();
+            properties.put("a", text.toString().getBytes());
+            properties.put("b", text.toString().getBytes());
+            services.add(ServiceInfo.create("_html._tcp.local.", "apache-" + i, 8000 + i, 0, 0, properties));
+        }
+
+        final JmDNS registry = JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1");
+        ((JmDNSImpl) registry).setRenewalRate(2);
+        try {
+            runWhileAdvancing(() -> registry.registerServices(services).get());
+
+            // Follow the traffic second by second over the whole renewal interval
+            final int seconds = DNSConstants.ANNOUNCED_RENEWAL_TTL_INTERVAL / 1000 + 10;
+            final int[] profile = new int[seconds];
+            for (int i = 0; i < seconds; i++) {
+                final long before = virtual.getNetwork().getSentCount();
+                clock.advance(1000);
+                profile[i] = (int) (virtual.getNetwork().getSentCount() - before);
+            }
+
+            int total = 0;
+            int busySeconds = 0;
+            int peak = 0;
+            for (int packets : profile) {
+                total += packets;
+                busySeconds += (packets > 0 ? 1 : 0);
+                peak = Math.max(peak, packets);
+            }
+            assertTrue(total > 0, "The services should have been renewed");
+            assertTrue(peak <= 3, "The renewals should be paced to the rate, peak was " + peak);
+            for (int i = 0; i + 5 <= seconds; i++) {
+                final int window = profile[i] + profile[i + 1] + profile[i + 2] + profile[i + 3] + profile[i + 4];
+                assertTrue(window <= 5 * 2 + 1, "An overrun should be paid back on the next second, " + window + " packets in 5 seconds");
+            }
+            assertTrue(busySeconds >= 10, "The renewals should be spread over the renewal window, only " + busySeconds + " busy seconds");
+            for (ServiceInfo service : services) {
+                assertTrue(((ServiceInfoImpl) service).isAnnounced(), "The service should still be announced: " + service);
+            }
+        } finally {
+            runWhileAdvancing(() -> {
+                registry.close();
+                return null;
+            });
+        }
+    }
+
+    @Test
+    void testKnownAnswerContinuationsDoNotBlockTheTimer() throws Exception {
+        final List<ServiceInfo> services = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            services.add(ServiceInfo.create("_html._tcp.local.", "apache-" + i, 8000 + i, 0, 0, new HashMap<String, byte[]>()));
+        }
+
+        final JmDNS registry = JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1");
+        final JmDNSImpl browser = (JmDNSImpl) JmDNS.create(InetAddress.getByName("10.0.0.2"), "host2");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            runWhileAdvancing(() -> registry.registerServices(services).get());
+            ServiceInfo[] listed = runWhileAdvancing(() -> browser.list("_html._tcp.local."));
+            assertTrue(listed.length > 50, "The known answers should not fit in one packet, only " + listed.length + " services");
+
+            // The timer runs on the advancing thread, a task waiting for the virtual time would never return
+            browser.startServiceResolver("_html._tcp.local.");
+            final long before = virtual.getNetwork().getSentCount();
+            Future<?> advance = executor.submit(() -> clock.advance(4 * DNSConstants.QUERY_WAIT_INTERVAL));
+            advance.get(5, TimeUnit.SECONDS);
+            assertTrue(virtual.getNetwork().getSentCount() - before > 3, "The continuation packets should have been sent");
+        } finally {
+            executor.shutdownNow();
+            runWhileAdvancing(() -> {
+                registry.close();
+                browser.close();
+                return null;
+            });
+        }
+    }
+
+    private <T> T runWhileAdvancing(Callable<T> action) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<T> result = executor.submit(action);
+            while (!result.isDone()) {
+                clock.advance(10);
+                Thread.sleep(1);
+            }
+            return result.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
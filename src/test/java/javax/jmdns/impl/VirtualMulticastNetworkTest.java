@@ -0,0 +1,198 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.jmdns.JmDNS;
+import javax.jmdns.ServiceInfo;
+import javax.jmdns.impl.constants.DNSConstants;
+import javax.jmdns.impl.constants.DNSRecordClass;
+import javax.jmdns.impl.constants.DNSRecordType;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class VirtualMulticastNetworkTest {
+
+    @RegisterExtension
+    final VirtualNetworkExtension virtual = new VirtualNetworkExtension(42);
+
+    private ServiceInfo service;
+
+    @BeforeEach
+    public void setup() {
+        Map<String, byte[]> properties = new HashMap<>();
+        properties.put("srvname", "Test hypothetical web server".getBytes());
+        service = ServiceInfo.create("_html._tcp.local.", "apache-someuniqueid", 80, 0, 0, true, properties);
+    }
+
+    @Test
+    void testInstancesUseVirtualTransport() throws IOException {
+        try (JmDNS registry = JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1")) {
+            assertTrue(((JmDNSImpl) registry).getTransport() instanceof VirtualMulticastNetwork.VirtualTransport, "The virtual transport should be used");
+            assertNull(((JmDNSImpl) registry).getSocket(), "There should be no real socket");
+            assertEquals(1, virtual.getNetwork().getTransportCount());
+        }
+        assertEquals(0, virtual.getNetwork().getTransportCount(), "Closing the instance should detach the transport");
+    }
+
+    @Test
+    void testDatagramsComeFromTheMdnsPort() throws IOException {
+        DNSTransport sender = virtual.getNetwork().newDNSTransport(null, HostInfo.newHostInfo(InetAddress.getByName("10.0.0.1"), null, "host1"));
+        DNSTransport receiver = virtual.getNetwork().newDNSTransport(null, HostInfo.newHostInfo(InetAddress.getByName("10.0.0.2"), null, "host2"));
+        try {
+            byte[] reply = { 0, 0, (byte) 0x84, 0, 0, 0, 0, 0, 0, 0, 0, 0 };
+            sender.send(new DatagramPacket(reply, reply.length, InetAddress.getByName("10.0.0.2"), 5354));
+            DatagramPacket received = new DatagramPacket(new byte[DNSConstants.MAX_MSG_ABSOLUTE], DNSConstants.MAX_MSG_ABSOLUTE);
+            receiver.receive(received);
+            assertEquals(InetAddress.getByName("10.0.0.1"), received.getAddress());
+            assertEquals(DNSConstants.MDNS_PORT, received.getPort(), "A reply to another port should still come from the mDNS port of its sender");
+        } finally {
+            sender.close();
+            receiver.close();
+        }
+    }
+
+    @Test
+    void testRegisterAndListServiceOnOtherInstance() throws IOException {
+        virtual.getNetwork().setLatency(1, 5);
+        try (JmDNS registry = JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1"); JmDNS browser = JmDNS.create(InetAddress.getByName("10.0.0.2"), "host2")) {
+            registry.registerService(service);
+
+            ServiceInfo[] services = browser.list(service.getType());
+            assertEquals(1, services.length, "We should see the service registered on the other instance: ");
+            assertEquals(service.getName(), services[0].getName());
+            assertEquals(InetAddress.getByName("10.0.0.1"), services[0].getInetAddresses()[0]);
+        }
+        assertTrue(virtual.getNetwork().getDeliveredCount() > 0, "Datagrams should have been delivered");
+        assertEquals(0, virtual.getNetwork().getDroppedCount());
+    }
+
+    @Test
+    void testListReturnsOnceComplete() throws IOException {
+        try (JmDNS registry = JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1"); JmDNS browser = JmDNS.create(InetAddress.getByName("10.0.0.2"), "host2")) {
+            registry.registerService(service);
+            assertTrue(((ServiceInfoImpl) service).waitForAnnounced(DNSConstants.SERVICE_INFO_TIMEOUT));
+
+            long start = System.nanoTime();
+            ServiceInfo[] services = browser.list(service.getType());
+            assertEquals(1, services.length, "We should see the service registered on the other instance: ");
+            assertTrue(services[0].hasData(), "The service should be resolved");
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < DNSConstants.SERVICE_INFO_TIMEOUT / 2, "The list should not wait for the timeout once the answers stopped");
+
+            start = System.nanoTime();
+            services = browser.list(service.getType(), DNSConstants.SERVICE_INFO_TIMEOUT, 0);
+            assertEquals(1, services.length);
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100, "A warm list should not wait");
+        }
+    }
+
+    @Test
+    void testTotalLoss() throws IOException {
+        virtual.getNetwork().setLossProbability(1.0);
+        try (JmDNS registry = JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1"); JmDNS browser = JmDNS.create(InetAddress.getByName("10.0.0.2"), "host2")) {
+            registry.registerService(service);
+
+            ServiceInfo[] services = browser.list(service.getType(), 1000);
+            assertEquals(0, services.length, "Nothing should cross a network that drops every datagram");
+        }
+        assertEquals(0, virtual.getNetwork().getDeliveredCount());
+        assertTrue(virtual.getNetwork().getDroppedCount() > 0, "Datagrams should have been dropped");
+    }
+
+    @Test
+    void testTruncatedQueriesAreReassembledPerSender() throws IOException {
+        try (JmDNS registry = JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1")) {
+            JmDNSImpl dns = (JmDNSImpl) registry;
+            InetAddress sender1 = InetAddress.getByName("10.0.0.2");
+            InetAddress sender2 = InetAddress.getByName("10.0.0.3");
+
+            // Multicast queries, both answered on the group
+            dns.handlePacket(this.query(sender1, true, false, "first"));
+            dns.handlePacket(this.query(sender2, true, false, "second"));
+            dns.handlePacket(this.query(sender1, false, false, "first-continued"));
+            dns.handlePacket(this.query(sender2, false, false, "second-continued"));
+
+            DNSIncoming first = dns.getPlannedAnswer(sender1, DNSConstants.MDNS_PORT);
+            DNSIncoming second = dns.getPlannedAnswer(sender2, DNSConstants.MDNS_PORT);
+            assertNotNull(first, "The first query should wait for the responder");
+            assertNotNull(second, "The second query should wait for the responder");
+            assertNotSame(first, second, "The queries of two senders should not be merged");
+            assertEquals(2, first.getAnswers().size(), "Each query should only get the continuation of its sender");
+            assertEquals(2, second.getAnswers().size(), "Each query should only get the continuation of its sender");
+            for (DNSRecord answer : first.getAnswers()) {
+                assertTrue(((DNSRecord.Pointer) answer).getAlias().startsWith("first"), "Known answer of the wrong sender: " + answer);
+            }
+            for (DNSRecord answer : second.getAnswers()) {
+                assertTrue(((DNSRecord.Pointer) answer).getAlias().startsWith("second"), "Known answer of the wrong sender: " + answer);
+            }
+
+            // A QU query is answered to its sender, its continuation has no question and still joins it
+            InetAddress sender3 = InetAddress.getByName("10.0.0.4");
+            dns.handlePacket(this.query(sender3, true, true, "third"));
+            dns.handlePacket(this.query(sender3, false, false, "third-continued"));
+            DNSIncoming third = dns.getPlannedAnswer(sender3, DNSConstants.MDNS_PORT);
+            assertNotNull(third, "The QU query should wait for the responder");
+            assertEquals(2, third.getAnswers().size(), "The continuation should join the QU query of its sender");
+
+            VirtualNetworkExtension.waitFor(() -> dns.getPlannedAnswer(sender1, DNSConstants.MDNS_PORT) == null, "The responder should release the query");
+        }
+    }
+
+    @Test
+    void testRecoverReopensTransportOnly() throws IOException {
+        try (JmDNS registry = JmDNS.create(InetAddress.getByName("10.0.0.1"), "host1"); JmDNS browser = JmDNS.create(InetAddress.getByName("10.0.0.2"), "host2")) {
+            registry.registerService(service);
+            assertTrue(((ServiceInfoImpl) service).waitForAnnounced(DNSConstants.SERVICE_INFO_TIMEOUT));
+            assertEquals(1, browser.list(service.getType()).length);
+
+            JmDNSImpl dns = (JmDNSImpl) browser;
+            DNSTransport transport = dns.getTransport();
+            int cached = dns.getCache().allValues().size();
+            dns.recover();
+            VirtualNetworkExtension.waitFor(() -> (dns.getTransport() != null) && (dns.getTransport() != transport) && transport.isClosed(), "The transport should be reopened");
+            assertNotNull(dns.getTransport(), "The new transport should be published once open");
+            assertNotSame(transport, dns.getTransport(), "The transport should be reopened");
+            assertTrue(transport.isClosed());
+            assertTrue(dns.isAnnounced(), "The instance should not go through probing again");
+            assertTrue(dns.getCache().allValues().size() >= cached, "The cache should be kept");
+            assertTrue(dns.getCache().allValues().stream().noneMatch(entry -> ((DNSRecord) entry).isUnverified()), "Only the records due for a refresh should be confirmed again");
+
+            // The records are trusted again once confirmed
+            ServiceInfo[] services = browser.list(service.getType());
+            assertEquals(1, services.length, "We should still see the service after recovering");
+            assertEquals(2, virtual.getNetwork().getTransportCount());
+        }
+    }
+
+    private DatagramPacket query(InetAddress sender, boolean truncated, boolean unicast, String knownAnswer) throws IOException {
+        DNSOutgoing out = new DNSOutgoing(DNSConstants.FLAGS_QR_QUERY | (truncated ? DNSConstants.FLAGS_TC : 0));
+        if (truncated) {
+            out.addQuestion(DNSQuestion.newQuestion(service.getType(), DNSRecordType.TYPE_PTR, DNSRecordClass.CLASS_IN, unicast));
+        }
+        out.addAnswer(new DNSRecord.Pointer(service.getType(), DNSRecordClass.CLASS_IN, false, DNSConstants.DNS_TTL, knownAnswer + "." + service.getType()), 0);
+        byte[] data = out.data();
+        return new DatagramPacket(data, data.length, sender, DNSConstants.MDNS_PORT);
+    }
+
+}
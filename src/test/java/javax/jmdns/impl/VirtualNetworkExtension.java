@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.jmdns.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import javax.jmdns.impl.constants.DNSConstants;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Runs each test of a class on a fresh {@link VirtualMulticastNetwork}: every instance created by the test uses its transport, and the network is shut down once the test is over.
+ *
+ * <pre>
+ * &#64;RegisterExtension
+ * final VirtualNetworkExtension virtual = new VirtualNetworkExtension(42);
+ * </pre>
+ */
+class VirtualNetworkExtension implements BeforeEachCallback, AfterEachCallback {
+
+    /**
+     * A condition the test waits for.
+     */
+    interface Condition {
+        boolean holds() throws Exception;
+    }
+
+    private final Random            _random;
+
+    private VirtualMulticastNetwork _network;
+
+    /**
+     * Create the extension with an unseeded network.
+     */
+    VirtualNetworkExtension() {
+        this(new Random());
+    }
+
+    /**
+     * Create the extension with a seeded network, so the latencies and losses are the same on every run.
+     *
+     * @param seed
+     *            seed of the random latencies and losses
+     */
+    VirtualNetworkExtension(long seed) {
+        this(new Random(seed));
+    }
+
+    private VirtualNetworkExtension(Random random) {
+        super();
+        _random = random;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.junit.jupiter.api.extension.BeforeEachCallback#beforeEach(org.junit.jupiter.api.extension.ExtensionContext)
+     */
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        _network = new VirtualMulticastNetwork(_random);
+        DNSTransport.Factory.setClassDelegate(_network);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.junit.jupiter.api.extension.AfterEachCallback#afterEach(org.junit.jupiter.api.extension.ExtensionContext)
+     */
+    @Override
+    public void afterEach(ExtensionContext context) {
+        DNSTransport.Factory.setClassDelegate(null);
+        _network.shutdown();
+        _network = null;
+    }
+
+    /**
+     * @return the network of the running test
+     */
+    VirtualMulticastNetwork getNetwork() {
+        return _network;
+    }
+
+    /**
+     * Wait for a condition, failing the test if it does not hold within {@link DNSConstants#SERVICE_INFO_TIMEOUT}.
+     *
+     * @param condition
+     *            condition to wait for
+     * @param message
+     *            failure message
+     */
+    static void waitFor(Condition condition, String message) {
+        final long deadline = System.currentTimeMillis() + DNSConstants.SERVICE_INFO_TIMEOUT;
+        try {
+            while (!condition.holds()) {
+                assertTrue(System.currentTimeMillis() < deadline, "Timed out: " + message);
+                Thread.sleep(10);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            fail("Interrupted: " + message);
+        } catch (Exception exception) {
+            fail(message, exception);
+        }
+    }
+
+}